@@ -122,3 +122,74 @@ ALTER TABLE user
     ADD COLUMN vipExpireTime datetime NULL COMMENT '会员过期时间',
     ADD COLUMN vipCode varchar(128) NULL COMMENT '会员兑换码',
     ADD COLUMN vipNumber bigint NULL COMMENT '会员编号';
+
+-- 图片文件表：按内容 SHA-256 去重，记录对象存储文件被多少张图片引用
+create table if not exists picture_file
+(
+    id           bigint auto_increment comment 'id' primary key,
+    contentHash  char(64)                           null comment '内容 SHA-256（历史数据为空）',
+    url          varchar(512)                       not null comment '图片 url',
+    thumbnailUrl varchar(512)                       null comment '缩略图 url',
+    picSize      bigint                             null comment '图片体积',
+    picWidth     int                                null comment '图片宽度',
+    picHeight    int                                null comment '图片高度',
+    picScale     double                             null comment '图片宽高比例',
+    picFormat    varchar(32)                        null comment '图片格式',
+    picColor     varchar(16)                        null comment '图片主色调',
+    refCount     int      default 0                 not null comment '引用计数',
+    createTime   datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime   datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    UNIQUE KEY uk_contentHash (contentHash), -- 按内容摘要秒传
+    UNIQUE KEY uk_url (url)                  -- 删除图片时按 url 扣减引用
+) comment '图片文件' collate = utf8mb4_unicode_ci;
+
+-- 回填历史图片的引用计数
+insert ignore into picture_file (url, thumbnailUrl, picSize, picWidth, picHeight, picScale, picFormat, picColor, refCount)
+select url, max(thumbnailUrl), max(picSize), max(picWidth), max(picHeight), max(picScale), max(picFormat), max(picColor), count(*)
+from picture
+where isDelete = 0
+group by url;
+
+-- 异步处理上传图片，添加新列
+ALTER TABLE picture
+    ADD COLUMN processStatus int default 0 not null comment '处理状态：0-已完成; 1-处理中; 2-处理失败';
+
+-- 游标分页：按 (spaceId, 排序字段, id) 定位，不扫描前面的行（InnoDB 二级索引末尾自带主键 id）
+CREATE INDEX idx_spaceId_createTime ON picture (spaceId, createTime);
+CREATE INDEX idx_spaceId_editTime ON picture (spaceId, editTime);
+
+-- 图片标签表：把 picture.tags（JSON 数组）拆成一行一个标签，按标签筛选时走索引求交集
+create table if not exists picture_tag
+(
+    id         bigint auto_increment comment 'id' primary key,
+    pictureId  bigint                             not null comment '图片 id',
+    spaceId    bigint                             null comment '空间 id（为空表示公共图库）',
+    tag        varchar(128)                       not null comment '标签',
+    createTime datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    UNIQUE KEY uk_pictureId_tag (pictureId, tag),    -- 修改标签时按图片删除
+    INDEX idx_spaceId_tag (spaceId, tag, pictureId)  -- 按空间 + 标签筛选（覆盖索引）
+) comment '图片标签' collate = utf8mb4_unicode_ci;
+
+-- 回填历史图片的标签（MySQL 8.0+，非法 JSON 视为无标签）
+insert ignore into picture_tag (pictureId, spaceId, tag)
+select p.id, p.spaceId, trim(jt.tag)
+from picture p,
+     json_table(if(json_valid(p.tags), p.tags, '[]'), '$[*]' columns (tag varchar(128) path '$')) jt
+where p.isDelete = 0
+  and jt.tag is not null
+  and trim(jt.tag) != '';
+
+-- 标签筛选改为查询 picture_tag，原来的 tags 索引不再使用
+DROP INDEX idx_tags ON picture;
+
+-- 图片文件按存储范围去重：对象的访问权限由对象键前缀（public/、space/{空间id}/）决定，不同范围之间不能共用文件
+ALTER TABLE picture_file
+    ADD COLUMN storageScope varchar(64) default 'public' not null comment '存储范围：public 或 space/{空间id}' AFTER contentHash;
+
+UPDATE picture_file
+SET storageScope = substring_index(substring(url, locate('/space/', url) + 1), '/', 2)
+WHERE locate('/space/', url) > 0;
+
+ALTER TABLE picture_file
+    DROP INDEX uk_contentHash,
+    ADD UNIQUE KEY uk_storageScope_contentHash (storageScope, contentHash);
@@ -0,0 +1,86 @@
+package com.polar.cloudimage.common;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.OrderItem;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 总数可能不精确的分页（总数来自缓存，可能比实际数据滞后几十秒）
+ * 分页查询时不执行 COUNT，总数由调用方填充
+ */
+@Data
+public class ApproximatePage<T> implements IPage<T>, Serializable {
+
+    /**
+     * 当前页数据
+     */
+    private List<T> records = Collections.emptyList();
+
+    /**
+     * 总数
+     */
+    private long total;
+
+    /**
+     * 每页数量
+     */
+    private long size = 10;
+
+    /**
+     * 当前页
+     */
+    private long current = 1;
+
+    /**
+     * 总数是否为近似值
+     */
+    private boolean approximate;
+
+    public ApproximatePage() {
+    }
+
+    public ApproximatePage(long current, long size) {
+        this.current = current;
+        this.size = size;
+    }
+
+    @Override
+    public List<OrderItem> orders() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean searchCount() {
+        return false;
+    }
+
+    @Override
+    public ApproximatePage<T> setRecords(List<T> records) {
+        this.records = records;
+        return this;
+    }
+
+    @Override
+    public ApproximatePage<T> setTotal(long total) {
+        this.total = total;
+        return this;
+    }
+
+    @Override
+    public ApproximatePage<T> setSize(long size) {
+        this.size = size;
+        return this;
+    }
+
+    @Override
+    public ApproximatePage<T> setCurrent(long current) {
+        this.current = current;
+        return this;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
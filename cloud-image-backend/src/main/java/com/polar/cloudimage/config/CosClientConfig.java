@@ -41,6 +41,36 @@ public class CosClientConfig {
      */
     private String bucket;
 
+    /**
+     * 最大连接数
+     */
+    private int maxConnectionsCount = 256;
+
+    /**
+     * 连接超时（毫秒）
+     */
+    private int connectionTimeout = 3000;
+
+    /**
+     * 读写超时（毫秒）
+     */
+    private int socketTimeout = 30000;
+
+    /**
+     * 从连接池获取连接的超时（毫秒）
+     */
+    private int connectionRequestTimeout = 3000;
+
+    /**
+     * 存储 I/O 线程数
+     */
+    private int ioThreads = 32;
+
+    /**
+     * 存储 I/O 排队上限
+     */
+    private int ioQueueCapacity = 256;
+
     @Bean
     public COSClient cosClient() {
         // 1 初始化用户身份信息（secretId, secretKey）。
@@ -52,6 +82,11 @@ public class CosClientConfig {
         // 这里建议设置使用 https 协议
         // 从 5.6.54 版本开始，默认使用了 https
         clientConfig.setHttpProtocol(HttpProtocol.https);
+        // 连接池和超时，COS 变慢时请求尽快失败，不长时间占住线程
+        clientConfig.setMaxConnectionsCount(maxConnectionsCount);
+        clientConfig.setConnectionTimeout(connectionTimeout);
+        clientConfig.setSocketTimeout(socketTimeout);
+        clientConfig.setConnectionRequestTimeout(connectionRequestTimeout);
         // 3 生成 cos 客户端。
         return new COSClient(cred, clientConfig);
     }
@@ -0,0 +1,70 @@
+package com.polar.cloudimage.config;
+
+import lombok.Data;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 抓取远程图片使用的 HTTP 客户端
+ * 连接池复用长连接，所有阶段都有超时，避免远程服务器无响应时一直占用请求线程
+ */
+@Configuration
+@ConfigurationProperties(prefix = "http.client")
+@Data
+public class HttpClientConfig {
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 单个域名最大连接数
+     */
+    private int maxPerRoute = 20;
+
+    /**
+     * 建立连接超时（毫秒）
+     */
+    private int connectTimeout = 3000;
+
+    /**
+     * 读取超时，两次读到数据的最大间隔（毫秒）
+     */
+    private int socketTimeout = 10000;
+
+    /**
+     * 从连接池获取连接超时（毫秒）
+     */
+    private int connectionRequestTimeout = 3000;
+
+    /**
+     * 空闲连接保留时间（秒）
+     */
+    private int idleTimeout = 30;
+
+    @Bean
+    public CloseableHttpClient httpClient() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout(connectTimeout)
+                .setSocketTimeout(socketTimeout)
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .build();
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.SECONDS)
+                .build();
+    }
+}
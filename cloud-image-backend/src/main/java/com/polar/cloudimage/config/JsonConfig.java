@@ -2,7 +2,9 @@ package com.polar.cloudimage.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import com.polar.cloudimage.model.vo.PictureVO;
 import org.springframework.boot.jackson.JsonComponent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
@@ -23,6 +25,9 @@ public class JsonConfig {
         module.addSerializer(Long.class, ToStringSerializer.instance);
         module.addSerializer(Long.TYPE, ToStringSerializer.instance);
         objectMapper.registerModule(module);
+        // 图片视图关联过滤器 id，默认不过滤，按投影查询的列表响应再指定过滤器
+        objectMapper.addMixIn(PictureVO.class, PictureProjectionResponseAdvice.PictureVOFilterMixin.class);
+        objectMapper.setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
         return objectMapper;
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.polar.cloudimage.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 本地文件存储配置（storage.backend = local 时生效）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "storage.local")
+@Data
+public class LocalStorageConfig {
+
+    /**
+     * 存储根目录
+     */
+    private String rootDir = "./storage";
+
+    /**
+     * 访问地址域名（由 FileController 的 /file/object 接口提供访问）
+     */
+    private String host = "http://localhost:8123/api/file/object";
+}
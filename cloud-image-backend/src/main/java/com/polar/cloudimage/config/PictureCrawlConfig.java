@@ -0,0 +1,49 @@
+package com.polar.cloudimage.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 批量抓取图片配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "picture.crawl")
+@Data
+public class PictureCrawlConfig {
+
+    /**
+     * 图片搜索页地址，参数依次为搜索词、偏移量
+     */
+    private String sourceUrl = "https://cn.bing.com/images/async?q=%s&first=%d&mmasync=1";
+
+    /**
+     * 每页图片数量（翻页步长）
+     */
+    private int pageSize = 35;
+
+    /**
+     * 单个任务同时下载上传的图片数
+     */
+    private int parallelism = 8;
+
+    /**
+     * 同一图片域名同时下载的图片数（所有任务共享）
+     */
+    private int maxPerHost = 4;
+
+    /**
+     * 每批入库的图片数
+     */
+    private int batchSize = 20;
+
+    /**
+     * 单个任务最多抓取的图片数
+     */
+    private int maxCount = 1000;
+
+    /**
+     * 同时运行的任务数
+     */
+    private int maxRunningJobs = 2;
+}
@@ -0,0 +1,79 @@
+package com.polar.cloudimage.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 按投影查询的图片列表响应不输出为 null 的图片字段（未查询的列）
+ * 只对调用了 {@link #omitNullFields} 的请求生效，其他接口的图片视图照常输出 null 字段
+ */
+@RestControllerAdvice
+public class PictureProjectionResponseAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    /**
+     * 图片视图的 Jackson 过滤器 id（通过 {@link PictureVOFilterMixin} 关联，见 {@link JsonConfig}）
+     */
+    public static final String FILTER_ID = "pictureVOProjection";
+
+    private static final String OMIT_NULL_ATTRIBUTE = "cloudimage.pictureProjectionOmitNull";
+
+    private static final FilterProvider OMIT_NULL_FILTERS = new SimpleFilterProvider()
+            .addFilter(FILTER_ID, new NonNullPropertyFilter());
+
+    /**
+     * 当前请求的响应中图片视图不输出 null 字段
+     *
+     * @param request 请求
+     */
+    public static void omitNullFields(HttpServletRequest request) {
+        request.setAttribute(OMIT_NULL_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest && Boolean.TRUE.equals(
+                ((ServletServerHttpRequest) request).getServletRequest().getAttribute(OMIT_NULL_ATTRIBUTE))) {
+            bodyContainer.setFilters(OMIT_NULL_FILTERS);
+        }
+    }
+
+    /**
+     * 为图片视图指定过滤器 id，只注册到 Spring MVC 的 ObjectMapper
+     */
+    @JsonFilter(FILTER_ID)
+    public interface PictureVOFilterMixin {
+    }
+
+    /**
+     * 跳过值为 null 的属性
+     */
+    private static class NonNullPropertyFilter extends SimpleBeanPropertyFilter {
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider,
+                                     PropertyWriter writer) throws Exception {
+            if (writer instanceof BeanPropertyWriter && ((BeanPropertyWriter) writer).get(pojo) == null) {
+                return;
+            }
+            writer.serializeAsField(pojo, jgen, provider);
+        }
+    }
+}
@@ -16,4 +16,9 @@ public interface PictureConstant {
 
     final List<String> ALLOW_CONTENT_TYPES = Arrays.asList("image/jpeg", "image/jpg", "image/png", "image/webp");
 
+    /**
+     * 单张图片大小上限 5M
+     */
+    final long MAX_PICTURE_SIZE = 5 * 1024 * 1024;
+
 }
@@ -6,24 +6,36 @@ import com.polar.cloudimage.common.ResultUtils;
 import com.polar.cloudimage.constant.UserConstant;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
-import com.polar.cloudimage.manager.CosManager;
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.COSObjectInputStream;
-import com.qcloud.cos.utils.IOUtils;
+import com.polar.cloudimage.exception.ThrowUtils;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import com.polar.cloudimage.manager.auth.SpaceUserAuthManager;
+import com.polar.cloudimage.manager.auth.module.SpaceUserPermissionConstant;
+import com.polar.cloudimage.manager.storage.LocalStorageBackend;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.model.entity.Space;
+import com.polar.cloudimage.model.entity.User;
+import com.polar.cloudimage.service.SpaceService;
+import com.polar.cloudimage.service.UserService;
 import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestPart;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
-import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * @author polar
@@ -36,8 +48,49 @@ import java.io.IOException;
 @Slf4j
 public class FileController {
 
+    /**
+     * 对象访问接口路径
+     */
+    private static final String OBJECT_PATH = "/file/object/";
+
+    /**
+     * 公共图库对象键前缀
+     */
+    private static final String PUBLIC_PREFIX = "public/";
+
+    /**
+     * 空间对象键前缀
+     */
+    private static final String SPACE_PREFIX = "space/";
+
+    /**
+     * Tomcat sendfile 请求属性（容器在请求结束后用 FileChannel#transferTo 直接发送文件）
+     */
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    @Resource
+    private StorageBackend storageBackend;
+
+    /**
+     * 本地存储，使用对象存储时为 null
+     */
+    @Autowired(required = false)
+    private LocalStorageBackend localStorageBackend;
+
+    @Resource
+    private UserService userService;
+
     @Resource
-    private CosManager cosManager;
+    private SpaceService spaceService;
+
+    @Resource
+    private SpaceUserAuthManager spaceUserAuthManager;
 
     @AuthCheck(mushRole = UserConstant.ADMIN_ROLE)
     @PostMapping("/test/upload")
@@ -46,56 +99,78 @@ public class FileController {
         String filename = multipartFile.getOriginalFilename();
         String filePath = String.format("/test/%s", filename);
 
-        File file = null;
-
-        try {
-            file = File.createTempFile(filePath, null);
-            multipartFile.transferTo(file);
-            cosManager.putObject(filePath, file);
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            storageBackend.putObject(filePath, inputStream, multipartFile.getSize());
             return ResultUtils.success(filePath);
         } catch (IOException e) {
             log.info("文件上传失败 path={}", filePath, e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件上传失败");
-        } finally {
-            if (file != null) {
-                boolean delete = file.delete();
-                if (!delete) {
-                    log.info("文件删除失败 file={}", file.getAbsolutePath());
-                }
-            }
-
         }
-
-
     }
 
     @AuthCheck(mushRole = UserConstant.ADMIN_ROLE)
     @PostMapping("/test/download")
     public void testDownloadFile(String filePath, HttpServletResponse response) throws IOException {
+        //设置响应头
+        response.setHeader("Content-Disposition", "attachment;filename=" + filePath);
+        response.setContentType("application/octet-stream;charset=UTF-8");
+        //写入响应
+        storageBackend.transferTo(filePath, Channels.newChannel(response.getOutputStream()));
+        response.flushBuffer();
+    }
 
-        COSObjectInputStream objectContent = null;
-        try {
-            //获取流文件
-            COSObject object = cosManager.getObject(filePath);
-            objectContent = object.getObjectContent();
-            //设置响应头
-            response.setHeader("Content-Disposition", "attachment;filename=" + filePath);
-            response.setContentType("application/octet-stream;charset=UTF-8");
-            //写入相应
-            byte[] byteArray = IOUtils.toByteArray(objectContent);
-            ServletOutputStream outputStream = response.getOutputStream();
-            outputStream.write(byteArray);
-            outputStream.flush();
-        } catch (IOException e) {
-            log.info("文件下载失败 path={}", filePath, e);
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件下载失败");
-        } finally {
-            if (objectContent != null) {
-                objectContent.close();
-            }
+    /**
+     * 访问对象（仅本地存储，作为图片访问地址）
+     * 1. 公共图库的对象（public/ 开头）无需登录；空间的对象（space/{空间id}/ 开头）需要有该空间的查看权限；其余对象不提供访问
+     *    同一文件只在同一存储范围内复用（见 PictureFileService#getStorageScope），对象键前缀与引用它的图片可见范围一致
+     * 2. 容器支持 sendfile（Tomcat NIO）时交给容器零拷贝发送，否则通过 FileChannel#transferTo 写入响应
+     * 对象键带随机串且内容不会变化，允许客户端长期缓存（空间对象只允许浏览器缓存）
+     */
+    @GetMapping("/object/**")
+    @ApiOperation(value = "访问对象")
+    public void getObject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // 对象存储使用自己的访问地址，不通过本接口代理
+        ThrowUtils.throwIf(localStorageBackend == null, ErrorCode.NOT_FOUND_ERROR);
+        String uri = request.getRequestURI();
+        String key = URLUtil.decode(StrUtil.subAfter(uri, request.getContextPath() + OBJECT_PATH, false));
+        ThrowUtils.throwIf(StrUtil.isBlank(key), ErrorCode.PARAMS_ERROR);
+        String cacheControl;
+        if (key.startsWith(PUBLIC_PREFIX)) {
+            cacheControl = "public, max-age=31536000, immutable";
+        } else if (key.startsWith(SPACE_PREFIX)) {
+            checkSpaceObjectAuth(key, request);
+            cacheControl = "private, max-age=31536000, immutable";
+        } else {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
         }
+        Path path = localStorageBackend.getPath(key);
+        long size = Files.size(path);
+        String mimeType = FileUtil.getMimeType(key);
+        response.setContentType(mimeType != null ? mimeType : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setContentLengthLong(size);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, size);
+            return;
+        }
+        localStorageBackend.transferTo(key, Channels.newChannel(response.getOutputStream()));
+        response.flushBuffer();
+    }
 
-
+    /**
+     * 校验空间对象的查看权限（私有空间仅本人和管理员，团队空间需要成员查看权限）
+     */
+    private void checkSpaceObjectAuth(String key, HttpServletRequest request) {
+        Long spaceId = NumberUtil.parseLong(StrUtil.subBetween(key, SPACE_PREFIX, "/"), null);
+        ThrowUtils.throwIf(spaceId == null, ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        User loginUser = userService.getLoginUser(request);
+        Space space = spaceService.getById(spaceId);
+        ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        long permissionMask = spaceUserAuthManager.getPermissionMask(space, loginUser);
+        ThrowUtils.throwIf(!SpaceUserAuthManager.hasPermission(permissionMask, SpaceUserPermissionConstant.PICTURE_VIEW),
+                ErrorCode.NO_AUTH_ERROR, "无权限访问该文件");
     }
 
 }
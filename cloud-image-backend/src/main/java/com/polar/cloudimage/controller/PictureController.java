@@ -1,25 +1,28 @@
 package com.polar.cloudimage.controller;
 
 import cn.dev33.satoken.annotation.SaCheckPermission;
-import cn.hutool.core.util.RandomUtil;
-import cn.hutool.json.JSONUtil;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
 import com.polar.cloudimage.annotation.AuthCheck;
 import com.polar.cloudimage.api.aliyunai.AliYunAiApi;
 import com.polar.cloudimage.api.aliyunai.model.CreateOutPaintingTaskResponse;
 import com.polar.cloudimage.api.aliyunai.model.GetOutPaintingTaskResponse;
 import com.polar.cloudimage.api.imagesearch.ImageSearchApiFacade;
 import com.polar.cloudimage.api.imagesearch.module.ImageSearchResult;
+import com.polar.cloudimage.common.ApproximatePage;
 import com.polar.cloudimage.common.BaseResponse;
 import com.polar.cloudimage.common.DeleteRequest;
 import com.polar.cloudimage.common.ResultUtils;
+import com.polar.cloudimage.config.PictureProjectionResponseAdvice;
 import com.polar.cloudimage.constant.UserConstant;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
+import com.polar.cloudimage.manager.auth.SpaceUserAuthContextResolver;
 import com.polar.cloudimage.manager.auth.SpaceUserAuthManager;
+import com.polar.cloudimage.manager.cache.PictureListCacheManager;
+import com.polar.cloudimage.manager.search.PictureSearchIndex;
 import com.polar.cloudimage.manager.auth.StpKit;
 import com.polar.cloudimage.manager.auth.annotation.SaSpaceCheckPermission;
 import com.polar.cloudimage.manager.auth.module.SpaceUserPermissionConstant;
@@ -27,28 +30,33 @@ import com.polar.cloudimage.model.dto.picture.*;
 import com.polar.cloudimage.model.entity.Picture;
 import com.polar.cloudimage.model.entity.Space;
 import com.polar.cloudimage.model.entity.User;
+import com.polar.cloudimage.model.enums.PictureProjectionEnum;
 import com.polar.cloudimage.model.enums.PictureReviewStatusEnum;
+import com.polar.cloudimage.model.enums.PictureVariantEnum;
+import com.polar.cloudimage.model.vo.PictureCrawlJobVO;
+import com.polar.cloudimage.model.vo.PictureCursorPageVO;
+import com.polar.cloudimage.model.vo.PictureMultipartUploadVO;
 import com.polar.cloudimage.model.vo.PictureTagCategory;
 import com.polar.cloudimage.model.vo.PictureVO;
 import com.polar.cloudimage.service.PictureService;
 import com.polar.cloudimage.service.SpaceService;
 import com.polar.cloudimage.service.UserService;
+import com.polar.cloudimage.util.HttpCacheUtils;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.time.Duration;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author polar
@@ -71,20 +79,19 @@ public class PictureController {
     @Resource
     private SpaceService spaceService;
 
-    /**
-     * 本地缓存
-     */
-    private final Cache<String, String> LOCAL_CACHE = Caffeine.newBuilder()
-            .initialCapacity(1024)   //初始化空间
-            .maximumSize(10_000L)       //最大容量
-            .expireAfterWrite(Duration.ofMinutes(5))  //写入5分钟后过期
-            .build();
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+    @Resource
+    private PictureSearchIndex pictureSearchIndex;
     @Autowired
     private AliYunAiApi aliYunAiApi;
 
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
 
+    @Resource
+    private SpaceUserAuthContextResolver spaceUserAuthContextResolver;
+
     /**
      * 上传图片 &更新图片
      *
@@ -109,6 +116,99 @@ public class PictureController {
     }
 
 
+    /**
+     * 流式上传图片 &更新图片
+     * 请求体为图片二进制内容（Content-Type 为图片类型，需携带 Content-Length），
+     * 其余参数通过查询字符串传递，文件直接转发到对象存储，不落地本地磁盘
+     *
+     * @param pictureUploadRequest 图片上传请求
+     * @param request              请求
+     * @return 图片视图
+     */
+    @PostMapping("/upload/stream")
+    @ApiOperation(value = "流式上传图片 &更新图片")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<PictureVO> uploadPictureByStream(PictureUploadRequest pictureUploadRequest
+            , HttpServletRequest request) {
+
+        //获取登录用户
+        User loginUser = userService.getLoginUser(request);
+        PictureVO pictureVO = pictureService.uploadPicture(request, pictureUploadRequest, loginUser);
+
+        return ResultUtils.success(pictureVO);
+
+    }
+
+
+    /**
+     * 初始化分块上传（大图），传入 uploadId 时返回已上传的分块用于断点续传
+     *
+     * @param initRequest 分块上传初始化请求
+     * @param request     请求
+     * @return 分块上传会话
+     */
+    @PostMapping("/upload/multipart/init")
+    @ApiOperation(value = "初始化分块上传")
+    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_UPLOAD)
+    public BaseResponse<PictureMultipartUploadVO> initMultipartUpload(@RequestBody PictureMultipartUploadInitRequest initRequest
+            , HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.initMultipartUpload(initRequest, loginUser));
+    }
+
+    /**
+     * 上传分块，请求体为分块二进制内容
+     * 请求线程读取分块内容，上传到对象存储在线程池中异步完成（接口以异步方式返回）
+     *
+     * @param uploadId   分块上传 id
+     * @param partNumber 分块编号（从 1 开始）
+     * @param request    请求
+     * @return 是否成功
+     */
+    @PostMapping("/upload/multipart/part")
+    @ApiOperation(value = "上传分块")
+    public CompletableFuture<BaseResponse<Boolean>> uploadMultipartPart(@RequestParam String uploadId
+            , @RequestParam Integer partNumber
+            , HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return pictureService.uploadMultipartPart(uploadId, partNumber, request, loginUser)
+                .thenApply(ResultUtils::success);
+    }
+
+    /**
+     * 完成分块上传
+     *
+     * @param completeRequest 分块上传完成请求
+     * @param request         请求
+     * @return 图片视图
+     */
+    @PostMapping("/upload/multipart/complete")
+    @ApiOperation(value = "完成分块上传")
+    public BaseResponse<PictureVO> completeMultipartUpload(@RequestBody PictureMultipartUploadCompleteRequest completeRequest
+            , HttpServletRequest request) {
+        ThrowUtils.throwIf(completeRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.completeMultipartUpload(completeRequest.getUploadId(), loginUser));
+    }
+
+    /**
+     * 取消分块上传
+     *
+     * @param completeRequest 分块上传取消请求
+     * @param request         请求
+     * @return 是否成功
+     */
+    @PostMapping("/upload/multipart/abort")
+    @ApiOperation(value = "取消分块上传")
+    public BaseResponse<Boolean> abortMultipartUpload(@RequestBody PictureMultipartUploadCompleteRequest completeRequest
+            , HttpServletRequest request) {
+        ThrowUtils.throwIf(completeRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        pictureService.abortMultipartUpload(completeRequest.getUploadId(), loginUser);
+        return ResultUtils.success(true);
+    }
+
+
     /**
      * 通过url上传图片 &更新图片
      *
@@ -166,23 +266,8 @@ public class PictureController {
         if (pictureUpdateRequest == null || pictureUpdateRequest.getId() <= 0) {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
-        // 将实体类和 DTO 进行转换
-        Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureUpdateRequest, picture);
-        // 注意将 list 转为 string
-        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
-        //补充审核参数
         User loginUser = userService.getLoginUser(request);
-        pictureService.fillReviewParams(picture, loginUser);
-        // 数据校验
-        pictureService.validPicture(picture);
-        // 判断是否存在
-        long id = pictureUpdateRequest.getId();
-        Picture oldPicture = pictureService.getById(id);
-        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
-        // 操作数据库
-        boolean result = pictureService.updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        pictureService.updatePicture(pictureUpdateRequest, loginUser);
         return ResultUtils.success(true);
     }
 
@@ -216,10 +301,10 @@ public class PictureController {
     @GetMapping("/get/vo")
     @ApiOperation(value = "根据id获取图片视图")
     //@SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)   使用注解就必须登录，但有些图片是公共的，不需要登录也能看 所以改为在方法内校验
-    public BaseResponse<PictureVO> getPictureVOById(long id, HttpServletRequest request) {
+    public BaseResponse<PictureVO> getPictureVOById(long id, HttpServletRequest request, HttpServletResponse response) {
         ThrowUtils.throwIf(id <= 0, ErrorCode.PARAMS_ERROR);
-        // 查询数据库
-        Picture picture = pictureService.getById(id);
+        // 查询数据库（与鉴权共用，同一请求内只查询一次）
+        Picture picture = spaceUserAuthContextResolver.getPicture(id);
         ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
         //校验权限
         Long spaceId = picture.getSpaceId();
@@ -231,17 +316,68 @@ public class PictureController {
             ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR, "无权限访问该空间图片");
             //重构为使用Sa-token注解鉴权
             //pictureService.checkPictureAuth(loginUser, picture);
-            space = spaceService.getById(spaceId);
+            space = spaceUserAuthContextResolver.getSpace(spaceId);
             ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
         }
+        long permissionMask = spaceUserAuthManager.getPermissionMask(space, loginUser);
+        // 图片、作者信息、登录用户及其在空间中的权限都没变时返回 304（版本号获取失败时不做条件请求）
+        String ownerVersion = userService.getUserVersion(picture.getUserId());
+        String loginUserVersion = userService.getUserVersion(loginUser.getId());
+        if (ownerVersion != null && loginUserVersion != null
+                && HttpCacheUtils.checkNotModified(request, response, HttpCacheUtils.PRIVATE_NO_CACHE,
+                picture.getUpdateTime().getTime(), picture, space, ownerVersion,
+                loginUser.getId(), loginUser.getUserRole(), loginUserVersion, permissionMask)) {
+            return null;
+        }
         //设置权限信息返回给前端
-        List<String> permissionList = spaceUserAuthManager.getPermissionList(spaceService.getById(spaceId), loginUser);
+        List<String> permissionList = spaceUserAuthManager.toPermissionList(permissionMask);
         PictureVO pictureVO = pictureService.getPictureVO(picture, request);
         pictureVO.setPermissionList(permissionList);
         // 获取封装类
         return ResultUtils.success(pictureVO);
     }
 
+    /**
+     * 根据 id 批量获取图片视图 给普通用户使用（搜索结果、收藏等一次获取多张图片）
+     *
+     * @param ids     图片 id 列表，最多 50 个
+     * @param request 请求
+     * @return 图片视图列表，按请求顺序排列，不存在或无权查看的图片不返回
+     */
+    @GetMapping("/get/vo/batch")
+    @ApiOperation(value = "根据id批量获取图片视图")
+    public BaseResponse<List<PictureVO>> listPictureVOByIds(@RequestParam List<Long> ids, HttpServletRequest request) {
+        ThrowUtils.throwIf(CollUtil.isEmpty(ids), ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(ids.size() > 50, ErrorCode.PARAMS_ERROR, "一次最多获取 50 张图片");
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(pictureService.listPictureVOByIds(ids, loginUser));
+    }
+
+
+    /**
+     * 获取图片变体（首次请求时生成），重定向到变体图地址
+     *
+     * @param id       图片 id
+     * @param size     变体尺寸（长边像素）
+     * @param response 响应
+     */
+    @GetMapping("/variant")
+    @ApiOperation(value = "获取图片变体")
+    public void getPictureVariant(long id, int size, HttpServletResponse response) throws IOException {
+        ThrowUtils.throwIf(id <= 0, ErrorCode.PARAMS_ERROR);
+        PictureVariantEnum variantEnum = PictureVariantEnum.getEnumByValue(size);
+        ThrowUtils.throwIf(variantEnum == null, ErrorCode.PARAMS_ERROR, "不支持的图片尺寸");
+        Picture picture = spaceUserAuthContextResolver.getPicture(id);
+        ThrowUtils.throwIf(picture == null, ErrorCode.NOT_FOUND_ERROR);
+        if (picture.getSpaceId() != null) {
+            boolean hasPermission = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
+            ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR, "无权限访问该空间图片");
+        }
+        String variantUrl = pictureService.getPictureVariantUrl(picture, variantEnum);
+        // 变体图地址固定，允许浏览器缓存重定向
+        response.setHeader("Cache-Control", "private, max-age=86400");
+        response.sendRedirect(variantUrl);
+    }
 
     /**
      * 分页获取图片列表 仅管理员可用
@@ -252,12 +388,13 @@ public class PictureController {
     @PostMapping("/list/page")
     @AuthCheck(mushRole = UserConstant.ADMIN_ROLE)
     @ApiOperation(value = "分页获取图片列表")
-    public BaseResponse<Page<Picture>> listPictureByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
-        long current = pictureQueryRequest.getCurrent();
-        long size = pictureQueryRequest.getPageSize();
+    public BaseResponse<ApproximatePage<Picture>> listPictureByPage(@RequestBody PictureQueryRequest pictureQueryRequest) {
+        // 管理页默认查询全部列
+        if (StrUtil.isBlank(pictureQueryRequest.getProjection())) {
+            pictureQueryRequest.setProjection(PictureProjectionEnum.ADMIN.getValue());
+        }
         // 查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
+        ApproximatePage<Picture> picturePage = pictureService.listPictureByPage(pictureQueryRequest);
         return ResultUtils.success(picturePage);
     }
 
@@ -271,12 +408,15 @@ public class PictureController {
     @PostMapping("/list/page/vo")
     @ApiOperation(value = "分页获取图片视图列表")
 //    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)  放到方法内校验 因为有些图片是公共的，不需要登录也能看
-    public BaseResponse<Page<PictureVO>> listPictureVOByPage(@RequestBody PictureQueryRequest pictureQueryRequest,
-                                                             HttpServletRequest request) {
-        long current = pictureQueryRequest.getCurrent();
+    public BaseResponse<ApproximatePage<PictureVO>> listPictureVOByPage(@RequestBody PictureQueryRequest pictureQueryRequest,
+                                                                        HttpServletRequest request) {
         long size = pictureQueryRequest.getPageSize();
         // 限制爬虫
-        ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(size > 20 || size <= 0 || pictureQueryRequest.getCurrent() < 1, ErrorCode.PARAMS_ERROR);
+        // 按投影查询时不输出未查询的字段
+        if (StrUtil.isNotBlank(pictureQueryRequest.getProjection())) {
+            PictureProjectionResponseAdvice.omitNullFields(request);
+        }
         //空间权限校验
         Long spaceId = pictureQueryRequest.getSpaceId();
         if (spaceId == null) {
@@ -295,31 +435,38 @@ public class PictureController {
 //            }
         }
 
-        // 查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
-        // 获取封装类
-        return ResultUtils.success(pictureService.getPictureVOPage(picturePage, request));
+        // 首页默认查询直接使用公共图库 feed
+        ApproximatePage<PictureVO> feedPage = pictureService.listPublicFeedPage(pictureQueryRequest);
+        if (feedPage != null) {
+            return ResultUtils.success(feedPage);
+        }
+        // 查询多级缓存，未命中时查询数据库
+        ApproximatePage<PictureVO> pictureVOPage = pictureListCacheManager.get("page", spaceId, pictureQueryRequest,
+                new TypeReference<ApproximatePage<PictureVO>>() {
+                }, () -> {
+                    ApproximatePage<Picture> picturePage = pictureService.listPictureByPage(pictureQueryRequest);
+                    return pictureService.getPictureVOPage(picturePage, request);
+                });
+        return ResultUtils.success(pictureVOPage);
     }
 
     /**
-     * 分页获取图片视图列表 给普通用户使用
-     * 实现多级缓存
+     * 游标分页获取图片视图列表 给普通用户使用（无限滚动，不返回总数）
      *
-     * @param pictureQueryRequest 图片查询请求体
+     * @param pictureQueryRequest 图片查询请求体（cursor 为空表示第一页，之后传上一页返回的 nextCursor）
      * @param request             请求
-     * @return 图片视图分页
+     * @return 图片视图游标分页
      */
-//    @PostMapping("/list/page/vo")
-    @ApiOperation(value = "分页获取图片视图列表")
-    @SaSpaceCheckPermission(value = SpaceUserPermissionConstant.PICTURE_VIEW)
-    public BaseResponse<Page<PictureVO>> listPictureVOByPageWithCache(@RequestBody PictureQueryRequest pictureQueryRequest,
-                                                                      HttpServletRequest request) {
-        long current = pictureQueryRequest.getCurrent();
-        long size = pictureQueryRequest.getPageSize();
+    @PostMapping("/list/cursor/vo")
+    @ApiOperation(value = "游标分页获取图片视图列表")
+    public BaseResponse<PictureCursorPageVO> listPictureVOByCursor(@RequestBody PictureQueryRequest pictureQueryRequest,
+                                                                   HttpServletRequest request) {
         // 限制爬虫
-        ThrowUtils.throwIf(size > 20, ErrorCode.PARAMS_ERROR);
-        //设置只能查看审核通过的图片
+        ThrowUtils.throwIf(pictureQueryRequest.getPageSize() > 20 || pictureQueryRequest.getPageSize() <= 0, ErrorCode.PARAMS_ERROR);
+        // 按投影查询时不输出未查询的字段
+        if (StrUtil.isNotBlank(pictureQueryRequest.getProjection())) {
+            PictureProjectionResponseAdvice.omitNullFields(request);
+        }
         //空间权限校验
         Long spaceId = pictureQueryRequest.getSpaceId();
         if (spaceId == null) {
@@ -327,48 +474,17 @@ public class PictureController {
             pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
             pictureQueryRequest.setNullSpaceId(true);
         } else {
-            User loginUser = userService.getLoginUser(request);
-            Space space = spaceService.getById(spaceId);
-            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
-            if (!loginUser.getId().equals((space.getUserId()))) {
-                throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限访问该空间图片");
-            }
-        }
-
-        //2. 查询缓存
-        String jsonStr = JSONUtil.toJsonStr(pictureQueryRequest);
-        String hashKey = DigestUtils.md5DigestAsHex(jsonStr.getBytes());
-        String cacheKey = String.format("cloudimage:listPictureVOByPage:%s", hashKey);
-        //先查询本地缓存
-        String localCacheValue = LOCAL_CACHE.getIfPresent(cacheKey);
-        if (localCacheValue != null) {
-            Page<PictureVO> cachedPage = JSONUtil.toBean(localCacheValue, Page.class);
-            return ResultUtils.success(cachedPage);
+            boolean hasPermission = StpKit.SPACE.hasPermission(SpaceUserPermissionConstant.PICTURE_VIEW);
+            ThrowUtils.throwIf(!hasPermission, ErrorCode.NO_AUTH_ERROR, "无权限访问该空间图片");
         }
-        //本地缓存未命中，查询redis分布式缓存
-        String redisCacheValue = stringRedisTemplate.opsForValue().get(cacheKey);
-        if (redisCacheValue != null) {
-            //存入本地缓存
-            LOCAL_CACHE.put(cacheKey, redisCacheValue);
-            Page<PictureVO> cachedPage = JSONUtil.toBean(redisCacheValue, Page.class);
-            return ResultUtils.success(cachedPage);
+        // 只缓存第一页，后面的页游标各不相同，命中率低
+        if (StrUtil.isBlank(pictureQueryRequest.getCursor())) {
+            PictureCursorPageVO cursorPageVO = pictureListCacheManager.get("cursor", spaceId, pictureQueryRequest,
+                    new TypeReference<PictureCursorPageVO>() {
+                    }, () -> pictureService.listPictureVOByCursor(pictureQueryRequest, request));
+            return ResultUtils.success(cursorPageVO);
         }
-
-        // 3.查询数据库
-        Page<Picture> picturePage = pictureService.page(new Page<>(current, size),
-                pictureService.getQueryWrapper(pictureQueryRequest));
-        Page<PictureVO> pictureVOPage = pictureService.getPictureVOPage(picturePage, request);
-        //4. 存入缓存
-        String cacheValue = JSONUtil.toJsonStr(pictureVOPage);
-        //本地缓存
-        LOCAL_CACHE.put(cacheKey, cacheValue);
-        //redis缓存
-        //设置缓存时间 增加随机时间防止雪崩   5分钟+- random
-        int cacheExpireTime = 300 + RandomUtil.randomInt(0, 600);
-        stringRedisTemplate.opsForValue().set(cacheKey, cacheValue, cacheExpireTime, TimeUnit.SECONDS);
-        // 获取封装类
-        return ResultUtils.success(pictureVOPage);
-
+        return ResultUtils.success(pictureService.listPictureVOByCursor(pictureQueryRequest, request));
     }
 
     /**
@@ -398,12 +514,15 @@ public class PictureController {
      */
     @ApiOperation(value = "获取图片标签和分类列表")
     @GetMapping("/tag_category")
-    public BaseResponse<PictureTagCategory> listPictureTagCategory() {
+    public BaseResponse<PictureTagCategory> listPictureTagCategory(HttpServletRequest request, HttpServletResponse response) {
         PictureTagCategory pictureTagCategory = new PictureTagCategory();
         List<String> tagList = Arrays.asList("热门", "搞笑", "生活", "高清", "艺术", "校园", "背景", "简历", "创意");
         List<String> categoryList = Arrays.asList("模板", "电商", "表情包", "素材", "海报");
         pictureTagCategory.setTagList(tagList);
         pictureTagCategory.setCategoryList(categoryList);
+        if (HttpCacheUtils.checkNotModified(request, response, HttpCacheUtils.PUBLIC_ONE_HOUR, -1, pictureTagCategory)) {
+            return null;
+        }
         return ResultUtils.success(pictureTagCategory);
     }
 
@@ -425,22 +544,62 @@ public class PictureController {
     }
 
     /**
-     * 批量抓取上传图片
+     * 批量抓取上传图片（后台任务）
      *
      * @param pictureUploadByBatchRequest 批量上传请求
      * @param request                     请求
-     * @return 上传成功数量
+     * @return 任务 id
      */
     @PostMapping("/upload/batch")
     @AuthCheck(mushRole = UserConstant.ADMIN_ROLE)
     @ApiOperation(value = "批量抓取上传图片")
-    public BaseResponse<Integer> uploadPictureByBatch(@RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest, HttpServletRequest request) {
+    public BaseResponse<String> uploadPictureByBatch(@RequestBody PictureUploadByBatchRequest pictureUploadByBatchRequest, HttpServletRequest request) {
         //参数校验
         ThrowUtils.throwIf(pictureUploadByBatchRequest == null, ErrorCode.PARAMS_ERROR, "请求参数错误");
         //获取登录用户
         User loginUser = userService.getLoginUser(request);
-        Integer successCount = pictureService.uploadPictureByBach(pictureUploadByBatchRequest, loginUser);
-        return ResultUtils.success(successCount);
+        String jobId = pictureService.uploadPictureByBach(pictureUploadByBatchRequest, loginUser);
+        return ResultUtils.success(jobId);
+    }
+
+    /**
+     * 查询批量抓取任务进度
+     *
+     * @param jobId 任务 id
+     * @return 任务进度
+     */
+    @GetMapping("/upload/batch/progress")
+    @AuthCheck(mushRole = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "查询批量抓取任务进度")
+    public BaseResponse<PictureCrawlJobVO> getUploadBatchProgress(String jobId) {
+        ThrowUtils.throwIf(StrUtil.isBlank(jobId), ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(pictureService.getPictureCrawlJob(jobId));
+    }
+
+    /**
+     * 取消批量抓取任务，已上传的图片仍会入库
+     *
+     * @param cancelRequest 取消请求
+     * @return 是否取消成功
+     */
+    @PostMapping("/upload/batch/cancel")
+    @AuthCheck(mushRole = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "取消批量抓取任务")
+    public BaseResponse<Boolean> cancelUploadBatch(@RequestBody PictureCrawlJobCancelRequest cancelRequest) {
+        ThrowUtils.throwIf(cancelRequest == null, ErrorCode.PARAMS_ERROR);
+        return ResultUtils.success(pictureService.cancelPictureCrawlJob(cancelRequest.getJobId()));
+    }
+
+    /**
+     * 从数据库重建图片全文索引（后台执行，重建期间旧索引照常使用）
+     *
+     * @return 是否开始重建，已在重建中时返回 false
+     */
+    @PostMapping("/search/index/rebuild")
+    @AuthCheck(mushRole = UserConstant.ADMIN_ROLE)
+    @ApiOperation(value = "重建图片全文索引")
+    public BaseResponse<Boolean> rebuildPictureSearchIndex() {
+        return ResultUtils.success(pictureSearchIndex.rebuildAsync());
     }
 
     /**
@@ -10,6 +10,8 @@ import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
 import com.polar.cloudimage.manager.auth.SpaceUserAuthManager;
+import com.polar.cloudimage.manager.cache.SpaceUserRoleCacheManager;
+import com.polar.cloudimage.model.convert.SpaceConvert;
 import com.polar.cloudimage.model.dto.space.*;
 import com.polar.cloudimage.model.entity.Space;
 import com.polar.cloudimage.model.entity.SpaceUser;
@@ -19,15 +21,16 @@ import com.polar.cloudimage.model.vo.SpaceVO;
 import com.polar.cloudimage.service.SpaceService;
 import com.polar.cloudimage.service.SpaceUserService;
 import com.polar.cloudimage.service.UserService;
+import com.polar.cloudimage.util.HttpCacheUtils;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -52,6 +55,8 @@ public class SpaceController {
     private SpaceUserAuthManager spaceUserAuthManager;
     @Resource
     private SpaceUserService spaceUserService;
+    @Resource
+    private SpaceUserRoleCacheManager spaceUserRoleCacheManager;
 
 
     /**
@@ -99,6 +104,7 @@ public class SpaceController {
         List<Long> spaceUserIds = list.stream().map(SpaceUser::getId).collect(Collectors.toList());
         if (!spaceUserIds.isEmpty()) {
             ThrowUtils.throwIf(!spaceUserService.removeByIds(spaceUserIds), ErrorCode.SYSTEM_ERROR, "删除空间成员失败");
+            list.forEach(spaceUser -> spaceUserRoleCacheManager.invalidate(spaceUser.getSpaceId(), spaceUser.getUserId()));
         }
         return ResultUtils.success(true);
     }
@@ -118,8 +124,7 @@ public class SpaceController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         // 将实体类和 DTO 进行转换
-        Space Space = new Space();
-        BeanUtils.copyProperties(SpaceUpdateRequest, Space);
+        Space Space = SpaceConvert.INSTANCE.toEntity(SpaceUpdateRequest);
         // 数据校验
         SpaceService.validSpace(Space, false);
         //填充参数
@@ -163,15 +168,25 @@ public class SpaceController {
      */
     @GetMapping("/get/vo")
     @ApiOperation(value = "根据id获取空间视图")
-    public BaseResponse<SpaceVO> getSpaceVOById(long id, HttpServletRequest request) {
+    public BaseResponse<SpaceVO> getSpaceVOById(long id, HttpServletRequest request, HttpServletResponse response) {
         ThrowUtils.throwIf(id <= 0, ErrorCode.PARAMS_ERROR);
         // 查询数据库
         Space Space = SpaceService.getById(id);
         ThrowUtils.throwIf(Space == null, ErrorCode.NOT_FOUND_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        long permissionMask = spaceUserAuthManager.getPermissionMask(Space, loginUser);
+        // 空间（含额度使用情况）、创建者信息、登录用户及其在空间中的权限都没变时返回 304（版本号获取失败时不做条件请求）
+        String ownerVersion = userService.getUserVersion(Space.getUserId());
+        String loginUserVersion = userService.getUserVersion(loginUser.getId());
+        if (ownerVersion != null && loginUserVersion != null
+                && HttpCacheUtils.checkNotModified(request, response, HttpCacheUtils.PRIVATE_NO_CACHE,
+                Space.getUpdateTime().getTime(), Space, ownerVersion,
+                loginUser.getId(), loginUser.getUserRole(), loginUserVersion, permissionMask)) {
+            return null;
+        }
         SpaceVO spaceVO = SpaceService.getSpaceVO(Space, request);
         //把权限赋值给spaceVo
-        User loginUser = userService.getLoginUser(request);
-        List<String> permissionList = spaceUserAuthManager.getPermissionList(Space, loginUser);
+        List<String> permissionList = spaceUserAuthManager.toPermissionList(permissionMask);
         // 设置权限列表
         spaceVO.setPermissionList(permissionList);
         // 获取封装类
@@ -234,8 +249,7 @@ public class SpaceController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         // 在此处将实体类和 DTO 进行转换
-        Space Space = new Space();
-        BeanUtils.copyProperties(SpaceEditRequest, Space);
+        Space Space = SpaceConvert.INSTANCE.toEntity(SpaceEditRequest);
         //数据填充
         SpaceService.fillSpaceBySpaceLevel(Space);
         // 设置编辑时间
@@ -10,6 +10,8 @@ import com.polar.cloudimage.exception.ThrowUtils;
 import com.polar.cloudimage.manager.auth.StpKit;
 import com.polar.cloudimage.manager.auth.annotation.SaSpaceCheckPermission;
 import com.polar.cloudimage.manager.auth.module.SpaceUserPermissionConstant;
+import com.polar.cloudimage.manager.cache.SpaceUserRoleCacheManager;
+import com.polar.cloudimage.model.convert.SpaceUserConvert;
 import com.polar.cloudimage.model.dto.spaceuser.SpaceUserAddRequest;
 import com.polar.cloudimage.model.dto.spaceuser.SpaceUserEditRequest;
 import com.polar.cloudimage.model.dto.spaceuser.SpaceUserQueryRequest;
@@ -21,7 +23,6 @@ import com.polar.cloudimage.service.UserService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -48,6 +49,9 @@ public class SpaceUserController {
     @Resource
     private UserService userService;
 
+    @Resource
+    private SpaceUserRoleCacheManager spaceUserRoleCacheManager;
+
     /**
      * 向空间添加成员
      */
@@ -81,6 +85,7 @@ public class SpaceUserController {
         // 操作数据库
         boolean result = spaceUserService.removeById(id);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        spaceUserRoleCacheManager.invalidate(oldSpaceUser.getSpaceId(), oldSpaceUser.getUserId());
         return ResultUtils.success(true);
     }
 
@@ -129,8 +134,7 @@ public class SpaceUserController {
             throw new BusinessException(ErrorCode.PARAMS_ERROR);
         }
         // 将实体类和 DTO 进行转换
-        SpaceUser spaceUser = new SpaceUser();
-        BeanUtils.copyProperties(spaceUserEditRequest, spaceUser);
+        SpaceUser spaceUser = SpaceUserConvert.INSTANCE.toEntity(spaceUserEditRequest);
         // 数据校验
         spaceUserService.validSpaceUser(spaceUser, false);
         // 判断是否存在
@@ -143,6 +147,7 @@ public class SpaceUserController {
         // 操作数据库
         boolean result = spaceUserService.updateById(spaceUser);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        spaceUserRoleCacheManager.invalidate(oldSpaceUser.getSpaceId(), oldSpaceUser.getUserId());
         return ResultUtils.success(true);
     }
 
@@ -9,6 +9,7 @@ import com.polar.cloudimage.common.ResultUtils;
 import com.polar.cloudimage.constant.UserConstant;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
+import com.polar.cloudimage.model.convert.UserConvert;
 import com.polar.cloudimage.model.dto.user.*;
 import com.polar.cloudimage.model.entity.User;
 import com.polar.cloudimage.model.vo.LoginUserVO;
@@ -17,7 +18,6 @@ import com.polar.cloudimage.service.UserService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.BeanUtils;
 import org.springframework.web.bind.annotation.*;
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
@@ -107,8 +107,7 @@ public class UserController {
         //检验参数
         ThrowUtils.throwIf(userAddRequest == null, ErrorCode.PARAMS_ERROR);
         //属性复制
-        User user = new User();
-        BeanUtils.copyProperties(userAddRequest, user);
+        User user = UserConvert.INSTANCE.toEntity(userAddRequest);
         //设置默认密码
         final String DEFAULT_PASSWORD = "12345678";
         String encryptedPassword = userService.getEncryptedPassword(DEFAULT_PASSWORD);
@@ -165,6 +164,7 @@ public class UserController {
         //校验参数
         ThrowUtils.throwIf(deleteRequest == null || deleteRequest.getId() == null || deleteRequest.getId() <= 0, ErrorCode.PARAMS_ERROR);
         boolean b = userService.removeById(deleteRequest.getId());
+        userService.notifyUserChanged(deleteRequest.getId());
         return ResultUtils.success(b);
     }
 
@@ -182,10 +182,10 @@ public class UserController {
         //校验参数
         ThrowUtils.throwIf(userUpdateRequest == null || userUpdateRequest.getId() == null || userUpdateRequest.getId() <= 0, ErrorCode.PARAMS_ERROR);
         //给属性复制
-        User user = new User();
-        BeanUtils.copyProperties(userUpdateRequest, user);
+        User user = UserConvert.INSTANCE.toEntity(userUpdateRequest);
         //插入数据库
         ThrowUtils.throwIf(!userService.updateById(user), ErrorCode.SYSTEM_ERROR, "更新用户失败");
+        userService.notifyUserChanged(user.getId());
         //返回结果
         return ResultUtils.success(true);
     }
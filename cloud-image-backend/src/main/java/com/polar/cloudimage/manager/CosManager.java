@@ -1,20 +1,38 @@
 package com.polar.cloudimage.manager;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
 import com.polar.cloudimage.config.CosClientConfig;
 import com.qcloud.cos.COSClient;
-import com.qcloud.cos.model.COSObject;
-import com.qcloud.cos.model.GetObjectRequest;
-import com.qcloud.cos.model.PutObjectRequest;
-import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.*;
+import com.qcloud.cos.model.ciModel.common.ImageProcessRequest;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
 import com.qcloud.cos.model.ciModel.persistence.PicOperations;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.annotation.Resource;
 import java.io.File;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
+/**
+ * COS 对象存储操作
+ * 同步方法直接在调用线程中执行（上传、下载等需要等待结果的调用不经过线程池）；
+ * 只有不等待结果的批量删除在有界的存储 I/O 线程池中执行，排队满时由提交线程自己删除（计入 cos.io.rejected），
+ * 释放引用后的文件不会因为线程池繁忙而遗留
+ */
 @Component
 public class CosManager {
 
@@ -24,6 +42,67 @@ public class CosManager {
     @Resource
     private COSClient cosClient;
 
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private ThreadPoolExecutor ioExecutor;
+
+    /**
+     * 已提交未完成的任务数（排队 + 执行中）
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        // 排队已满由提交线程自己执行的任务数
+        rejectedCounter = Counter.builder("cos.io.rejected")
+                .description("排队已满由调用线程执行的存储 I/O 任务数")
+                .register(meterRegistry);
+        // 队列满（或已关闭）时由提交线程自己执行，起到背压作用，删除任务不会被丢弃
+        RejectedExecutionHandler rejectedHandler = (runnable, executor) -> {
+            rejectedCounter.increment();
+            runnable.run();
+        };
+        int ioThreads = cosClientConfig.getIoThreads();
+        ioExecutor = new ThreadPoolExecutor(ioThreads, ioThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(cosClientConfig.getIoQueueCapacity()),
+                ThreadFactoryBuilder.create().setNamePrefix("cos-io-").build(),
+                rejectedHandler);
+        // 排队数、活跃线程数等指标（executor.queued、executor.active，name=cos-io）
+        new ExecutorServiceMetrics(ioExecutor, "cos-io", Collections.emptyList()).bindTo(meterRegistry);
+        Gauge.builder("cos.io.in.flight", inFlight, AtomicInteger::get)
+                .description("已提交未完成的存储 I/O 任务数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ioExecutor.shutdown();
+    }
+
+    /**
+     * 异步批量删除对象
+     *
+     * @param keys 唯一键列表
+     */
+    public CompletableFuture<Void> deleteObjectsAsync(List<String> keys) {
+        return submit(() -> {
+            deleteObjects(keys);
+            return null;
+        });
+    }
+
+    /**
+     * 提交到存储 I/O 线程池
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        inFlight.incrementAndGet();
+        return CompletableFuture.supplyAsync(task, ioExecutor)
+                .whenComplete((result, e) -> inFlight.decrementAndGet());
+    }
+
     /**
      * 上传对象
      *
@@ -53,6 +132,78 @@ public class CosManager {
     public PutObjectResult putPictureObject(String key, File file) {
         PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
                 file);
+        putObjectRequest.setPicOperations(buildPicOperations(key, file.length()));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 流式上传图像，附带图像信息
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度（必须已知，SDK 才不会把整个流缓冲到内存）
+     */
+    public PutObjectResult putPictureObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        putObjectRequest.setPicOperations(buildPicOperations(key, contentLength));
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 流式上传对象（不做图片处理）
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度
+     */
+    public PutObjectResult putObject(String key, InputStream inputStream, long contentLength) {
+        ObjectMetadata objectMetadata = new ObjectMetadata();
+        objectMetadata.setContentLength(contentLength);
+        PutObjectRequest putObjectRequest = new PutObjectRequest(cosClientConfig.getBucket(), key,
+                inputStream, objectMetadata);
+        return cosClient.putObject(putObjectRequest);
+    }
+
+    /**
+     * 对已上传的图片进行处理（云上数据处理），规则与 putPictureObject 一致
+     *
+     * @param key           唯一键
+     * @param contentLength 原图大小
+     */
+    public CIUploadResult processPictureObject(String key, long contentLength) {
+        ImageProcessRequest imageProcessRequest = new ImageProcessRequest(cosClientConfig.getBucket(), key);
+        imageProcessRequest.setPicOperations(buildPicOperations(key, contentLength));
+        return cosClient.processImage(imageProcessRequest);
+    }
+
+    /**
+     * 生成图片变体（等比缩放到 size x size 以内并转成 webp），与原图放在同一目录
+     *
+     * @param key  原图唯一键
+     * @param size 长边像素
+     * @return 变体图唯一键
+     */
+    public String processPictureVariant(String key, int size) {
+        String variantName = FileUtil.mainName(key) + "_w" + size + ".webp";
+        PicOperations.Rule variantRule = new PicOperations.Rule();
+        variantRule.setRule(String.format("imageMogr2/thumbnail/%sx%s>/format/webp", size, size));
+        variantRule.setBucket(cosClientConfig.getBucket());
+        variantRule.setFileId(variantName);
+        PicOperations picOperations = new PicOperations();
+        picOperations.setRules(Collections.singletonList(variantRule));
+        ImageProcessRequest imageProcessRequest = new ImageProcessRequest(cosClientConfig.getBucket(), key);
+        imageProcessRequest.setPicOperations(picOperations);
+        cosClient.processImage(imageProcessRequest);
+        return StrUtil.subBefore(key, "/", true) + "/" + variantName;
+    }
+
+    /**
+     * 构造图片处理参数
+     */
+    private PicOperations buildPicOperations(String key, long contentLength) {
         // 对图片进行处理（获取基本信息也被视作为一种图片的处理）
         PicOperations picOperations = new PicOperations();
         // 1 表示返回原图信息
@@ -67,7 +218,7 @@ public class CosManager {
         rules.add(compressRule);
         //缩略图处理 （统一成 webp 格式），仅对 > 20 KB 的图片生成缩略图
 
-        if (file.length() > 2 * 1024) {
+        if (contentLength > 2 * 1024) {
             PicOperations.Rule thumbnailRule = new PicOperations.Rule();
             //压缩规则 /thumbnail/<Width>x<Height>>（如果大于原图宽高，则不处理）
             thumbnailRule.setRule(String.format("imageMogr2/thumbnail/%sx%s>", 256, 256));
@@ -82,8 +233,7 @@ public class CosManager {
 
         // 构造处理参数
         picOperations.setRules(rules);
-        putObjectRequest.setPicOperations(picOperations);
-        return cosClient.putObject(putObjectRequest);
+        return picOperations;
     }
 
     /**
@@ -95,6 +245,107 @@ public class CosManager {
         cosClient.deleteObject(cosClientConfig.getBucket(), key);
     }
 
+    /**
+     * 批量删除对象
+     *
+     * @param keys 唯一键列表
+     */
+    public void deleteObjects(List<String> keys) {
+        DeleteObjectsRequest deleteObjectsRequest = new DeleteObjectsRequest(cosClientConfig.getBucket());
+        List<DeleteObjectsRequest.KeyVersion> keyList = new ArrayList<>();
+        for (String key : keys) {
+            keyList.add(new DeleteObjectsRequest.KeyVersion(key));
+        }
+        deleteObjectsRequest.setKeys(keyList);
+        cosClient.deleteObjects(deleteObjectsRequest);
+    }
+
+    /**
+     * 复制对象（同一存储桶内）
+     *
+     * @param sourceKey 源唯一键
+     * @param targetKey 目标唯一键
+     */
+    public void copyObject(String sourceKey, String targetKey) {
+        String bucket = cosClientConfig.getBucket();
+        cosClient.copyObject(new CopyObjectRequest(bucket, sourceKey, bucket, targetKey));
+    }
+
+    /**
+     * 根据访问地址删除对象
+     *
+     * @param url 访问地址（域名 + 唯一键）
+     */
+    public void deleteObjectByUrl(String url) {
+        deleteObject(getKeyByUrl(url));
+    }
+
+    /**
+     * 根据访问地址获取唯一键
+     *
+     * @param url 访问地址
+     * @return 唯一键
+     */
+    public String getKeyByUrl(String url) {
+        String key = StrUtil.removePrefix(url, cosClientConfig.getHost());
+        return StrUtil.removePrefix(key, "/");
+    }
+
+    /**
+     * 初始化分块上传
+     *
+     * @param key 唯一键
+     * @return uploadId
+     */
+    public String initiateMultipartUpload(String key) {
+        InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(cosClientConfig.getBucket(), key);
+        return cosClient.initiateMultipartUpload(request).getUploadId();
+    }
+
+    /**
+     * 上传分块
+     *
+     * @param key         唯一键
+     * @param uploadId    分块上传 id
+     * @param partNumber  分块编号（从 1 开始）
+     * @param inputStream 分块内容
+     * @param partSize    分块大小
+     * @return 分块 ETag
+     */
+    public PartETag uploadPart(String key, String uploadId, int partNumber, InputStream inputStream, long partSize) {
+        UploadPartRequest request = new UploadPartRequest();
+        request.setBucketName(cosClientConfig.getBucket());
+        request.setKey(key);
+        request.setUploadId(uploadId);
+        request.setPartNumber(partNumber);
+        request.setInputStream(inputStream);
+        request.setPartSize(partSize);
+        return cosClient.uploadPart(request).getPartETag();
+    }
+
+    /**
+     * 完成分块上传
+     *
+     * @param key       唯一键
+     * @param uploadId  分块上传 id
+     * @param partETags 全部分块 ETag
+     */
+    public CompleteMultipartUploadResult completeMultipartUpload(String key, String uploadId, List<PartETag> partETags) {
+        CompleteMultipartUploadRequest request = new CompleteMultipartUploadRequest(cosClientConfig.getBucket(), key,
+                uploadId, partETags);
+        return cosClient.completeMultipartUpload(request);
+    }
+
+    /**
+     * 终止分块上传，清理已上传的分块
+     *
+     * @param key      唯一键
+     * @param uploadId 分块上传 id
+     */
+    public void abortMultipartUpload(String key, String uploadId) {
+        cosClient.abortMultipartUpload(new AbortMultipartUploadRequest(cosClientConfig.getBucket(), key, uploadId));
+    }
+
 
 //    /**
 //     * 上传对象（附带图片信息）
@@ -0,0 +1,173 @@
+package com.polar.cloudimage.manager.auth;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.ObjUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.servlet.ServletUtil;
+import cn.hutool.http.ContentType;
+import cn.hutool.http.Header;
+import cn.hutool.json.JSONUtil;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.entity.Space;
+import com.polar.cloudimage.service.PictureService;
+import com.polar.cloudimage.service.SpaceService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 空间权限上下文解析（请求级缓存）
+ * 1. 请求参数只解析一次为 {@link SpaceUserAuthContext}
+ * 2. 鉴权时查询的图片、空间和计算出的权限列表保存在请求属性中，同一请求内多次鉴权、以及接口本身不再重复查询
+ * 请求属性只在服务端设置，客户端无法通过请求参数伪造
+ */
+@Component
+public class SpaceUserAuthContextResolver {
+
+    private static final String AUTH_CONTEXT_ATTRIBUTE = "cloudimage.spaceUserAuthContext";
+
+    private static final String PERMISSION_LIST_ATTRIBUTE = "cloudimage.spaceUserPermissionList";
+
+    private static final String PICTURE_ATTRIBUTE_PREFIX = "cloudimage.picture:";
+
+    private static final String SPACE_ATTRIBUTE_PREFIX = "cloudimage.space:";
+
+    // 默认是 /api
+    @Value("${server.servlet.context-path}")
+    private String contextPath;
+
+    @Resource
+    @Lazy
+    private PictureService pictureService;
+
+    @Resource
+    @Lazy
+    private SpaceService spaceService;
+
+    /**
+     * 获取当前请求的空间权限上下文（每个请求只解析一次）
+     */
+    public SpaceUserAuthContext getAuthContext() {
+        HttpServletRequest request = getCurrentRequest();
+        Object memo = request.getAttribute(AUTH_CONTEXT_ATTRIBUTE);
+        if (memo instanceof SpaceUserAuthContext) {
+            return (SpaceUserAuthContext) memo;
+        }
+        SpaceUserAuthContext authContext = parseAuthContext(request);
+        request.setAttribute(AUTH_CONTEXT_ATTRIBUTE, authContext);
+        return authContext;
+    }
+
+    /**
+     * 获取当前请求的空间权限列表，同一请求内只计算一次
+     *
+     * @param loader 计算权限列表
+     * @return 权限列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getPermissionList(Supplier<List<String>> loader) {
+        HttpServletRequest request = getCurrentRequest();
+        Object memo = request.getAttribute(PERMISSION_LIST_ATTRIBUTE);
+        if (memo instanceof List) {
+            return (List<String>) memo;
+        }
+        List<String> permissionList = loader.get();
+        request.setAttribute(PERMISSION_LIST_ATTRIBUTE, permissionList);
+        return permissionList;
+    }
+
+    /**
+     * 根据 id 获取图片，同一请求内只查询一次（不在请求中时直接查询）
+     *
+     * @param pictureId 图片 id
+     * @return 图片，不存在时返回 null
+     */
+    public Picture getPicture(Long pictureId) {
+        return getOrLoad(PICTURE_ATTRIBUTE_PREFIX, pictureId, () -> pictureService.getById(pictureId));
+    }
+
+    /**
+     * 根据 id 获取空间，同一请求内只查询一次（不在请求中时直接查询）
+     *
+     * @param spaceId 空间 id
+     * @return 空间，不存在时返回 null
+     */
+    public Space getSpace(Long spaceId) {
+        return getOrLoad(SPACE_ATTRIBUTE_PREFIX, spaceId, () -> spaceService.getById(spaceId));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getOrLoad(String attributePrefix, Long id, Supplier<T> loader) {
+        if (id == null) {
+            return null;
+        }
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return loader.get();
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+        String attributeName = attributePrefix + id;
+        Object memo = request.getAttribute(attributeName);
+        if (memo != null) {
+            return (T) memo;
+        }
+        T entity = loader.get();
+        // 不存在时不缓存，调用方会直接报错
+        if (entity != null) {
+            request.setAttribute(attributeName, entity);
+        }
+        return entity;
+    }
+
+    private HttpServletRequest getCurrentRequest() {
+        return ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
+    }
+
+    /**
+     * 从请求中解析上下文对象
+     */
+    private SpaceUserAuthContext parseAuthContext(HttpServletRequest request) {
+        String contentType = request.getHeader(Header.CONTENT_TYPE.getValue());
+        SpaceUserAuthContext authRequest;
+        // 获取请求参数
+        if (ContentType.JSON.getValue().equals(contentType)) {
+            String body = ServletUtil.getBody(request);
+            authRequest = JSONUtil.toBean(body, SpaceUserAuthContext.class);
+        } else {
+            Map<String, String> paramMap = ServletUtil.getParamMap(request);
+            authRequest = BeanUtil.toBean(paramMap, SpaceUserAuthContext.class);
+        }
+        // 根据请求路径区分 id 字段的含义
+        Long id = authRequest.getId();
+        if (ObjUtil.isNotNull(id)) {
+            // 获取到请求路径的业务前缀，/api/picture/aaa?a=1
+            String requestURI = request.getRequestURI();
+            // 先替换掉上下文，剩下的就是前缀
+            String partURI = requestURI.replace(contextPath + "/", "");
+            // 获取前缀的第一个斜杠前的字符串
+            String moduleName = StrUtil.subBefore(partURI, "/", false);
+            switch (moduleName) {
+                case "picture":
+                    authRequest.setPictureId(id);
+                    break;
+                case "spaceUser":
+                    authRequest.setSpaceUserId(id);
+                    break;
+                case "space":
+                    authRequest.setSpaceId(id);
+                    break;
+                default:
+            }
+        }
+        return authRequest;
+    }
+}
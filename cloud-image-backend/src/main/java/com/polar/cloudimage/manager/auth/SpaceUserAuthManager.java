@@ -4,21 +4,26 @@ import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.polar.cloudimage.manager.auth.module.SpaceUserAuthConfig;
+import com.polar.cloudimage.manager.auth.module.SpaceUserPermission;
 import com.polar.cloudimage.manager.auth.module.SpaceUserRole;
+import com.polar.cloudimage.manager.cache.SpaceUserRoleCacheManager;
 import com.polar.cloudimage.model.entity.Space;
-import com.polar.cloudimage.model.entity.SpaceUser;
 import com.polar.cloudimage.model.entity.User;
 import com.polar.cloudimage.model.enums.SpaceRoleEnum;
 import com.polar.cloudimage.model.enums.SpaceTypeEnum;
-import com.polar.cloudimage.service.SpaceUserService;
 import com.polar.cloudimage.service.UserService;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Resource;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
+ * 空间成员权限管理
+ * 启动时把权限配置编译为位掩码：每个权限占一位，每个角色是其权限位的或，权限校验只需一次按位与
+ * 团队空间的成员角色从 {@link SpaceUserRoleCacheManager} 获取，不再每次查询数据库
+ *
  * @author polar
  * @version 1.0
  * @since 2025/10/28 21:29
@@ -29,81 +34,172 @@ public class SpaceUserAuthManager {
     private UserService userService;
 
     @Resource
-    private SpaceUserService spaceUserService;
+    private SpaceUserRoleCacheManager spaceUserRoleCacheManager;
 
     public static final SpaceUserAuthConfig SPACE_USER_AUTH_CONFIG;
 
+    /**
+     * 权限键 => 权限位
+     */
+    private static final Map<String, Long> PERMISSION_BITS = new HashMap<>();
+
+    /**
+     * 角色键 => 权限位掩码
+     */
+    private static final Map<String, Long> ROLE_MASKS = new HashMap<>();
+
+    /**
+     * 权限位掩码 => 权限列表（只读，返回给 Sa-Token 和前端）
+     */
+    private static final Map<Long, List<String>> MASK_PERMISSIONS = new ConcurrentHashMap<>();
+
+    /**
+     * 空间管理员的权限位掩码（空间创建者、系统管理员拥有）
+     */
+    public static final long ADMIN_MASK;
+
     static {
         String json = ResourceUtil.readUtf8Str("biz/spaceUserAuthConfig.json");
         SPACE_USER_AUTH_CONFIG = JSONUtil.toBean(json, SpaceUserAuthConfig.class);
+        List<SpaceUserPermission> permissions = SPACE_USER_AUTH_CONFIG.getPermissions();
+        if (permissions.size() > Long.SIZE) {
+            throw new IllegalStateException("空间成员权限不能超过 " + Long.SIZE + " 个");
+        }
+        for (int i = 0; i < permissions.size(); i++) {
+            PERMISSION_BITS.put(permissions.get(i).getKey(), 1L << i);
+        }
+        for (SpaceUserRole role : SPACE_USER_AUTH_CONFIG.getRoles()) {
+            long mask = 0;
+            for (String permission : role.getPermissions()) {
+                Long bit = PERMISSION_BITS.get(permission);
+                if (bit == null) {
+                    throw new IllegalStateException("角色 " + role.getKey() + " 的权限 " + permission + " 未定义");
+                }
+                mask |= bit;
+            }
+            ROLE_MASKS.put(role.getKey(), mask);
+        }
+        ADMIN_MASK = ROLE_MASKS.getOrDefault(SpaceRoleEnum.ADMIN.getValue(), 0L);
     }
 
     /**
-     * 根据空间成员角色获取权限列表
+     * 权限位掩码是否包含指定权限
+     *
+     * @param mask       权限位掩码
+     * @param permission 权限键
+     * @return 是否有权限
+     */
+    public static boolean hasPermission(long mask, String permission) {
+        Long bit = PERMISSION_BITS.get(permission);
+        return bit != null && (mask & bit) != 0;
+    }
+
+    /**
+     * 根据空间成员角色获取权限位掩码
      *
      * @param spaceUserRole 空间成员角色
-     * @return 权限列表
+     * @return 权限位掩码，角色不存在时为 0
      */
-    public List<String> getPermissionsByRole(String spaceUserRole) {
+    public long getMaskByRole(String spaceUserRole) {
         if (StrUtil.isBlank(spaceUserRole)) {
-            return new ArrayList<>();
-        }
-        SpaceUserRole role = SPACE_USER_AUTH_CONFIG.getRoles()
-                .stream()
-                .filter(r -> r.getKey().equals(spaceUserRole))
-                .findFirst()
-                .orElse(null);
-        if (role == null) {
-            return new ArrayList<>();
+            return 0;
         }
-        return role.getPermissions();
+        return ROLE_MASKS.getOrDefault(spaceUserRole, 0L);
     }
 
     /**
-     * 获取用户在指定空间的权限列表
+     * 权限位掩码转为权限列表（按配置中的顺序）
+     *
+     * @param mask 权限位掩码
+     * @return 权限列表（只读）
+     */
+    public List<String> toPermissionList(long mask) {
+        return MASK_PERMISSIONS.computeIfAbsent(mask, key -> Collections.unmodifiableList(
+                SPACE_USER_AUTH_CONFIG.getPermissions().stream()
+                        .map(SpaceUserPermission::getKey)
+                        .filter(permission -> hasPermission(key, permission))
+                        .collect(Collectors.toList())));
+    }
+
+    /**
+     * 根据空间成员角色获取权限列表
+     *
+     * @param spaceUserRole 空间成员角色
+     * @return 权限列表（只读）
+     */
+    public List<String> getPermissionsByRole(String spaceUserRole) {
+        return toPermissionList(getMaskByRole(spaceUserRole));
+    }
+
+    /**
+     * 获取用户在指定空间的权限位掩码
      *
      * @param space     空间实体，若为 null 则表示公共图库
      * @param loginUser 登录用户
-     * @return 权限列表
+     * @return 权限位掩码
      */
-    public List<String> getPermissionList(Space space, User loginUser) {
+    public long getPermissionMask(Space space, User loginUser) {
         if (loginUser == null) {
-            return new ArrayList<>();
+            return 0;
         }
-        // 管理员权限
-        List<String> ADMIN_PERMISSIONS = getPermissionsByRole(SpaceRoleEnum.ADMIN.getValue());
         // 公共图库
         if (space == null) {
-            if (userService.isAdmin(loginUser)) {
-                return ADMIN_PERMISSIONS;
-            }
-            return new ArrayList<>();
+            return userService.isAdmin(loginUser) ? ADMIN_MASK : 0;
         }
         SpaceTypeEnum spaceTypeEnum = SpaceTypeEnum.getEnumByValue(space.getSpaceType());
         if (spaceTypeEnum == null) {
-            return new ArrayList<>();
+            return 0;
         }
         // 根据空间获取对应的权限
         switch (spaceTypeEnum) {
             case PRIVATE:
                 // 私有空间，仅本人或管理员有所有权限
                 if (space.getUserId().equals(loginUser.getId()) || userService.isAdmin(loginUser)) {
-                    return ADMIN_PERMISSIONS;
-                } else {
-                    return new ArrayList<>();
+                    return ADMIN_MASK;
                 }
+                return 0;
             case TEAM:
-                // 团队空间，查询 SpaceUser 并获取角色和权限
-                SpaceUser spaceUser = spaceUserService.lambdaQuery()
-                        .eq(SpaceUser::getSpaceId, space.getId())
-                        .eq(SpaceUser::getUserId, loginUser.getId())
-                        .one();
-                if (spaceUser == null) {
-                    return new ArrayList<>();
-                } else {
-                    return getPermissionsByRole(spaceUser.getSpaceRole());
-                }
+                // 团队空间，根据成员角色获取权限
+                return getMaskByRole(spaceUserRoleCacheManager.getRole(space.getId(), loginUser.getId()));
+        }
+        return 0;
+    }
+
+    /**
+     * 获取用户在指定空间的权限列表
+     *
+     * @param space     空间实体，若为 null 则表示公共图库
+     * @param loginUser 登录用户
+     * @return 权限列表（只读）
+     */
+    public List<String> getPermissionList(Space space, User loginUser) {
+        return toPermissionList(getPermissionMask(space, loginUser));
+    }
+
+    /**
+     * 批量获取用户在多个空间的权限位掩码（团队空间的成员角色一次获取）
+     *
+     * @param spaceList 空间列表
+     * @param loginUser 登录用户
+     * @return 空间 id => 权限位掩码
+     */
+    public Map<Long, Long> getPermissionMaskMap(Collection<Space> spaceList, User loginUser) {
+        Map<Long, Long> maskMap = new HashMap<>();
+        if (loginUser == null || spaceList.isEmpty()) {
+            return maskMap;
+        }
+        List<Long> teamSpaceIds = spaceList.stream()
+                .filter(space -> Objects.equals(space.getSpaceType(), SpaceTypeEnum.TEAM.getValue()))
+                .map(Space::getId)
+                .collect(Collectors.toList());
+        Map<Long, String> roleMap = spaceUserRoleCacheManager.getRoles(teamSpaceIds, loginUser.getId());
+        for (Space space : spaceList) {
+            if (Objects.equals(space.getSpaceType(), SpaceTypeEnum.TEAM.getValue())) {
+                maskMap.put(space.getId(), getMaskByRole(roleMap.get(space.getId())));
+            } else {
+                maskMap.put(space.getId(), getPermissionMask(space, loginUser));
+            }
         }
-        return new ArrayList<>();
+        return maskMap;
     }
 }
@@ -1,29 +1,18 @@
 package com.polar.cloudimage.manager.auth;
 
 import cn.dev33.satoken.stp.StpInterface;
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.core.util.ObjUtil;
-import cn.hutool.core.util.ObjectUtil;
-import cn.hutool.core.util.ReflectUtil;
-import cn.hutool.core.util.StrUtil;
-import cn.hutool.extra.servlet.ServletUtil;
-import cn.hutool.http.ContentType;
-import cn.hutool.http.Header;
-import cn.hutool.json.JSONUtil;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.manager.auth.module.SpaceUserPermissionConstant;
+import com.polar.cloudimage.manager.cache.SpaceUserRoleCacheManager;
 import com.polar.cloudimage.model.entity.Picture;
 import com.polar.cloudimage.model.entity.Space;
 import com.polar.cloudimage.model.entity.SpaceUser;
 import com.polar.cloudimage.model.entity.User;
 import com.polar.cloudimage.model.enums.SpaceRoleEnum;
 import com.polar.cloudimage.model.enums.SpaceTypeEnum;
-import com.polar.cloudimage.service.PictureService;
-import com.polar.cloudimage.service.SpaceService;
 import com.polar.cloudimage.service.SpaceUserService;
 import com.polar.cloudimage.service.UserService;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -32,34 +21,29 @@ import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import java.util.*;
 
-import static com.polar.cloudimage.constant.UserConstant.USER_LOGIN_STATE;
-
 /**
  * 自定义权限加载接口实现类
  */
 @Component    // 保证此类被 SpringBoot 扫描，完成 Sa-Token 的自定义权限验证扩展
 public class StpInterfaceImpl implements StpInterface {
 
-    // 默认是 /api
-    @Value("${server.servlet.context-path}")
-    private String contextPath;
-
     @Resource
     private SpaceUserAuthManager spaceUserAuthManager;
 
+    @Resource
+    private SpaceUserAuthContextResolver spaceUserAuthContextResolver;
+
     @Resource
     private SpaceUserService spaceUserService;
 
     @Resource
-    private PictureService pictureService;
+    private SpaceUserRoleCacheManager spaceUserRoleCacheManager;
 
     @Resource
     private UserService userService;
 
-    @Resource
-    private SpaceService spaceService;
     /**
-     * 返回一个账号所拥有的权限码集合
+     * 返回一个账号所拥有的权限码集合（同一请求内只计算一次）
      */
     @Override
     public List<String> getPermissionList(Object loginId, String loginType) {
@@ -67,19 +51,23 @@ public class StpInterfaceImpl implements StpInterface {
         if (!StpKit.SPACE_TYPE.equals(loginType)) {
             return new ArrayList<>();
         }
+        return spaceUserAuthContextResolver.getPermissionList(() -> resolvePermissionList(loginId));
+    }
+
+    /**
+     * 根据请求上下文计算空间权限
+     */
+    private List<String> resolvePermissionList(Object loginId) {
         // 管理员权限，表示权限校验通过
         List<String> ADMIN_PERMISSIONS = spaceUserAuthManager.getPermissionsByRole(SpaceRoleEnum.ADMIN.getValue());
         // 获取上下文对象
-        SpaceUserAuthContext authContext = getAuthContextByRequest();
+        SpaceUserAuthContext authContext = spaceUserAuthContextResolver.getAuthContext();
         // 如果所有字段都为空，表示查询公共图库，可以通过
-        if (isAllFieldsNull(authContext)) {
+        if (isEmpty(authContext)) {
             return ADMIN_PERMISSIONS;
         }
         // 获取 userId
-        User loginUser = (User) StpKit.SPACE.getSessionByLoginId(loginId).get(USER_LOGIN_STATE);
-        if (loginUser == null) {
-            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "用户未登录");
-        }
+        User loginUser = getLoginUser(loginId);
         Long userId = loginUser.getId();
         // 优先从上下文中获取 SpaceUser 对象
         SpaceUser spaceUser = authContext.getSpaceUser();
@@ -93,16 +81,10 @@ public class StpInterfaceImpl implements StpInterface {
             if (spaceUser == null) {
                 throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到空间用户信息");
             }
-            // 取出当前登录用户对应的 spaceUser
-            SpaceUser loginSpaceUser = spaceUserService.lambdaQuery()
-                    .eq(SpaceUser::getSpaceId, spaceUser.getSpaceId())
-                    .eq(SpaceUser::getUserId, userId)
-                    .one();
-            if (loginSpaceUser == null) {
-                return new ArrayList<>();
-            }
+            // 取出当前登录用户在该空间的角色（不是成员时没有权限）
+            String spaceRole = spaceUserRoleCacheManager.getRole(spaceUser.getSpaceId(), userId);
             // 这里会导致管理员在私有空间没有权限，可以再查一次库处理
-            return spaceUserAuthManager.getPermissionsByRole(loginSpaceUser.getSpaceRole());
+            return spaceUserAuthManager.getPermissionsByRole(spaceRole);
         }
         // 如果没有 spaceUserId，尝试通过 spaceId 或 pictureId 获取 Space 对象并处理
         Long spaceId = authContext.getSpaceId();
@@ -113,10 +95,8 @@ public class StpInterfaceImpl implements StpInterface {
             if (pictureId == null) {
                 return ADMIN_PERMISSIONS;
             }
-            Picture picture = pictureService.lambdaQuery()
-                    .eq(Picture::getId, pictureId)
-                    .select(Picture::getId, Picture::getSpaceId, Picture::getUserId)
-                    .one();
+            // 查询完整的图片，接口本身可以直接复用
+            Picture picture = spaceUserAuthContextResolver.getPicture(pictureId);
             if (picture == null) {
                 throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到图片信息");
             }
@@ -132,7 +112,7 @@ public class StpInterfaceImpl implements StpInterface {
             }
         }
         // 获取 Space 对象
-        Space space = spaceService.getById(spaceId);
+        Space space = spaceUserAuthContextResolver.getSpace(spaceId);
         if (space == null) {
             throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "未找到空间信息");
         }
@@ -145,15 +125,9 @@ public class StpInterfaceImpl implements StpInterface {
                 return new ArrayList<>();
             }
         } else {
-            // 团队空间，查询 SpaceUser 并获取角色和权限
-            spaceUser = spaceUserService.lambdaQuery()
-                    .eq(SpaceUser::getSpaceId, spaceId)
-                    .eq(SpaceUser::getUserId, userId)
-                    .one();
-            if (spaceUser == null) {
-                return new ArrayList<>();
-            }
-            return spaceUserAuthManager.getPermissionsByRole(spaceUser.getSpaceRole());
+            // 团队空间，获取成员角色和权限
+            String spaceRole = spaceUserRoleCacheManager.getRole(spaceId, userId);
+            return spaceUserAuthManager.getPermissionsByRole(spaceRole);
         }
     }
 
@@ -171,61 +145,33 @@ public class StpInterfaceImpl implements StpInterface {
 
 
     /**
-     * 从请求中获取上下文对象
+     * 获取当前登录用户（经过用户版本号校验，角色修改后立即生效；同一请求内只查询一次）
+     * 不读取 Sa-Token 会话中的用户，那是登录时的快照
      */
-    private SpaceUserAuthContext getAuthContextByRequest() {
+    private User getLoginUser(Object loginId) {
         HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes()).getRequest();
-        String contentType = request.getHeader(Header.CONTENT_TYPE.getValue());
-        SpaceUserAuthContext authRequest;
-        // 获取请求参数
-        if (ContentType.JSON.getValue().equals(contentType)) {
-            String body = ServletUtil.getBody(request);
-            authRequest = JSONUtil.toBean(body, SpaceUserAuthContext.class);
-        } else {
-            Map<String, String> paramMap = ServletUtil.getParamMap(request);
-            authRequest = BeanUtil.toBean(paramMap, SpaceUserAuthContext.class);
+        User loginUser = userService.getLoginUser(request);
+        // Sa-Token 登录态与会话登录态不是同一用户时视为未登录
+        if (!String.valueOf(loginUser.getId()).equals(String.valueOf(loginId))) {
+            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
-        // 根据请求路径区分 id 字段的含义
-        Long id = authRequest.getId();
-        if (ObjUtil.isNotNull(id)) {
-            // 获取到请求路径的业务前缀，/api/picture/aaa?a=1
-            String requestURI = request.getRequestURI();
-            // 先替换掉上下文，剩下的就是前缀
-            String partURI = requestURI.replace(contextPath + "/", "");
-            // 获取前缀的第一个斜杠前的字符串
-            String moduleName = StrUtil.subBefore(partURI, "/", false);
-            switch (moduleName) {
-                case "picture":
-                    authRequest.setPictureId(id);
-                    break;
-                case "spaceUser":
-                    authRequest.setSpaceUserId(id);
-                    break;
-                case "space":
-                    authRequest.setSpaceId(id);
-                    break;
-                default:
-            }
-        }
-        return authRequest;
+        return loginUser;
     }
 
     /**
-     * 判断对象的所有字段是否都为 null 或 空
+     * 判断上下文的所有字段是否都为空
      *
-     * @param object 要检查的对象
-     * @return 如果所有字段都为 null 或 空，返回 true；否则返回 false
+     * @param authContext 上下文对象
+     * @return 如果所有字段都为空，返回 true；否则返回 false
      */
-    private boolean isAllFieldsNull(Object object) {
-        if (object == null) {
-            return true; // 对象本身为空
-        }
-        // 获取所有字段并判断是否所有字段都为空
-        return Arrays.stream(ReflectUtil.getFields(object.getClass()))
-                // 获取字段值
-                .map(field -> ReflectUtil.getFieldValue(object, field))
-                // 检查是否所有字段都为空
-                .allMatch(ObjectUtil::isEmpty);
+    private boolean isEmpty(SpaceUserAuthContext authContext) {
+        return authContext.getId() == null
+                && authContext.getPictureId() == null
+                && authContext.getSpaceId() == null
+                && authContext.getSpaceUserId() == null
+                && authContext.getPicture() == null
+                && authContext.getSpace() == null
+                && authContext.getSpaceUser() == null;
     }
 
 }
@@ -0,0 +1,229 @@
+package com.polar.cloudimage.manager.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.polar.cloudimage.common.ApproximatePage;
+import com.polar.cloudimage.mapper.PictureMapper;
+import com.polar.cloudimage.mapper.SpaceMapper;
+import com.polar.cloudimage.model.dto.picture.PictureQueryRequest;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.entity.Space;
+import com.polar.cloudimage.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 图片分页总数（代替每次分页都执行的 COUNT 查询）
+ * 1. 只按空间查询：直接使用空间表维护的图片数量（精确）
+ * 2. 只按审核状态查询公共图库：使用按审核状态维护的计数（上传、审核、删除时增减，与空间的 totalCount 相同），
+ *    定期用一次分组查询校准（近似）
+ * 3. 其他条件：按查询条件（不含分页和排序）缓存 COUNT 结果，短时间缓存（近似）
+ */
+@Slf4j
+@Component
+public class PictureCountManager {
+
+    private static final String PUBLIC_COUNT_KEY = "cloudimage:pictureCount:public";
+
+    private static final String COUNT_KEY_PREFIX = "cloudimage:pictureCount:";
+
+    /**
+     * 公共图库计数校准标记，存在期间不再校准
+     */
+    private static final String PUBLIC_RECONCILE_KEY = "cloudimage:pictureCount:public:reconcile";
+
+    /**
+     * 计数存在时才增减（不存在时等待校准，避免只有部分审核状态的计数）
+     */
+    private static final RedisScript<Long> INCR_PUBLIC_COUNT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return 0 end "
+                    + "for i = 1, #ARGV, 2 do redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1]) end "
+                    + "return 1", Long.class);
+
+    /**
+     * 公共图库不限审核状态时的计数 field
+     */
+    private static final String ALL_FIELD = "all";
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private SpaceMapper spaceMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 计数缓存时间（秒），即总数最多滞后的时间
+     */
+    @Value("${picture.count.cache-seconds:30}")
+    private long cacheSeconds;
+
+    /**
+     * 公共图库计数的校准间隔（秒）
+     */
+    @Value("${picture.count.reconcile-seconds:600}")
+    private long reconcileSeconds;
+
+    /**
+     * 填充分页总数
+     *
+     * @param page                分页（未执行 COUNT 查询）
+     * @param pictureQueryRequest 查询条件
+     * @param counter             执行 COUNT 查询
+     */
+    public void fillTotal(ApproximatePage<?> page, PictureQueryRequest pictureQueryRequest, Supplier<Long> counter) {
+        Long spaceId = pictureQueryRequest.getSpaceId();
+        Integer reviewStatus = pictureQueryRequest.getReviewStatus();
+        if (isOnlySpaceFilter(pictureQueryRequest)) {
+            // 只按空间查询
+            if (spaceId != null && reviewStatus == null) {
+                Space space = spaceMapper.selectById(spaceId);
+                if (space != null && space.getTotalCount() != null) {
+                    page.setTotal(space.getTotalCount());
+                    page.setApproximate(false);
+                    return;
+                }
+            }
+            // 只按审核状态查询公共图库
+            if (spaceId == null && pictureQueryRequest.isNullSpaceId()) {
+                page.setTotal(getPublicCount(reviewStatus));
+                page.setApproximate(true);
+                return;
+            }
+        }
+        String countKey = COUNT_KEY_PREFIX + (spaceId == null ? "public" : spaceId) + ":" + getFilterHash(pictureQueryRequest);
+        String cachedCount = stringRedisTemplate.opsForValue().get(countKey);
+        if (cachedCount != null) {
+            page.setTotal(Long.parseLong(cachedCount));
+            page.setApproximate(true);
+            return;
+        }
+        long total = counter.get();
+        stringRedisTemplate.opsForValue().set(countKey, String.valueOf(total), cacheSeconds, TimeUnit.SECONDS);
+        page.setTotal(total);
+        page.setApproximate(false);
+    }
+
+    /**
+     * 公共图库图片的审核状态变化后更新计数，在事务中调用时，事务提交后才生效
+     *
+     * @param oldReviewStatus 原审核状态，null 表示新增
+     * @param newReviewStatus 新审核状态，null 表示删除
+     * @param count           图片数量
+     */
+    public void updatePublicCount(Integer oldReviewStatus, Integer newReviewStatus, long count) {
+        if (Objects.equals(oldReviewStatus, newReviewStatus) || count <= 0) {
+            return;
+        }
+        List<String> args = new ArrayList<>();
+        if (oldReviewStatus != null) {
+            args.add(String.valueOf(oldReviewStatus));
+            args.add(String.valueOf(-count));
+        }
+        if (newReviewStatus != null) {
+            args.add(String.valueOf(newReviewStatus));
+            args.add(String.valueOf(count));
+        }
+        if (oldReviewStatus == null || newReviewStatus == null) {
+            args.add(ALL_FIELD);
+            args.add(String.valueOf(oldReviewStatus == null ? count : -count));
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.execute(INCR_PUBLIC_COUNT_SCRIPT, Collections.singletonList(PUBLIC_COUNT_KEY),
+                        args.toArray());
+            } catch (Exception e) {
+                // 计数为近似值，等待下次校准
+                log.error("公共图库计数更新失败", e);
+            }
+        });
+    }
+
+    /**
+     * 获取公共图库的图片数量，计数不存在或到了校准间隔时用一次分组查询校准
+     */
+    private long getPublicCount(Integer reviewStatus) {
+        String field = reviewStatus == null ? ALL_FIELD : String.valueOf(reviewStatus);
+        Object cachedCount = stringRedisTemplate.opsForHash().get(PUBLIC_COUNT_KEY, field);
+        boolean reconcile = cachedCount == null && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(PUBLIC_COUNT_KEY));
+        if (reconcile || Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(PUBLIC_RECONCILE_KEY, "1", reconcileSeconds, TimeUnit.SECONDS))) {
+            return Long.parseLong(reconcilePublicCount().getOrDefault(field, "0"));
+        }
+        return cachedCount == null ? 0 : Long.parseLong(cachedCount.toString());
+    }
+
+    /**
+     * 按审核状态分组统计公共图库的图片数量，写入临时 key 后 RENAME 覆盖，读取方不会看到删除后、写入前的空计数
+     *
+     * @return 各审核状态的数量
+     */
+    private Map<String, String> reconcilePublicCount() {
+        List<Map<String, Object>> countList = pictureMapper.selectMaps(new QueryWrapper<Picture>()
+                .select("reviewStatus", "count(*) as total")
+                .isNull("spaceId")
+                .groupBy("reviewStatus"));
+        Map<String, String> countMap = new HashMap<>();
+        long allCount = 0;
+        for (Map<String, Object> count : countList) {
+            long total = ((Number) count.get("total")).longValue();
+            countMap.put(String.valueOf(count.get("reviewStatus")), String.valueOf(total));
+            allCount += total;
+        }
+        countMap.put(ALL_FIELD, String.valueOf(allCount));
+        String tempKey = PUBLIC_COUNT_KEY + ":" + IdUtil.fastSimpleUUID();
+        stringRedisTemplate.opsForHash().putAll(tempKey, countMap);
+        stringRedisTemplate.rename(tempKey, PUBLIC_COUNT_KEY);
+        return countMap;
+    }
+
+    /**
+     * 除空间和审核状态外是否没有其他查询条件
+     */
+    private boolean isOnlySpaceFilter(PictureQueryRequest pictureQueryRequest) {
+        PictureQueryRequest filter = toFilter(pictureQueryRequest);
+        filter.setSpaceId(null);
+        filter.setNullSpaceId(false);
+        filter.setReviewStatus(null);
+        return filter.equals(toFilter(new PictureQueryRequest()));
+    }
+
+    /**
+     * 查询条件摘要（不含分页和排序，翻页和切换排序共用同一个总数）
+     */
+    private String getFilterHash(PictureQueryRequest pictureQueryRequest) {
+        String filterJson = JSONUtil.toJsonStr(toFilter(pictureQueryRequest));
+        return DigestUtils.md5DigestAsHex(filterJson.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private PictureQueryRequest toFilter(PictureQueryRequest pictureQueryRequest) {
+        PictureQueryRequest filter = BeanUtil.copyProperties(pictureQueryRequest, PictureQueryRequest.class);
+        filter.setCurrent(1);
+        filter.setPageSize(0);
+        filter.setSortField(null);
+        filter.setSortOrder(null);
+        filter.setCursor(null);
+        filter.setProjection(null);
+        return filter;
+    }
+}
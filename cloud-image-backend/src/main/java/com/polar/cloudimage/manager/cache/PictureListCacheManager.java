@@ -0,0 +1,140 @@
+package com.polar.cloudimage.manager.cache;
+
+import cn.hutool.core.lang.TypeReference;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polar.cloudimage.util.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 图片列表多级缓存（Caffeine 本地缓存 + Redis 分布式缓存）
+ * 1. 每个空间（公共图库单独一个）有一个版本号，缓存键包含版本号：列表类型 + scope + 版本号 + 查询条件摘要
+ * 2. 图片新增、修改、删除、审核后递增版本号，旧版本的缓存不再被命中，等过期自然淘汰
+ * 3. 版本号存在 Redis 中，所有节点共享，任一节点修改后其他节点立即读到新版本
+ */
+@Slf4j
+@Component
+public class PictureListCacheManager {
+
+    private static final String VERSION_KEY_PREFIX = "cloudimage:pictureListVersion:";
+
+    private static final String CACHE_KEY_PREFIX = "cloudimage:pictureList:";
+
+    /**
+     * 公共图库的 scope
+     */
+    private static final String PUBLIC_SCOPE = "public";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本地缓存（键已包含版本号，过期时间只用于释放内存）
+     */
+    private final Cache<String, Object> localCache = Caffeine.newBuilder()
+            .initialCapacity(1024)
+            .maximumSize(10_000L)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .recordStats()
+            .build();
+
+    private Counter redisHitCounter;
+
+    private Counter redisMissCounter;
+
+    @PostConstruct
+    public void init() {
+        // 本地缓存命中率：cache.gets{cache=pictureList,result=hit|miss}
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "pictureList");
+        redisHitCounter = Counter.builder("picture.list.cache.redis").tag("result", "hit")
+                .description("图片列表 Redis 缓存命中次数").register(meterRegistry);
+        redisMissCounter = Counter.builder("picture.list.cache.redis").tag("result", "miss")
+                .description("图片列表 Redis 缓存未命中次数（查询数据库）").register(meterRegistry);
+    }
+
+    /**
+     * 查询缓存，未命中时查询数据库并写入缓存
+     *
+     * @param listType 列表类型（page 分页、cursor 游标分页），不同类型的结果结构不同
+     * @param spaceId  空间 id，null 表示公共图库
+     * @param query    查询条件（序列化后作为缓存键的一部分）
+     * @param type     结果类型
+     * @param loader   查询数据库
+     * @return 查询结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String listType, Long spaceId, Object query, TypeReference<T> type, Supplier<T> loader) {
+        String scope = getScope(spaceId);
+        String version = getVersion(scope);
+        String queryHash = DigestUtils.md5DigestAsHex(JSONUtil.toJsonStr(query).getBytes(StandardCharsets.UTF_8));
+        String cacheKey = CACHE_KEY_PREFIX + listType + ":" + scope + ":" + version + ":" + queryHash;
+        // 1. 本地缓存
+        T result = (T) localCache.getIfPresent(cacheKey);
+        if (result != null) {
+            return result;
+        }
+        // 2. Redis 缓存
+        String redisCacheValue = stringRedisTemplate.opsForValue().get(cacheKey);
+        if (redisCacheValue != null) {
+            redisHitCounter.increment();
+            result = JSONUtil.toBean(redisCacheValue, type, false);
+            localCache.put(cacheKey, result);
+            return result;
+        }
+        redisMissCounter.increment();
+        // 3. 查询数据库
+        result = loader.get();
+        localCache.put(cacheKey, result);
+        // 过期时间 5 ~ 15 分钟，防止同时过期
+        int expireSeconds = 300 + RandomUtil.randomInt(0, 600);
+        stringRedisTemplate.opsForValue().set(cacheKey, JSONUtil.toJsonStr(result), expireSeconds, TimeUnit.SECONDS);
+        return result;
+    }
+
+    /**
+     * 递增版本号，使空间的列表缓存失效
+     * 在事务中调用时，事务提交后才递增，避免提交前被其他请求用旧数据重新缓存
+     *
+     * @param spaceId 空间 id，null 表示公共图库
+     */
+    public void bumpVersion(Long spaceId) {
+        String versionKey = VERSION_KEY_PREFIX + getScope(spaceId);
+        TransactionUtils.afterCommit(() -> incrementVersion(versionKey));
+    }
+
+    private void incrementVersion(String versionKey) {
+        try {
+            stringRedisTemplate.opsForValue().increment(versionKey);
+        } catch (Exception e) {
+            // 失效失败时缓存最多在过期后更新，不影响本次修改
+            log.error("图片列表缓存版本递增失败, key = {}", versionKey, e);
+        }
+    }
+
+    private String getVersion(String scope) {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_KEY_PREFIX + scope);
+        return version == null ? "0" : version;
+    }
+
+    private String getScope(Long spaceId) {
+        return spaceId == null ? PUBLIC_SCOPE : String.valueOf(spaceId);
+    }
+}
@@ -0,0 +1,365 @@
+package com.polar.cloudimage.manager.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.exception.ThrowUtils;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.polar.cloudimage.mapper.PictureMapper;
+import com.polar.cloudimage.model.dto.picture.PictureQueryRequest;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.enums.PictureReviewStatusEnum;
+import com.polar.cloudimage.model.vo.PictureVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 公共图库首页 feed（Redis 物化）
+ * 1. 审核通过的公共图片 id 按创建时间存入 ZSET，全部图片一个，每个分类一个
+ * 2. 图片视图（只含图片字段，不含用户信息和变体图）序列化后单独缓存，按页 MGET，未命中的由调用方查询数据库后写回
+ *    用户信息由调用方读取时从用户缓存填充，用户修改后不需要清理 feed 缓存
+ * 3. 图片新增、修改、审核、删除后由调用方按图片当前状态加入或移出 feed
+ * 4. 启动时如果 feed 不存在（首次部署或 Redis 数据丢失），在后台从数据库构建到临时 key，构建完成前不使用 feed；
+ *    构建期间变更的图片 id 会被记录下来，构建完成后重新应用到临时 key，再 RENAME 替换正式 key
+ */
+@Slf4j
+@Component
+public class PublicPictureFeedManager {
+
+    private static final String FEED_KEY = "cloudimage:publicFeed:all";
+
+    private static final String CATEGORY_FEED_KEY_PREFIX = "cloudimage:publicFeed:category:";
+
+    /**
+     * 出现过的分类（图片修改分类时从所有分类 feed 中移除）
+     */
+    private static final String CATEGORIES_KEY = "cloudimage:publicFeed:categories";
+
+    private static final String READY_KEY = "cloudimage:publicFeed:ready";
+
+    private static final String REBUILD_LOCK_KEY = "cloudimage:publicFeed:rebuildLock";
+
+    /**
+     * 构建期间变更的图片 id（构建完成后重新应用）
+     */
+    private static final String REBUILD_CHANGED_KEY = "cloudimage:publicFeed:rebuildChanged";
+
+    /**
+     * 构建中的 feed 临时 key 后缀
+     */
+    private static final String REBUILD_KEY_SUFFIX = ":rebuilding";
+
+    private static final String VO_KEY_PREFIX = "cloudimage:publicFeed:vo:";
+
+    /**
+     * 图片视图缓存时间（图片变更时会主动删除，过期只用于回收不再访问的图片）
+     */
+    private static final Duration VO_EXPIRE = Duration.ofHours(1);
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY))) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "public-feed-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 是否为 feed 能直接回答的查询：公共图库、审核通过、明确指定按创建时间倒序，最多再按分类筛选
+     * 未指定排序的查询由数据库决定顺序，不使用 feed
+     */
+    public boolean isFeedQuery(PictureQueryRequest pictureQueryRequest) {
+        if (!pictureQueryRequest.isNullSpaceId() || pictureQueryRequest.getSpaceId() != null
+                || !Objects.equals(pictureQueryRequest.getReviewStatus(), PictureReviewStatusEnum.PASS.getValue())) {
+            return false;
+        }
+        if (!"createTime".equals(pictureQueryRequest.getSortField()) || !"descend".equals(pictureQueryRequest.getSortOrder())) {
+            return false;
+        }
+        // 除分类外没有其他筛选条件
+        PictureQueryRequest otherFilter = new PictureQueryRequest();
+        BeanUtil.copyProperties(pictureQueryRequest, otherFilter, "current", "pageSize", "sortField", "sortOrder",
+                "nullSpaceId", "reviewStatus", "category", "searchText", "tags", "cursor", "projection");
+        return StrUtil.isBlank(pictureQueryRequest.getSearchText()) && CollUtil.isEmpty(pictureQueryRequest.getTags())
+                && otherFilter.equals(new PictureQueryRequest());
+    }
+
+    /**
+     * feed 是否可用
+     */
+    public boolean isReady() {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY));
+    }
+
+    /**
+     * 分页获取 feed 中的图片 id（按创建时间倒序）
+     *
+     * @param category 分类，为空表示全部
+     * @param current  页码，从 1 开始
+     * @param size     每页条数，必须大于 0（ZSET 的结束下标为负数时会返回整个 feed）
+     */
+    public List<Long> listIds(String category, long current, long size) {
+        ThrowUtils.throwIf(current < 1 || size < 1, ErrorCode.PARAMS_ERROR, "分页参数错误");
+        long start = (current - 1) * size;
+        Set<String> members = stringRedisTemplate.opsForZSet().reverseRange(getFeedKey(category), start, start + size - 1);
+        if (members == null) {
+            return Collections.emptyList();
+        }
+        return members.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    /**
+     * feed 中的图片数量
+     *
+     * @param category 分类，为空表示全部
+     */
+    public long count(String category) {
+        Long count = stringRedisTemplate.opsForZSet().zCard(getFeedKey(category));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 批量获取缓存的图片视图（MGET）
+     *
+     * @return 与 pictureIds 一一对应，未命中为 null
+     */
+    public List<PictureVO> listPictureVOs(List<Long> pictureIds) {
+        if (pictureIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(
+                pictureIds.stream().map(id -> VO_KEY_PREFIX + id).collect(Collectors.toList()));
+        List<PictureVO> pictureVOList = new ArrayList<>(pictureIds.size());
+        for (int i = 0; i < pictureIds.size(); i++) {
+            String value = values == null ? null : values.get(i);
+            pictureVOList.add(value == null ? null : JSONUtil.toBean(value, PictureVO.class));
+        }
+        return pictureVOList;
+    }
+
+    /**
+     * 缓存图片视图，用户信息不缓存
+     */
+    public void cachePictureVOs(List<PictureVO> pictureVOList) {
+        if (pictureVOList.isEmpty()) {
+            return;
+        }
+        long expireSeconds = VO_EXPIRE.getSeconds();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (PictureVO pictureVO : pictureVOList) {
+                JSONObject json = JSONUtil.parseObj(pictureVO);
+                json.remove("user");
+                connection.stringCommands().setEx((VO_KEY_PREFIX + pictureVO.getId()).getBytes(StandardCharsets.UTF_8),
+                        expireSeconds, json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 按图片当前状态更新 feed：审核通过的公共图片加入（或更新分类），其他的移出；图片视图缓存一律删除
+     * 读取分类和构建状态、写入 feed 各一次 pipeline；构建期间同时记录变更的图片 id
+     *
+     * @param pictureIds 图片 id
+     */
+    public void refresh(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.setCommands().sMembers(toBytes(CATEGORIES_KEY));
+            connection.keyCommands().exists(toBytes(REBUILD_LOCK_KEY));
+            return null;
+        });
+        Set<String> categories = new HashSet<>();
+        if (results.get(0) instanceof Collection) {
+            ((Collection<?>) results.get(0)).forEach(category -> categories.add(category.toString()));
+        }
+        boolean rebuilding = Boolean.TRUE.equals(results.get(1));
+        Map<Long, Picture> pictureMap = listFeedPictures(pictureIds);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writeFeed(connection, pictureIds, pictureMap, categories, "");
+            if (rebuilding) {
+                connection.setCommands().sAdd(toBytes(REBUILD_CHANGED_KEY), pictureIds.stream()
+                        .map(id -> toBytes(String.valueOf(id)))
+                        .toArray(byte[][]::new));
+            }
+            for (Long pictureId : pictureIds) {
+                connection.keyCommands().del(toBytes(VO_KEY_PREFIX + pictureId));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 从数据库全量构建 feed（多个节点同时启动时只有一个节点构建）
+     * 写入临时 key，重新应用构建期间的变更后 RENAME 替换正式 key，替换后再应用一次替换前最后时刻的变更
+     */
+    private void rebuild() {
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(REBUILD_LOCK_KEY, "1", 10, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        try {
+            long startTime = System.currentTimeMillis();
+            long lastId = 0;
+            long total = 0;
+            Set<String> categories = new HashSet<>();
+            while (true) {
+                List<Picture> pictureList = pictureMapper.selectList(selectFeedColumns()
+                        .isNull(Picture::getSpaceId)
+                        .eq(Picture::getReviewStatus, PictureReviewStatusEnum.PASS.getValue())
+                        .gt(Picture::getId, lastId)
+                        .orderByAsc(Picture::getId)
+                        .last("limit " + REBUILD_BATCH_SIZE));
+                pictureList.stream()
+                        .map(Picture::getCategory)
+                        .filter(StrUtil::isNotBlank)
+                        .forEach(categories::add);
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    pictureList.forEach(picture -> add(connection, picture, REBUILD_KEY_SUFFIX));
+                    return null;
+                });
+                total += pictureList.size();
+                if (pictureList.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+                lastId = pictureList.get(pictureList.size() - 1).getId();
+            }
+            // 构建期间变更的图片重新应用到临时 key
+            Set<String> changedIds = popChangedIds();
+            if (!changedIds.isEmpty()) {
+                List<Long> pictureIds = changedIds.stream().map(Long::valueOf).collect(Collectors.toList());
+                Map<Long, Picture> pictureMap = listFeedPictures(pictureIds);
+                pictureMap.values().stream()
+                        .filter(this::isInFeed)
+                        .map(Picture::getCategory)
+                        .filter(StrUtil::isNotBlank)
+                        .forEach(categories::add);
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    writeFeed(connection, pictureIds, pictureMap, categories, REBUILD_KEY_SUFFIX);
+                    return null;
+                });
+            }
+            // 替换正式 key，没有图片的分类删除正式 key
+            Set<String> oldCategories = stringRedisTemplate.opsForSet().members(CATEGORIES_KEY);
+            Set<String> feedKeys = new HashSet<>();
+            feedKeys.add(FEED_KEY);
+            categories.forEach(category -> feedKeys.add(getFeedKey(category)));
+            if (oldCategories != null) {
+                oldCategories.forEach(category -> feedKeys.add(getFeedKey(category)));
+            }
+            for (String feedKey : feedKeys) {
+                if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(feedKey + REBUILD_KEY_SUFFIX))) {
+                    stringRedisTemplate.rename(feedKey + REBUILD_KEY_SUFFIX, feedKey);
+                } else {
+                    stringRedisTemplate.delete(feedKey);
+                }
+            }
+            // 重新应用期间到替换前又变更的图片
+            Set<String> lateChangedIds = popChangedIds();
+            if (!lateChangedIds.isEmpty()) {
+                refresh(lateChangedIds.stream().map(Long::valueOf).collect(Collectors.toList()));
+            }
+            stringRedisTemplate.opsForValue().set(READY_KEY, "1");
+            log.info("公共图库 feed 构建完成, 图片数 = {}, 耗时 = {} ms", total, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("公共图库 feed 构建失败", e);
+        } finally {
+            stringRedisTemplate.delete(REBUILD_LOCK_KEY);
+            stringRedisTemplate.delete(REBUILD_CHANGED_KEY);
+        }
+    }
+
+    /**
+     * 取出构建期间记录的变更图片 id（SPOP，取出后新记录的留到下次）
+     */
+    private Set<String> popChangedIds() {
+        Long size = stringRedisTemplate.opsForSet().size(REBUILD_CHANGED_KEY);
+        if (size == null || size == 0) {
+            return Collections.emptySet();
+        }
+        List<String> changedIds = stringRedisTemplate.opsForSet().pop(REBUILD_CHANGED_KEY, size);
+        return changedIds == null ? Collections.emptySet() : new HashSet<>(changedIds);
+    }
+
+    /**
+     * 按图片当前状态写入 feed：先从全部 feed 和各分类 feed 中移除，在 feed 中的再加入
+     *
+     * @param keySuffix feed key 后缀，构建时写入临时 key
+     */
+    private void writeFeed(RedisConnection connection, Collection<Long> pictureIds, Map<Long, Picture> pictureMap,
+                           Set<String> categories, String keySuffix) {
+        for (Long pictureId : pictureIds) {
+            byte[] member = toBytes(String.valueOf(pictureId));
+            connection.zSetCommands().zRem(toBytes(FEED_KEY + keySuffix), member);
+            for (String category : categories) {
+                connection.zSetCommands().zRem(toBytes(getFeedKey(category) + keySuffix), member);
+            }
+            Picture picture = pictureMap.get(pictureId);
+            if (isInFeed(picture)) {
+                add(connection, picture, keySuffix);
+            }
+        }
+    }
+
+    private void add(RedisConnection connection, Picture picture, String keySuffix) {
+        byte[] member = toBytes(String.valueOf(picture.getId()));
+        double score = picture.getCreateTime().getTime();
+        connection.zSetCommands().zAdd(toBytes(FEED_KEY + keySuffix), score, member);
+        if (StrUtil.isNotBlank(picture.getCategory())) {
+            connection.setCommands().sAdd(toBytes(CATEGORIES_KEY), toBytes(picture.getCategory()));
+            connection.zSetCommands().zAdd(toBytes(getFeedKey(picture.getCategory()) + keySuffix), score, member);
+        }
+    }
+
+    private Map<Long, Picture> listFeedPictures(Collection<Long> pictureIds) {
+        return pictureMapper.selectList(selectFeedColumns().in(Picture::getId, pictureIds))
+                .stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+    }
+
+    private boolean isInFeed(Picture picture) {
+        return picture != null && picture.getSpaceId() == null
+                && Objects.equals(picture.getReviewStatus(), PictureReviewStatusEnum.PASS.getValue());
+    }
+
+    private LambdaQueryWrapper<Picture> selectFeedColumns() {
+        return new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getSpaceId, Picture::getReviewStatus, Picture::getCategory,
+                        Picture::getCreateTime);
+    }
+
+    private String getFeedKey(String category) {
+        return StrUtil.isBlank(category) ? FEED_KEY : CATEGORY_FEED_KEY_PREFIX + category;
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
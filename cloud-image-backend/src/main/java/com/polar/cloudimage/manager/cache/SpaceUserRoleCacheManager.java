@@ -0,0 +1,184 @@
+package com.polar.cloudimage.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polar.cloudimage.mapper.SpaceUserMapper;
+import com.polar.cloudimage.model.entity.SpaceUser;
+import com.polar.cloudimage.util.TransactionUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 团队空间成员角色缓存：(空间 id, 用户 id) => 空间角色
+ * 1. 不是成员也缓存（空字符串），非成员浏览团队空间时同样不查询数据库
+ * 2. 成员添加、修改、移除后通过 Redis 发布 (空间 id, 用户 id)，所有节点（包括自己）删除本地缓存
+ * 3. 每次失效记录该键的失效代数，查询数据库期间该键被失效过时不写回缓存，防止把旧角色写回
+ */
+@Slf4j
+@Component
+public class SpaceUserRoleCacheManager implements MessageListener {
+
+    private static final String CHANNEL = "cloudimage:spaceUserRoleCache";
+
+    /**
+     * 不是空间成员
+     */
+    private static final String NO_ROLE = "";
+
+    @Resource
+    private SpaceUserMapper spaceUserMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本地缓存（修改后通过消息删除，过期时间兜底消息丢失的情况）
+     */
+    private final Cache<String, String> localCache = Caffeine.newBuilder()
+            .maximumSize(100_000L)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .recordStats()
+            .build();
+
+    /**
+     * 键 => 最近一次失效的代数（全局递增，不会重复），只需保留到这期间开始的查询结束
+     */
+    private final Cache<String, Long> invalidationGenerations = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    private final AtomicLong generationSequence = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "spaceUserRole");
+    }
+
+    /**
+     * 获取用户在团队空间的角色
+     *
+     * @param spaceId 空间 id
+     * @param userId  用户 id
+     * @return 空间角色，不是成员时返回 null
+     */
+    public String getRole(Long spaceId, Long userId) {
+        if (spaceId == null || userId == null) {
+            return null;
+        }
+        return getRoles(Collections.singleton(spaceId), userId).get(spaceId);
+    }
+
+    /**
+     * 批量获取用户在多个团队空间的角色（未缓存的一次查询）
+     *
+     * @param spaceIds 空间 id
+     * @param userId   用户 id
+     * @return 空间 id => 空间角色，不是成员的空间不包含在内
+     */
+    public Map<Long, String> getRoles(Collection<Long> spaceIds, Long userId) {
+        Map<Long, String> roleMap = new HashMap<>();
+        if (CollUtil.isEmpty(spaceIds) || userId == null) {
+            return roleMap;
+        }
+        List<Long> missIds = new ArrayList<>();
+        // 未命中的键在查询数据库之前的失效代数
+        Map<Long, Long> generationMap = new HashMap<>();
+        for (Long spaceId : spaceIds) {
+            String key = getKey(spaceId, userId);
+            // 先读代数再读缓存，之后的失效都能被发现
+            Long generation = invalidationGenerations.getIfPresent(key);
+            String role = localCache.getIfPresent(key);
+            if (role == null) {
+                missIds.add(spaceId);
+                generationMap.put(spaceId, generation);
+            } else if (!NO_ROLE.equals(role)) {
+                roleMap.put(spaceId, role);
+            }
+        }
+        if (missIds.isEmpty()) {
+            return roleMap;
+        }
+        Map<Long, String> loadedMap = spaceUserMapper.selectList(new LambdaQueryWrapper<SpaceUser>()
+                        .select(SpaceUser::getSpaceId, SpaceUser::getSpaceRole)
+                        .in(SpaceUser::getSpaceId, missIds)
+                        .eq(SpaceUser::getUserId, userId))
+                .stream()
+                .collect(Collectors.toMap(SpaceUser::getSpaceId,
+                        spaceUser -> StrUtil.nullToEmpty(spaceUser.getSpaceRole()), (a, b) -> a));
+        for (Long spaceId : missIds) {
+            String role = loadedMap.getOrDefault(spaceId, NO_ROLE);
+            String key = getKey(spaceId, userId);
+            // 查询期间被失效过，查到的可能是旧角色，只返回不写回
+            if (Objects.equals(generationMap.get(spaceId), invalidationGenerations.getIfPresent(key))) {
+                localCache.put(key, role);
+            }
+            if (!NO_ROLE.equals(role)) {
+                roleMap.put(spaceId, role);
+            }
+        }
+        return roleMap;
+    }
+
+    /**
+     * 成员添加、修改、移除后调用，在事务中调用时提交后才通知
+     *
+     * @param spaceId 空间 id
+     * @param userId  用户 id
+     */
+    public void invalidate(Long spaceId, Long userId) {
+        if (spaceId == null || userId == null) {
+            return;
+        }
+        String key = getKey(spaceId, userId);
+        TransactionUtils.afterCommit(() -> {
+            // 本节点先删除，不依赖消息
+            invalidateLocal(key);
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, key);
+            } catch (Exception e) {
+                // 通知失败时其他节点最多在过期后更新
+                log.error("空间成员角色缓存失效通知失败, key = {}", key, e);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void invalidateLocal(String key) {
+        // 先记录代数再删除，正在查询数据库的请求不会把旧角色写回
+        invalidationGenerations.put(key, generationSequence.incrementAndGet());
+        localCache.invalidate(key);
+    }
+
+    private String getKey(Long spaceId, Long userId) {
+        return spaceId + ":" + userId;
+    }
+}
@@ -0,0 +1,255 @@
+package com.polar.cloudimage.manager.cache;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.polar.cloudimage.mapper.UserMapper;
+import com.polar.cloudimage.model.convert.UserConvert;
+import com.polar.cloudimage.model.vo.UserVO;
+import com.polar.cloudimage.util.TransactionUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 用户视图缓存（Caffeine 本地缓存 + Redis），组装图片、空间、空间成员视图时使用
+ * 1. 先查本地缓存，再批量 MGET Redis，都未命中的一次查询数据库后写回；不存在的用户缓存空值标记（短时间），避免反复查询数据库
+ * 2. 用户修改、删除后删除 Redis 缓存，并通过 Redis 发布 id，所有节点（包括自己）删除本地缓存
+ * 3. 防止把旧数据写回缓存：查询数据库期间本节点收到过失效消息时不写回；删除后延迟再删一次，
+ *    清理删除前已读到旧数据、删除后才写回的情况
+ */
+@Slf4j
+@Component
+public class UserVOCacheManager implements MessageListener {
+
+    private static final String CHANNEL = "cloudimage:userVOCache";
+
+    private static final String CACHE_KEY_PREFIX = "cloudimage:userVO:";
+
+    /**
+     * 用户不存在的空值标记
+     */
+    private static final String MISSING_VALUE = "";
+
+    /**
+     * 空值标记的缓存时间
+     */
+    private static final Duration MISSING_EXPIRE = Duration.ofMinutes(5);
+
+    /**
+     * 第二次删除的延迟（大于一次数据库查询加写回缓存的时间）
+     */
+    private static final Duration DOUBLE_DELETE_DELAY = Duration.ofSeconds(1);
+
+    /**
+     * 本地缓存中的空值标记（Caffeine 不能保存 null）
+     */
+    private static final UserVO MISSING_USER = new UserVO();
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 本地缓存（修改后通过消息删除，过期时间兜底消息丢失的情况）
+     */
+    private final Cache<Long, UserVO> localCache = Caffeine.newBuilder()
+            .maximumSize(10_000L)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .recordStats()
+            .build();
+
+    /**
+     * 失效次数，查询数据库前后不一致时说明期间有用户被修改，不写回缓存
+     */
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    private ScheduledExecutorService delayedDeleteExecutor;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "userVO");
+        delayedDeleteExecutor = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("user-vo-cache-delete-").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        delayedDeleteExecutor.shutdown();
+    }
+
+    /**
+     * 获取用户视图
+     *
+     * @param userId 用户 id
+     * @return 用户视图，用户不存在时返回 null
+     */
+    public UserVO get(Long userId) {
+        if (userId == null || userId <= 0) {
+            return null;
+        }
+        return getAll(Collections.singleton(userId)).get(userId);
+    }
+
+    /**
+     * 批量获取用户视图
+     *
+     * @param userIds 用户 id
+     * @return 用户 id => 用户视图，不存在的用户不包含在内
+     */
+    public Map<Long, UserVO> getAll(Collection<Long> userIds) {
+        Map<Long, UserVO> userVOMap = new HashMap<>();
+        if (CollUtil.isEmpty(userIds)) {
+            return userVOMap;
+        }
+        Set<Long> distinctIds = userIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        // 在读取缓存之前记录，之后收到的失效消息都会让本次查询结果不写回
+        long invalidationCountBefore = invalidationCount.get();
+        // 1. 本地缓存
+        Map<Long, UserVO> localMap = localCache.getAllPresent(distinctIds);
+        localMap.forEach((userId, userVO) -> {
+            if (userVO != MISSING_USER) {
+                userVOMap.put(userId, userVO);
+            }
+        });
+        List<Long> missIds = distinctIds.stream()
+                .filter(userId -> !localMap.containsKey(userId))
+                .collect(Collectors.toList());
+        if (missIds.isEmpty()) {
+            return userVOMap;
+        }
+        // 2. Redis
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(
+                missIds.stream().map(userId -> CACHE_KEY_PREFIX + userId).collect(Collectors.toList()));
+        List<Long> dbIds = new ArrayList<>();
+        for (int i = 0; i < missIds.size(); i++) {
+            String value = values == null ? null : values.get(i);
+            if (value == null) {
+                dbIds.add(missIds.get(i));
+                continue;
+            }
+            if (MISSING_VALUE.equals(value)) {
+                localCache.put(missIds.get(i), MISSING_USER);
+                continue;
+            }
+            UserVO userVO = JSONUtil.toBean(value, UserVO.class);
+            localCache.put(userVO.getId(), userVO);
+            userVOMap.put(userVO.getId(), userVO);
+        }
+        if (dbIds.isEmpty()) {
+            return userVOMap;
+        }
+        // 3. 数据库
+        List<UserVO> loadedList = userMapper.selectBatchIds(dbIds).stream()
+                .map(UserConvert.INSTANCE::toVo)
+                .collect(Collectors.toList());
+        loadedList.forEach(userVO -> userVOMap.put(userVO.getId(), userVO));
+        if (invalidationCount.get() != invalidationCountBefore) {
+            // 查询期间有用户被修改，查到的可能是旧数据，只返回不写回
+            return userVOMap;
+        }
+        List<Long> missingIds = dbIds.stream()
+                .filter(userId -> !userVOMap.containsKey(userId))
+                .collect(Collectors.toList());
+        loadedList.forEach(userVO -> localCache.put(userVO.getId(), userVO));
+        missingIds.forEach(userId -> localCache.put(userId, MISSING_USER));
+        cache(loadedList, missingIds);
+        return userVOMap;
+    }
+
+    /**
+     * 用户修改、删除后调用，在事务中调用时提交后才删除，并在延迟后再删除一次
+     *
+     * @param userId 用户 id
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            evict(userId);
+            try {
+                delayedDeleteExecutor.schedule(() -> evict(userId), DOUBLE_DELETE_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.warn("用户视图缓存延迟删除提交失败, userId = {}", userId);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 删除 Redis 缓存，通知所有节点删除本地缓存
+     */
+    private void evict(Long userId) {
+        // 本节点立即失效，不等待消息
+        invalidateLocal(userId);
+        try {
+            stringRedisTemplate.delete(CACHE_KEY_PREFIX + userId);
+            stringRedisTemplate.convertAndSend(CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            // 失效失败时最多在过期后更新
+            log.error("用户视图缓存删除失败, userId = {}", userId, e);
+        }
+    }
+
+    private void invalidateLocal(Long userId) {
+        // 先计数再删除，正在查询数据库的请求不会把旧数据写回
+        invalidationCount.incrementAndGet();
+        localCache.invalidate(userId);
+    }
+
+    private void cache(List<UserVO> userVOList, List<Long> missingIds) {
+        if (userVOList.isEmpty() && missingIds.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (UserVO userVO : userVOList) {
+                // 过期时间 1 ~ 2 天，防止同时过期
+                long expireSeconds = Duration.ofDays(1).getSeconds() + RandomUtil.randomInt(0, 86400);
+                connection.stringCommands().setEx((CACHE_KEY_PREFIX + userVO.getId()).getBytes(StandardCharsets.UTF_8),
+                        expireSeconds, JSONUtil.toJsonStr(userVO).getBytes(StandardCharsets.UTF_8));
+            }
+            for (Long userId : missingIds) {
+                connection.stringCommands().setEx((CACHE_KEY_PREFIX + userId).getBytes(StandardCharsets.UTF_8),
+                        MISSING_EXPIRE.getSeconds(), MISSING_VALUE.getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.polar.cloudimage.manager.crawl;
+
+import cn.hutool.core.util.IdUtil;
+import com.polar.cloudimage.model.enums.PictureCrawlJobStatusEnum;
+import com.polar.cloudimage.model.vo.PictureCrawlJobVO;
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量抓取任务（运行时状态）
+ * 计数器在多个上传线程中并发更新
+ */
+@Getter
+public class PictureCrawlJob {
+
+    private final String jobId;
+
+    private final String searchText;
+
+    private final String namePrefix;
+
+    private final int count;
+
+    private final Long userId;
+
+    private final Date createTime = new Date();
+
+    private volatile PictureCrawlJobStatusEnum status = PictureCrawlJobStatusEnum.WAITING;
+
+    private volatile String message;
+
+    private volatile Date finishTime;
+
+    private volatile boolean cancelled;
+
+    private final AtomicInteger discoveredCount = new AtomicInteger();
+
+    private final AtomicInteger uploadedCount = new AtomicInteger();
+
+    private final AtomicInteger savedCount = new AtomicInteger();
+
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    /**
+     * 图片名称序号
+     */
+    private final AtomicInteger nameIndex = new AtomicInteger();
+
+    public PictureCrawlJob(String searchText, String namePrefix, int count, Long userId) {
+        this.jobId = IdUtil.fastSimpleUUID();
+        this.searchText = searchText;
+        this.namePrefix = namePrefix;
+        this.count = count;
+        this.userId = userId;
+    }
+
+    /**
+     * 生成下一张图片的名称：前缀_序号
+     */
+    public String nextPicName() {
+        return namePrefix + "_" + nameIndex.getAndIncrement();
+    }
+
+    public void start() {
+        this.status = PictureCrawlJobStatusEnum.RUNNING;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public void finish(PictureCrawlJobStatusEnum status, String message) {
+        this.message = message;
+        this.finishTime = new Date();
+        this.status = status;
+    }
+
+    public PictureCrawlJobVO toVO() {
+        PictureCrawlJobVO jobVO = new PictureCrawlJobVO();
+        jobVO.setJobId(jobId);
+        jobVO.setSearchText(searchText);
+        jobVO.setStatus(status.getValue());
+        jobVO.setCount(count);
+        jobVO.setDiscoveredCount(discoveredCount.get());
+        jobVO.setUploadedCount(uploadedCount.get());
+        jobVO.setSavedCount(savedCount.get());
+        jobVO.setFailedCount(failedCount.get());
+        jobVO.setMessage(message);
+        jobVO.setCreateTime(createTime);
+        jobVO.setFinishTime(finishTime);
+        return jobVO;
+    }
+}
@@ -0,0 +1,180 @@
+package com.polar.cloudimage.manager.crawl;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import com.polar.cloudimage.config.PictureCrawlConfig;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.model.enums.PictureCrawlJobStatusEnum;
+import com.polar.cloudimage.model.vo.PictureCrawlJobVO;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 批量抓取任务管理
+ * 任务在后台线程中运行，提交后立即返回任务 id
+ * 进度快照写入 Redis，任意节点都能查询；取消标记也写入 Redis，运行任务的节点在上报进度时检查
+ */
+@Slf4j
+@Component
+public class PictureCrawlManager {
+
+    private static final String JOB_KEY_PREFIX = "cloudimage:crawlJob:";
+
+    /**
+     * 任务进度保留时间（小时）
+     */
+    private static final long JOB_EXPIRE_HOURS = 24;
+
+    @Resource
+    private CloseableHttpClient httpClient;
+
+    @Resource
+    private PictureCrawlConfig crawlConfig;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本节点运行中的任务
+     */
+    private final Map<String, PictureCrawlJob> runningJobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor jobExecutor;
+
+    private ThreadPoolExecutor uploadExecutor;
+
+    private PictureCrawlPipeline<UploadPictureResult> pipeline;
+
+    @PostConstruct
+    public void init() {
+        int maxRunningJobs = crawlConfig.getMaxRunningJobs();
+        // 任务线程：超过同时运行数的任务排队，队列满直接拒绝
+        jobExecutor = new ThreadPoolExecutor(maxRunningJobs, maxRunningJobs, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(8),
+                ThreadFactoryBuilder.create().setNamePrefix("picture-crawl-job-").build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        // 上传线程：每个任务进行中的上传数已受 parallelism 限制，队列只是兜底
+        int uploadThreads = crawlConfig.getParallelism() * maxRunningJobs;
+        uploadExecutor = new ThreadPoolExecutor(uploadThreads, uploadThreads, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(uploadThreads),
+                ThreadFactoryBuilder.create().setNamePrefix("picture-crawl-upload-").build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pipeline = new PictureCrawlPipeline<>(httpClient, crawlConfig, uploadExecutor);
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param job        任务
+     * @param uploader   下载并上传一张图片
+     * @param batchSaver 一批上传结果入库
+     */
+    public void submit(PictureCrawlJob job, Function<String, UploadPictureResult> uploader,
+                       Consumer<List<UploadPictureResult>> batchSaver) {
+        String jobId = job.getJobId();
+        runningJobs.put(jobId, job);
+        saveSnapshot(job);
+        try {
+            jobExecutor.execute(() -> {
+                try {
+                    pipeline.run(job, uploader, batchSaver, this::onProgress);
+                } finally {
+                    runningJobs.remove(jobId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runningJobs.remove(jobId);
+            stringRedisTemplate.delete(getJobKey(jobId));
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "批量抓取任务过多，请稍后重试");
+        }
+    }
+
+    /**
+     * 查询任务进度，不存在或已过期时返回 null
+     */
+    public PictureCrawlJobVO getJob(String jobId) {
+        if (StrUtil.isBlank(jobId)) {
+            return null;
+        }
+        PictureCrawlJob job = runningJobs.get(jobId);
+        if (job != null) {
+            return job.toVO();
+        }
+        String json = stringRedisTemplate.opsForValue().get(getJobKey(jobId));
+        if (StrUtil.isBlank(json)) {
+            return null;
+        }
+        return JSONUtil.toBean(json, PictureCrawlJobVO.class);
+    }
+
+    /**
+     * 取消任务，已上传的图片仍会入库
+     *
+     * @return 任务是否存在且未结束
+     */
+    public boolean cancel(String jobId) {
+        PictureCrawlJob job = runningJobs.get(jobId);
+        if (job != null) {
+            job.cancel();
+            return true;
+        }
+        // 任务在其他节点运行，写入取消标记
+        PictureCrawlJobVO jobVO = getJob(jobId);
+        PictureCrawlJobStatusEnum statusEnum = jobVO == null ? null
+                : PictureCrawlJobStatusEnum.getEnumByValue(jobVO.getStatus());
+        if (statusEnum == null || statusEnum.isFinished()) {
+            return false;
+        }
+        stringRedisTemplate.opsForValue().set(getCancelKey(jobId), "1", JOB_EXPIRE_HOURS, TimeUnit.HOURS);
+        return true;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        runningJobs.values().forEach(PictureCrawlJob::cancel);
+        jobExecutor.shutdown();
+        uploadExecutor.shutdown();
+    }
+
+    /**
+     * 上报进度：写入快照，检查取消标记
+     */
+    private void onProgress(PictureCrawlJob job) {
+        try {
+            saveSnapshot(job);
+            if (!job.isCancelled() && Boolean.TRUE.equals(stringRedisTemplate.hasKey(getCancelKey(job.getJobId())))) {
+                job.cancel();
+            }
+        } catch (Exception e) {
+            // 进度上报失败不影响任务本身
+            log.warn("批量抓取任务进度上报失败, jobId = {}", job.getJobId(), e);
+        }
+    }
+
+    private void saveSnapshot(PictureCrawlJob job) {
+        stringRedisTemplate.opsForValue().set(getJobKey(job.getJobId()), JSONUtil.toJsonStr(job.toVO()),
+                JOB_EXPIRE_HOURS, TimeUnit.HOURS);
+    }
+
+    private String getJobKey(String jobId) {
+        return JOB_KEY_PREFIX + jobId;
+    }
+
+    private String getCancelKey(String jobId) {
+        return JOB_KEY_PREFIX + jobId + ":cancel";
+    }
+}
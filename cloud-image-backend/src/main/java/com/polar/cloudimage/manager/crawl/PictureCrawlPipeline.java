@@ -0,0 +1,306 @@
+package com.polar.cloudimage.manager.crawl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import com.polar.cloudimage.config.PictureCrawlConfig;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.model.enums.PictureCrawlJobStatusEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 批量抓取流水线
+ * 1. 抓取：任务线程逐页抓取搜索页，解析出图片地址（去重）
+ * 2. 下载校验上传：交给上传线程池并行执行，单个任务同时进行的数量受 parallelism 限制，
+ * 同一图片域名同时下载的数量受 maxPerHost 限制（所有任务共享）
+ * 3. 入库：上传结果攒满一批后整批写入数据库，最后不足一批的在任务结束时写入
+ * 三个阶段同时进行，抓取下一页时前面的图片已经在上传、入库
+ *
+ * @param <T> 上传结果类型
+ */
+@Slf4j
+public class PictureCrawlPipeline<T> {
+
+    /**
+     * 等待上传名额的轮询间隔（毫秒）
+     */
+    private static final long SLOT_POLL_MILLIS = 100;
+
+    private final CloseableHttpClient httpClient;
+
+    private final PictureCrawlConfig crawlConfig;
+
+    private final Executor uploadExecutor;
+
+    /**
+     * 每个图片域名的并发许可
+     */
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    public PictureCrawlPipeline(CloseableHttpClient httpClient, PictureCrawlConfig crawlConfig, Executor uploadExecutor) {
+        this.httpClient = httpClient;
+        this.crawlConfig = crawlConfig;
+        this.uploadExecutor = uploadExecutor;
+    }
+
+    /**
+     * 运行任务（在调用线程中阻塞执行，直到任务结束）
+     *
+     * @param job        任务
+     * @param uploader   下载并上传一张图片，返回上传结果
+     * @param batchSaver 一批上传结果入库
+     * @param onProgress 进度回调（每页抓取、每批入库后调用）
+     */
+    public void run(PictureCrawlJob job, Function<String, T> uploader, Consumer<List<T>> batchSaver,
+                    Consumer<PictureCrawlJob> onProgress) {
+        job.start();
+        onProgress.accept(job);
+        RunContext context = new RunContext(job, uploader, batchSaver, onProgress);
+        try {
+            fetchAndDispatch(context);
+        } catch (BusinessException e) {
+            job.finish(PictureCrawlJobStatusEnum.FAILED, e.getMessage());
+        } catch (Exception e) {
+            log.error("批量抓取任务失败, jobId = {}", job.getJobId(), e);
+            job.finish(PictureCrawlJobStatusEnum.FAILED, "抓取失败");
+        } finally {
+            // 等待进行中的上传结束，写入剩余的结果
+            context.awaitInFlight();
+            context.flush();
+        }
+        if (job.getStatus() != PictureCrawlJobStatusEnum.FAILED) {
+            job.finish(job.isCancelled() ? PictureCrawlJobStatusEnum.CANCELLED : PictureCrawlJobStatusEnum.SUCCEED, null);
+        }
+        onProgress.accept(job);
+    }
+
+    /**
+     * 逐页抓取图片地址并分发上传，直到上传数量达到要求、没有更多图片或任务被取消
+     */
+    private void fetchAndDispatch(RunContext context) throws InterruptedException {
+        PictureCrawlJob job = context.job;
+        Set<String> seenUrls = new HashSet<>();
+        int offset = 0;
+        while (!job.isCancelled() && job.getUploadedCount().get() < job.getCount()) {
+            List<String> urlList = fetchPage(job.getSearchText(), offset);
+            offset += crawlConfig.getPageSize();
+            int newCount = 0;
+            for (String url : urlList) {
+                if (!seenUrls.add(url)) {
+                    continue;
+                }
+                newCount++;
+                job.getDiscoveredCount().incrementAndGet();
+                if (!context.acquireSlot()) {
+                    return;
+                }
+                uploadExecutor.execute(() -> context.upload(url));
+            }
+            context.onProgress.accept(job);
+            // 没有新图片，说明已经翻到底
+            if (newCount == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 抓取一页搜索结果，解析图片地址
+     */
+    List<String> fetchPage(String searchText, int offset) {
+        String fetchUrl = String.format(crawlConfig.getSourceUrl(),
+                URLUtil.encodeAll(searchText, StandardCharsets.UTF_8), offset);
+        Document document;
+        try (CloseableHttpResponse httpResponse = httpClient.execute(new HttpGet(fetchUrl))) {
+            if (httpResponse.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
+            }
+            String html = EntityUtils.toString(httpResponse.getEntity(), StandardCharsets.UTF_8);
+            document = Jsoup.parse(html, fetchUrl);
+        } catch (IOException e) {
+            log.error("获取页面失败, url = {}", fetchUrl, e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
+        }
+        Element div = document.getElementsByClass("dgControl").first();
+        if (div == null) {
+            // 第一页就没有结果说明页面结构有变化，后面的页直接视为没有更多图片
+            if (offset == 0) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取元素失败");
+            }
+            return Collections.emptyList();
+        }
+        List<String> urlList = new ArrayList<>();
+        for (Element imgElement : div.select("img.mimg")) {
+            // 靠后的图片懒加载，地址在 data-src 中
+            String fileUrl = imgElement.absUrl("src");
+            if (!StrUtil.startWithAny(fileUrl, "http://", "https://")) {
+                fileUrl = imgElement.absUrl("data-src");
+            }
+            if (StrUtil.isBlank(fileUrl)) {
+                continue;
+            }
+            // 处理图片上传地址，防止出现转义问题
+            urlList.add(StrUtil.subBefore(fileUrl, "?", false));
+        }
+        return urlList;
+    }
+
+    /**
+     * 单次运行的上下文
+     */
+    private class RunContext {
+
+        private final PictureCrawlJob job;
+
+        private final Function<String, T> uploader;
+
+        private final Consumer<List<T>> batchSaver;
+
+        private final Consumer<PictureCrawlJob> onProgress;
+
+        /**
+         * 本任务的上传名额
+         */
+        private final Semaphore permits = new Semaphore(crawlConfig.getParallelism());
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * 待入库的上传结果
+         */
+        private final List<T> buffer = new ArrayList<>();
+
+        /**
+         * 同一任务的批次依次入库
+         */
+        private final ReentrantLock saveLock = new ReentrantLock();
+
+        RunContext(PictureCrawlJob job, Function<String, T> uploader, Consumer<List<T>> batchSaver,
+                   Consumer<PictureCrawlJob> onProgress) {
+            this.job = job;
+            this.uploader = uploader;
+            this.batchSaver = batchSaver;
+            this.onProgress = onProgress;
+        }
+
+        /**
+         * 获取上传名额：已上传 + 上传中的数量不超过目标数量，上传失败的会空出名额给后面的图片
+         *
+         * @return 是否还需要继续上传
+         */
+        boolean acquireSlot() throws InterruptedException {
+            while (!job.isCancelled()) {
+                int uploaded = job.getUploadedCount().get();
+                if (uploaded >= job.getCount()) {
+                    return false;
+                }
+                if (uploaded + inFlight.get() < job.getCount()
+                        && permits.tryAcquire(SLOT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    inFlight.incrementAndGet();
+                    return true;
+                }
+                if (uploaded + inFlight.get() >= job.getCount()) {
+                    Thread.sleep(SLOT_POLL_MILLIS);
+                }
+            }
+            return false;
+        }
+
+        void upload(String url) {
+            try {
+                if (job.isCancelled()) {
+                    return;
+                }
+                Semaphore hostPermit = hostPermits.computeIfAbsent(URLUtil.url(url).getHost(),
+                        host -> new Semaphore(crawlConfig.getMaxPerHost()));
+                hostPermit.acquire();
+                T result;
+                try {
+                    result = uploader.apply(url);
+                } finally {
+                    hostPermit.release();
+                }
+                job.getUploadedCount().incrementAndGet();
+                add(result);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                job.getFailedCount().incrementAndGet();
+                log.info("图片上传失败，已跳过, url = {}, message = {}", url, e.getMessage());
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+            }
+        }
+
+        /**
+         * 加入待入库列表，攒满一批就入库
+         */
+        private void add(T result) {
+            List<T> batch = null;
+            synchronized (buffer) {
+                buffer.add(result);
+                if (buffer.size() >= crawlConfig.getBatchSize()) {
+                    batch = new ArrayList<>(buffer);
+                    buffer.clear();
+                }
+            }
+            if (batch != null) {
+                save(batch);
+            }
+        }
+
+        void flush() {
+            List<T> batch;
+            synchronized (buffer) {
+                batch = new ArrayList<>(buffer);
+                buffer.clear();
+            }
+            if (!batch.isEmpty()) {
+                save(batch);
+            }
+        }
+
+        private void save(List<T> batch) {
+            saveLock.lock();
+            try {
+                batchSaver.accept(batch);
+                job.getSavedCount().addAndGet(batch.size());
+            } catch (Exception e) {
+                job.getFailedCount().addAndGet(batch.size());
+                log.error("批量抓取图片入库失败, jobId = {}", job.getJobId(), e);
+            } finally {
+                saveLock.unlock();
+            }
+            onProgress.accept(job);
+        }
+
+        /**
+         * 等待本任务进行中的上传全部结束
+         */
+        void awaitInFlight() {
+            permits.acquireUninterruptibly(crawlConfig.getParallelism());
+            permits.release(crawlConfig.getParallelism());
+        }
+    }
+}
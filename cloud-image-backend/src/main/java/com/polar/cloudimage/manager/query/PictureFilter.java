@@ -0,0 +1,115 @@
+package com.polar.cloudimage.manager.query;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.polar.cloudimage.model.dto.picture.PictureQueryRequest;
+import com.polar.cloudimage.model.entity.Picture;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * 图片查询条件（标签除外）
+ * QueryWrapper 查询和查询模板共用这一份定义，params 返回 null 表示未设置该条件
+ */
+public enum PictureFilter {
+
+    SEARCH_TEXT("searchText", "(name like ? or introduction like ?)", request -> like(request.getSearchText(), 2)),
+    ID("id", "id = ?", request -> value(request.getId())),
+    USER_ID("userId", "userId = ?", request -> value(request.getUserId())),
+    SPACE_ID("spaceId", "spaceId = ?", request -> value(request.getSpaceId())),
+    NULL_SPACE_ID("nullSpaceId", "spaceId is null", request -> request.isNullSpaceId() ? new Object[0] : null),
+    NAME("name", "name like ?", request -> like(request.getName(), 1)),
+    INTRODUCTION("introduction", "introduction like ?", request -> like(request.getIntroduction(), 1)),
+    PIC_FORMAT("picFormat", "picFormat like ?", request -> like(request.getPicFormat(), 1)),
+    REVIEW_MESSAGE("reviewMessage", "reviewMessage like ?", request -> like(request.getReviewMessage(), 1)),
+    CATEGORY("category", "category = ?", request -> StrUtil.isBlank(request.getCategory()) ? null : value(request.getCategory())),
+    PIC_WIDTH("picWidth", "picWidth = ?", request -> value(request.getPicWidth())),
+    PIC_HEIGHT("picHeight", "picHeight = ?", request -> value(request.getPicHeight())),
+    PIC_SIZE("picSize", "picSize = ?", request -> value(request.getPicSize())),
+    PIC_SCALE("picScale", "picScale = ?", request -> value(request.getPicScale())),
+    REVIEW_STATUS("reviewStatus", "reviewStatus = ?", request -> value(request.getReviewStatus())),
+    REVIEWER_ID("reviewerId", "reviewerId = ?", request -> value(request.getReviewerId())),
+    START_EDIT_TIME("startEditTime", "editTime >= ?", request -> value(request.getStartEditTime())),
+    END_EDIT_TIME("endEditTime", "editTime <= ?", request -> value(request.getEndEditTime()));
+
+    private final String fieldName;
+
+    /**
+     * JDBC 占位符（?）形式的条件
+     */
+    private final String sql;
+
+    /**
+     * QueryWrapper 占位符（{0}、{1}）形式的条件
+     */
+    private final String wrapperSql;
+
+    private final Function<PictureQueryRequest, Object[]> params;
+
+    PictureFilter(String fieldName, String sql, Function<PictureQueryRequest, Object[]> params) {
+        this.fieldName = fieldName;
+        this.sql = sql;
+        this.params = params;
+        StringBuilder builder = new StringBuilder();
+        int index = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                builder.append('{').append(index++).append('}');
+            } else {
+                builder.append(c);
+            }
+        }
+        this.wrapperSql = builder.toString();
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * 获取条件参数
+     *
+     * @return 参数，未设置该条件时返回 null
+     */
+    public Object[] getParams(PictureQueryRequest pictureQueryRequest) {
+        return params.apply(pictureQueryRequest);
+    }
+
+    /**
+     * 把请求中设置了的条件按定义顺序追加到 QueryWrapper
+     *
+     * @param queryWrapper        查询条件
+     * @param pictureQueryRequest 图片查询请求
+     * @param matchSearchText     是否按搜索词模糊匹配（已通过全文索引匹配时不需要）
+     */
+    public static void applyAll(QueryWrapper<Picture> queryWrapper, PictureQueryRequest pictureQueryRequest,
+                                boolean matchSearchText) {
+        for (PictureFilter filter : values()) {
+            if (filter == SEARCH_TEXT && !matchSearchText) {
+                continue;
+            }
+            Object[] filterParams = filter.getParams(pictureQueryRequest);
+            if (filterParams != null) {
+                queryWrapper.apply(filter.wrapperSql, filterParams);
+            }
+        }
+    }
+
+    private static Object[] value(Object value) {
+        return value == null ? null : new Object[]{value};
+    }
+
+    private static Object[] like(String value, int count) {
+        if (StrUtil.isBlank(value)) {
+            return null;
+        }
+        Object[] params = new Object[count];
+        Arrays.fill(params, "%" + value + "%");
+        return params;
+    }
+}
@@ -0,0 +1,278 @@
+package com.polar.cloudimage.manager.query;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.exception.ThrowUtils;
+import com.polar.cloudimage.model.dto.picture.PictureQueryRequest;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.enums.PictureProjectionEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 图片查询模板
+ * 1. 按查询请求中设置了哪些条件、排序方式、投影计算查询形状，每种形状只拼接一次 SQL（列表 + 总数），之后只绑定参数
+ * 2. 直接通过 JdbcTemplate 执行，不再构造 QueryWrapper、渲染动态 SQL；结果按投影的列序号读取，不使用反射映射
+ * 查询条件与 QueryWrapper 查询共用 {@link PictureFilter}
+ * 3. 按查询形状记录耗时（picture.query{shape,type}），用于判断哪些形状需要加索引
+ * 按标签筛选（标签表子查询）等不支持的形状返回 null，由调用方使用 QueryWrapper 查询
+ */
+@Slf4j
+@Component
+public class PictureQueryTemplateManager {
+
+    /**
+     * Picture 实体的全部列
+     */
+    private static final String COLUMNS = "id, url, thumbnailUrl, name, introduction, category, tags, picSize, picWidth, picHeight, "
+            + "picScale, picFormat, picColor, userId, spaceId, createTime, editTime, updateTime, isDelete, reviewStatus, "
+            + "reviewMessage, reviewerId, reviewTime, processStatus";
+
+    /**
+     * 允许排序的字段（拼接在 SQL 中，只能是实际的列名）
+     */
+    private static final Set<String> SORT_FIELDS = new HashSet<>(Arrays.asList(COLUMNS.split(",\\s*")));
+
+    /**
+     * 最多缓存的模板数，超过后新形状不再使用模板（避免异常请求占用内存、产生过多指标）
+     */
+    private static final int MAX_TEMPLATES = 256;
+
+    /**
+     * 列名 => 读取该列并设置到实体
+     */
+    private static final Map<String, ColumnSetter> COLUMN_SETTERS = new HashMap<>();
+
+    static {
+        COLUMN_SETTERS.put("id", (picture, rs, i) -> picture.setId(getLong(rs, i)));
+        COLUMN_SETTERS.put("url", (picture, rs, i) -> picture.setUrl(rs.getString(i)));
+        COLUMN_SETTERS.put("thumbnailUrl", (picture, rs, i) -> picture.setThumbnailUrl(rs.getString(i)));
+        COLUMN_SETTERS.put("name", (picture, rs, i) -> picture.setName(rs.getString(i)));
+        COLUMN_SETTERS.put("introduction", (picture, rs, i) -> picture.setIntroduction(rs.getString(i)));
+        COLUMN_SETTERS.put("category", (picture, rs, i) -> picture.setCategory(rs.getString(i)));
+        COLUMN_SETTERS.put("tags", (picture, rs, i) -> picture.setTags(rs.getString(i)));
+        COLUMN_SETTERS.put("picSize", (picture, rs, i) -> picture.setPicSize(getLong(rs, i)));
+        COLUMN_SETTERS.put("picWidth", (picture, rs, i) -> picture.setPicWidth(getInteger(rs, i)));
+        COLUMN_SETTERS.put("picHeight", (picture, rs, i) -> picture.setPicHeight(getInteger(rs, i)));
+        COLUMN_SETTERS.put("picScale", (picture, rs, i) -> picture.setPicScale(getDouble(rs, i)));
+        COLUMN_SETTERS.put("picFormat", (picture, rs, i) -> picture.setPicFormat(rs.getString(i)));
+        COLUMN_SETTERS.put("picColor", (picture, rs, i) -> picture.setPicColor(rs.getString(i)));
+        COLUMN_SETTERS.put("userId", (picture, rs, i) -> picture.setUserId(getLong(rs, i)));
+        COLUMN_SETTERS.put("spaceId", (picture, rs, i) -> picture.setSpaceId(getLong(rs, i)));
+        COLUMN_SETTERS.put("createTime", (picture, rs, i) -> picture.setCreateTime(getDate(rs, i)));
+        COLUMN_SETTERS.put("editTime", (picture, rs, i) -> picture.setEditTime(getDate(rs, i)));
+        COLUMN_SETTERS.put("updateTime", (picture, rs, i) -> picture.setUpdateTime(getDate(rs, i)));
+        COLUMN_SETTERS.put("isDelete", (picture, rs, i) -> picture.setIsDelete(getInteger(rs, i)));
+        COLUMN_SETTERS.put("reviewStatus", (picture, rs, i) -> picture.setReviewStatus(getInteger(rs, i)));
+        COLUMN_SETTERS.put("reviewMessage", (picture, rs, i) -> picture.setReviewMessage(rs.getString(i)));
+        COLUMN_SETTERS.put("reviewerId", (picture, rs, i) -> picture.setReviewerId(getLong(rs, i)));
+        COLUMN_SETTERS.put("reviewTime", (picture, rs, i) -> picture.setReviewTime(getDate(rs, i)));
+        COLUMN_SETTERS.put("processStatus", (picture, rs, i) -> picture.setProcessStatus(getInteger(rs, i)));
+    }
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, PictureQueryTemplate> templateMap = new ConcurrentHashMap<>();
+
+    /**
+     * 获取查询请求对应的模板
+     *
+     * @param pictureQueryRequest 图片查询请求
+     * @param projection          查询投影
+     * @return 查询模板，不支持的查询形状返回 null
+     */
+    public PictureQueryTemplate getTemplate(PictureQueryRequest pictureQueryRequest, PictureProjectionEnum projection) {
+        if (CollUtil.isNotEmpty(pictureQueryRequest.getTags())) {
+            return null;
+        }
+        String sortField = pictureQueryRequest.getSortField();
+        if (StrUtil.isNotEmpty(sortField) && !SORT_FIELDS.contains(sortField)) {
+            return null;
+        }
+        boolean isAsc = "ascend".equals(pictureQueryRequest.getSortOrder());
+        List<PictureFilter> filters = new ArrayList<>();
+        for (PictureFilter filter : PictureFilter.values()) {
+            if (filter.getParams(pictureQueryRequest) != null) {
+                filters.add(filter);
+            }
+        }
+        String orderBy = StrUtil.isEmpty(sortField) ? "" : sortField + (isAsc ? " asc" : " desc");
+        String shape = getShape(filters, orderBy, projection);
+        PictureQueryTemplate template = templateMap.get(shape);
+        if (template == null) {
+            if (templateMap.size() >= MAX_TEMPLATES) {
+                return null;
+            }
+            template = templateMap.computeIfAbsent(shape, key -> compile(key, filters, orderBy, projection));
+        }
+        return template;
+    }
+
+    /**
+     * 分页查询
+     *
+     * @param offset 偏移量，不能小于 0
+     * @param size   每页条数，必须大于 0
+     */
+    public List<Picture> list(PictureQueryTemplate template, PictureQueryRequest pictureQueryRequest, long offset, long size) {
+        ThrowUtils.throwIf(offset < 0 || size <= 0, ErrorCode.PARAMS_ERROR, "分页参数错误");
+        List<Object> params = bindParams(template, pictureQueryRequest);
+        params.add(offset);
+        params.add(size);
+        return template.listTimer.record(() -> jdbcTemplate.query(template.listSql, template.rowMapper, params.toArray()));
+    }
+
+    /**
+     * 查询总数
+     */
+    public long count(PictureQueryTemplate template, PictureQueryRequest pictureQueryRequest) {
+        Object[] params = bindParams(template, pictureQueryRequest).toArray();
+        Long count = template.countTimer.record(() -> jdbcTemplate.queryForObject(template.countSql, Long.class, params));
+        return count == null ? 0 : count;
+    }
+
+    private PictureQueryTemplate compile(String shape, List<PictureFilter> filters, String orderBy,
+                                         PictureProjectionEnum projection) {
+        StringBuilder where = new StringBuilder(" from picture where isDelete = 0");
+        for (PictureFilter filter : filters) {
+            where.append(" and ").append(filter.getSql());
+        }
+        String listSql = "select " + String.join(", ", projection.getColumns()) + where + (orderBy.isEmpty() ? "" : " order by " + orderBy) + " limit ?, ?";
+        String countSql = "select count(*)" + where;
+        log.info("图片查询模板编译完成, shape = {}, sql = {}", shape, listSql);
+        return new PictureQueryTemplate(shape, filters.toArray(new PictureFilter[0]), listSql, countSql,
+                new PictureRowMapper(projection.getColumns()), registerTimer(shape, "list"), registerTimer(shape, "count"));
+    }
+
+    private List<Object> bindParams(PictureQueryTemplate template, PictureQueryRequest pictureQueryRequest) {
+        List<Object> params = new ArrayList<>();
+        for (PictureFilter filter : template.filters) {
+            Collections.addAll(params, filter.getParams(pictureQueryRequest));
+        }
+        return params;
+    }
+
+    private Timer registerTimer(String shape, String type) {
+        return Timer.builder("picture.query")
+                .description("图片列表查询耗时（按查询形状）")
+                .tag("shape", shape)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 查询形状，如 nullSpaceId+reviewStatus+category|createTime desc|grid
+     */
+    private String getShape(List<PictureFilter> filters, String orderBy, PictureProjectionEnum projection) {
+        StringJoiner joiner = new StringJoiner("+");
+        filters.forEach(filter -> joiner.add(filter.getFieldName()));
+        return (joiner.length() == 0 ? "all" : joiner.toString()) + "|" + (orderBy.isEmpty() ? "unsorted" : orderBy)
+                + "|" + projection.getValue();
+    }
+
+    /**
+     * 编译后的查询模板
+     */
+    public static class PictureQueryTemplate {
+
+        private final String shape;
+
+        private final PictureFilter[] filters;
+
+        private final String listSql;
+
+        private final String countSql;
+
+        private final RowMapper<Picture> rowMapper;
+
+        private final Timer listTimer;
+
+        private final Timer countTimer;
+
+        PictureQueryTemplate(String shape, PictureFilter[] filters, String listSql, String countSql,
+                             RowMapper<Picture> rowMapper, Timer listTimer, Timer countTimer) {
+            this.shape = shape;
+            this.filters = filters;
+            this.listSql = listSql;
+            this.countSql = countSql;
+            this.rowMapper = rowMapper;
+            this.listTimer = listTimer;
+            this.countTimer = countTimer;
+        }
+
+        public String getShape() {
+            return shape;
+        }
+    }
+
+    /**
+     * 按投影的列读取结果集（按列序号读取，不通过反射匹配属性）
+     */
+    static class PictureRowMapper implements RowMapper<Picture> {
+
+        private final ColumnSetter[] setters;
+
+        PictureRowMapper(Collection<String> columns) {
+            setters = columns.stream()
+                    .map(column -> {
+                        ColumnSetter setter = COLUMN_SETTERS.get(column);
+                        if (setter == null) {
+                            throw new IllegalStateException("不支持的投影列: " + column);
+                        }
+                        return setter;
+                    })
+                    .toArray(ColumnSetter[]::new);
+        }
+
+        @Override
+        public Picture mapRow(ResultSet rs, int rowNum) throws SQLException {
+            Picture picture = new Picture();
+            for (int i = 0; i < setters.length; i++) {
+                setters[i].set(picture, rs, i + 1);
+            }
+            return picture;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ColumnSetter {
+
+        void set(Picture picture, ResultSet rs, int index) throws SQLException;
+    }
+
+    private static Long getLong(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Integer getInteger(ResultSet rs, int index) throws SQLException {
+        int value = rs.getInt(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, int index) throws SQLException {
+        double value = rs.getDouble(index);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Date getDate(ResultSet rs, int index) throws SQLException {
+        Timestamp value = rs.getTimestamp(index);
+        return value == null ? null : new Date(value.getTime());
+    }
+}
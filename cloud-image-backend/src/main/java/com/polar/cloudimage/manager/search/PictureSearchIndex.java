@@ -0,0 +1,380 @@
+package com.polar.cloudimage.manager.search;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.polar.cloudimage.mapper.PictureMapper;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * 图片全文索引（进程内倒排索引）
+ * 1. 索引名称、简介、标签、分类，分词见 {@link PictureTokenizer}，不同字段权重不同
+ * 2. 查询要求所有词项都命中，按 词项权重 * idf 求和排序，只返回图片 id，由调用方走正常的查询和封装流程
+ *    空间、审核状态、分类在索引中过滤，返回全部匹配结果（不截断），其他条件由调用方在数据库中过滤
+ * 3. 图片新增、修改、删除后，本节点在提交后同步重新加载这些图片，再通过 Redis 发布 id，其他节点收到后重新加载
+ * 4. 启动后在后台从数据库全量构建，构建完成前 {@link #isReady()} 为 false，调用方回退到 LIKE 查询
+ */
+@Slf4j
+@Component
+public class PictureSearchIndex implements MessageListener {
+
+    private static final String CHANNEL = "cloudimage:pictureSearchIndex";
+
+    /**
+     * 全量构建时每批读取的数量
+     */
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private static final float NAME_WEIGHT = 3f;
+
+    private static final float TAG_WEIGHT = 2f;
+
+    private static final float CATEGORY_WEIGHT = 2f;
+
+    private static final float INTRODUCTION_WEIGHT = 1f;
+
+    @Resource
+    private PictureMapper pictureMapper;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    /**
+     * 节点标识，收到自己发出的通知时跳过
+     */
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 词项 => (图片 id => 权重)
+     */
+    private Map<String, Map<Long, Float>> postings = new HashMap<>();
+
+    /**
+     * 图片 id => 已索引的图片
+     */
+    private Map<Long, IndexedPicture> pictures = new HashMap<>();
+
+    private volatile boolean ready;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * 全量构建期间变更的图片，构建完成后重新加载
+     */
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuildAsync();
+    }
+
+    /**
+     * 索引是否可用
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 搜索图片
+     *
+     * @param searchText   搜索词
+     * @param spaceId      空间 id，不为空时只返回该空间的图片
+     * @param nullSpaceId  是否只返回公共图库的图片
+     * @param reviewStatus 审核状态，为空时不过滤
+     * @param category     分类，为空时不过滤
+     * @return 按相关度从高到低排列的全部匹配图片 id
+     */
+    public List<Long> search(String searchText, Long spaceId, boolean nullSpaceId, Integer reviewStatus, String category) {
+        Set<String> tokens = PictureTokenizer.tokenizeForQuery(searchText);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Float> scoreMap;
+        lock.readLock().lock();
+        try {
+            // 从文档最少的词项开始求交集
+            List<Map<Long, Float>> postingList = new ArrayList<>();
+            for (String token : tokens) {
+                Map<Long, Float> posting = postings.get(token);
+                if (posting == null) {
+                    return Collections.emptyList();
+                }
+                postingList.add(posting);
+            }
+            postingList.sort(Comparator.comparingInt(Map::size));
+            int totalCount = pictures.size();
+            scoreMap = new HashMap<>();
+            Map<Long, Float> first = postingList.get(0);
+            for (Map.Entry<Long, Float> entry : first.entrySet()) {
+                IndexedPicture picture = pictures.get(entry.getKey());
+                if (!matchFilter(picture, spaceId, nullSpaceId, reviewStatus, category)) {
+                    continue;
+                }
+                float score = 0;
+                boolean matched = true;
+                for (Map<Long, Float> posting : postingList) {
+                    Float weight = posting.get(entry.getKey());
+                    if (weight == null) {
+                        matched = false;
+                        break;
+                    }
+                    score += weight * idf(totalCount, posting.size());
+                }
+                if (matched) {
+                    scoreMap.put(entry.getKey(), score);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scoreMap.entrySet().stream()
+                .sorted(Map.Entry.<Long, Float>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 图片已变更（新增、修改、删除），在事务中调用时提交后才执行
+     * 本节点同步重新加载后返回（调用方之后再递增列表缓存版本），再通知其他节点
+     *
+     * @param pictureIds 图片 id
+     */
+    public void notifyChanged(Collection<Long> pictureIds) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        List<Long> pictureIdList = new ArrayList<>(pictureIds);
+        String message = nodeId + ":" + CollUtil.join(pictureIdList, ",");
+        TransactionUtils.afterCommit(() -> {
+            try {
+                reloadChanged(pictureIdList);
+            } catch (Exception e) {
+                log.error("图片索引重新加载失败, pictureIds = {}", pictureIdList, e);
+            }
+            try {
+                stringRedisTemplate.convertAndSend(CHANNEL, message);
+            } catch (Exception e) {
+                log.error("图片索引变更通知失败, pictureIds = {}", pictureIdList, e);
+            }
+        });
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        // 本节点发出的通知已经同步处理过
+        if (nodeId.equals(StrUtil.subBefore(body, ":", false))) {
+            return;
+        }
+        List<Long> pictureIds = StrUtil.split(StrUtil.subAfter(body, ":", false), ',', true, true).stream()
+                .map(Long::valueOf)
+                .collect(Collectors.toList());
+        reloadChanged(pictureIds);
+    }
+
+    private void reloadChanged(List<Long> pictureIds) {
+        if (rebuilding.get()) {
+            changedDuringRebuild.addAll(pictureIds);
+        }
+        reload(pictureIds);
+    }
+
+    /**
+     * 在后台从数据库全量重建索引，已在重建中时返回 false
+     */
+    public boolean rebuildAsync() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("图片索引构建失败", e);
+            } finally {
+                rebuilding.set(false);
+            }
+        }, "picture-search-index-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * 全量构建：按 id 分批读取，在新的结构中构建，完成后整体替换，构建期间旧索引照常使用
+     */
+    private void rebuild() {
+        long startTime = System.currentTimeMillis();
+        changedDuringRebuild.clear();
+        Map<String, Map<Long, Float>> newPostings = new HashMap<>();
+        Map<Long, IndexedPicture> newPictures = new HashMap<>();
+        long lastId = 0;
+        while (true) {
+            List<Picture> pictureList = pictureMapper.selectList(selectIndexedColumns()
+                    .gt(Picture::getId, lastId)
+                    .orderByAsc(Picture::getId)
+                    .last("limit " + REBUILD_BATCH_SIZE));
+            for (Picture picture : pictureList) {
+                add(newPostings, newPictures, picture);
+            }
+            if (pictureList.size() < REBUILD_BATCH_SIZE) {
+                break;
+            }
+            lastId = pictureList.get(pictureList.size() - 1).getId();
+        }
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            pictures = newPictures;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // 构建期间的变更可能没有读到，重新加载一次
+        List<Long> changedIds = new ArrayList<>(changedDuringRebuild);
+        changedDuringRebuild.clear();
+        reload(changedIds);
+        log.info("图片索引构建完成, 图片数 = {}, 词项数 = {}, 耗时 = {} ms",
+                newPictures.size(), newPostings.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 从数据库重新加载图片，不存在（已删除）的从索引中移除
+     */
+    private void reload(List<Long> pictureIds) {
+        if (pictureIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Picture> pictureMap = pictureMapper.selectList(selectIndexedColumns().in(Picture::getId, pictureIds))
+                .stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        lock.writeLock().lock();
+        try {
+            for (Long pictureId : pictureIds) {
+                remove(pictureId);
+                Picture picture = pictureMap.get(pictureId);
+                if (picture != null) {
+                    add(postings, pictures, picture);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private LambdaQueryWrapper<Picture> selectIndexedColumns() {
+        return new LambdaQueryWrapper<Picture>()
+                .select(Picture::getId, Picture::getName, Picture::getIntroduction, Picture::getTags,
+                        Picture::getCategory, Picture::getSpaceId, Picture::getReviewStatus);
+    }
+
+    private void add(Map<String, Map<Long, Float>> postingMap, Map<Long, IndexedPicture> pictureMap, Picture picture) {
+        Map<String, Float> weightMap = new HashMap<>();
+        addField(weightMap, picture.getName(), NAME_WEIGHT);
+        addField(weightMap, picture.getTags(), TAG_WEIGHT);
+        addField(weightMap, picture.getCategory(), CATEGORY_WEIGHT);
+        addField(weightMap, picture.getIntroduction(), INTRODUCTION_WEIGHT);
+        Long pictureId = picture.getId();
+        weightMap.forEach((token, weight) -> postingMap.computeIfAbsent(token, key -> new HashMap<>()).put(pictureId, weight));
+        pictureMap.put(pictureId, new IndexedPicture(picture.getSpaceId(), picture.getReviewStatus(), picture.getCategory(),
+                weightMap.keySet().toArray(new String[0])));
+    }
+
+    private void addField(Map<String, Float> weightMap, String text, float fieldWeight) {
+        if (StrUtil.isBlank(text)) {
+            return;
+        }
+        PictureTokenizer.tokenizeForIndex(text).forEach((token, count) ->
+                // 出现次数取对数，避免重复堆砌的词项权重过高
+                weightMap.merge(token, fieldWeight * (1 + (float) Math.log(count)), Float::sum));
+    }
+
+    private void remove(Long pictureId) {
+        IndexedPicture indexedPicture = pictures.remove(pictureId);
+        if (indexedPicture == null) {
+            return;
+        }
+        for (String token : indexedPicture.tokens) {
+            Map<Long, Float> posting = postings.get(token);
+            if (posting != null) {
+                posting.remove(pictureId);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private boolean matchFilter(IndexedPicture picture, Long spaceId, boolean nullSpaceId, Integer reviewStatus, String category) {
+        if (picture == null) {
+            return false;
+        }
+        if (spaceId != null && !spaceId.equals(picture.spaceId)) {
+            return false;
+        }
+        if (nullSpaceId && picture.spaceId != null) {
+            return false;
+        }
+        if (reviewStatus != null && !reviewStatus.equals(picture.reviewStatus)) {
+            return false;
+        }
+        return StrUtil.isBlank(category) || category.equals(picture.category);
+    }
+
+    private float idf(int totalCount, int documentCount) {
+        return (float) Math.log(1 + (double) totalCount / documentCount);
+    }
+
+    /**
+     * 已索引的图片：过滤字段和词项（移除时使用）
+     */
+    private static class IndexedPicture {
+
+        private final Long spaceId;
+
+        private final Integer reviewStatus;
+
+        private final String category;
+
+        private final String[] tokens;
+
+        IndexedPicture(Long spaceId, Integer reviewStatus, String category, String[] tokens) {
+            this.spaceId = spaceId;
+            this.reviewStatus = reviewStatus;
+            this.category = category;
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.polar.cloudimage.manager.search;
+
+import java.util.*;
+
+/**
+ * 图片搜索分词器（不依赖词典）
+ * 1. 中日韩文字：连续的一段按单字和相邻两字（bigram）切分
+ * 2. 字母数字：按单词切分，转小写，并记录单词的全部前缀（支持前缀匹配）
+ * 3. 其他字符视为分隔符
+ * 建索引和查询的切分方式不同：查询时多字的中文只用 bigram，单字才用单字，减少候选结果
+ */
+public class PictureTokenizer {
+
+    /**
+     * 单词前缀的最大长度，更长的单词只记录完整单词
+     */
+    private static final int MAX_PREFIX_LENGTH = 16;
+
+    private PictureTokenizer() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 建索引时的分词，返回词项及出现次数
+     */
+    public static Map<String, Integer> tokenizeForIndex(String text) {
+        Map<String, Integer> tokenCountMap = new HashMap<>();
+        for (String run : splitRuns(text)) {
+            if (isCjk(run.codePointAt(0))) {
+                int[] codePoints = run.codePoints().toArray();
+                for (int i = 0; i < codePoints.length; i++) {
+                    tokenCountMap.merge(new String(codePoints, i, 1), 1, Integer::sum);
+                    if (i + 1 < codePoints.length) {
+                        tokenCountMap.merge(new String(codePoints, i, 2), 1, Integer::sum);
+                    }
+                }
+            } else {
+                int prefixLimit = Math.min(run.length(), MAX_PREFIX_LENGTH);
+                for (int length = 1; length <= prefixLimit; length++) {
+                    tokenCountMap.merge(run.substring(0, length), 1, Integer::sum);
+                }
+                if (run.length() > MAX_PREFIX_LENGTH) {
+                    tokenCountMap.merge(run, 1, Integer::sum);
+                }
+            }
+        }
+        return tokenCountMap;
+    }
+
+    /**
+     * 查询时的分词，返回去重后的词项
+     */
+    public static Set<String> tokenizeForQuery(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String run : splitRuns(text)) {
+            if (isCjk(run.codePointAt(0))) {
+                int[] codePoints = run.codePoints().toArray();
+                if (codePoints.length == 1) {
+                    tokens.add(run);
+                }
+                for (int i = 0; i + 1 < codePoints.length; i++) {
+                    tokens.add(new String(codePoints, i, 2));
+                }
+            } else {
+                // 不超过前缀长度上限的单词已作为前缀建过索引，更长的建过完整单词
+                tokens.add(run);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 切分为连续的中日韩文字段和字母数字段（已转小写）
+     */
+    private static List<String> splitRuns(String text) {
+        List<String> runs = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return runs;
+        }
+        String lowerText = text.toLowerCase(Locale.ROOT);
+        StringBuilder current = new StringBuilder();
+        Boolean currentCjk = null;
+        for (int i = 0; i < lowerText.length(); ) {
+            int codePoint = lowerText.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean cjk = isCjk(codePoint);
+            if (!cjk && !Character.isLetterOrDigit(codePoint)) {
+                flush(runs, current);
+                currentCjk = null;
+                continue;
+            }
+            if (currentCjk != null && currentCjk != cjk) {
+                flush(runs, current);
+            }
+            current.appendCodePoint(codePoint);
+            currentCjk = cjk;
+        }
+        flush(runs, current);
+        return runs;
+    }
+
+    private static void flush(List<String> runs, StringBuilder current) {
+        if (current.length() > 0) {
+            runs.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,82 @@
+package com.polar.cloudimage.manager.storage;
+
+import cn.hutool.core.io.IoUtil;
+import com.polar.cloudimage.config.CosClientConfig;
+import com.polar.cloudimage.manager.CosManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 腾讯云 COS 存储
+ * 同步操作直接在调用线程中调用 COS 客户端（调用方本来就要等待结果，转交线程池只会多一次线程切换，
+ * 且在存储 I/O 线程中调用时会占用同一个线程池）；只有不等待结果的 deleteObjectsAsync 经过有界 I/O 线程池，
+ * 排队满时由调用线程自己删除
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "cos", matchIfMissing = true)
+public class CosStorageBackend implements StorageBackend {
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        cosManager.putObject(key, inputStream, contentLength);
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        return cosManager.getObject(key).getObjectContent();
+    }
+
+    @Override
+    public long transferTo(String key, WritableByteChannel target) {
+        InputStream inputStream = getObject(key);
+        try {
+            return IoUtil.copy(inputStream, Channels.newOutputStream(target));
+        } finally {
+            IoUtil.close(inputStream);
+        }
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        cosManager.deleteObject(key);
+    }
+
+    @Override
+    public void deleteObjects(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        cosManager.deleteObjects(keys);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObjectsAsync(List<String> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return cosManager.deleteObjectsAsync(keys);
+    }
+
+    @Override
+    public void copyObject(String sourceKey, String targetKey) {
+        cosManager.copyObject(sourceKey, targetKey);
+    }
+
+    @Override
+    public String getHost() {
+        return cosClientConfig.getHost();
+    }
+}
@@ -0,0 +1,171 @@
+package com.polar.cloudimage.manager.storage;
+
+import cn.hutool.crypto.SecureUtil;
+import com.polar.cloudimage.config.LocalStorageConfig;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.exception.ThrowUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * 本地文件系统存储
+ * 1. 分片目录：根目录/md5(key)前两位/md5(key)三四位/key，避免单个目录下文件过多
+ * 2. 写入先落到同目录的临时文件，再原子重命名，读取方不会看到写了一半的文件
+ * 3. transferTo 使用 FileChannel#transferTo 写入目标通道；目标是 Servlet 输出流包装的通道时仍会经过用户态缓冲
+ * 对外访问由 FileController 通过 {@link #getPath} 交给容器 sendfile 发送，容器不支持时使用 transferTo
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    @Resource
+    private LocalStorageConfig localStorageConfig;
+
+    @Override
+    public void putObject(String key, InputStream inputStream, long contentLength) {
+        Path path = resolve(key);
+        Path tempPath = null;
+        try {
+            tempPath = createTempFile(path);
+            Files.copy(inputStream, tempPath, StandardCopyOption.REPLACE_EXISTING);
+            moveAtomically(tempPath, path);
+        } catch (IOException e) {
+            deleteQuietly(tempPath);
+            log.error("文件写入失败, key = {}", key, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件写入失败");
+        }
+    }
+
+    @Override
+    public InputStream getObject(String key) {
+        try {
+            return Files.newInputStream(resolve(key));
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        } catch (IOException e) {
+            log.error("文件读取失败, key = {}", key, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件读取失败");
+        }
+    }
+
+    @Override
+    public long transferTo(String key, WritableByteChannel target) {
+        try (FileChannel fileChannel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            long size = fileChannel.size();
+            long position = 0;
+            while (position < size) {
+                position += fileChannel.transferTo(position, size - position, target);
+            }
+            return size;
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        } catch (IOException e) {
+            log.error("文件读取失败, key = {}", key, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件读取失败");
+        }
+    }
+
+    /**
+     * 获取对象对应的本地文件
+     *
+     * @param key 唯一键
+     * @return 文件路径
+     */
+    public Path getPath(String key) {
+        Path path = resolve(key);
+        ThrowUtils.throwIf(!Files.isRegularFile(path), ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        return path;
+    }
+
+    @Override
+    public void deleteObject(String key) {
+        try {
+            Files.deleteIfExists(resolve(key));
+        } catch (IOException e) {
+            log.error("文件删除失败, key = {}", key, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件删除失败");
+        }
+    }
+
+    @Override
+    public void deleteObjects(List<String> keys) {
+        for (String key : keys) {
+            deleteObject(key);
+        }
+    }
+
+    @Override
+    public void copyObject(String sourceKey, String targetKey) {
+        Path targetPath = resolve(targetKey);
+        Path tempPath = null;
+        try {
+            tempPath = createTempFile(targetPath);
+            Files.copy(resolve(sourceKey), tempPath, StandardCopyOption.REPLACE_EXISTING);
+            moveAtomically(tempPath, targetPath);
+        } catch (NoSuchFileException e) {
+            deleteQuietly(tempPath);
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "文件不存在");
+        } catch (IOException e) {
+            deleteQuietly(tempPath);
+            log.error("文件复制失败, sourceKey = {}, targetKey = {}", sourceKey, targetKey, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "文件复制失败");
+        }
+    }
+
+    @Override
+    public String getHost() {
+        return localStorageConfig.getHost();
+    }
+
+    /**
+     * 唯一键转换为本地路径（与 COS 一致，忽略开头的 /）
+     */
+    private Path resolve(String key) {
+        String normalizedKey = key.startsWith("/") ? key.substring(1) : key;
+        for (String segment : normalizedKey.split("/")) {
+            if (segment.isEmpty() || ".".equals(segment) || "..".equals(segment)) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件路径非法");
+            }
+        }
+        String digest = SecureUtil.md5(normalizedKey);
+        return Paths.get(localStorageConfig.getRootDir(), digest.substring(0, 2), digest.substring(2, 4), normalizedKey);
+    }
+
+    /**
+     * 在目标文件同目录下创建临时文件，保证重命名不跨文件系统
+     */
+    private Path createTempFile(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        return Files.createTempFile(path.getParent(), ".", ".tmp");
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("临时文件删除失败, path = {}", path, e);
+        }
+    }
+}
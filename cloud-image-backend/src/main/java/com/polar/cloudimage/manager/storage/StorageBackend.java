@@ -0,0 +1,125 @@
+package com.polar.cloudimage.manager.storage;
+
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 对象存储后端
+ * 通过配置 storage.backend 选择实现：
+ * cos   - 腾讯云 COS（默认）
+ * local - 本地文件系统（边缘节点、离线集成测试和压测）
+ * 唯一键与访问地址的对应关系：url = host + "/" + key
+ */
+public interface StorageBackend {
+
+    /**
+     * 上传对象
+     *
+     * @param key           唯一键
+     * @param inputStream   输入流
+     * @param contentLength 内容长度
+     */
+    void putObject(String key, InputStream inputStream, long contentLength);
+
+    /**
+     * 下载对象，调用方负责关闭输入流
+     *
+     * @param key 唯一键
+     * @return 输入流
+     */
+    InputStream getObject(String key);
+
+    /**
+     * 将对象内容写入目标通道
+     *
+     * @param key    唯一键
+     * @param target 目标通道
+     * @return 写入的字节数
+     */
+    long transferTo(String key, WritableByteChannel target);
+
+    /**
+     * 删除对象
+     *
+     * @param key 唯一键
+     */
+    void deleteObject(String key);
+
+    /**
+     * 批量删除对象
+     *
+     * @param keys 唯一键列表
+     */
+    void deleteObjects(List<String> keys);
+
+    /**
+     * 异步批量删除对象，默认在调用线程中删除
+     *
+     * @param keys 唯一键列表
+     */
+    default CompletableFuture<Void> deleteObjectsAsync(List<String> keys) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            deleteObjects(keys);
+            future.complete(null);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 复制对象
+     *
+     * @param sourceKey 源唯一键
+     * @param targetKey 目标唯一键
+     */
+    void copyObject(String sourceKey, String targetKey);
+
+    /**
+     * 获取访问地址域名
+     */
+    String getHost();
+
+    /**
+     * 根据唯一键获取访问地址
+     */
+    default String getUrl(String key) {
+        return getHost() + "/" + key;
+    }
+
+    /**
+     * 根据访问地址批量删除对象，忽略空地址
+     *
+     * @param urls 访问地址
+     */
+    default void deleteObjectsByUrl(String... urls) {
+        deleteObjects(getKeysByUrl(urls));
+    }
+
+    /**
+     * 根据访问地址批量获取唯一键，忽略空地址
+     *
+     * @param urls 访问地址
+     */
+    default List<String> getKeysByUrl(String... urls) {
+        List<String> keys = new ArrayList<>();
+        for (String url : urls) {
+            if (url != null && !url.isEmpty()) {
+                keys.add(getKeyByUrl(url));
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 根据访问地址获取唯一键
+     */
+    default String getKeyByUrl(String url) {
+        String key = url.startsWith(getHost()) ? url.substring(getHost().length()) : url;
+        return key.startsWith("/") ? key.substring(1) : key;
+    }
+}
@@ -0,0 +1,100 @@
+package com.polar.cloudimage.manager.upload;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import com.polar.cloudimage.config.CosClientConfig;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.qcloud.cos.model.ciModel.persistence.CIObject;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
+import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+/**
+ * 数据万象处理结果解析
+ * 单次上传和分块上传完成后都会返回 CIUploadResult，统一在这里封装成图片上传结果
+ */
+@Component
+public class CiUploadResultParser {
+
+    @Resource
+    private CosClientConfig cosClientConfig;
+
+    /**
+     * 解析图片处理结果
+     *
+     * @param originFilename 原始文件名
+     * @param uploadPath     原图上传路径
+     * @param contentLength  原图大小
+     * @param ciUploadResult 图片处理结果
+     * @return 图片上传结果
+     */
+    public UploadPictureResult parse(String originFilename, String uploadPath, long contentLength, CIUploadResult ciUploadResult) {
+        ImageInfo imageInfo = ciUploadResult.getOriginalInfo().getImageInfo();
+        //获取图片处理后的结果（压缩图）
+        ProcessResults processResults = ciUploadResult.getProcessResults();
+        List<CIObject> objectList = processResults.getObjectList();
+        if (CollUtil.isNotEmpty(objectList)) {
+            CIObject compressedCiObject = objectList.get(0);  //webp 格式压缩图
+            CIObject thumbnailCiObject = compressedCiObject; //默认指向压缩图
+            if (objectList.size() > 1) {                     //如果有缩略图，则指向缩略图
+                thumbnailCiObject = objectList.get(1);
+            }
+            // 封装压缩图返回结果
+            UploadPictureResult uploadPictureResult = buildResult(originFilename, compressedCiObject, thumbnailCiObject, imageInfo);
+            uploadPictureResult.setProcessed(true);
+            return uploadPictureResult;
+        }
+        // 封装原图返回结果
+        UploadPictureResult uploadPictureResult = buildResult(originFilename, contentLength, uploadPath, imageInfo);
+        uploadPictureResult.setProcessed(true);
+        return uploadPictureResult;
+    }
+
+    /**
+     * 封装返回结果
+     */
+    private UploadPictureResult buildResult(String originFilename, long picSize, String uploadPath, ImageInfo imageInfo) {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        int picWidth = imageInfo.getWidth();
+        int picHeight = imageInfo.getHeight();
+        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
+        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(imageInfo.getFormat());
+        uploadPictureResult.setPicSize(picSize);
+        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
+        uploadPictureResult.setPicColor(imageInfo.getAve());
+        return uploadPictureResult;
+    }
+
+    /**
+     * 封装压缩图返回结果
+     */
+    private UploadPictureResult buildResult(String originFilename, CIObject compressedCiObject, CIObject thumbnailCiObject, ImageInfo imageInfo) {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        int picWidth = compressedCiObject.getWidth();
+        int picHeight = compressedCiObject.getHeight();
+        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
+        // 设置缩略图 URL
+        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+        uploadPictureResult.setPicWidth(picWidth);
+        uploadPictureResult.setPicHeight(picHeight);
+        uploadPictureResult.setPicScale(picScale);
+        uploadPictureResult.setPicFormat(compressedCiObject.getFormat());
+        uploadPictureResult.setPicSize(compressedCiObject.getSize().longValue());
+        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
+        uploadPictureResult.setPicColor(imageInfo.getAve());
+
+        // 设置缩略图 URL
+        uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnailCiObject.getKey());
+
+        return uploadPictureResult;
+    }
+}
@@ -1,13 +1,16 @@
 package com.polar.cloudimage.manager.upload;
 
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import com.polar.cloudimage.constant.PictureConstant;
+import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * @author polar
@@ -30,8 +33,7 @@ public class FilePictureUpload extends PictureUploadTemplate {
         ThrowUtils.throwIf(multipartFile == null || multipartFile.isEmpty(), ErrorCode.PARAMS_ERROR, "文件不能为空");
         //2.文件大小是否超过限制 5M
         long fileSize = multipartFile.getSize();
-        final long MAX_SIZE = 5 * 1024 * 1024;
-        ThrowUtils.throwIf(fileSize > MAX_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过5M");
+        ThrowUtils.throwIf(fileSize > PictureConstant.MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过5M");
         //3.文件类型是否符合要求
         String suffix = FileUtil.getSuffix(multipartFile.getOriginalFilename());
         ThrowUtils.throwIf(!PictureConstant.ALLOW_SUFFIX.contains(suffix), ErrorCode.PARAMS_ERROR, "文件格式不正确");
@@ -51,18 +53,32 @@ public class FilePictureUpload extends PictureUploadTemplate {
     }
 
     /**
-     * 处理文件上传逻辑
+     * 打开文件输入流，直接上传到对象存储
      *
      * @param inputSource 输入源
-     * @param file        本地临时文件
+     * @return 上传数据源
      * @throws Exception 异常
      */
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureUploadSource openSource(Object inputSource) throws Exception {
         //强制转换
         MultipartFile multipartFile = (MultipartFile) inputSource;
-        //保存文件到本地临时文件
-        multipartFile.transferTo(file);
+        return new PictureUploadSource(multipartFile.getInputStream(), multipartFile.getSize());
+    }
 
+    /**
+     * 表单文件已由容器暂存，可以重复读取，上传前先计算摘要用于秒传
+     *
+     * @param inputSource 输入源
+     * @return 内容摘要
+     */
+    @Override
+    protected String computeContentHash(Object inputSource) {
+        MultipartFile multipartFile = (MultipartFile) inputSource;
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            return DigestUtil.sha256Hex(inputStream);
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "读取文件失败");
+        }
     }
 }
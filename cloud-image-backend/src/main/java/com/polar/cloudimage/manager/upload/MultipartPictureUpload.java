@@ -0,0 +1,256 @@
+package com.polar.cloudimage.manager.upload;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.exception.ThrowUtils;
+import com.polar.cloudimage.manager.CosManager;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.manager.upload.processor.ImageProcessor;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.service.PictureFileService;
+import com.qcloud.cos.model.PartETag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * 图片分块上传
+ * 1. 初始化：生成对象键，向 COS 申请 uploadId，会话写入 Redis
+ * 2. 上传分块：请求线程读取分块内容（慢客户端只占用请求线程），上传到 COS 交给有界线程池，ETag 记录到 Redis
+ * 3. 完成：按分块编号合并，计算合并后内容的摘要，已存在相同内容则直接复用（秒传），否则由配置的图片处理器处理（与单次上传一致）
+ * 客户端中断后，可以根据 Redis 中已记录的分块继续上传
+ */
+@Slf4j
+@Service
+public class MultipartPictureUpload {
+
+    /**
+     * 分块大小 5M（COS 要求除最后一块外不小于 1M）
+     */
+    public static final long PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * 会话过期时间（小时），每上传一个分块都会续期
+     */
+    private static final long SESSION_EXPIRE_HOURS = 24;
+
+    private static final String SESSION_KEY_PREFIX = "cloudimage:multipartUpload:";
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ImageProcessor imageProcessor;
+
+    @Resource
+    private StorageBackend storageBackend;
+
+    @Resource
+    private PictureFileService pictureFileService;
+
+    /**
+     * 分块上传线程池，只执行上传到 COS，有界队列（排队的分块都在内存中，队列不宜过长）
+     * 队列满时由请求线程自己上传，起到背压作用
+     */
+    private final ThreadPoolExecutor partUploadExecutor = new ThreadPoolExecutor(
+            4, 16, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(16),
+            ThreadFactoryBuilder.create().setNamePrefix("picture-part-upload-").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * 初始化分块上传会话
+     *
+     * @param session          会话信息（文件名、大小、用户、空间等）
+     * @param uploadPathPrefix 上传路径前缀
+     * @return 会话
+     */
+    public MultipartUploadSession init(MultipartUploadSession session, String uploadPathPrefix) {
+        String key = PictureUploadTemplate.buildUploadPath(uploadPathPrefix, session.getFileName());
+        session.setKey(key);
+        session.setPartSize(PART_SIZE);
+        session.setPartCount((int) ((session.getFileSize() + PART_SIZE - 1) / PART_SIZE));
+        session.setUploadId(cosManager.initiateMultipartUpload(key));
+        saveSession(session);
+        return session;
+    }
+
+    /**
+     * 获取会话，不存在或已过期时返回 null
+     */
+    public MultipartUploadSession getSession(String uploadId) {
+        if (StrUtil.isBlank(uploadId)) {
+            return null;
+        }
+        String json = stringRedisTemplate.opsForValue().get(getSessionKey(uploadId));
+        if (StrUtil.isBlank(json)) {
+            return null;
+        }
+        return JSONUtil.toBean(json, MultipartUploadSession.class);
+    }
+
+    /**
+     * 获取已上传的分块编号（升序）
+     */
+    public List<Integer> listUploadedParts(String uploadId) {
+        Set<Object> partNumbers = stringRedisTemplate.opsForHash().keys(getPartsKey(uploadId));
+        return partNumbers.stream()
+                .map(partNumber -> Integer.parseInt(partNumber.toString()))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 上传分块
+     * 请求线程读取分块内容（最多一个分块大小），只把上传到 COS 交给线程池，读取慢的客户端不占用线程池
+     *
+     * @param session       会话
+     * @param partNumber    分块编号（从 1 开始）
+     * @param inputStream   分块内容
+     * @param contentLength 分块大小
+     * @return 上传结果
+     */
+    public CompletableFuture<Boolean> uploadPart(MultipartUploadSession session, int partNumber,
+                                                 InputStream inputStream, long contentLength) {
+        int partCount = session.getPartCount();
+        ThrowUtils.throwIf(partNumber < 1 || partNumber > partCount, ErrorCode.PARAMS_ERROR, "分块编号错误");
+        // 除最后一块外，分块大小必须与初始化时一致
+        long expectedSize = partNumber < partCount
+                ? session.getPartSize()
+                : session.getFileSize() - session.getPartSize() * (partCount - 1);
+        ThrowUtils.throwIf(contentLength != expectedSize, ErrorCode.PARAMS_ERROR, "分块大小错误");
+        byte[] part = readPart(inputStream, (int) expectedSize);
+
+        String uploadId = session.getUploadId();
+        return CompletableFuture.supplyAsync(() -> {
+            PartETag partETag;
+            try {
+                partETag = cosManager.uploadPart(session.getKey(), uploadId, partNumber,
+                        new ByteArrayInputStream(part), expectedSize);
+            } catch (RuntimeException e) {
+                log.error("分块上传失败, uploadId = {}, partNumber = {}", uploadId, partNumber, e);
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "分块上传失败");
+            }
+            stringRedisTemplate.opsForHash().put(getPartsKey(uploadId), String.valueOf(partNumber), partETag.getETag());
+            refreshExpire(uploadId);
+            return true;
+        }, partUploadExecutor);
+    }
+
+    /**
+     * 完成分块上传
+     * 合并后计算内容摘要，已存在相同内容时删除本次合并的文件并复用已有文件，不再处理
+     *
+     * @param session 会话
+     * @return 图片上传结果（带内容摘要）
+     */
+    public UploadPictureResult complete(MultipartUploadSession session) {
+        String uploadId = session.getUploadId();
+        Map<Object, Object> parts = stringRedisTemplate.opsForHash().entries(getPartsKey(uploadId));
+        ThrowUtils.throwIf(parts.size() != session.getPartCount(), ErrorCode.PARAMS_ERROR, "分块未全部上传");
+        List<PartETag> partETags = parts.entrySet().stream()
+                .map(entry -> new PartETag(Integer.parseInt(entry.getKey().toString()), entry.getValue().toString()))
+                .sorted(Comparator.comparingInt(PartETag::getPartNumber))
+                .collect(Collectors.toList());
+        UploadPictureResult uploadPictureResult;
+        try {
+            cosManager.completeMultipartUpload(session.getKey(), uploadId, partETags);
+            String contentHash = computeContentHash(session.getKey());
+            uploadPictureResult = pictureFileService.getUploadedResult(contentHash, session.getKey(), session.getFileName());
+            if (uploadPictureResult != null) {
+                storageBackend.deleteObject(session.getKey());
+            } else {
+                uploadPictureResult = imageProcessor.process(session.getKey(), session.getFileName(), session.getFileSize());
+                uploadPictureResult.setContentHash(contentHash);
+            }
+        } catch (Exception e) {
+            log.error("分块上传合并失败, uploadId = {}", uploadId, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "分块合并失败");
+        }
+        deleteSession(uploadId);
+        return uploadPictureResult;
+    }
+
+    /**
+     * 取消分块上传，清理 COS 中已上传的分块和会话
+     */
+    public void abort(MultipartUploadSession session) {
+        cosManager.abortMultipartUpload(session.getKey(), session.getUploadId());
+        deleteSession(session.getUploadId());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        partUploadExecutor.shutdown();
+    }
+
+    /**
+     * 读取完整的分块，内容不足或超出分块大小时以 PARAMS_ERROR 结束
+     */
+    private byte[] readPart(InputStream inputStream, int partSize) {
+        byte[] part = new byte[partSize];
+        int length = 0;
+        try {
+            while (length < partSize) {
+                int n = inputStream.read(part, length, partSize - length);
+                if (n < 0) {
+                    break;
+                }
+                length += n;
+            }
+            ThrowUtils.throwIf(length < partSize, ErrorCode.PARAMS_ERROR, "分块内容不完整");
+            ThrowUtils.throwIf(inputStream.read() != -1, ErrorCode.PARAMS_ERROR, "分块大小错误");
+        } catch (IOException e) {
+            // 客户端断开等
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "分块内容不完整");
+        }
+        return part;
+    }
+
+    /**
+     * 流式读取合并后的对象计算 SHA-256（与单次上传的摘要一致，可以互相秒传）
+     */
+    private String computeContentHash(String key) throws IOException {
+        try (InputStream inputStream = storageBackend.getObject(key)) {
+            return DigestUtil.sha256Hex(inputStream);
+        }
+    }
+
+    private void saveSession(MultipartUploadSession session) {
+        stringRedisTemplate.opsForValue().set(getSessionKey(session.getUploadId()), JSONUtil.toJsonStr(session),
+                SESSION_EXPIRE_HOURS, TimeUnit.HOURS);
+    }
+
+    private void refreshExpire(String uploadId) {
+        stringRedisTemplate.expire(getSessionKey(uploadId), SESSION_EXPIRE_HOURS, TimeUnit.HOURS);
+        stringRedisTemplate.expire(getPartsKey(uploadId), SESSION_EXPIRE_HOURS, TimeUnit.HOURS);
+    }
+
+    private void deleteSession(String uploadId) {
+        stringRedisTemplate.delete(Arrays.asList(getSessionKey(uploadId), getPartsKey(uploadId)));
+    }
+
+    private String getSessionKey(String uploadId) {
+        return SESSION_KEY_PREFIX + uploadId;
+    }
+
+    private String getPartsKey(String uploadId) {
+        return SESSION_KEY_PREFIX + uploadId + ":parts";
+    }
+}
@@ -0,0 +1,64 @@
+package com.polar.cloudimage.manager.upload;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分块上传会话，保存在 Redis 中，客户端中断后可凭 uploadId 续传
+ */
+@Data
+public class MultipartUploadSession implements Serializable {
+
+    /**
+     * COS 分块上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 对象键
+     */
+    private String key;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件总大小
+     */
+    private Long fileSize;
+
+    /**
+     * 分块大小
+     */
+    private Long partSize;
+
+    /**
+     * 分块数量
+     */
+    private Integer partCount;
+
+    /**
+     * 上传用户 id
+     */
+    private Long userId;
+
+    /**
+     * 空间 id
+     */
+    private Long spaceId;
+
+    /**
+     * 图片 id（用于修改）
+     */
+    private Long pictureId;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,109 @@
+package com.polar.cloudimage.manager.upload;
+
+import cn.hutool.core.util.HexUtil;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 图片上传输入流
+ * 1. 边读边统计字节数，超过上限立即中断（抛出 IOException）
+ * 2. 边读边计算 SHA-256，上传完成即可得到内容摘要，无需再次读取
+ */
+public class PictureInputStream extends FilterInputStream {
+
+    /**
+     * 允许读取的最大字节数
+     */
+    private final long maxSize;
+
+    private final MessageDigest messageDigest;
+
+    /**
+     * 已读取的字节数
+     */
+    private long readBytes;
+
+    /**
+     * 是否超过大小限制
+     */
+    private boolean exceeded;
+
+    public PictureInputStream(InputStream in, long maxSize) {
+        super(in);
+        this.maxSize = maxSize;
+        try {
+            this.messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            checkSize(1);
+            messageDigest.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            checkSize(n);
+            messageDigest.update(b, off, n);
+        }
+        return n;
+    }
+
+    /**
+     * 摘要需要覆盖全部字节，不支持跳过和重置
+     */
+    @Override
+    public long skip(long n) {
+        return 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    private void checkSize(int n) throws IOException {
+        readBytes += n;
+        if (readBytes > maxSize) {
+            exceeded = true;
+            throw new IOException("文件大小超过限制");
+        }
+    }
+
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * 获取已读取内容的 SHA-256（十六进制），需在读取完毕后调用
+     */
+    public String getContentHash() {
+        return HexUtil.encodeHexStr(messageDigest.digest());
+    }
+}
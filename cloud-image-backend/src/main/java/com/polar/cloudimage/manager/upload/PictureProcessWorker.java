@@ -0,0 +1,68 @@
+package com.polar.cloudimage.manager.upload;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.manager.upload.processor.ImageProcessor;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 图片异步处理
+ * 上传接口只负责接收原图，压缩、缩略图、图片信息解析在有界线程池中完成后回调
+ * 队列满时由提交线程自己执行（退化为同步处理），起到背压作用
+ */
+@Slf4j
+@Component
+public class PictureProcessWorker {
+
+    @Resource
+    private StorageBackend storageBackend;
+
+    @Resource
+    private ImageProcessor imageProcessor;
+
+    private final ThreadPoolExecutor processExecutor = new ThreadPoolExecutor(
+            4, 8, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256),
+            ThreadFactoryBuilder.create().setNamePrefix("picture-process-").build(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    /**
+     * 提交图片处理任务
+     *
+     * @param acceptResult 接收阶段的上传结果（原图）
+     * @param onSuccess    处理成功回调，参数为处理后的上传结果
+     * @param onFailure    处理失败回调
+     */
+    public void submit(UploadPictureResult acceptResult, Consumer<UploadPictureResult> onSuccess,
+                       Consumer<Exception> onFailure) {
+        String key = storageBackend.getKeyByUrl(acceptResult.getUrl());
+        String originFilename = acceptResult.getPicName() + "." + acceptResult.getPicFormat();
+        long contentLength = acceptResult.getPicSize();
+        processExecutor.execute(() -> {
+            UploadPictureResult uploadPictureResult;
+            try {
+                uploadPictureResult = imageProcessor.process(key, originFilename, contentLength);
+                uploadPictureResult.setContentHash(acceptResult.getContentHash());
+            } catch (Exception e) {
+                log.error("图片处理失败, key = {}", key, e);
+                onFailure.accept(e);
+                return;
+            }
+            onSuccess.accept(uploadPictureResult);
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        processExecutor.shutdown();
+    }
+}
@@ -0,0 +1,32 @@
+package com.polar.cloudimage.manager.upload;
+
+import cn.hutool.core.io.IoUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.InputStream;
+
+/**
+ * 图片上传数据源
+ * 输入流直接交给对象存储，不再落地本地临时文件
+ */
+@Getter
+@AllArgsConstructor
+public class PictureUploadSource implements Closeable {
+
+    /**
+     * 输入流
+     */
+    private final InputStream inputStream;
+
+    /**
+     * 内容长度，未知时为 -1
+     */
+    private final long contentLength;
+
+    @Override
+    public void close() {
+        IoUtil.close(inputStream);
+    }
+}
@@ -1,28 +1,27 @@
 package com.polar.cloudimage.manager.upload;
 
-import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.util.RandomUtil;
 import com.polar.cloudimage.config.CosClientConfig;
+import com.polar.cloudimage.constant.PictureConstant;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
-import com.polar.cloudimage.manager.CosManager;
+import com.polar.cloudimage.exception.ThrowUtils;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.manager.upload.processor.ImageProcessor;
 import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.service.PictureFileService;
 import com.qcloud.cos.COSClient;
-import com.qcloud.cos.model.PutObjectResult;
-import com.qcloud.cos.model.ciModel.persistence.CIObject;
-import com.qcloud.cos.model.ciModel.persistence.ImageInfo;
-import com.qcloud.cos.model.ciModel.persistence.ProcessResults;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.Date;
-import java.util.List;
 
 /**
  * @author polar
@@ -32,15 +31,16 @@ import java.util.List;
  * 使用设计模式 - 模板方法模式
  * 1. 校验文件
  * 2.获取上传地址
- * 3.获取本地临时文件
- * 4,上传到对象存储
- * 5.封装解析得到的图片信息
- * 6. 清理临时文件
- * url上传和本地文件上传都可以继承该模板
+ * 3.秒传：内容摘要已存在则直接复用已有文件
+ * 4.打开输入流（不落地临时文件）
+ * 5,边读边校验大小、计算摘要，流式上传到对象存储
+ * 6.封装解析得到的图片信息
+ * 7. 关闭输入流
+ * url上传、本地文件上传和请求体流式上传都可以继承该模板
  * 重写一下方法即可
  * 1.校验图片
  * 2. 获取文件名称
- * 3保存临时文件
+ * 3打开输入源
  */
 
 @Service
@@ -48,13 +48,19 @@ import java.util.List;
 public abstract class PictureUploadTemplate {
 
     @Resource
-    private CosManager cosManager;
+    private StorageBackend storageBackend;
 
     @Resource
     private COSClient cosClient;
     @Autowired
     private CosClientConfig cosClientConfig;
 
+    @Resource
+    private ImageProcessor imageProcessor;
+
+    @Resource
+    private PictureFileService pictureFileService;
+
 
     /**
      * 上传图片
@@ -64,51 +70,121 @@ public abstract class PictureUploadTemplate {
      * @return 图片上传结果
      */
     public final UploadPictureResult uploadPicture(Object inputSource, String uploadPathPrefix) {
+        return doUploadPicture(inputSource, uploadPathPrefix, true);
+    }
+
+    /**
+     * 接收图片：原图直接存入对象存储，不等待压缩、缩略图等处理，处理交给 {@link PictureProcessWorker} 异步完成
+     * 秒传命中时返回的结果已经处理完成（processed 为 true）
+     *
+     * @param inputSource      文件
+     * @param uploadPathPrefix 上传路径前缀
+     * @return 图片上传结果
+     */
+    public final UploadPictureResult acceptPicture(Object inputSource, String uploadPathPrefix) {
+        return doUploadPicture(inputSource, uploadPathPrefix, false);
+    }
+
+    /**
+     * 上传图片
+     *
+     * @param inputSource      文件
+     * @param uploadPathPrefix 上传路径前缀
+     * @param process          是否同步进行图片处理
+     * @return 图片上传结果
+     */
+    private UploadPictureResult doUploadPicture(Object inputSource, String uploadPathPrefix, boolean process) {
         // 1. 校验图片
         validPicture(inputSource);
 
         // 2. 图片上传地址
-        String uuid = RandomUtil.randomString(16);
         String originFilename = getOriginFilename(inputSource);
-        String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
-                FileUtil.getSuffix(originFilename));
-        String uploadPath = String.format("/%s/%s", uploadPathPrefix, uploadFilename);
+        String uploadPath = buildUploadPath(uploadPathPrefix, originFilename);
 
-        File file = null;
+        // 3. 秒传：内容已存在则直接复用，跳过上传和图片处理
+        String contentHash = computeContentHash(inputSource);
+        UploadPictureResult uploadedResult = pictureFileService.getUploadedResult(contentHash, uploadPath, originFilename);
+        if (uploadedResult != null) {
+            return uploadedResult;
+        }
+
+        PictureUploadSource uploadSource = null;
+        PictureInputStream pictureInputStream = null;
         try {
-            // 3. 创建临时文件
-            file = File.createTempFile(uploadPath, null);
-            // 处理文件来源（本地或 URL）
-            processFile(inputSource, file);
-
-            // 4. 上传图片到对象存储
-            PutObjectResult putObjectResult = cosManager.putPictureObject(uploadPath, file);
-            ImageInfo imageInfo = putObjectResult.getCiUploadResult().getOriginalInfo().getImageInfo();
-            //获取图片处理后的结果（压缩图）
-            ProcessResults processResults = putObjectResult.getCiUploadResult().getProcessResults();
-            List<CIObject> objectList = processResults.getObjectList();
-            if (CollUtil.isNotEmpty(objectList)) {
-                CIObject compressedCiObject = objectList.get(0);  //webp 格式压缩图
-                CIObject thumbnailCiObject = compressedCiObject; //默认指向压缩图
-                if (objectList.size() > 1) {                     //如果有缩略图，则指向缩略图
-                    thumbnailCiObject = objectList.get(1);
+            // 4. 打开输入源，不再写入本地临时文件
+            uploadSource = openSource(inputSource);
+            long maxSize = PictureConstant.MAX_PICTURE_SIZE;
+            pictureInputStream = new PictureInputStream(uploadSource.getInputStream(), maxSize);
+            InputStream inputStream = pictureInputStream;
+            long contentLength = uploadSource.getContentLength();
+            if (contentLength < 0) {
+                // 长度未知，在内存中缓冲，大小受上限约束；缓冲后即可得到摘要，再尝试秒传
+                byte[] bytes = IoUtil.readBytes(pictureInputStream, false);
+                inputStream = new ByteArrayInputStream(bytes);
+                contentLength = bytes.length;
+                contentHash = pictureInputStream.getContentHash();
+                uploadedResult = pictureFileService.getUploadedResult(contentHash, uploadPath, originFilename);
+                if (uploadedResult != null) {
+                    return uploadedResult;
                 }
-                // 封装压缩图返回结果
-                return buildResult(originFilename, compressedCiObject, thumbnailCiObject, imageInfo);
             }
+            ThrowUtils.throwIf(contentLength > maxSize, ErrorCode.PARAMS_ERROR, "文件大小不能超过5M");
 
-            // 5. 封装返回结果
-            return buildResult(originFilename, file, uploadPath, imageInfo);
+            // 5. 流式上传图片到对象存储，边上传边计算摘要
+            if (!process) {
+                storageBackend.putObject(uploadPath, inputStream, contentLength);
+                if (contentHash == null) {
+                    contentHash = pictureInputStream.getContentHash();
+                }
+                // 仅接收原图，图片信息待处理完成后补全
+                UploadPictureResult uploadPictureResult = new UploadPictureResult();
+                uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+                uploadPictureResult.setPicSize(contentLength);
+                uploadPictureResult.setPicFormat(FileUtil.getSuffix(originFilename));
+                uploadPictureResult.setUrl(storageBackend.getUrl(uploadPath));
+                uploadPictureResult.setContentHash(contentHash);
+                return uploadPictureResult;
+            }
+            // 6. 由配置的图片处理器上传并处理，封装返回结果
+            long startTime = System.currentTimeMillis();
+            UploadPictureResult uploadPictureResult = imageProcessor.putAndProcess(uploadPath, originFilename,
+                    inputStream, contentLength);
+            log.debug("图片处理完成, processor = {}, size = {}, cost = {} ms", imageProcessor.getClass().getSimpleName(),
+                    contentLength, System.currentTimeMillis() - startTime);
+            if (contentHash == null) {
+                contentHash = pictureInputStream.getContentHash();
+            }
+            uploadPictureResult.setContentHash(contentHash);
+            return uploadPictureResult;
+        } catch (BusinessException e) {
+            throw e;
         } catch (Exception e) {
+            if (pictureInputStream != null && pictureInputStream.isExceeded()) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小不能超过5M");
+            }
             log.error("图片上传到对象存储失败", e);
             throw new BusinessException(ErrorCode.SYSTEM_ERROR);
         } finally {
-            // 6. 清理临时文件
-            deleteTempFile(file);
+            // 7. 关闭输入源
+            IoUtil.close(uploadSource);
         }
     }
 
 
+    /**
+     * 生成图片上传地址：/前缀/日期_随机串.后缀
+     *
+     * @param uploadPathPrefix 上传路径前缀
+     * @param originFilename   原始文件名
+     * @return 上传地址
+     */
+    public static String buildUploadPath(String uploadPathPrefix, String originFilename) {
+        String uuid = RandomUtil.randomString(16);
+        String uploadFilename = String.format("%s_%s.%s", DateUtil.formatDate(new Date()), uuid,
+                FileUtil.getSuffix(originFilename));
+        return String.format("/%s/%s", uploadPathPrefix, uploadFilename);
+    }
+
     /**
      * 校验输入源（本地文件或 URL）
      */
@@ -120,63 +196,14 @@ public abstract class PictureUploadTemplate {
     protected abstract String getOriginFilename(Object inputSource);
 
     /**
-     * 处理输入源并生成本地临时文件
-     */
-    protected abstract void processFile(Object inputSource, File file) throws Exception;
-
-    /**
-     * 封装返回结果
-     */
-    private UploadPictureResult buildResult(String originFilename, File file, String uploadPath, ImageInfo imageInfo) {
-        UploadPictureResult uploadPictureResult = new UploadPictureResult();
-        int picWidth = imageInfo.getWidth();
-        int picHeight = imageInfo.getHeight();
-        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
-        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
-        uploadPictureResult.setPicWidth(picWidth);
-        uploadPictureResult.setPicHeight(picHeight);
-        uploadPictureResult.setPicScale(picScale);
-        uploadPictureResult.setPicFormat(imageInfo.getFormat());
-        uploadPictureResult.setPicSize(FileUtil.size(file));
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + uploadPath);
-        uploadPictureResult.setPicColor(imageInfo.getAve());
-        return uploadPictureResult;
-    }
-
-    /**
-     * 封装压缩图返回结果
+     * 打开输入源，返回输入流及其长度
      */
-    private UploadPictureResult buildResult(String originFilename, CIObject compressedCiObject, CIObject thumbnailCiObject, ImageInfo imageInfo) {
-        UploadPictureResult uploadPictureResult = new UploadPictureResult();
-        int picWidth = compressedCiObject.getWidth();
-        int picHeight = compressedCiObject.getHeight();
-        double picScale = NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue();
-        // 设置缩略图 URL
-        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
-        uploadPictureResult.setPicWidth(picWidth);
-        uploadPictureResult.setPicHeight(picHeight);
-        uploadPictureResult.setPicScale(picScale);
-        uploadPictureResult.setPicFormat(compressedCiObject.getFormat());
-        uploadPictureResult.setPicSize(compressedCiObject.getSize().longValue());
-        uploadPictureResult.setUrl(cosClientConfig.getHost() + "/" + compressedCiObject.getKey());
-        uploadPictureResult.setPicColor(imageInfo.getAve());
-
-        // 设置缩略图 URL
-        uploadPictureResult.setThumbnailUrl(cosClientConfig.getHost() + "/" + thumbnailCiObject.getKey());
-
-        return uploadPictureResult;
-    }
+    protected abstract PictureUploadSource openSource(Object inputSource) throws Exception;
 
     /**
-     * 删除临时文件
+     * 上传前计算内容摘要（可重复读取的输入源才需要重写），默认返回 null，在上传过程中计算
      */
-    public void deleteTempFile(File file) {
-        if (file == null) {
-            return;
-        }
-        boolean deleteResult = file.delete();
-        if (!deleteResult) {
-            log.error("file delete error, filepath = {}", file.getAbsolutePath());
-        }
+    protected String computeContentHash(Object inputSource) {
+        return null;
     }
-}
\ No newline at end of file
+}
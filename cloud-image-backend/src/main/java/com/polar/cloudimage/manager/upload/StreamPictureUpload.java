@@ -0,0 +1,76 @@
+package com.polar.cloudimage.manager.upload;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.polar.cloudimage.constant.PictureConstant;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.exception.ThrowUtils;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * 图片 请求体流式上传实现类
+ * 请求体即图片二进制内容，直接转发到对象存储，全程不落地本地磁盘
+ * （multipart 表单会被容器先解析、暂存，无法做到真正的流式）
+ */
+@Service
+public class StreamPictureUpload extends PictureUploadTemplate {
+
+    /**
+     * 原始文件名参数
+     */
+    private static final String FILE_NAME_PARAM = "fileName";
+
+    @Override
+    protected void validPicture(Object inputSource) {
+        HttpServletRequest request = (HttpServletRequest) inputSource;
+        //1.必须携带 Content-Length，才能直接流式上传
+        long contentLength = request.getContentLengthLong();
+        ThrowUtils.throwIf(contentLength <= 0, ErrorCode.PARAMS_ERROR, "文件不能为空");
+        //2.文件大小是否超过限制 5M
+        ThrowUtils.throwIf(contentLength > PictureConstant.MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过5M");
+        //3.文件类型是否符合要求
+        ThrowUtils.throwIf(!PictureConstant.ALLOW_CONTENT_TYPES.contains(getMimeType(request)),
+                ErrorCode.PARAMS_ERROR, "文件类型错误");
+    }
+
+    /**
+     * 后缀只根据已校验的 Content-Type 决定，客户端传入的文件名只取主文件名
+     * 避免以图片类型上传、却以 .html 等后缀存入对象存储
+     */
+    @Override
+    protected String getOriginFilename(Object inputSource) {
+        HttpServletRequest request = (HttpServletRequest) inputSource;
+        String mainName = FileUtil.mainName(request.getParameter(FILE_NAME_PARAM));
+        if (StrUtil.isBlank(mainName)) {
+            mainName = "picture";
+        }
+        return mainName + "." + getSuffix(getMimeType(request));
+    }
+
+    @Override
+    protected PictureUploadSource openSource(Object inputSource) throws Exception {
+        HttpServletRequest request = (HttpServletRequest) inputSource;
+        return new PictureUploadSource(request.getInputStream(), request.getContentLengthLong());
+    }
+
+    /**
+     * 根据图片类型获取后缀，例如 image/jpeg => jpg
+     */
+    private String getSuffix(String mimeType) {
+        String suffix = StrUtil.subAfter(mimeType, "/", false);
+        return "jpeg".equals(suffix) ? "jpg" : suffix;
+    }
+
+    /**
+     * 获取不带参数的 Content-Type，例如 image/png
+     */
+    private String getMimeType(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        if (StrUtil.isBlank(contentType)) {
+            return "";
+        }
+        return StrUtil.subBefore(contentType, ";", false).trim().toLowerCase();
+    }
+}
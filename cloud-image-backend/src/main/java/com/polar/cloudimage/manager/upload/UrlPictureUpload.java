@@ -2,21 +2,25 @@ package com.polar.cloudimage.manager.upload;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.http.HttpResponse;
-import cn.hutool.http.HttpStatus;
-import cn.hutool.http.HttpUtil;
-import cn.hutool.http.Method;
 import com.polar.cloudimage.constant.PictureConstant;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import javax.annotation.Resource;
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Arrays;
-import java.util.List;
 
 /**
  * @author polar
@@ -24,8 +28,13 @@ import java.util.List;
  * @since 2025/10/19 13:31
  * 图片 URL 上传实现类
  */
+@Slf4j
 @Service
 public class UrlPictureUpload extends PictureUploadTemplate {
+
+    @Resource
+    private CloseableHttpClient httpClient;
+
     @Override
     protected void validPicture(Object inputSource) {
         String fileUrl = (String) inputSource;
@@ -42,39 +51,7 @@ public class UrlPictureUpload extends PictureUploadTemplate {
         ThrowUtils.throwIf(!fileUrl.startsWith("http://") && !fileUrl.startsWith("https://"),
                 ErrorCode.PARAMS_ERROR, "仅支持 HTTP 或 HTTPS 协议的文件地址"
         );
-        // 4. 发送 HEAD 请求验证文件是否存在
-        HttpResponse httpResponse = null;
-        try {
-            httpResponse = HttpUtil.createRequest(Method.HEAD, fileUrl).execute();
-            // 未正常返回，无需执行其他判断
-            if (httpResponse.getStatus() != HttpStatus.HTTP_OK) {
-                return;
-            }
-            // 5. 文件存在，文件类型校验
-            String contentType = httpResponse.header("Content-Type");
-            // 不为空，才校验是否合法，这样校验规则相对宽松
-            if (StrUtil.isNotBlank(contentType)) {
-                // 允许的图片类型
-                ThrowUtils.throwIf(!PictureConstant.ALLOW_CONTENT_TYPES.contains(contentType.toLowerCase()),
-                        ErrorCode.PARAMS_ERROR, "文件类型错误");
-            }
-            // 6. 文件存在，文件大小校验
-            String contentLengthStr = httpResponse.header("Content-Length");
-            if (StrUtil.isNotBlank(contentLengthStr)) {
-                try {
-                    long contentLength = Long.parseLong(contentLengthStr);
-                    final long MAX_SIZE = 5 * 1024 * 1024;
-                    ThrowUtils.throwIf(contentLength > MAX_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过5M");
-                } catch (NumberFormatException e) {
-                    throw new BusinessException(ErrorCode.PARAMS_ERROR, "文件大小格式异常");
-                }
-            }
-        } finally {
-            // 记得释放资源
-            if (httpResponse != null) {
-                httpResponse.close();
-            }
-        }
+        // 文件是否存在、类型和大小在下载时校验，不再单独发送 HEAD 请求
     }
 
     @Override
@@ -84,9 +61,76 @@ public class UrlPictureUpload extends PictureUploadTemplate {
         return FileUtil.mainName(fileUrl);    }
 
     @Override
-    protected void processFile(Object inputSource, File file) throws Exception {
+    protected PictureUploadSource openSource(Object inputSource) throws Exception {
         String fileUrl = (String) inputSource;
-        // 下载文件到临时目录
-        HttpUtil.downloadFile(fileUrl, file);
+        // 一次 GET 请求，直接读取响应流上传，不再下载到临时文件
+        HttpGet httpGet = new HttpGet(fileUrl);
+        CloseableHttpResponse httpResponse;
+        try {
+            httpResponse = httpClient.execute(httpGet);
+        } catch (IOException e) {
+            log.error("文件下载失败, url = {}", fileUrl, e);
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件下载失败");
+        }
+        try {
+            if (httpResponse.getStatusLine().getStatusCode() != HttpStatus.SC_OK || httpResponse.getEntity() == null) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "文件下载失败");
+            }
+            HttpEntity entity = httpResponse.getEntity();
+            // 1. 声明了长度的，超过限制直接中断，不读取响应体
+            long contentLength = entity.getContentLength();
+            ThrowUtils.throwIf(contentLength > PictureConstant.MAX_PICTURE_SIZE, ErrorCode.PARAMS_ERROR, "文件大小不能超过5M");
+            // 2. 根据文件头的魔数校验真实类型，不依赖响应头（很多服务器返回 application/octet-stream）
+            BufferedInputStream inputStream = new BufferedInputStream(entity.getContent());
+            ThrowUtils.throwIf(!PictureConstant.ALLOW_CONTENT_TYPES.contains(sniffContentType(inputStream)),
+                    ErrorCode.PARAMS_ERROR, "文件类型错误");
+            // 关闭时直接断开连接而不是读完剩余内容，超过大小限制时可以立即中断下载；
+            // 正常读完的连接已自动归还连接池
+            InputStream responseStream = new FilterInputStream(inputStream) {
+                @Override
+                public void close() throws IOException {
+                    httpResponse.close();
+                }
+            };
+            // 与文件上传一样边读边上传、计算摘要，内容重复时在登记文件引用时复用已有文件并清理本次上传
+            // 未声明长度（分块传输）的才在模板中缓冲
+            return new PictureUploadSource(responseStream, contentLength);
+        } catch (Exception e) {
+            httpResponse.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 读取文件头（不消费输入流），根据魔数判断图片类型
+     *
+     * @return 图片类型，无法识别时返回空字符串
+     */
+    private String sniffContentType(BufferedInputStream inputStream) throws IOException {
+        byte[] header = new byte[12];
+        inputStream.mark(header.length);
+        int length = 0;
+        while (length < header.length) {
+            int n = inputStream.read(header, length, header.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        inputStream.reset();
+        if (length >= 3 && (header[0] & 0xff) == 0xff && (header[1] & 0xff) == 0xd8 && (header[2] & 0xff) == 0xff) {
+            return "image/jpeg";
+        }
+        if (length >= 8 && (header[0] & 0xff) == 0x89 && header[1] == 'P' && header[2] == 'N' && header[3] == 'G') {
+            return "image/png";
+        }
+        if (length >= 12 && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+            return "image/webp";
+        }
+        if (length >= 4 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            return "image/gif";
+        }
+        return "";
     }
 }
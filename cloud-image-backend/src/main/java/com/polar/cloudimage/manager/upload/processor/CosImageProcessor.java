@@ -0,0 +1,43 @@
+package com.polar.cloudimage.manager.upload.processor;
+
+import com.polar.cloudimage.manager.CosManager;
+import com.polar.cloudimage.manager.upload.CiUploadResultParser;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.qcloud.cos.model.PutObjectResult;
+import com.qcloud.cos.model.ciModel.persistence.CIUploadResult;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.io.InputStream;
+
+/**
+ * 数据万象图片处理：上传时附带处理规则，由云端完成压缩（webp）和缩略图
+ */
+@Component
+@ConditionalOnProperty(name = "picture.image-processor", havingValue = "cos", matchIfMissing = true)
+public class CosImageProcessor implements ImageProcessor {
+
+    @Resource
+    private CosManager cosManager;
+
+    @Resource
+    private CiUploadResultParser ciUploadResultParser;
+
+    @Override
+    public UploadPictureResult putAndProcess(String key, String originFilename, InputStream inputStream, long contentLength) {
+        PutObjectResult putObjectResult = cosManager.putPictureObject(key, inputStream, contentLength);
+        return ciUploadResultParser.parse(originFilename, key, contentLength, putObjectResult.getCiUploadResult());
+    }
+
+    @Override
+    public UploadPictureResult process(String key, String originFilename, long contentLength) {
+        CIUploadResult ciUploadResult = cosManager.processPictureObject(key, contentLength);
+        return ciUploadResultParser.parse(originFilename, key, contentLength, ciUploadResult);
+    }
+
+    @Override
+    public String createVariant(String key, long contentLength, int size) {
+        return cosManager.processPictureVariant(key, size);
+    }
+}
@@ -0,0 +1,69 @@
+package com.polar.cloudimage.manager.upload.processor;
+
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解码缓冲区池
+ * 1. 固定大小的缓冲区复用，避免每张图片都分配几 M 的数组
+ * 2. 借出数量有上限（超出大小的图片临时分配，但同样占用名额），同时解码占用的内存有界
+ */
+public class DecodeBufferPool {
+
+    /**
+     * 等待缓冲区的最长时间（秒）
+     */
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 10;
+
+    private final int bufferSize;
+
+    private final Semaphore permits;
+
+    private final ArrayBlockingQueue<byte[]> buffers;
+
+    /**
+     * @param bufferCount 缓冲区数量（即同时解码的图片数上限）
+     * @param bufferSize  单个缓冲区大小
+     */
+    public DecodeBufferPool(int bufferCount, int bufferSize) {
+        this.bufferSize = bufferSize;
+        this.permits = new Semaphore(bufferCount);
+        this.buffers = new ArrayBlockingQueue<>(bufferCount);
+    }
+
+    /**
+     * 借出缓冲区，用完必须调用 {@link #release(byte[])} 归还
+     *
+     * @param size 需要的大小
+     * @return 缓冲区（长度不小于 size）
+     */
+    public byte[] acquire(long size) {
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "图片处理繁忙，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理被中断");
+        }
+        if (size > bufferSize) {
+            return new byte[(int) size];
+        }
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[bufferSize];
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    public void release(byte[] buffer) {
+        if (buffer.length == bufferSize) {
+            buffers.offer(buffer);
+        }
+        permits.release();
+    }
+}
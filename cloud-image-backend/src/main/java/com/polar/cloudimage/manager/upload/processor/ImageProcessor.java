@@ -0,0 +1,46 @@
+package com.polar.cloudimage.manager.upload.processor;
+
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+
+import java.io.InputStream;
+
+/**
+ * 图片处理器：解析图片信息（宽高、格式、主色调），生成压缩图、缩略图、变体图
+ * 通过配置 picture.image-processor 选择实现：
+ * cos   - 数据万象云端处理（默认）
+ * local - 本地纯 Java 处理
+ */
+public interface ImageProcessor {
+
+    /**
+     * 上传原图并处理
+     *
+     * @param key            原图唯一键
+     * @param originFilename 原始文件名
+     * @param inputStream    原图输入流
+     * @param contentLength  原图大小
+     * @return 图片上传结果（processed 为 true）
+     */
+    UploadPictureResult putAndProcess(String key, String originFilename, InputStream inputStream, long contentLength);
+
+    /**
+     * 处理已存入对象存储的原图（异步处理、分块上传合并后使用）
+     *
+     * @param key            原图唯一键
+     * @param originFilename 原始文件名
+     * @param contentLength  原图大小
+     * @return 图片上传结果（processed 为 true）
+     */
+    UploadPictureResult process(String key, String originFilename, long contentLength);
+
+    /**
+     * 生成指定尺寸的变体图（等比缩放到 size x size 以内，不放大）
+     * 同一原图、同一尺寸的变体图唯一键固定，重复生成会覆盖
+     *
+     * @param key           原图唯一键
+     * @param contentLength 原图大小
+     * @param size          长边像素
+     * @return 变体图唯一键
+     */
+    String createVariant(String key, long contentLength, int size);
+}
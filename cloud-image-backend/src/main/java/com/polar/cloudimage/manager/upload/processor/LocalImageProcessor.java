@@ -0,0 +1,249 @@
+package com.polar.cloudimage.manager.upload.processor;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import com.polar.cloudimage.constant.PictureConstant;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.util.ColorTransformUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * 本地图片处理（纯 Java，不依赖数据万象）
+ * 1. 宽高、格式只读取图片头，不解码整张图片
+ * 2. 缩略图、变体图、主色调基于降采样解码（ImageReadParam#setSourceSubsampling），内存占用与输出尺寸相关
+ * 3. 解码缓冲区从有界池中借用，同时处理的图片数量有上限
+ * JDK 没有 webp 编码器，原图不再转码，缩略图、变体图输出 jpg（带透明通道时输出 png）
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "picture.image-processor", havingValue = "local")
+public class LocalImageProcessor implements ImageProcessor {
+
+    /**
+     * 缩略图最大边长，与数据万象规则 thumbnail/256x256> 一致
+     */
+    private static final int THUMBNAIL_SIZE = 256;
+
+    /**
+     * 小于该大小的图片不生成缩略图
+     */
+    private static final long THUMBNAIL_MIN_SIZE = 2 * 1024;
+
+    /**
+     * 解码缓冲区：8 个，每个与单图上限一致
+     */
+    private final DecodeBufferPool decodeBufferPool = new DecodeBufferPool(8, (int) PictureConstant.MAX_PICTURE_SIZE);
+
+    @Resource
+    private StorageBackend storageBackend;
+
+    @Override
+    public UploadPictureResult putAndProcess(String key, String originFilename, InputStream inputStream, long contentLength) {
+        byte[] buffer = decodeBufferPool.acquire(contentLength);
+        try {
+            int length = readFully(inputStream, buffer, contentLength);
+            // 先解析图片，格式不支持时不上传原图
+            UploadPictureResult uploadPictureResult = doProcess(key, originFilename, buffer, length);
+            storageBackend.putObject(key, new ByteArrayInputStream(buffer, 0, length), length);
+            return uploadPictureResult;
+        } catch (IOException e) {
+            log.error("本地图片处理失败, key = {}", key, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理失败");
+        } finally {
+            decodeBufferPool.release(buffer);
+        }
+    }
+
+    @Override
+    public UploadPictureResult process(String key, String originFilename, long contentLength) {
+        byte[] buffer = decodeBufferPool.acquire(contentLength);
+        InputStream inputStream = storageBackend.getObject(key);
+        try {
+            int length = readFully(inputStream, buffer, contentLength);
+            return doProcess(key, originFilename, buffer, length);
+        } catch (IOException e) {
+            log.error("本地图片处理失败, key = {}", key, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "图片处理失败");
+        } finally {
+            IoUtil.close(inputStream);
+            decodeBufferPool.release(buffer);
+        }
+    }
+
+    @Override
+    public String createVariant(String key, long contentLength, int size) {
+        byte[] buffer = decodeBufferPool.acquire(contentLength);
+        InputStream inputStream = storageBackend.getObject(key);
+        try {
+            int length = readFully(inputStream, buffer, contentLength);
+            try (ImageInputStream imageInputStream = new MemoryCacheImageInputStream(new ByteArrayInputStream(buffer, 0, length))) {
+                ImageReader reader = getImageReader(imageInputStream);
+                try {
+                    BufferedImage sampledImage = readSampled(reader, size);
+                    return putScaledImage(key, sampledImage, size, "w" + size);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            log.error("本地变体图生成失败, key = {}, size = {}", key, size, e);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "变体图生成失败");
+        } finally {
+            IoUtil.close(inputStream);
+            decodeBufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 解析图片信息并上传缩略图
+     */
+    private UploadPictureResult doProcess(String key, String originFilename, byte[] buffer, int length) throws IOException {
+        try (ImageInputStream imageInputStream = new MemoryCacheImageInputStream(new ByteArrayInputStream(buffer, 0, length))) {
+            ImageReader reader = getImageReader(imageInputStream);
+            try {
+                // 1. 只读取图片头
+                int picWidth = reader.getWidth(0);
+                int picHeight = reader.getHeight(0);
+                String picFormat = reader.getFormatName().toLowerCase();
+                if ("jpeg".equals(picFormat)) {
+                    picFormat = "jpg";
+                }
+                // 2. 降采样解码，长边不小于缩略图尺寸
+                BufferedImage sampledImage = readSampled(reader, THUMBNAIL_SIZE);
+
+                UploadPictureResult uploadPictureResult = new UploadPictureResult();
+                uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+                uploadPictureResult.setPicWidth(picWidth);
+                uploadPictureResult.setPicHeight(picHeight);
+                uploadPictureResult.setPicScale(NumberUtil.round(picWidth * 1.0 / picHeight, 2).doubleValue());
+                uploadPictureResult.setPicFormat(picFormat);
+                uploadPictureResult.setPicSize((long) length);
+                uploadPictureResult.setUrl(storageBackend.getUrl(key));
+                uploadPictureResult.setPicColor(getAverageColor(sampledImage));
+                // 3. 缩略图
+                String thumbnailUrl = uploadPictureResult.getUrl();
+                if (length > THUMBNAIL_MIN_SIZE) {
+                    thumbnailUrl = storageBackend.getUrl(putScaledImage(key, sampledImage, THUMBNAIL_SIZE, "thumbnail"));
+                }
+                uploadPictureResult.setThumbnailUrl(thumbnailUrl);
+                uploadPictureResult.setProcessed(true);
+                return uploadPictureResult;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 获取图片格式对应的解码器
+     */
+    private ImageReader getImageReader(ImageInputStream imageInputStream) {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+        if (!readers.hasNext()) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "本地处理不支持该图片格式");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(imageInputStream, true, true);
+        return reader;
+    }
+
+    /**
+     * 降采样解码，解码结果的长边不小于 size
+     */
+    private BufferedImage readSampled(ImageReader reader, int size) throws IOException {
+        int subsampling = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / size);
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return reader.read(0, param);
+    }
+
+    /**
+     * 生成并上传缩放图（等比缩放到 size x size 以内，不放大），与原图放在同一目录
+     *
+     * @param suffix 文件名后缀，如 thumbnail、w512
+     * @return 缩放图唯一键
+     */
+    private String putScaledImage(String key, BufferedImage sampledImage, int size, String suffix) throws IOException {
+        int width = sampledImage.getWidth();
+        int height = sampledImage.getHeight();
+        double scale = Math.min(1.0, size * 1.0 / Math.max(width, height));
+        int scaledWidth = Math.max(1, (int) Math.round(width * scale));
+        int scaledHeight = Math.max(1, (int) Math.round(height * scale));
+        boolean hasAlpha = sampledImage.getColorModel().hasAlpha();
+        BufferedImage scaledImage = new BufferedImage(scaledWidth, scaledHeight,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaledImage.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(sampledImage, 0, 0, scaledWidth, scaledHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        String format = hasAlpha ? "png" : "jpg";
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(scaledImage, format, outputStream);
+        String scaledKey = StrUtil.subBefore(key, "/", true) + "/"
+                + FileUtil.mainName(key) + "_" + suffix + "." + format;
+        byte[] bytes = outputStream.toByteArray();
+        storageBackend.putObject(scaledKey, new ByteArrayInputStream(bytes), bytes.length);
+        return scaledKey;
+    }
+
+    /**
+     * 计算主色调（平均色），格式与数据万象返回的一致
+     */
+    private String getAverageColor(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long red = 0, green = 0, blue = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                red += (rgb >> 16) & 0xff;
+                green += (rgb >> 8) & 0xff;
+                blue += rgb & 0xff;
+            }
+        }
+        long count = (long) width * height;
+        return ColorTransformUtils.compressHexColor((int) (red / count), (int) (green / count), (int) (blue / count));
+    }
+
+    /**
+     * 读取全部内容到缓冲区
+     *
+     * @return 实际读取的字节数
+     */
+    private int readFully(InputStream inputStream, byte[] buffer, long contentLength) throws IOException {
+        int length = (int) contentLength;
+        int offset = 0;
+        while (offset < length) {
+            int n = inputStream.read(buffer, offset, length - offset);
+            if (n < 0) {
+                break;
+            }
+            offset += n;
+        }
+        return offset;
+    }
+}
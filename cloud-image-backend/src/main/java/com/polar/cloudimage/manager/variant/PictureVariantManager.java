@@ -0,0 +1,140 @@
+package com.polar.cloudimage.manager.variant;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.manager.upload.processor.ImageProcessor;
+import com.polar.cloudimage.model.enums.PictureVariantEnum;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 图片变体管理（响应式图片）
+ * 1. 变体图在第一次被请求时才生成，同一原图、同一尺寸的唯一键固定
+ * 2. 已生成的变体记录在变体索引中（Redis Hash，按原图地址区分，field 为尺寸，value 为变体图唯一键）
+ * 3. 同一节点上同一变体并发请求时只生成一次
+ */
+@Slf4j
+@Component
+public class PictureVariantManager {
+
+    private static final String VARIANT_INDEX_KEY_PREFIX = "cloudimage:pictureVariant:";
+
+    @Resource
+    private ImageProcessor imageProcessor;
+
+    @Resource
+    private StorageBackend storageBackend;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 生成中的变体
+     */
+    private final Map<String, FutureTask<String>> generatingTasks = new ConcurrentHashMap<>();
+
+    /**
+     * 获取变体图地址，不存在时生成
+     *
+     * @param url         原图地址
+     * @param picSize     原图大小
+     * @param variantEnum 变体尺寸
+     * @return 变体图地址
+     */
+    public String getOrCreateVariantUrl(String url, long picSize, PictureVariantEnum variantEnum) {
+        String indexKey = getIndexKey(url);
+        String field = String.valueOf(variantEnum.getValue());
+        Object variantKey = stringRedisTemplate.opsForHash().get(indexKey, field);
+        if (variantKey != null) {
+            return storageBackend.getUrl(variantKey.toString());
+        }
+        String taskKey = indexKey + ":" + field;
+        FutureTask<String> task = new FutureTask<>(() -> {
+            String key = imageProcessor.createVariant(storageBackend.getKeyByUrl(url), picSize, variantEnum.getValue());
+            stringRedisTemplate.opsForHash().put(indexKey, field, key);
+            return key;
+        });
+        FutureTask<String> existingTask = generatingTasks.putIfAbsent(taskKey, task);
+        if (existingTask == null) {
+            existingTask = task;
+            task.run();
+        }
+        try {
+            return storageBackend.getUrl(existingTask.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "变体图生成被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BusinessException) {
+                throw (BusinessException) e.getCause();
+            }
+            log.error("变体图生成失败, url = {}, size = {}", url, variantEnum.getValue(), e.getCause());
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "变体图生成失败");
+        } finally {
+            generatingTasks.remove(taskKey, existingTask);
+        }
+    }
+
+    /**
+     * 批量查询已生成的变体图地址（一次 pipeline 读取所有索引）
+     *
+     * @param urlList 原图地址列表
+     * @return 与 urlList 一一对应，key 为尺寸，value 为变体图地址
+     */
+    public List<Map<Integer, String>> listVariantUrls(List<String> urlList) {
+        if (CollUtil.isEmpty(urlList)) {
+            return Collections.emptyList();
+        }
+        List<Object> indexList = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String url : urlList) {
+                connection.hashCommands().hGetAll(getIndexKey(url).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<Map<Integer, String>> result = new ArrayList<>(urlList.size());
+        for (Object index : indexList) {
+            Map<Integer, String> variantUrlMap = new HashMap<>();
+            if (index instanceof Map) {
+                ((Map<?, ?>) index).forEach((size, variantKey) ->
+                        variantUrlMap.put(Integer.valueOf(size.toString()), storageBackend.getUrl(variantKey.toString())));
+            }
+            result.add(variantUrlMap);
+        }
+        return result;
+    }
+
+    /**
+     * 删除原图的变体索引
+     *
+     * @param url 原图地址
+     * @return 已生成的变体图唯一键（由调用方删除文件）
+     */
+    public List<String> removeVariants(String url) {
+        if (StrUtil.isBlank(url)) {
+            return Collections.emptyList();
+        }
+        String indexKey = getIndexKey(url);
+        List<Object> variantKeys = stringRedisTemplate.opsForHash().values(indexKey);
+        stringRedisTemplate.delete(indexKey);
+        List<String> keyList = new ArrayList<>(variantKeys.size());
+        variantKeys.forEach(variantKey -> keyList.add(variantKey.toString()));
+        return keyList;
+    }
+
+    private String getIndexKey(String url) {
+        return VARIANT_INDEX_KEY_PREFIX + DigestUtil.md5Hex(url);
+    }
+}
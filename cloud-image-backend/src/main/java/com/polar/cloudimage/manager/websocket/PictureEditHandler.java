@@ -243,6 +243,23 @@ public class PictureEditHandler extends TextWebSocketHandler {
     private void broadcastToPicture(Long pictureId, PictureEditResponseMessage pictureEditResponseMessage) throws IOException {
         broadcastToPicture(pictureId, pictureEditResponseMessage, null);
     }
+
+    /**
+     * 通知图片处理结束（异步上传处理完成或失败），前端收到后重新获取图片信息
+     *
+     * @param pictureId 图片 id
+     * @param message   提示信息
+     */
+    public void notifyPictureProcessed(Long pictureId, String message) {
+        PictureEditResponseMessage pictureEditResponseMessage = new PictureEditResponseMessage();
+        pictureEditResponseMessage.setType(PictureEditMessageTypeEnum.PROCESSED.getValue());
+        pictureEditResponseMessage.setMessage(message);
+        try {
+            broadcastToPicture(pictureId, pictureEditResponseMessage);
+        } catch (IOException e) {
+            log.error("图片处理结果通知失败, pictureId = {}", pictureId, e);
+        }
+    }
 }
 
 
@@ -21,7 +21,6 @@ import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
-import java.util.List;
 import java.util.Map;
 
 import static com.polar.cloudimage.model.enums.SpaceTypeEnum.*;
@@ -89,8 +88,8 @@ public class WsHandshakeInterceptor implements HandshakeInterceptor {
                     return false;
                 }
             }
-            List<String> permissionList = spaceUserAuthManager.getPermissionList(space, loginUser);
-            if (!permissionList.contains(SpaceUserPermissionConstant.PICTURE_EDIT)) {
+            long permissionMask = spaceUserAuthManager.getPermissionMask(space, loginUser);
+            if (!SpaceUserAuthManager.hasPermission(permissionMask, SpaceUserPermissionConstant.PICTURE_EDIT)) {
                 log.error("用户没有编辑图片的权限，拒绝握手");
                 return false;
             }
@@ -12,7 +12,8 @@ public enum PictureEditMessageTypeEnum {
     ERROR("发送错误", "ERROR"),
     ENTER_EDIT("进入编辑状态", "ENTER_EDIT"),
     EXIT_EDIT("退出编辑状态", "EXIT_EDIT"),
-    EDIT_ACTION("执行编辑操作", "EDIT_ACTION");
+    EDIT_ACTION("执行编辑操作", "EDIT_ACTION"),
+    PROCESSED("图片处理结束", "PROCESSED");
 
     private final String text;
     private final String value;
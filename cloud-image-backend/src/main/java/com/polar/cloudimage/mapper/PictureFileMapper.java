@@ -0,0 +1,45 @@
+package com.polar.cloudimage.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import com.polar.cloudimage.model.entity.PictureFile;
+
+/**
+ * @author polar
+ * @description 针对表【picture_file(图片文件)】的数据库操作Mapper
+ * @Entity com.polar.cloudimage.model.entity.PictureFile
+ */
+public interface PictureFileMapper extends BaseMapper<PictureFile> {
+
+    /**
+     * 新增图片文件，已存在（同一存储范围内内容摘要相同，或 url 相同）则引用计数加一
+     *
+     * @param pictureFile 图片文件
+     * @return 影响行数
+     */
+    int insertOrIncrRefCount(PictureFile pictureFile);
+
+    /**
+     * 已存在的图片文件引用计数加一（复用已上传的文件时使用，文件已被释放则不更新）
+     *
+     * @param url 图片 url
+     * @return 影响行数，0 表示文件已被释放
+     */
+    int incrRefCountByUrl(@Param("url") String url);
+
+    /**
+     * 根据 url 查询图片文件并加行锁（需在事务中调用）
+     *
+     * @param url 图片 url
+     * @return 图片文件
+     */
+    PictureFile selectByUrlForUpdate(@Param("url") String url);
+
+    /**
+     * 引用计数减一
+     *
+     * @param id 图片文件 id
+     * @return 影响行数
+     */
+    int decrRefCount(@Param("id") Long id);
+}
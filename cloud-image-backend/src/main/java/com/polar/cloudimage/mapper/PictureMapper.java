@@ -2,6 +2,9 @@ package com.polar.cloudimage.mapper;
 
 import com.polar.cloudimage.model.entity.Picture;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * @author polar
@@ -11,6 +14,13 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface PictureMapper extends BaseMapper<Picture> {
 
+    /**
+     * 批量插入图片（单条多值 INSERT 语句），id 需提前生成
+     *
+     * @param pictureList 图片列表
+     * @return 插入行数
+     */
+    int insertBatch(@Param("pictureList") List<Picture> pictureList);
 }
 
 
@@ -0,0 +1,23 @@
+package com.polar.cloudimage.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.polar.cloudimage.model.entity.PictureTag;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * @author polar
+ * @description 针对表【picture_tag(图片标签)】的数据库操作Mapper
+ * @Entity com.polar.cloudimage.model.entity.PictureTag
+ */
+public interface PictureTagMapper extends BaseMapper<PictureTag> {
+
+    /**
+     * 批量新增图片标签
+     *
+     * @param pictureTagList 图片标签
+     * @return 影响行数
+     */
+    int insertBatch(@Param("list") List<PictureTag> pictureTagList);
+}
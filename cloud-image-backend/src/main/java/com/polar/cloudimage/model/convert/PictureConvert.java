@@ -0,0 +1,49 @@
+package com.polar.cloudimage.model.convert;
+
+import cn.hutool.json.JSONUtil;
+import com.polar.cloudimage.model.dto.picture.PictureEditRequest;
+import com.polar.cloudimage.model.dto.picture.PictureReviewRequest;
+import com.polar.cloudimage.model.dto.picture.PictureUpdateRequest;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.vo.PictureVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Named;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+import java.util.List;
+
+/**
+ * 图片对象转换（编译期生成实现，不使用反射）
+ * 只复制同名属性，与 BeanUtils.copyProperties 一致；请求中的标签由调用方转换
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface PictureConvert {
+
+    PictureConvert INSTANCE = Mappers.getMapper(PictureConvert.class);
+
+    @Mapping(target = "tags", source = "tags", qualifiedByName = "toTagList")
+    PictureVO toVo(Picture picture);
+
+    @Mapping(target = "tags", source = "tags", qualifiedByName = "toTagJson")
+    Picture toEntity(PictureVO pictureVO);
+
+    @Mapping(target = "tags", ignore = true)
+    Picture toEntity(PictureUpdateRequest pictureUpdateRequest);
+
+    @Mapping(target = "tags", ignore = true)
+    Picture toEntity(PictureEditRequest pictureEditRequest);
+
+    Picture toEntity(PictureReviewRequest pictureReviewRequest);
+
+    @Named("toTagList")
+    default List<String> toTagList(String tags) {
+        return JSONUtil.toList(tags, String.class);
+    }
+
+    @Named("toTagJson")
+    default String toTagJson(List<String> tags) {
+        return JSONUtil.toJsonStr(tags);
+    }
+}
@@ -0,0 +1,29 @@
+package com.polar.cloudimage.model.convert;
+
+import com.polar.cloudimage.model.dto.space.SpaceAddRequest;
+import com.polar.cloudimage.model.dto.space.SpaceEditRequest;
+import com.polar.cloudimage.model.dto.space.SpaceUpdateRequest;
+import com.polar.cloudimage.model.entity.Space;
+import com.polar.cloudimage.model.vo.SpaceVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * 空间对象转换（编译期生成实现，不使用反射）
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface SpaceConvert {
+
+    SpaceConvert INSTANCE = Mappers.getMapper(SpaceConvert.class);
+
+    SpaceVO toVo(Space space);
+
+    Space toEntity(SpaceVO spaceVO);
+
+    Space toEntity(SpaceAddRequest spaceAddRequest);
+
+    Space toEntity(SpaceUpdateRequest spaceUpdateRequest);
+
+    Space toEntity(SpaceEditRequest spaceEditRequest);
+}
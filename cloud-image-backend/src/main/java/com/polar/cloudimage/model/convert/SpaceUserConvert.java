@@ -0,0 +1,26 @@
+package com.polar.cloudimage.model.convert;
+
+import com.polar.cloudimage.model.dto.spaceuser.SpaceUserAddRequest;
+import com.polar.cloudimage.model.dto.spaceuser.SpaceUserEditRequest;
+import com.polar.cloudimage.model.entity.SpaceUser;
+import com.polar.cloudimage.model.vo.SpaceUserVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * 空间成员对象转换（编译期生成实现，不使用反射）
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface SpaceUserConvert {
+
+    SpaceUserConvert INSTANCE = Mappers.getMapper(SpaceUserConvert.class);
+
+    SpaceUserVO toVo(SpaceUser spaceUser);
+
+    SpaceUser toEntity(SpaceUserVO spaceUserVO);
+
+    SpaceUser toEntity(SpaceUserAddRequest spaceUserAddRequest);
+
+    SpaceUser toEntity(SpaceUserEditRequest spaceUserEditRequest);
+}
@@ -0,0 +1,27 @@
+package com.polar.cloudimage.model.convert;
+
+import com.polar.cloudimage.model.dto.user.UserAddRequest;
+import com.polar.cloudimage.model.dto.user.UserUpdateRequest;
+import com.polar.cloudimage.model.entity.User;
+import com.polar.cloudimage.model.vo.LoginUserVO;
+import com.polar.cloudimage.model.vo.UserVO;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+
+/**
+ * 用户对象转换（编译期生成实现，不使用反射）
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface UserConvert {
+
+    UserConvert INSTANCE = Mappers.getMapper(UserConvert.class);
+
+    UserVO toVo(User user);
+
+    LoginUserVO toLoginUserVo(User user);
+
+    User toEntity(UserAddRequest userAddRequest);
+
+    User toEntity(UserUpdateRequest userUpdateRequest);
+}
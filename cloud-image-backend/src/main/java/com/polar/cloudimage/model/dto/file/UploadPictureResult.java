@@ -52,4 +52,19 @@ public class UploadPictureResult {
      * 图片主色调
      */
     private String picColor;
-}
\ No newline at end of file
+
+    /**
+     * 图片内容 SHA-256
+     */
+    private String contentHash;
+
+    /**
+     * 是否已完成图片处理（异步处理时，接收阶段为 false）
+     */
+    private boolean processed;
+
+    /**
+     * 是否复用了已上传的文件（按内容摘要命中，未重新上传）
+     */
+    private boolean reused;
+}
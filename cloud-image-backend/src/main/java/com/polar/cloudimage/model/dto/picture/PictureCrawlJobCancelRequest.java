@@ -0,0 +1,19 @@
+package com.polar.cloudimage.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 取消批量抓取任务请求
+ */
+@Data
+public class PictureCrawlJobCancelRequest implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private String jobId;
+
+    private static final long serialVersionUID = 1L;
+}
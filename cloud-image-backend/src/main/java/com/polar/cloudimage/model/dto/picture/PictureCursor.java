@@ -0,0 +1,59 @@
+package com.polar.cloudimage.model.dto.picture;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 图片分页游标：上一页最后一条记录的 (排序字段, 排序值, id)
+ * 对外是不透明的字符串（Base64 URL 安全编码）
+ */
+@Data
+@AllArgsConstructor
+public class PictureCursor {
+
+    /**
+     * 排序字段
+     */
+    private String sortField;
+
+    /**
+     * 排序值（时间字段为毫秒时间戳，按 id 排序时与 id 相同）
+     */
+    private long value;
+
+    /**
+     * 图片 id
+     */
+    private long id;
+
+    /**
+     * 编码为游标字符串
+     */
+    public String encode() {
+        String raw = sortField + ":" + value + ":" + id;
+        return Base64.encodeUrlSafe(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串
+     */
+    public static PictureCursor decode(String cursor) {
+        try {
+            String raw = Base64.decodeStr(cursor, StandardCharsets.UTF_8);
+            List<String> parts = StrUtil.split(raw, ':');
+            if (parts.size() != 3) {
+                throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+            }
+            return new PictureCursor(parts.get(0), Long.parseLong(parts.get(1)), Long.parseLong(parts.get(2)));
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "游标无效");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.polar.cloudimage.model.dto.picture;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 分块上传初始化请求
+ */
+@Data
+public class PictureMultipartUploadInitRequest implements Serializable {
+
+    /**
+     * 已有的分块上传 id（断点续传时传入，返回已上传的分块）
+     */
+    private String uploadId;
+
+    /**
+     * 原始文件名
+     */
+    private String fileName;
+
+    /**
+     * 文件总大小
+     */
+    private Long fileSize;
+
+    /**
+     * 图片 id（用于修改）
+     */
+    private Long id;
+
+    /**
+     * 图片名称
+     */
+    private String picName;
+
+    /**
+     * 所属空间 id
+     */
+    private Long spaceId;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -115,5 +115,15 @@ public class PictureQueryRequest extends PageRequest implements Serializable {
      */
     private Date endEditTime;
 
+    /**
+     * 游标（游标分页时使用，为空表示第一页）
+     */
+    private String cursor;
+
+    /**
+     * 查询投影（grid 列表网格、detail 详情、admin 管理），只查询需要的列，为空表示 detail
+     */
+    private String projection;
+
     private static final long serialVersionUID = 1L;
 }
\ No newline at end of file
@@ -136,4 +136,9 @@ public class Picture implements Serializable {
      * 审核时间
      */
     private Date reviewTime;
+
+    /**
+     * 处理状态：0-已完成; 1-处理中; 2-处理失败
+     */
+    private Integer processStatus;
 }
\ No newline at end of file
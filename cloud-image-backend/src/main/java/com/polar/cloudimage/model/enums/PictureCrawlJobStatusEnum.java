@@ -0,0 +1,51 @@
+package com.polar.cloudimage.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 批量抓取任务状态枚举
+ */
+@Getter
+public enum PictureCrawlJobStatusEnum {
+
+    WAITING("等待中", "waiting"),
+    RUNNING("运行中", "running"),
+    SUCCEED("已完成", "succeed"),
+    FAILED("失败", "failed"),
+    CANCELLED("已取消", "cancelled");
+
+    private final String text;
+
+    private final String value;
+
+    PictureCrawlJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static PictureCrawlJobStatusEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureCrawlJobStatusEnum statusEnum : PictureCrawlJobStatusEnum.values()) {
+            if (statusEnum.value.equals(value)) {
+                return statusEnum;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否已结束
+     */
+    public boolean isFinished() {
+        return this == SUCCEED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,42 @@
+package com.polar.cloudimage.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片处理状态枚举类（压缩、缩略图等衍生图处理）
+ */
+@Getter
+public enum PictureProcessStatusEnum {
+
+    DONE("已完成", 0),
+    PROCESSING("处理中", 1),
+    FAILED("处理失败", 2);
+
+    private final String text;
+
+    private final int value;
+
+    PictureProcessStatusEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static PictureProcessStatusEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureProcessStatusEnum pictureProcessStatusEnum : PictureProcessStatusEnum.values()) {
+            if (pictureProcessStatusEnum.value == value) {
+                return pictureProcessStatusEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,68 @@
+package com.polar.cloudimage.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 图片查询投影枚举（列表查询只查询需要的列）
+ */
+@Getter
+public enum PictureProjectionEnum {
+
+    /**
+     * 列表网格：缩略图、名称、分类、标签、作者，以及生成变体图需要的原图地址和宽高
+     */
+    GRID("列表网格", "grid", "id", "url", "thumbnailUrl", "name", "category", "tags", "picWidth", "picHeight",
+            "userId", "spaceId", "createTime", "processStatus"),
+    /**
+     * 详情：图片视图的全部字段
+     */
+    DETAIL("详情", "detail", "id", "url", "thumbnailUrl", "name", "introduction", "category", "tags", "picSize",
+            "picWidth", "picHeight", "picScale", "picFormat", "picColor", "userId", "spaceId", "createTime",
+            "editTime", "updateTime", "processStatus"),
+    /**
+     * 管理：全部列（包括审核信息）
+     */
+    ADMIN("管理", "admin", "id", "url", "thumbnailUrl", "name", "introduction", "category", "tags", "picSize",
+            "picWidth", "picHeight", "picScale", "picFormat", "picColor", "userId", "spaceId", "createTime",
+            "editTime", "updateTime", "isDelete", "reviewStatus", "reviewMessage", "reviewerId", "reviewTime",
+            "processStatus");
+
+    private final String text;
+
+    private final String value;
+
+    /**
+     * 查询的列
+     */
+    private final Set<String> columns;
+
+    PictureProjectionEnum(String text, String value, String... columns) {
+        this.text = text;
+        this.value = value;
+        this.columns = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(columns)));
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static PictureProjectionEnum getEnumByValue(String value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureProjectionEnum anEnum : PictureProjectionEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+}
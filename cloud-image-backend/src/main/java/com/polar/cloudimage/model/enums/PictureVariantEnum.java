@@ -0,0 +1,42 @@
+package com.polar.cloudimage.model.enums;
+
+import cn.hutool.core.util.ObjUtil;
+import lombok.Getter;
+
+/**
+ * 图片变体尺寸枚举类（按需生成的响应式图片，value 为长边像素）
+ */
+@Getter
+public enum PictureVariantEnum {
+
+    SMALL("小图", 128),
+    MEDIUM("中图", 512),
+    LARGE("大图", 1024);
+
+    private final String text;
+
+    private final int value;
+
+    PictureVariantEnum(String text, int value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     * @param value 枚举值的 value
+     * @return 枚举值
+     */
+    public static PictureVariantEnum getEnumByValue(Integer value) {
+        if (ObjUtil.isEmpty(value)) {
+            return null;
+        }
+        for (PictureVariantEnum variantEnum : PictureVariantEnum.values()) {
+            if (variantEnum.value == value) {
+                return variantEnum;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.polar.cloudimage.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * 批量抓取任务进度
+ */
+@Data
+public class PictureCrawlJobVO implements Serializable {
+
+    /**
+     * 任务 id
+     */
+    private String jobId;
+
+    /**
+     * 搜索词
+     */
+    private String searchText;
+
+    /**
+     * 状态：waiting / running / succeed / failed / cancelled
+     */
+    private String status;
+
+    /**
+     * 抓取数量
+     */
+    private Integer count;
+
+    /**
+     * 已发现的图片数
+     */
+    private Integer discoveredCount;
+
+    /**
+     * 已上传的图片数
+     */
+    private Integer uploadedCount;
+
+    /**
+     * 已入库的图片数
+     */
+    private Integer savedCount;
+
+    /**
+     * 失败的图片数
+     */
+    private Integer failedCount;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+
+    /**
+     * 创建时间
+     */
+    private Date createTime;
+
+    /**
+     * 结束时间
+     */
+    private Date finishTime;
+
+    private static final long serialVersionUID = 1L;
+}
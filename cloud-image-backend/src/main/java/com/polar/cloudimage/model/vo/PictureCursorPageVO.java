@@ -0,0 +1,31 @@
+package com.polar.cloudimage.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 图片游标分页结果（不返回总数）
+ */
+@Data
+public class PictureCursorPageVO implements Serializable {
+
+    /**
+     * 本页图片
+     */
+    private List<PictureVO> records = new ArrayList<>();
+
+    /**
+     * 下一页游标，没有更多数据时为 null
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private boolean hasMore;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,35 @@
+package com.polar.cloudimage.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 分块上传会话视图
+ */
+@Data
+public class PictureMultipartUploadVO implements Serializable {
+
+    /**
+     * 分块上传 id
+     */
+    private String uploadId;
+
+    /**
+     * 分块大小
+     */
+    private Long partSize;
+
+    /**
+     * 分块数量
+     */
+    private Integer partCount;
+
+    /**
+     * 已上传的分块编号，续传时跳过
+     */
+    private List<Integer> uploadedPartList;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -1,15 +1,18 @@
 package com.polar.cloudimage.model.vo;
 
-import cn.hutool.json.JSONUtil;
+import com.polar.cloudimage.model.convert.PictureConvert;
 import com.polar.cloudimage.model.entity.Picture;
 import lombok.Data;
-import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * 图片视图（按投影查询时未查询的字段为 null，列表接口不输出，见 {@link com.polar.cloudimage.config.PictureProjectionResponseAdvice}）
+ */
 @Data
 public class PictureVO implements Serializable {
 
@@ -79,6 +82,11 @@ public class PictureVO implements Serializable {
      */
     private String picColor;
 
+    /**
+     * 处理状态：0-已完成; 1-处理中; 2-处理失败
+     */
+    private Integer processStatus;
+
     /**
      * 用户 id
      */
@@ -114,6 +122,11 @@ public class PictureVO implements Serializable {
      */
     private List<String> permissionList = new ArrayList<>();
 
+    /**
+     * 变体图地址（srcset），key 为图片宽度（如 512w），value 为图片地址
+     */
+    private Map<String, String> srcset;
+
     private static final long serialVersionUID = 1L;
 
     /**
@@ -123,11 +136,8 @@ public class PictureVO implements Serializable {
         if (pictureVO == null) {
             return null;
         }
-        Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureVO, picture);
-        // 类型不同，需要转换
-        picture.setTags(JSONUtil.toJsonStr(pictureVO.getTags()));
-        return picture;
+        // 标签类型不同，由 PictureConvert 转换
+        return PictureConvert.INSTANCE.toEntity(pictureVO);
     }
 
     /**
@@ -137,10 +147,7 @@ public class PictureVO implements Serializable {
         if (picture == null) {
             return null;
         }
-        PictureVO pictureVO = new PictureVO();
-        BeanUtils.copyProperties(picture, pictureVO);
-        // 类型不同，需要转换
-        pictureVO.setTags(JSONUtil.toList(picture.getTags(), String.class));
-        return pictureVO;
+        // 标签类型不同，由 PictureConvert 转换
+        return PictureConvert.INSTANCE.toVo(picture);
     }
 }
\ No newline at end of file
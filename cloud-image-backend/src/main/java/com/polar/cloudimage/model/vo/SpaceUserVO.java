@@ -1,8 +1,8 @@
 package com.polar.cloudimage.model.vo;
 
+import com.polar.cloudimage.model.convert.SpaceUserConvert;
 import com.polar.cloudimage.model.entity.SpaceUser;
 import lombok.Data;
-import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.Date;
@@ -65,9 +65,7 @@ public class SpaceUserVO implements Serializable {
         if (spaceUserVO == null) {
             return null;
         }
-        SpaceUser spaceUser = new SpaceUser();
-        BeanUtils.copyProperties(spaceUserVO, spaceUser);
-        return spaceUser;
+        return SpaceUserConvert.INSTANCE.toEntity(spaceUserVO);
     }
 
     /**
@@ -80,8 +78,6 @@ public class SpaceUserVO implements Serializable {
         if (spaceUser == null) {
             return null;
         }
-        SpaceUserVO spaceUserVO = new SpaceUserVO();
-        BeanUtils.copyProperties(spaceUser, spaceUserVO);
-        return spaceUserVO;
+        return SpaceUserConvert.INSTANCE.toVo(spaceUser);
     }
 }
\ No newline at end of file
@@ -1,8 +1,8 @@
 package com.polar.cloudimage.model.vo;
 
+import com.polar.cloudimage.model.convert.SpaceConvert;
 import com.polar.cloudimage.model.entity.Space;
 import lombok.Data;
-import org.springframework.beans.BeanUtils;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -93,9 +93,7 @@ public class SpaceVO implements Serializable {
         if (spaceVO == null) {
             return null;
         }
-        Space space = new Space();
-        BeanUtils.copyProperties(spaceVO, space);
-        return space;
+        return SpaceConvert.INSTANCE.toEntity(spaceVO);
     }
 
     /**
@@ -108,8 +106,6 @@ public class SpaceVO implements Serializable {
         if (space == null) {
             return null;
         }
-        SpaceVO spaceVO = new SpaceVO();
-        BeanUtils.copyProperties(space, spaceVO);
-        return spaceVO;
+        return SpaceConvert.INSTANCE.toVo(space);
     }
 }
\ No newline at end of file
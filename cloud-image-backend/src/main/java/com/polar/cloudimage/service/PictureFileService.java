@@ -0,0 +1,65 @@
+package com.polar.cloudimage.service;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.model.entity.PictureFile;
+
+/**
+ * @author polar
+ * @description 针对表【picture_file(图片文件)】的数据库操作Service
+ */
+public interface PictureFileService extends IService<PictureFile> {
+
+    /**
+     * 根据内容摘要获取同一存储范围内的图片文件
+     * 对象的访问权限由对象键前缀决定，不同范围（公共图库、各个空间）之间不共用文件
+     *
+     * @param contentHash  内容 SHA-256
+     * @param storageScope 存储范围，见 {@link #getStorageScope}
+     * @return 图片文件，不存在返回 null
+     */
+    PictureFile getByContentHash(String contentHash, String storageScope);
+
+    /**
+     * 秒传：根据内容摘要查找同一存储范围内已上传的文件，找到则封装为已处理、复用的上传结果
+     *
+     * @param contentHash    内容 SHA-256
+     * @param uploadPath     本次上传的对象键（决定存储范围）
+     * @param originFilename 原始文件名（作为图片名称）
+     * @return 上传结果，不存在返回 null
+     */
+    UploadPictureResult getUploadedResult(String contentHash, String uploadPath, String originFilename);
+
+    /**
+     * 根据对象键获取存储范围：space/{空间id}/ 开头的为 space/{空间id}，其余为 public
+     *
+     * @param key 对象键
+     * @return 存储范围
+     */
+    static String getStorageScope(String key) {
+        String normalizedKey = StrUtil.removePrefix(key, "/");
+        if (normalizedKey.startsWith("space/")) {
+            return "space/" + StrUtil.subBetween(normalizedKey, "space/", "/");
+        }
+        return "public";
+    }
+
+    /**
+     * 引用图片文件：新文件登记入库，已存在则引用计数加一
+     * 并发上传了相同内容时，以先入库的文件为准，并清理本次多余上传的文件
+     * 复用已上传的文件时，如果该文件已被释放（对象已删除）则抛出 OPERATION_ERROR
+     *
+     * @param uploadPictureResult 上传结果
+     * @return 实际引用的图片文件对应的上传结果
+     */
+    UploadPictureResult acquire(UploadPictureResult uploadPictureResult);
+
+    /**
+     * 释放图片文件引用（行锁保护，与复用文件时的 acquire 互斥）
+     *
+     * @param url 图片 url
+     * @return 是否已无引用（可以删除对象存储中的文件）
+     */
+    boolean release(String url);
+}
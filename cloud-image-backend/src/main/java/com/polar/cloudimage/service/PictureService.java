@@ -1,18 +1,23 @@
 package com.polar.cloudimage.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.polar.cloudimage.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.polar.cloudimage.common.ApproximatePage;
 import com.polar.cloudimage.model.dto.picture.*;
 import com.polar.cloudimage.model.entity.Picture;
 import com.polar.cloudimage.model.entity.User;
+import com.polar.cloudimage.model.enums.PictureVariantEnum;
+import com.polar.cloudimage.model.vo.PictureMultipartUploadVO;
+import com.polar.cloudimage.model.vo.PictureCrawlJobVO;
+import com.polar.cloudimage.model.vo.PictureCursorPageVO;
 import com.polar.cloudimage.model.vo.PictureVO;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author polar
@@ -31,6 +36,43 @@ public interface PictureService extends IService<Picture> {
      */
     PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser);
 
+    /**
+     * 初始化分块上传（传入 uploadId 时为断点续传，返回已上传的分块）
+     *
+     * @param initRequest 分块上传初始化请求
+     * @param loginUser   登录用户
+     * @return 分块上传会话
+     */
+    PictureMultipartUploadVO initMultipartUpload(PictureMultipartUploadInitRequest initRequest, User loginUser);
+
+    /**
+     * 上传分块
+     *
+     * @param uploadId   分块上传 id
+     * @param partNumber 分块编号
+     * @param request    请求（请求体为分块内容）
+     * @param loginUser  登录用户
+     * @return 上传结果
+     */
+    CompletableFuture<Boolean> uploadMultipartPart(String uploadId, Integer partNumber, HttpServletRequest request, User loginUser);
+
+    /**
+     * 完成分块上传并保存图片
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser 登录用户
+     * @return 图片视图
+     */
+    PictureVO completeMultipartUpload(String uploadId, User loginUser);
+
+    /**
+     * 取消分块上传
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser 登录用户
+     */
+    void abortMultipartUpload(String uploadId, User loginUser);
+
 
     /**
      * 获取图片查询包装类
@@ -40,6 +82,30 @@ public interface PictureService extends IService<Picture> {
      */
     QueryWrapper<Picture> getQueryWrapper(PictureQueryRequest pictureQueryRequest);
 
+    /**
+     * 分页查询图片（有搜索词时先查全文索引，未指定排序字段时按相关度排序；总数可能为缓存的近似值）
+     *
+     * @param pictureQueryRequest 图片查询请求体
+     * @return 图片分页
+     */
+    ApproximatePage<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 从公共图库 feed 分页获取图片视图（首页默认查询）
+     *
+     * @param pictureQueryRequest 图片查询请求体
+     * @return 图片视图分页，不是 feed 能回答的查询时返回 null
+     */
+    ApproximatePage<PictureVO> listPublicFeedPage(PictureQueryRequest pictureQueryRequest);
+
+    /**
+     * 图片新增、修改、审核、删除后调用：使列表缓存失效，通知全文索引，更新公共图库 feed
+     *
+     * @param spaceId    空间 id，null 表示公共图库
+     * @param pictureIds 变更的图片 id
+     */
+    void notifyPictureChanged(Long spaceId, Collection<Long> pictureIds);
+
     /**
      * 获取图片视图
      *
@@ -49,6 +115,15 @@ public interface PictureService extends IService<Picture> {
      */
     PictureVO getPictureVO(Picture picture, HttpServletRequest request);
 
+    /**
+     * 批量获取图片视图
+     *
+     * @param pictureIds 图片 id 列表
+     * @param loginUser  登录用户
+     * @return 图片视图列表，按请求顺序排列，不存在或无权查看的图片不返回
+     */
+    List<PictureVO> listPictureVOByIds(List<Long> pictureIds, User loginUser);
+
     /**
      * 获取图片视图分页
      *
@@ -56,7 +131,25 @@ public interface PictureService extends IService<Picture> {
      * @param request     请求
      * @return 图片视图分页
      */
-    Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request);
+    ApproximatePage<PictureVO> getPictureVOPage(ApproximatePage<Picture> picturePage, HttpServletRequest request);
+
+    /**
+     * 游标分页获取图片视图（不查询总数）
+     *
+     * @param pictureQueryRequest 图片查询请求（cursor 为空表示第一页）
+     * @param request             请求
+     * @return 图片视图游标分页
+     */
+    PictureCursorPageVO listPictureVOByCursor(PictureQueryRequest pictureQueryRequest, HttpServletRequest request);
+
+    /**
+     * 获取图片变体地址（首次请求时生成变体图）
+     *
+     * @param picture     图片
+     * @param variantEnum 变体尺寸
+     * @return 变体图地址
+     */
+    String getPictureVariantUrl(Picture picture, PictureVariantEnum variantEnum);
 
     /**
      * 校验图片信息
@@ -82,20 +175,35 @@ public interface PictureService extends IService<Picture> {
     void fillReviewParams(Picture picture, User loginUser);
 
     /**
-     * 批量上传图片
+     * 批量上传图片（提交后台抓取任务）
      *
      * @param pictureUploadByBatchRequest 批量上传请求
      * @param loginUser                   登录用户
-     * @return 上传成功数量
+     * @return 任务 id
+     */
+    String uploadPictureByBach(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser);
+
+    /**
+     * 查询批量抓取任务进度
+     *
+     * @param jobId 任务 id
+     * @return 任务进度
+     */
+    PictureCrawlJobVO getPictureCrawlJob(String jobId);
+
+    /**
+     * 取消批量抓取任务
+     *
+     * @param jobId 任务 id
+     * @return 是否取消成功
      */
-    Integer uploadPictureByBach(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser);
+    boolean cancelPictureCrawlJob(String jobId);
 
     /**
-     * 异步删除图片文件
+     * 删除图片文件（释放文件引用，文件在存储 I/O 线程池中异步删除）
      *
      * @param oldPicture 旧图片信息
      */
-    @Async
     void clearPictureFile(Picture oldPicture);
 
     /**
@@ -114,6 +222,14 @@ public interface PictureService extends IService<Picture> {
      */
     void deletePicture(long pictureId, User loginUser);
 
+    /**
+     * 更新图片信息（管理员）
+     *
+     * @param pictureUpdateRequest 图片更新请求体
+     * @param loginUser            登录用户
+     */
+    void updatePicture(PictureUpdateRequest pictureUpdateRequest, User loginUser);
+
     /**
      * 编辑图片信息
      *
@@ -0,0 +1,42 @@
+package com.polar.cloudimage.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.entity.PictureTag;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * @author polar
+ * @description 针对表【picture_tag(图片标签)】的数据库操作Service
+ */
+public interface PictureTagService extends IService<PictureTag> {
+
+    /**
+     * 替换图片的标签（图片修改标签时调用，需在同一事务中）
+     *
+     * @param pictureIds 图片 id
+     * @param spaceId    空间 id
+     * @param tags       新的标签
+     */
+    void replaceTags(Collection<Long> pictureIds, Long spaceId, List<String> tags);
+
+    /**
+     * 删除图片的标签
+     *
+     * @param pictureId 图片 id
+     */
+    void removeByPictureId(Long pictureId);
+
+    /**
+     * 在图片查询条件中追加标签筛选：同时包含所有标签（子查询，不查出图片 id）
+     *
+     * @param queryWrapper 图片查询条件
+     * @param spaceId      空间 id，不为空时只查该空间
+     * @param nullSpaceId  是否只查公共图库
+     * @param tags         标签
+     */
+    void applyTagFilter(QueryWrapper<Picture> queryWrapper, Long spaceId, boolean nullSpaceId, List<String> tags);
+}
@@ -101,6 +101,20 @@ public interface UserService extends IService<User> {
      * @return 是否为管理员
      */
     boolean isAdmin(User user);
-}
 
+    /**
+     * 用户修改、删除后调用：递增用户版本号（会话中缓存的登录用户失效），删除用户视图缓存
+     * 在事务中调用时，事务提交后才生效
+     *
+     * @param userId 用户 id
+     */
+    void notifyUserChanged(Long userId);
 
+    /**
+     * 获取用户版本号（用户修改、删除后递增），用于判断缓存的用户信息是否过期
+     *
+     * @param userId 用户 id
+     * @return 版本号，Redis 不可用时返回 null
+     */
+    String getUserVersion(Long userId);
+}
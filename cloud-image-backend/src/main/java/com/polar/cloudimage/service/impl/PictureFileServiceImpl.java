@@ -0,0 +1,108 @@
+package com.polar.cloudimage.service.impl;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.exception.ThrowUtils;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.mapper.PictureFileMapper;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.model.entity.PictureFile;
+import com.polar.cloudimage.service.PictureFileService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.Resource;
+
+/**
+ * @author polar
+ * @description 针对表【picture_file(图片文件)】的数据库操作Service实现
+ */
+@Service
+@Slf4j
+public class PictureFileServiceImpl extends ServiceImpl<PictureFileMapper, PictureFile>
+        implements PictureFileService {
+
+    @Resource
+    private StorageBackend storageBackend;
+
+    @Override
+    public PictureFile getByContentHash(String contentHash, String storageScope) {
+        if (StrUtil.isBlank(contentHash)) {
+            return null;
+        }
+        return this.lambdaQuery()
+                .eq(PictureFile::getStorageScope, storageScope)
+                .eq(PictureFile::getContentHash, contentHash)
+                .one();
+    }
+
+    @Override
+    public UploadPictureResult getUploadedResult(String contentHash, String uploadPath, String originFilename) {
+        PictureFile pictureFile = getByContentHash(contentHash, PictureFileService.getStorageScope(uploadPath));
+        if (pictureFile == null) {
+            return null;
+        }
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        BeanUtils.copyProperties(pictureFile, uploadPictureResult);
+        uploadPictureResult.setPicName(FileUtil.mainName(originFilename));
+        uploadPictureResult.setProcessed(true);
+        uploadPictureResult.setReused(true);
+        return uploadPictureResult;
+    }
+
+    @Override
+    public UploadPictureResult acquire(UploadPictureResult uploadPictureResult) {
+        if (uploadPictureResult.isReused()) {
+            // 复用已上传的文件：只能给仍存在的记录加引用（与 release 的行锁互斥），不能重新插入
+            // 否则查到文件之后、登记之前文件被释放，会插入一条指向已删除对象的记录
+            int updated = this.baseMapper.incrRefCountByUrl(uploadPictureResult.getUrl());
+            ThrowUtils.throwIf(updated == 0, ErrorCode.OPERATION_ERROR, "图片文件已被删除，请重新上传");
+            return uploadPictureResult;
+        }
+        PictureFile pictureFile = new PictureFile();
+        BeanUtils.copyProperties(uploadPictureResult, pictureFile);
+        String storageScope = PictureFileService.getStorageScope(storageBackend.getKeyByUrl(uploadPictureResult.getUrl()));
+        pictureFile.setStorageScope(storageScope);
+        this.baseMapper.insertOrIncrRefCount(pictureFile);
+        String contentHash = uploadPictureResult.getContentHash();
+        if (StrUtil.isBlank(contentHash)) {
+            return uploadPictureResult;
+        }
+        PictureFile existPictureFile = getByContentHash(contentHash, storageScope);
+        if (existPictureFile == null || existPictureFile.getUrl().equals(uploadPictureResult.getUrl())) {
+            return uploadPictureResult;
+        }
+        // 相同内容已被其他请求先入库，复用已有文件，删除本次上传的文件
+        log.info("图片内容重复，复用已有文件, contentHash = {}", contentHash);
+        storageBackend.deleteObjectsByUrl(uploadPictureResult.getUrl(), uploadPictureResult.getThumbnailUrl());
+        UploadPictureResult result = new UploadPictureResult();
+        BeanUtils.copyProperties(existPictureFile, result);
+        result.setPicName(uploadPictureResult.getPicName());
+        return result;
+    }
+
+    /**
+     * 加行锁后在同一事务中减引用、删除记录，与 acquire 的加引用互斥
+     * 返回 true 时记录已删除并提交，之后不会再有新的引用，调用方可以删除对象存储中的文件
+     */
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean release(String url) {
+        PictureFile pictureFile = this.baseMapper.selectByUrlForUpdate(url);
+        // 没有登记过的文件（历史数据未回填），视为未被共享
+        if (pictureFile == null) {
+            return true;
+        }
+        if (pictureFile.getRefCount() > 1) {
+            this.baseMapper.decrRefCount(pictureFile.getId());
+            return false;
+        }
+        // 最后一个引用，删除记录
+        this.baseMapper.deleteById(pictureFile.getId());
+        return true;
+    }
+}
@@ -1,45 +1,77 @@
 package com.polar.cloudimage.service.impl;
 
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.polar.cloudimage.api.aliyunai.AliYunAiApi;
 import com.polar.cloudimage.api.aliyunai.model.CreateOutPaintingTaskRequest;
 import com.polar.cloudimage.api.aliyunai.model.CreateOutPaintingTaskResponse;
+import com.polar.cloudimage.common.ApproximatePage;
+import com.polar.cloudimage.config.PictureCrawlConfig;
+import com.polar.cloudimage.constant.PictureConstant;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
-import com.polar.cloudimage.manager.CosManager;
+import com.polar.cloudimage.manager.auth.SpaceUserAuthManager;
+import com.polar.cloudimage.manager.auth.module.SpaceUserPermissionConstant;
+import com.polar.cloudimage.manager.cache.PictureCountManager;
+import com.polar.cloudimage.manager.cache.PictureListCacheManager;
+import com.polar.cloudimage.manager.cache.PublicPictureFeedManager;
+import com.polar.cloudimage.manager.cache.UserVOCacheManager;
+import com.polar.cloudimage.manager.crawl.PictureCrawlJob;
+import com.polar.cloudimage.manager.crawl.PictureCrawlManager;
+import com.polar.cloudimage.manager.query.PictureFilter;
+import com.polar.cloudimage.manager.query.PictureQueryTemplateManager;
+import com.polar.cloudimage.manager.query.PictureQueryTemplateManager.PictureQueryTemplate;
+import com.polar.cloudimage.manager.search.PictureSearchIndex;
+import com.polar.cloudimage.manager.storage.StorageBackend;
 import com.polar.cloudimage.manager.upload.FilePictureUpload;
+import com.polar.cloudimage.manager.upload.MultipartPictureUpload;
+import com.polar.cloudimage.manager.upload.MultipartUploadSession;
+import com.polar.cloudimage.manager.upload.PictureProcessWorker;
 import com.polar.cloudimage.manager.upload.PictureUploadTemplate;
+import com.polar.cloudimage.manager.upload.StreamPictureUpload;
 import com.polar.cloudimage.manager.upload.UrlPictureUpload;
+import com.polar.cloudimage.manager.variant.PictureVariantManager;
+import com.polar.cloudimage.manager.websocket.PictureEditHandler;
 import com.polar.cloudimage.mapper.PictureMapper;
+import com.polar.cloudimage.model.convert.PictureConvert;
 import com.polar.cloudimage.model.dto.file.UploadPictureResult;
 import com.polar.cloudimage.model.dto.picture.*;
 import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.entity.PictureFile;
 import com.polar.cloudimage.model.entity.Space;
 import com.polar.cloudimage.model.entity.User;
+import com.polar.cloudimage.model.enums.PictureProcessStatusEnum;
+import com.polar.cloudimage.model.enums.PictureProjectionEnum;
 import com.polar.cloudimage.model.enums.PictureReviewStatusEnum;
+import com.polar.cloudimage.model.enums.PictureVariantEnum;
+import com.polar.cloudimage.model.enums.SpaceLevelEnum;
+import com.polar.cloudimage.model.vo.PictureCrawlJobVO;
+import com.polar.cloudimage.model.vo.PictureCursorPageVO;
+import com.polar.cloudimage.model.vo.PictureMultipartUploadVO;
 import com.polar.cloudimage.model.vo.PictureVO;
 import com.polar.cloudimage.model.vo.UserVO;
+import com.polar.cloudimage.service.PictureFileService;
 import com.polar.cloudimage.service.PictureService;
+import com.polar.cloudimage.service.PictureTagService;
 import com.polar.cloudimage.service.SpaceService;
 import com.polar.cloudimage.service.UserService;
 import com.polar.cloudimage.util.ColorSimilarUtils;
 import com.polar.cloudimage.util.ColorTransformUtils;
+import com.polar.cloudimage.util.TransactionUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
@@ -50,6 +82,7 @@ import java.awt.*;
 import java.io.IOException;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -62,24 +95,80 @@ import java.util.stream.Collectors;
 public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         implements PictureService {
 
-    @Resource
-    private FilePictureUpload filePictureUpload;
+    /**
+     * 全文搜索结果在数据库中过滤时每批的 id 数
+     */
+    private static final int SEARCH_FILTER_BATCH_SIZE = 1000;
 
-    @Resource
-    private UrlPictureUpload uploadPicture;
+    /**
+     * 全文搜索按字段排序（含游标分页）时最多取相关度最高的匹配数，控制 IN 列表长度
+     */
+    private static final int SEARCH_SORT_CANDIDATE_LIMIT = 1000;
 
+    /**
+     * 游标分页支持的排序字段（非空且有索引）
+     */
+    private static final List<String> CURSOR_SORT_FIELDS = Arrays.asList("id", "createTime", "editTime", "updateTime");
+
+    @Resource
+    private FilePictureUpload filePictureUpload;
 
     @Resource
     private UserService userService;
     @Resource
     private UrlPictureUpload urlPictureUpload;
     @Resource
+    private StreamPictureUpload streamPictureUpload;
+    @Resource
+    private MultipartPictureUpload multipartPictureUpload;
+    @Resource
+    private PictureFileService pictureFileService;
+    @Resource
+    private PictureProcessWorker pictureProcessWorker;
+    @Resource
+    @Lazy
+    private PictureEditHandler pictureEditHandler;
+
+    /**
+     * 是否异步处理上传的图片（上传接口接收原图后立即返回）
+     */
+    @Value("${picture.upload.async-process:false}")
+    private boolean asyncProcess;
+    @Resource
     private StringRedisTemplate stringRedisTemplate;
     @Resource
-    private CosManager cosManager;
+    private StorageBackend storageBackend;
+    @Resource
+    private PictureCrawlManager pictureCrawlManager;
+    @Resource
+    private PictureVariantManager pictureVariantManager;
+    @Resource
+    private PictureListCacheManager pictureListCacheManager;
+    @Resource
+    private PictureSearchIndex pictureSearchIndex;
+    @Resource
+    private PictureTagService pictureTagService;
+    @Resource
+    private PictureCountManager pictureCountManager;
+    @Resource
+    private PublicPictureFeedManager publicPictureFeedManager;
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
+    @Resource
+    private PictureQueryTemplateManager pictureQueryTemplateManager;
+
+    /**
+     * 接口前缀，用于拼接变体图接口地址
+     */
+    @Value("${server.servlet.context-path:}")
+    private String contextPath;
+    @Resource
+    private PictureCrawlConfig pictureCrawlConfig;
     @Resource
     private SpaceService spaceService;
     @Resource
+    private SpaceUserAuthManager spaceUserAuthManager;
+    @Resource
     private TransactionTemplate transactionTemplate;
     @Resource
     private AliYunAiApi aliYunAiApi;
@@ -88,7 +177,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
      * 上传图片
      * 用户和管理员都可以使用，所以只有本人或者管理员才能修改
      *
-     * @param inputSource          文件源 可以是MultipartFile或者URL
+     * @param inputSource          文件源 可以是MultipartFile、URL或者HttpServletRequest（请求体流式上传）
      * @param pictureUploadRequest 图片上传请求
      * @param loginUser            登录用户
      * @return 图片视图
@@ -97,6 +186,177 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     public PictureVO uploadPicture(Object inputSource, PictureUploadRequest pictureUploadRequest, User loginUser) {
         //校验参数
         ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
+        //校验空间和图片权限
+        Long spaceId = checkUploadRequest(pictureUploadRequest, loginUser);
+        //上传图片
+        //如果指定了空间，就上传到指定空间，否则上传到个人空间
+        String uploadPathPrefix = getUploadPathPrefix(spaceId, loginUser);
+
+
+        //判断文件类型
+        PictureUploadTemplate pictureUploadTemplate = filePictureUpload;
+        if (inputSource instanceof String) {
+            pictureUploadTemplate = urlPictureUpload;
+        } else if (inputSource instanceof HttpServletRequest) {
+            pictureUploadTemplate = streamPictureUpload;
+        }
+        //开启异步处理时，只接收原图，压缩、缩略图等处理在后台完成（秒传命中时已处理完成）
+        UploadPictureResult uploadPictureResult = asyncProcess
+                ? pictureUploadTemplate.acceptPicture(inputSource, uploadPathPrefix)
+                : pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+
+        Picture picture = savePicture(uploadPictureResult, pictureUploadRequest, spaceId, loginUser);
+        if (!uploadPictureResult.isProcessed()) {
+            submitPictureProcess(picture, uploadPictureResult);
+        }
+
+        //返回结果
+        return PictureVO.objToVo(picture);
+
+    }
+
+    /**
+     * 初始化分块上传
+     * 分块上传用于大图，单张大小上限由空间级别决定（旗舰版最高），公共图库仍沿用默认上限
+     *
+     * @param initRequest 分块上传初始化请求
+     * @param loginUser   登录用户
+     * @return 分块上传会话
+     */
+    @Override
+    public PictureMultipartUploadVO initMultipartUpload(PictureMultipartUploadInitRequest initRequest, User loginUser) {
+        ThrowUtils.throwIf(initRequest == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
+        //断点续传，返回已上传的分块
+        if (StrUtil.isNotBlank(initRequest.getUploadId())) {
+            MultipartUploadSession session = getMultipartUploadSession(initRequest.getUploadId(), loginUser);
+            return toMultipartUploadVO(session);
+        }
+        //校验文件
+        String fileName = initRequest.getFileName();
+        Long fileSize = initRequest.getFileSize();
+        ThrowUtils.throwIf(fileSize == null || fileSize <= 0, ErrorCode.PARAMS_ERROR, "文件不能为空");
+        ThrowUtils.throwIf(!PictureConstant.ALLOW_SUFFIX.contains(FileUtil.getSuffix(fileName)), ErrorCode.PARAMS_ERROR, "文件格式不正确");
+        //校验空间和图片权限
+        PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+        BeanUtils.copyProperties(initRequest, pictureUploadRequest);
+        Long spaceId = checkUploadRequest(pictureUploadRequest, loginUser);
+        //单张大小上限
+        long maxPictureSize = PictureConstant.MAX_PICTURE_SIZE;
+        if (spaceId != null) {
+            Space space = spaceService.getById(spaceId);
+            SpaceLevelEnum spaceLevelEnum = SpaceLevelEnum.getEnumByValue(space.getSpaceLevel());
+            if (spaceLevelEnum != null) {
+                maxPictureSize = spaceLevelEnum.getMaxPictureSize();
+            }
+            ThrowUtils.throwIf(space.getTotalSize() + fileSize > space.getMaxSize(), ErrorCode.OPERATION_ERROR, "空间存储空间不足");
+        }
+        ThrowUtils.throwIf(fileSize > maxPictureSize, ErrorCode.PARAMS_ERROR,
+                String.format("文件大小不能超过%sM", maxPictureSize / 1024 / 1024));
+
+        MultipartUploadSession session = new MultipartUploadSession();
+        session.setFileName(fileName);
+        session.setFileSize(fileSize);
+        session.setUserId(loginUser.getId());
+        session.setSpaceId(spaceId);
+        session.setPictureId(initRequest.getId());
+        session.setPicName(initRequest.getPicName());
+        session = multipartPictureUpload.init(session, getUploadPathPrefix(spaceId, loginUser));
+        return toMultipartUploadVO(session);
+    }
+
+    /**
+     * 上传分块
+     *
+     * @param uploadId   分块上传 id
+     * @param partNumber 分块编号
+     * @param request    请求（请求体为分块内容）
+     * @param loginUser  登录用户
+     * @return 上传结果
+     */
+    @Override
+    public CompletableFuture<Boolean> uploadMultipartPart(String uploadId, Integer partNumber, HttpServletRequest request, User loginUser) {
+        ThrowUtils.throwIf(partNumber == null, ErrorCode.PARAMS_ERROR, "分块编号不能为空");
+        MultipartUploadSession session = getMultipartUploadSession(uploadId, loginUser);
+        try {
+            return multipartPictureUpload.uploadPart(session, partNumber, request.getInputStream(), request.getContentLengthLong());
+        } catch (IOException e) {
+            log.error("读取分块内容失败", e);
+            throw new BusinessException(ErrorCode.PARAMS_ERROR, "读取分块内容失败");
+        }
+    }
+
+    /**
+     * 完成分块上传并保存图片
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser 登录用户
+     * @return 图片视图
+     */
+    @Override
+    public PictureVO completeMultipartUpload(String uploadId, User loginUser) {
+        MultipartUploadSession session = getMultipartUploadSession(uploadId, loginUser);
+        //重新校验一次空间和图片权限（上传期间额度可能变化）
+        PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+        pictureUploadRequest.setId(session.getPictureId());
+        pictureUploadRequest.setSpaceId(session.getSpaceId());
+        pictureUploadRequest.setPicName(session.getPicName());
+        Long spaceId = checkUploadRequest(pictureUploadRequest, loginUser);
+
+        UploadPictureResult uploadPictureResult = multipartPictureUpload.complete(session);
+        Picture picture = savePicture(uploadPictureResult, pictureUploadRequest, spaceId, loginUser);
+        return PictureVO.objToVo(picture);
+    }
+
+    /**
+     * 取消分块上传
+     *
+     * @param uploadId  分块上传 id
+     * @param loginUser 登录用户
+     */
+    @Override
+    public void abortMultipartUpload(String uploadId, User loginUser) {
+        MultipartUploadSession session = getMultipartUploadSession(uploadId, loginUser);
+        multipartPictureUpload.abort(session);
+    }
+
+    /**
+     * 获取分块上传会话，仅发起人且仍有空间上传权限时可以操作
+     */
+    private MultipartUploadSession getMultipartUploadSession(String uploadId, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(uploadId), ErrorCode.PARAMS_ERROR, "uploadId 不能为空");
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR);
+        MultipartUploadSession session = multipartPictureUpload.getSession(uploadId);
+        ThrowUtils.throwIf(session == null, ErrorCode.NOT_FOUND_ERROR, "上传会话不存在或已过期");
+        ThrowUtils.throwIf(!loginUser.getId().equals(session.getUserId()), ErrorCode.NO_AUTH_ERROR);
+        //上传期间可能被移出空间或降级，每一步都重新校验空间上传权限
+        if (session.getSpaceId() != null) {
+            Space space = spaceService.getById(session.getSpaceId());
+            ThrowUtils.throwIf(space == null, ErrorCode.NOT_FOUND_ERROR, "空间不存在");
+            long permissionMask = spaceUserAuthManager.getPermissionMask(space, loginUser);
+            ThrowUtils.throwIf(!SpaceUserAuthManager.hasPermission(permissionMask, SpaceUserPermissionConstant.PICTURE_UPLOAD),
+                    ErrorCode.NO_AUTH_ERROR, "无权限向该空间上传图片");
+        }
+        return session;
+    }
+
+    private PictureMultipartUploadVO toMultipartUploadVO(MultipartUploadSession session) {
+        PictureMultipartUploadVO multipartUploadVO = new PictureMultipartUploadVO();
+        multipartUploadVO.setUploadId(session.getUploadId());
+        multipartUploadVO.setPartSize(session.getPartSize());
+        multipartUploadVO.setPartCount(session.getPartCount());
+        multipartUploadVO.setUploadedPartList(multipartPictureUpload.listUploadedParts(session.getUploadId()));
+        return multipartUploadVO;
+    }
+
+    /**
+     * 校验上传请求：空间是否存在、额度是否充足；如果是更新图片，校验图片是否存在以及权限
+     *
+     * @param pictureUploadRequest 图片上传请求
+     * @param loginUser            登录用户
+     * @return 图片最终所属的空间 id（可能为 null，表示公共图库）
+     */
+    private Long checkUploadRequest(PictureUploadRequest pictureUploadRequest, User loginUser) {
         //校验空间是否存在
         Long spaceId = pictureUploadRequest.getSpaceId();
         if (spaceId != null && spaceId > 0) {
@@ -114,7 +374,6 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
             }
         }
 
-
         //如果是更新图片，校验图片是否存在以及权限
         if (pictureUploadRequest.getId() != null && pictureUploadRequest.getId() > 0) {
             Picture oldPicture = this.getById(pictureUploadRequest.getId());
@@ -136,23 +395,143 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
                 }
             }
         }
-        //上传图片
-        //如果指定了空间，就上传到指定空间，否则上传到个人空间
-        String uploadPathPrefix;
+        return spaceId;
+    }
+
+    /**
+     * 获取上传路径前缀
+     */
+    private String getUploadPathPrefix(Long spaceId, User loginUser) {
         if (spaceId == null) {
-            uploadPathPrefix = String.format("public/%s", loginUser.getId());
-        } else {
-            uploadPathPrefix = String.format("space/%s", spaceId);
+            return String.format("public/%s", loginUser.getId());
         }
+        return String.format("space/%s", spaceId);
+    }
 
+    /**
+     * 根据上传结果保存图片信息，并更新空间额度
+     *
+     * @param uploadPictureResult  上传结果
+     * @param pictureUploadRequest 图片上传请求
+     * @param spaceId              空间 id
+     * @param loginUser            登录用户
+     * @return 图片
+     */
+    private Picture savePicture(UploadPictureResult uploadPictureResult, PictureUploadRequest pictureUploadRequest,
+                                Long spaceId, User loginUser) {
+        //如果是更新图片，保存成功后需要释放旧文件的引用
+        boolean isUpdate = pictureUploadRequest.getId() != null && pictureUploadRequest.getId() > 0;
+        Picture oldPicture = isUpdate ? this.getById(pictureUploadRequest.getId()) : null;
 
-        //判断文件类型
-        PictureUploadTemplate pictureUploadTemplate = filePictureUpload;
-        if (inputSource instanceof String) {
-            pictureUploadTemplate = urlPictureUpload;
+        // 开启事务
+        Picture picture = transactionTemplate.execute(status -> {
+            //登记图片文件引用，内容相同的图片共用同一份文件（未处理的图片在处理完成后再登记）
+            UploadPictureResult fileResult = uploadPictureResult.isProcessed()
+                    ? pictureFileService.acquire(uploadPictureResult)
+                    : uploadPictureResult;
+            Picture newPicture = buildPicture(fileResult, pictureUploadRequest, spaceId, loginUser);
+            newPicture.setProcessStatus(uploadPictureResult.isProcessed()
+                    ? PictureProcessStatusEnum.DONE.getValue()
+                    : PictureProcessStatusEnum.PROCESSING.getValue());
+            //保存图片信息到数据库
+            ThrowUtils.throwIf(!this.saveOrUpdate(newPicture), ErrorCode.SYSTEM_ERROR, "图片信息保存失败");
+            //如果上传到私有空间成功，修改私有空间的容量和大小
+            if (spaceId != null) {
+                boolean update = spaceService.lambdaUpdate()
+                        .eq(Space::getId, spaceId)
+                        .setSql("totalSize = totalSize + " + newPicture.getPicSize())
+                        .setSql("totalCount = totalCount + 1")
+                        .update();
+                ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
+            } else {
+                pictureCountManager.updatePublicCount(oldPicture == null ? null : oldPicture.getReviewStatus(),
+                        newPicture.getReviewStatus(), 1);
+            }
+            notifyPictureChanged(spaceId, Collections.singletonList(newPicture.getId()));
+            return newPicture;
+        });
+        if (oldPicture != null) {
+            this.clearPictureFile(oldPicture);
+        }
+        return picture;
+    }
+
+    /**
+     * 提交图片异步处理任务，处理结束后更新图片并通知前端
+     *
+     * @param picture      已保存的图片（处理中）
+     * @param acceptResult 接收阶段的上传结果
+     */
+    private void submitPictureProcess(Picture picture, UploadPictureResult acceptResult) {
+        Long pictureId = picture.getId();
+        pictureProcessWorker.submit(acceptResult,
+                processResult -> finishPictureProcess(picture, processResult),
+                e -> {
+                    this.lambdaUpdate()
+                            .eq(Picture::getId, pictureId)
+                            .eq(Picture::getUrl, picture.getUrl())
+                            .set(Picture::getProcessStatus, PictureProcessStatusEnum.FAILED.getValue())
+                            .update();
+                    notifyPictureChanged(picture.getSpaceId(), Collections.singletonList(pictureId));
+                    pictureEditHandler.notifyPictureProcessed(pictureId, "图片处理失败");
+                });
+    }
+
+    /**
+     * 图片处理完成：登记文件引用，补全图片信息，按处理后的体积修正空间额度
+     *
+     * @param picture       已保存的图片（处理中）
+     * @param processResult 处理后的上传结果
+     */
+    private void finishPictureProcess(Picture picture, UploadPictureResult processResult) {
+        Long pictureId = picture.getId();
+        Boolean updated = transactionTemplate.execute(status -> {
+            UploadPictureResult fileResult = pictureFileService.acquire(processResult);
+            Picture updatePicture = new Picture();
+            updatePicture.setUrl(fileResult.getUrl());
+            updatePicture.setThumbnailUrl(fileResult.getThumbnailUrl());
+            updatePicture.setPicSize(fileResult.getPicSize());
+            updatePicture.setPicWidth(fileResult.getPicWidth());
+            updatePicture.setPicHeight(fileResult.getPicHeight());
+            updatePicture.setPicScale(fileResult.getPicScale());
+            updatePicture.setPicFormat(fileResult.getPicFormat());
+            updatePicture.setPicColor(ColorTransformUtils.expandHexColor(fileResult.getPicColor()));
+            updatePicture.setProcessStatus(PictureProcessStatusEnum.DONE.getValue());
+            //处理期间图片已被删除或重新上传（原图地址变化），回滚引用登记
+            boolean update = this.update(updatePicture, new LambdaQueryWrapper<Picture>()
+                    .eq(Picture::getId, pictureId)
+                    .eq(Picture::getUrl, picture.getUrl())
+                    .eq(Picture::getProcessStatus, PictureProcessStatusEnum.PROCESSING.getValue()));
+            if (!update) {
+                status.setRollbackOnly();
+                return false;
+            }
+            Long spaceId = picture.getSpaceId();
+            long sizeDelta = fileResult.getPicSize() - picture.getPicSize();
+            if (spaceId != null && sizeDelta != 0) {
+                spaceService.lambdaUpdate()
+                        .eq(Space::getId, spaceId)
+                        .setSql("totalSize = totalSize + " + sizeDelta)
+                        .update();
+            }
+            notifyPictureChanged(spaceId, Collections.singletonList(pictureId));
+            return true;
+        });
+        if (!Boolean.TRUE.equals(updated)) {
+            //处理生成的文件没有被引用，直接清理
+            if (!pictureFileService.lambdaQuery().eq(PictureFile::getUrl, processResult.getUrl()).exists()) {
+                storageBackend.deleteObjectsByUrl(processResult.getUrl(), processResult.getThumbnailUrl());
+            }
+            return;
         }
-        UploadPictureResult uploadPictureResult = pictureUploadTemplate.uploadPicture(inputSource, uploadPathPrefix);
+        pictureEditHandler.notifyPictureProcessed(pictureId, "图片处理完成");
+    }
 
+    /**
+     * 根据上传结果构造图片
+     */
+    private Picture buildPicture(UploadPictureResult uploadPictureResult, PictureUploadRequest pictureUploadRequest,
+                                 Long spaceId, User loginUser) {
         //构造返回值信息
 
         String url = uploadPictureResult.getUrl();
@@ -193,30 +572,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         }
         //补充审核参数
         this.fillReviewParams(picture, loginUser);
-
-        // 开启事务
-        Long finalSpaceId = spaceId;
-        transactionTemplate.execute(status -> {
-            //保存图片信息到数据库
-            ThrowUtils.throwIf(!this.saveOrUpdate(picture), ErrorCode.SYSTEM_ERROR, "图片信息保存失败");
-            //如果上传到私有空间成功，修改私有空间的容量和大小
-            if (finalSpaceId != null) {
-                boolean update = spaceService.lambdaUpdate()
-                        .eq(Space::getId, finalSpaceId)
-                        .setSql("totalSize = totalSize + " + picture.getPicSize())
-                        .setSql("totalCount = totalCount + 1")
-                        .update();
-                ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
-            }
-            return picture;
-        });
-
-
-        //如果是上传到空间，更新空间的已用额度
-
-        //返回结果
-        return PictureVO.objToVo(picture);
-
+        return picture;
     }
 
 
@@ -230,76 +586,300 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
      */
     @Override
     public QueryWrapper<Picture> getQueryWrapper(PictureQueryRequest pictureQueryRequest) {
-        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        QueryWrapper<Picture> queryWrapper = getFilterQueryWrapper(pictureQueryRequest);
         if (pictureQueryRequest == null) {
             return queryWrapper;
         }
-        Long id = pictureQueryRequest.getId();
-        String name = pictureQueryRequest.getName();
-        String introduction = pictureQueryRequest.getIntroduction();
-        String category = pictureQueryRequest.getCategory();
-        List<String> tags = pictureQueryRequest.getTags();
-        Long picSize = pictureQueryRequest.getPicSize();
-        Integer picWidth = pictureQueryRequest.getPicWidth();
-        Integer picHeight = pictureQueryRequest.getPicHeight();
-        Double picScale = pictureQueryRequest.getPicScale();
-        String picFormat = pictureQueryRequest.getPicFormat();
-        String searchText = pictureQueryRequest.getSearchText();
-        Long userId = pictureQueryRequest.getUserId();
-        Integer reviewStatus = pictureQueryRequest.getReviewStatus();
-        String reviewMessage = pictureQueryRequest.getReviewMessage();
-        Long reviewerId = pictureQueryRequest.getReviewerId();
         String sortField = pictureQueryRequest.getSortField();
         String sortOrder = pictureQueryRequest.getSortOrder();
-        Long spaceId = pictureQueryRequest.getSpaceId();
-        boolean nullSpaceId = pictureQueryRequest.isNullSpaceId();
-        //添加时间筛选
-        Date startEditTime = pictureQueryRequest.getStartEditTime();
-        Date endEditTime = pictureQueryRequest.getEndEditTime();
-
-
-        if (StrUtil.isNotBlank(searchText)) {
-            // 需要拼接查询条件
-            queryWrapper.and(qw -> qw.like("name", searchText)
-                    .or()
-                    .like("introduction", searchText)
-            );
-        }
-
-        queryWrapper.eq(ObjUtil.isNotEmpty(id), "id", id);
-        queryWrapper.eq(ObjUtil.isNotEmpty(userId), "userId", userId);
-        queryWrapper.eq(ObjUtil.isNotEmpty(spaceId), "spaceId", spaceId);
-        //如果nullSpaceId为true，则查询spaceId为null的图片
-        queryWrapper.isNull(nullSpaceId, "spaceId");
-        queryWrapper.like(StrUtil.isNotBlank(name), "name", name);
-        queryWrapper.like(StrUtil.isNotBlank(introduction), "introduction", introduction);
-        queryWrapper.like(StrUtil.isNotBlank(picFormat), "picFormat", picFormat);
-        queryWrapper.like(StrUtil.isNotBlank(reviewMessage), "reviewMessage", reviewMessage);
-        queryWrapper.eq(StrUtil.isNotBlank(category), "category", category);
-        queryWrapper.eq(ObjUtil.isNotEmpty(picWidth), "picWidth", picWidth);
-        queryWrapper.eq(ObjUtil.isNotEmpty(picHeight), "picHeight", picHeight);
-        queryWrapper.eq(ObjUtil.isNotEmpty(picSize), "picSize", picSize);
-        queryWrapper.eq(ObjUtil.isNotEmpty(picScale), "picScale", picScale);
-        queryWrapper.eq(ObjUtil.isNotEmpty(reviewStatus), "reviewStatus", reviewStatus);
-        queryWrapper.eq(ObjUtil.isNotEmpty(reviewerId), "reviewerId", reviewerId);
-
-        //时间
-        queryWrapper.ge(ObjUtil.isNotEmpty(startEditTime), "editTime", startEditTime);
-        queryWrapper.le(ObjUtil.isNotEmpty(endEditTime), "editTime", endEditTime);
-
-        //JSON 数组查询
+        //排序
+        queryWrapper.orderBy(StrUtil.isNotEmpty(sortField),
+                sortOrder.equals("ascend"), sortField);
+        return queryWrapper;
+    }
+
+    /**
+     * 构造查询条件（不含排序）
+     */
+    private QueryWrapper<Picture> getFilterQueryWrapper(PictureQueryRequest pictureQueryRequest) {
+        return getFilterQueryWrapper(pictureQueryRequest, true);
+    }
+
+    /**
+     * 构造查询条件（不含排序）
+     *
+     * @param matchSearchText 是否按搜索词模糊匹配（已通过全文索引匹配时不需要）
+     */
+    private QueryWrapper<Picture> getFilterQueryWrapper(PictureQueryRequest pictureQueryRequest, boolean matchSearchText) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        if (pictureQueryRequest == null) {
+            return queryWrapper;
+        }
+        // 与查询模板共用同一份条件定义
+        PictureFilter.applyAll(queryWrapper, pictureQueryRequest, matchSearchText);
+        //标签查询：子查询在图片标签表中求交集（走覆盖索引），不把图片 id 取回应用
+        List<String> tags = pictureQueryRequest.getTags();
         if (CollUtil.isNotEmpty(tags)) {
-            for (String tag : tags) {
-                queryWrapper.like("tags", "\"" + tag + "\""); // 模糊查询，确保标签作为独立项存在
+            pictureTagService.applyTagFilter(queryWrapper, pictureQueryRequest.getSpaceId(),
+                    pictureQueryRequest.isNullSpaceId(), tags);
+        }
+        return queryWrapper;
+    }
 
+    /**
+     * 分页查询图片
+     * 有搜索词且全文索引可用时：索引按词项匹配（不再是 LIKE 子串匹配），并过滤空间、审核状态、分类，返回全部匹配的 id
+     * 1. 指定了排序字段：在相关度最高的前 {@link #SEARCH_SORT_CANDIDATE_LIMIT} 条匹配中按排序字段分页
+     * 2. 未指定排序字段：其他条件在数据库中按批过滤，按相关度分页后再查询当页图片
+     * 索引不可用（启动构建中）时回退到模糊查询
+     * 总数不执行 COUNT 查询，由 {@link PictureCountManager} 提供
+     * 只查询投影（projection）需要的列
+     *
+     * @param pictureQueryRequest 图片查询请求体
+     * @return 图片分页
+     */
+    @Override
+    public ApproximatePage<Picture> listPictureByPage(PictureQueryRequest pictureQueryRequest) {
+        long current = pictureQueryRequest.getCurrent();
+        long size = pictureQueryRequest.getPageSize();
+        String searchText = pictureQueryRequest.getSearchText();
+        PictureProjectionEnum projection = getProjection(pictureQueryRequest);
+        if (StrUtil.isBlank(searchText) || !pictureSearchIndex.isReady()) {
+            // 常见的查询形状使用预编译的查询模板
+            PictureQueryTemplate template = pictureQueryTemplateManager.getTemplate(pictureQueryRequest, projection);
+            if (template != null) {
+                return pageWithTemplate(pictureQueryRequest, template);
             }
+            return pageWithCachedCount(pictureQueryRequest, getQueryWrapper(pictureQueryRequest), projection);
+        }
+        String sortField = pictureQueryRequest.getSortField();
+        if (StrUtil.isNotEmpty(sortField)) {
+            QueryWrapper<Picture> queryWrapper = getSearchFilterQueryWrapper(pictureQueryRequest);
+            queryWrapper.orderBy(true, "ascend".equals(pictureQueryRequest.getSortOrder()), sortField);
+            return pageWithCachedCount(pictureQueryRequest, queryWrapper, projection);
+        }
+        // 按相关度排序
+        ApproximatePage<Picture> picturePage = new ApproximatePage<>(current, size);
+        List<Long> matchedIds = filterRankedIds(pictureQueryRequest, searchRankedIds(pictureQueryRequest), Integer.MAX_VALUE);
+        List<Long> pageIds = matchedIds.stream()
+                .skip((current - 1) * size)
+                .limit(size)
+                .collect(Collectors.toList());
+        picturePage.setTotal(matchedIds.size());
+        if (pageIds.isEmpty()) {
+            return picturePage;
+        }
+        QueryWrapper<Picture> pageQueryWrapper = new QueryWrapper<Picture>()
+                .select(projection.getColumns().toArray(new String[0]))
+                .in("id", pageIds);
+        Map<Long, Picture> pictureMap = this.list(pageQueryWrapper).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        picturePage.setRecords(pageIds.stream()
+                .map(pictureMap::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+        return picturePage;
+    }
+
+    /**
+     * 在全文索引中搜索，空间、审核状态、分类在索引中过滤
+     *
+     * @return 按相关度排列的全部匹配图片 id
+     */
+    private List<Long> searchRankedIds(PictureQueryRequest pictureQueryRequest) {
+        return pictureSearchIndex.search(pictureQueryRequest.getSearchText(), pictureQueryRequest.getSpaceId(),
+                pictureQueryRequest.isNullSpaceId(), pictureQueryRequest.getReviewStatus(), pictureQueryRequest.getCategory());
+    }
+
+    /**
+     * 构造查询条件（不含排序），搜索词的匹配方式与分页查询一致：索引可用时按索引匹配的 id 过滤，否则模糊查询
+     * 按索引过滤时只取相关度最高的前 {@link #SEARCH_SORT_CANDIDATE_LIMIT} 条匹配，避免把全部匹配 id 放进一个 IN 列表
+     */
+    private QueryWrapper<Picture> getSearchFilterQueryWrapper(PictureQueryRequest pictureQueryRequest) {
+        if (StrUtil.isBlank(pictureQueryRequest.getSearchText()) || !pictureSearchIndex.isReady()) {
+            return getFilterQueryWrapper(pictureQueryRequest);
+        }
+        List<Long> candidateIds = filterRankedIds(pictureQueryRequest, searchRankedIds(pictureQueryRequest),
+                SEARCH_SORT_CANDIDATE_LIMIT);
+        QueryWrapper<Picture> queryWrapper = getFilterQueryWrapper(pictureQueryRequest, false);
+        if (candidateIds.isEmpty()) {
+            queryWrapper.apply("1 = 0");
+        } else {
+            queryWrapper.in("id", candidateIds);
         }
-        //排序
-        queryWrapper.orderBy(StrUtil.isNotEmpty(sortField),
-                sortOrder.equals("ascend"), sortField);
         return queryWrapper;
     }
 
+    /**
+     * 在数据库中过滤索引不支持的条件，保持相关度顺序；只有索引已过滤的条件时直接截取
+     * 按批查询主键，避免一条语句绑定过多参数；已满足 limit 条时不再查询后续批次
+     *
+     * @param pictureQueryRequest 图片查询请求
+     * @param rankedIds           按相关度排列的图片 id
+     * @param limit               最多返回的 id 数
+     * @return 满足全部条件的图片 id（相关度顺序）
+     */
+    private List<Long> filterRankedIds(PictureQueryRequest pictureQueryRequest, List<Long> rankedIds, int limit) {
+        if (rankedIds.isEmpty()) {
+            return rankedIds;
+        }
+        PictureQueryRequest restRequest = new PictureQueryRequest();
+        BeanUtils.copyProperties(pictureQueryRequest, restRequest);
+        restRequest.setSpaceId(null);
+        restRequest.setNullSpaceId(false);
+        restRequest.setReviewStatus(null);
+        restRequest.setCategory(null);
+        if (getFilterQueryWrapper(restRequest, false).isEmptyOfWhere()) {
+            return rankedIds.size() <= limit ? rankedIds : new ArrayList<>(rankedIds.subList(0, limit));
+        }
+        List<Long> filteredIds = new ArrayList<>();
+        for (List<Long> batchIds : CollUtil.split(rankedIds, SEARCH_FILTER_BATCH_SIZE)) {
+            QueryWrapper<Picture> queryWrapper = getFilterQueryWrapper(pictureQueryRequest, false)
+                    .select("id")
+                    .in("id", batchIds);
+            Set<Long> matchedIds = new HashSet<>(this.listObjs(queryWrapper, id -> Long.valueOf(id.toString())));
+            for (Long id : batchIds) {
+                if (matchedIds.contains(id)) {
+                    filteredIds.add(id);
+                    if (filteredIds.size() >= limit) {
+                        return filteredIds;
+                    }
+                }
+            }
+        }
+        return filteredIds;
+    }
+
+    /**
+     * 使用查询模板分页查询，总数同样使用缓存的计数
+     */
+    private ApproximatePage<Picture> pageWithTemplate(PictureQueryRequest pictureQueryRequest, PictureQueryTemplate template) {
+        ApproximatePage<Picture> picturePage = new ApproximatePage<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize());
+        pictureCountManager.fillTotal(picturePage, pictureQueryRequest,
+                () -> pictureQueryTemplateManager.count(template, pictureQueryRequest));
+        if (picturePage.getTotal() == 0 || picturePage.offset() >= picturePage.getTotal()) {
+            return picturePage;
+        }
+        picturePage.setRecords(pictureQueryTemplateManager.list(template, pictureQueryRequest,
+                picturePage.offset(), picturePage.getSize()));
+        return picturePage;
+    }
+
+    /**
+     * 分页查询，总数使用缓存的计数（查询条件不变时翻页不再重复 COUNT）
+     */
+    private ApproximatePage<Picture> pageWithCachedCount(PictureQueryRequest pictureQueryRequest, QueryWrapper<Picture> queryWrapper,
+                                                         PictureProjectionEnum projection) {
+        ApproximatePage<Picture> picturePage = new ApproximatePage<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize());
+        pictureCountManager.fillTotal(picturePage, pictureQueryRequest, () -> this.count(queryWrapper));
+        // 总数为 0 或页码超出总数时不需要查询
+        if (picturePage.getTotal() == 0 || picturePage.offset() >= picturePage.getTotal()) {
+            return picturePage;
+        }
+        // 计数之后再指定查询的列（COUNT 会使用 select 的列）
+        queryWrapper.select(projection.getColumns().toArray(new String[0]));
+        return this.page(picturePage, queryWrapper);
+    }
+
+    /**
+     * 获取查询投影，为空时为详情
+     */
+    private PictureProjectionEnum getProjection(PictureQueryRequest pictureQueryRequest) {
+        String projection = pictureQueryRequest.getProjection();
+        if (StrUtil.isBlank(projection)) {
+            return PictureProjectionEnum.DETAIL;
+        }
+        PictureProjectionEnum projectionEnum = PictureProjectionEnum.getEnumByValue(projection);
+        ThrowUtils.throwIf(projectionEnum == null, ErrorCode.PARAMS_ERROR, "不支持的投影");
+        return projectionEnum;
+    }
+
+    /**
+     * 缓存的图片视图包含全部字段，列表网格投影时去掉网格不需要的字段
+     */
+    private void applyProjection(PictureVO pictureVO, PictureProjectionEnum projection) {
+        if (projection != PictureProjectionEnum.GRID) {
+            return;
+        }
+        pictureVO.setIntroduction(null);
+        pictureVO.setPicSize(null);
+        pictureVO.setPicScale(null);
+        pictureVO.setPicFormat(null);
+        pictureVO.setPicColor(null);
+        pictureVO.setEditTime(null);
+        pictureVO.setUpdateTime(null);
+    }
+
+    /**
+     * 从公共图库 feed 分页获取图片视图，不查询数据库（图片视图缓存未命中的除外）
+     *
+     * @param pictureQueryRequest 图片查询请求体
+     * @return 图片视图分页，不是 feed 能回答的查询或 feed 未构建完成时返回 null
+     */
+    @Override
+    public ApproximatePage<PictureVO> listPublicFeedPage(PictureQueryRequest pictureQueryRequest) {
+        if (!publicPictureFeedManager.isFeedQuery(pictureQueryRequest) || !publicPictureFeedManager.isReady()) {
+            return null;
+        }
+        PictureProjectionEnum projection = getProjection(pictureQueryRequest);
+        String category = pictureQueryRequest.getCategory();
+        ApproximatePage<PictureVO> pictureVOPage = new ApproximatePage<>(pictureQueryRequest.getCurrent(), pictureQueryRequest.getPageSize());
+        List<Long> pictureIds = publicPictureFeedManager.listIds(category, pictureVOPage.getCurrent(), pictureVOPage.getSize());
+        pictureVOPage.setTotal(publicPictureFeedManager.count(category));
+        List<PictureVO> cachedList = publicPictureFeedManager.listPictureVOs(pictureIds);
+        // 缓存未命中的查询数据库，写回缓存
+        List<Long> missIds = new ArrayList<>();
+        for (int i = 0; i < pictureIds.size(); i++) {
+            if (cachedList.get(i) == null) {
+                missIds.add(pictureIds.get(i));
+            }
+        }
+        Map<Long, PictureVO> loadedMap = new HashMap<>();
+        if (!missIds.isEmpty()) {
+            List<PictureVO> loadedList = this.listByIds(missIds).stream().map(PictureVO::objToVo).collect(Collectors.toList());
+            publicPictureFeedManager.cachePictureVOs(loadedList);
+            loadedList.forEach(pictureVO -> loadedMap.put(pictureVO.getId(), pictureVO));
+        }
+        List<PictureVO> pictureVOList = new ArrayList<>(pictureIds.size());
+        for (int i = 0; i < pictureIds.size(); i++) {
+            PictureVO pictureVO = cachedList.get(i) != null ? cachedList.get(i) : loadedMap.get(pictureIds.get(i));
+            // 已删除但还没移出 feed 的图片跳过
+            if (pictureVO != null) {
+                applyProjection(pictureVO, projection);
+                pictureVOList.add(pictureVO);
+            }
+        }
+        // 用户信息不在 feed 缓存中，读取时填充
+        fillPictureUser(pictureVOList);
+        fillPictureSrcset(pictureVOList);
+        pictureVOPage.setRecords(pictureVOList);
+        return pictureVOPage;
+    }
+
+    /**
+     * 图片新增、修改、审核、删除后调用：使列表缓存失效，通知全文索引，更新公共图库 feed
+     * 在事务中调用时，事务提交后才生效
+     *
+     * @param spaceId    空间 id，null 表示公共图库
+     * @param pictureIds 变更的图片 id
+     */
+    @Override
+    public void notifyPictureChanged(Long spaceId, Collection<Long> pictureIds) {
+        // 提交后按注册顺序执行：先同步更新本节点的搜索索引和 feed，再递增列表缓存版本，
+        // 避免新版本下缓存了用旧索引查到的结果
+        pictureSearchIndex.notifyChanged(pictureIds);
+        if (spaceId == null) {
+            TransactionUtils.afterCommit(() -> {
+                try {
+                    publicPictureFeedManager.refresh(pictureIds);
+                } catch (Exception e) {
+                    log.error("公共图库 feed 更新失败, pictureIds = {}", pictureIds, e);
+                }
+            });
+        }
+        pictureListCacheManager.bumpVersion(spaceId);
+    }
+
     /**
      * 获取单个图片视图
      *
@@ -312,15 +892,67 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 对象转封装类
         PictureVO pictureVO = PictureVO.objToVo(picture);
         // 关联查询用户信息
-        Long userId = picture.getUserId();
-        if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVo(user);
-            pictureVO.setUser(userVO);
-        }
+        pictureVO.setUser(userVOCacheManager.get(picture.getUserId()));
+        fillPictureSrcset(Collections.singletonList(pictureVO));
         return pictureVO;
     }
 
+    /**
+     * 批量获取图片视图
+     * 图片、空间、团队空间成员、用户各查询一次，每个空间的权限只计算一次
+     *
+     * @param pictureIds 图片 id 列表
+     * @param loginUser  登录用户
+     * @return 图片视图列表，按请求顺序排列，不存在或无权查看的图片不返回
+     */
+    @Override
+    public List<PictureVO> listPictureVOByIds(List<Long> pictureIds, User loginUser) {
+        List<Long> distinctIds = pictureIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (distinctIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Picture> pictureMap = this.listByIds(distinctIds).stream()
+                .collect(Collectors.toMap(Picture::getId, picture -> picture));
+        // 每个空间的权限
+        Set<Long> spaceIds = pictureMap.values().stream()
+                .map(Picture::getSpaceId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        List<Space> spaceList = spaceIds.isEmpty() ? Collections.emptyList() : spaceService.listByIds(spaceIds);
+        Map<Long, Long> spaceMaskMap = spaceUserAuthManager.getPermissionMaskMap(spaceList, loginUser);
+        long publicMask = spaceUserAuthManager.getPermissionMask(null, loginUser);
+        // 按请求顺序过滤出可以查看的图片
+        List<Picture> pictureList = new ArrayList<>();
+        List<List<String>> permissionLists = new ArrayList<>();
+        for (Long pictureId : distinctIds) {
+            Picture picture = pictureMap.get(pictureId);
+            if (picture == null) {
+                continue;
+            }
+            long mask = picture.getSpaceId() == null ? publicMask
+                    : spaceMaskMap.getOrDefault(picture.getSpaceId(), 0L);
+            // 私有、团队空间的图片需要有查看权限
+            if (picture.getSpaceId() != null
+                    && !SpaceUserAuthManager.hasPermission(mask, SpaceUserPermissionConstant.PICTURE_VIEW)) {
+                continue;
+            }
+            pictureList.add(picture);
+            permissionLists.add(spaceUserAuthManager.toPermissionList(mask));
+        }
+        if (pictureList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<PictureVO> pictureVOList = toPictureVOList(pictureList);
+        for (int i = 0; i < pictureVOList.size(); i++) {
+            pictureVOList.get(i).setPermissionList(permissionLists.get(i));
+        }
+        fillPictureSrcset(pictureVOList);
+        return pictureVOList;
+    }
+
 
     /**
      * 获取图片视图分页
@@ -330,29 +962,188 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
      * @return 图片视图分页
      */
     @Override
-    public Page<PictureVO> getPictureVOPage(Page<Picture> picturePage, HttpServletRequest request) {
+    public ApproximatePage<PictureVO> getPictureVOPage(ApproximatePage<Picture> picturePage, HttpServletRequest request) {
         List<Picture> pictureList = picturePage.getRecords();
-        Page<PictureVO> pictureVOPage = new Page<>(picturePage.getCurrent(), picturePage.getSize(), picturePage.getTotal());
+        ApproximatePage<PictureVO> pictureVOPage = new ApproximatePage<>(picturePage.getCurrent(), picturePage.getSize());
+        pictureVOPage.setTotal(picturePage.getTotal());
+        pictureVOPage.setApproximate(picturePage.isApproximate());
         if (CollUtil.isEmpty(pictureList)) {
             return pictureVOPage;
         }
+        pictureVOPage.setRecords(getPictureVOList(pictureList));
+        return pictureVOPage;
+    }
+
+    /**
+     * 游标分页获取图片视图
+     * 按 (排序字段, id) 定位上一页最后一条之后的数据（WHERE 条件走索引，不用 OFFSET），多查 1 条判断是否还有下一页，不查总数
+     *
+     * @param pictureQueryRequest 图片查询请求（cursor 为空表示第一页）
+     * @param request             请求
+     * @return 图片视图游标分页
+     */
+    @Override
+    public PictureCursorPageVO listPictureVOByCursor(PictureQueryRequest pictureQueryRequest, HttpServletRequest request) {
+        int size = pictureQueryRequest.getPageSize();
+        ThrowUtils.throwIf(size <= 0, ErrorCode.PARAMS_ERROR, "每页条数必须大于 0");
+        String sortField = StrUtil.blankToDefault(pictureQueryRequest.getSortField(), "id");
+        ThrowUtils.throwIf(!CURSOR_SORT_FIELDS.contains(sortField), ErrorCode.PARAMS_ERROR, "不支持的排序字段");
+        boolean isAsc = "ascend".equals(pictureQueryRequest.getSortOrder());
+        // 搜索词与分页查询的匹配方式一致
+        QueryWrapper<Picture> queryWrapper = getSearchFilterQueryWrapper(pictureQueryRequest);
+        Set<String> columns = new LinkedHashSet<>(getProjection(pictureQueryRequest).getColumns());
+        // 生成下一页游标需要排序字段
+        columns.add(sortField);
+        queryWrapper.select(columns.toArray(new String[0]));
+        // 定位到游标之后
+        String cursorStr = pictureQueryRequest.getCursor();
+        if (StrUtil.isNotBlank(cursorStr)) {
+            PictureCursor cursor = PictureCursor.decode(cursorStr);
+            ThrowUtils.throwIf(!sortField.equals(cursor.getSortField()), ErrorCode.PARAMS_ERROR, "游标与排序字段不匹配");
+            applyCursorSeek(queryWrapper, cursor, isAsc);
+        }
+        queryWrapper.orderBy(!"id".equals(sortField), isAsc, sortField)
+                .orderBy(true, isAsc, "id")
+                .last("limit " + (size + 1));
+        List<Picture> pictureList = this.list(queryWrapper);
+        PictureCursorPageVO cursorPageVO = new PictureCursorPageVO();
+        boolean hasMore = pictureList.size() > size;
+        if (hasMore) {
+            pictureList = pictureList.subList(0, size);
+            Picture last = pictureList.get(size - 1);
+            cursorPageVO.setNextCursor(new PictureCursor(sortField, getSortValue(last, sortField), last.getId()).encode());
+        }
+        cursorPageVO.setHasMore(hasMore);
+        if (!pictureList.isEmpty()) {
+            cursorPageVO.setRecords(getPictureVOList(pictureList));
+        }
+        return cursorPageVO;
+    }
+
+    /**
+     * 追加游标定位条件：排序值在游标之后，或排序值相同且 id 在游标之后
+     *
+     * @param queryWrapper 查询条件
+     * @param cursor       上一页最后一条的游标
+     * @param isAsc        是否升序
+     */
+    static void applyCursorSeek(QueryWrapper<Picture> queryWrapper, PictureCursor cursor, boolean isAsc) {
+        String sortField = cursor.getSortField();
+        if ("id".equals(sortField)) {
+            queryWrapper.gt(isAsc, "id", cursor.getId())
+                    .lt(!isAsc, "id", cursor.getId());
+            return;
+        }
+        Date sortValue = new Date(cursor.getValue());
+        queryWrapper.and(qw -> qw.gt(isAsc, sortField, sortValue)
+                .lt(!isAsc, sortField, sortValue)
+                .or(sameValue -> sameValue.eq(sortField, sortValue)
+                        .gt(isAsc, "id", cursor.getId())
+                        .lt(!isAsc, "id", cursor.getId())));
+    }
+
+    /**
+     * 获取游标排序值
+     */
+    private long getSortValue(Picture picture, String sortField) {
+        switch (sortField) {
+            case "createTime":
+                return picture.getCreateTime().getTime();
+            case "editTime":
+                return picture.getEditTime().getTime();
+            case "updateTime":
+                return picture.getUpdateTime().getTime();
+            default:
+                return picture.getId();
+        }
+    }
+
+    /**
+     * 图片列表转封装对象列表，关联查询用户信息并填充变体图
+     */
+    private List<PictureVO> getPictureVOList(List<Picture> pictureList) {
+        List<PictureVO> pictureVOList = toPictureVOList(pictureList);
+        // 填充变体图
+        fillPictureSrcset(pictureVOList);
+        return pictureVOList;
+    }
+
+    /**
+     * 图片列表转为图片视图列表，填充用户信息（不含变体图）
+     */
+    private List<PictureVO> toPictureVOList(List<Picture> pictureList) {
         // 对象列表 => 封装对象列表
         List<PictureVO> pictureVOList = pictureList.stream().map(PictureVO::objToVo).collect(Collectors.toList());
+        fillPictureUser(pictureVOList);
+        return pictureVOList;
+    }
+
+    /**
+     * 填充图片视图的用户信息（从用户缓存批量获取）
+     */
+    private void fillPictureUser(List<PictureVO> pictureVOList) {
         // 1. 关联查询用户信息
-        Set<Long> userIdSet = pictureList.stream().map(Picture::getUserId).collect(Collectors.toSet());
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Set<Long> userIdSet = pictureVOList.stream().map(PictureVO::getUserId).collect(Collectors.toSet());
+        Map<Long, UserVO> userVOMap = userVOCacheManager.getAll(userIdSet);
         // 2. 填充信息
-        pictureVOList.forEach(pictureVO -> {
-            Long userId = pictureVO.getUserId();
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
+        pictureVOList.forEach(pictureVO -> pictureVO.setUser(userVOMap.get(pictureVO.getUserId())));
+    }
+
+    @Override
+    public String getPictureVariantUrl(Picture picture, PictureVariantEnum variantEnum) {
+        ThrowUtils.throwIf(picture == null || variantEnum == null, ErrorCode.PARAMS_ERROR);
+        ThrowUtils.throwIf(!PictureProcessStatusEnum.DONE.equals(PictureProcessStatusEnum.getEnumByValue(picture.getProcessStatus())),
+                ErrorCode.OPERATION_ERROR, "图片处理中");
+        // 原图不比变体大，直接使用原图
+        if (getLongSide(picture.getPicWidth(), picture.getPicHeight()) <= variantEnum.getValue()) {
+            return picture.getUrl();
+        }
+        long picSize = ObjUtil.defaultIfNull(picture.getPicSize(), PictureConstant.MAX_PICTURE_SIZE);
+        return pictureVariantManager.getOrCreateVariantUrl(picture.getUrl(), picSize, variantEnum);
+    }
+
+    /**
+     * 填充变体图地址（srcset）
+     * 已生成的变体直接给出变体图地址，未生成的给出变体图接口地址，由接口在首次请求时生成
+     * key 为图片实际宽度（与 srcset 的 w 描述符一致），包含原图
+     */
+    private void fillPictureSrcset(List<PictureVO> pictureVOList) {
+        List<PictureVO> processedList = pictureVOList.stream()
+                .filter(pictureVO -> StrUtil.isNotBlank(pictureVO.getUrl())
+                        && pictureVO.getPicWidth() != null && pictureVO.getPicHeight() != null
+                        && PictureProcessStatusEnum.DONE.equals(PictureProcessStatusEnum.getEnumByValue(pictureVO.getProcessStatus())))
+                .collect(Collectors.toList());
+        if (processedList.isEmpty()) {
+            return;
+        }
+        List<Map<Integer, String>> variantUrlList = pictureVariantManager.listVariantUrls(
+                processedList.stream().map(PictureVO::getUrl).collect(Collectors.toList()));
+        for (int i = 0; i < processedList.size(); i++) {
+            PictureVO pictureVO = processedList.get(i);
+            Map<Integer, String> variantUrlMap = variantUrlList.get(i);
+            int picWidth = pictureVO.getPicWidth();
+            int longSide = getLongSide(picWidth, pictureVO.getPicHeight());
+            Map<String, String> srcset = new LinkedHashMap<>();
+            for (PictureVariantEnum variantEnum : PictureVariantEnum.values()) {
+                int size = variantEnum.getValue();
+                // 原图不比变体大，不需要变体
+                if (longSide <= size) {
+                    break;
+                }
+                int variantWidth = Math.max(1, (int) Math.round(picWidth * size * 1.0 / longSide));
+                String variantUrl = variantUrlMap.get(size);
+                if (variantUrl == null) {
+                    variantUrl = String.format("%s/picture/variant?id=%s&size=%s", contextPath, pictureVO.getId(), size);
+                }
+                srcset.put(variantWidth + "w", variantUrl);
             }
-            pictureVO.setUser(userService.getUserVo(user));
-        });
-        pictureVOPage.setRecords(pictureVOList);
-        return pictureVOPage;
+            srcset.put(picWidth + "w", pictureVO.getUrl());
+            pictureVO.setSrcset(srcset);
+        }
+    }
+
+    private int getLongSide(Integer picWidth, Integer picHeight) {
+        return Math.max(ObjUtil.defaultIfNull(picWidth, 0), ObjUtil.defaultIfNull(picHeight, 0));
     }
 
     /**
@@ -399,13 +1190,16 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         //如果提交的状态跟当前状态一样，就不需要更新
         ThrowUtils.throwIf(oldPicture.getReviewStatus().equals(reviewStatus), ErrorCode.PARAMS_ERROR, "图片已处于该审核状态");
         //操作数据库
-        Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureReviewRequest, picture);
+        Picture picture = PictureConvert.INSTANCE.toEntity(pictureReviewRequest);
         picture.setReviewerId(loginUser.getId());
         picture.setReviewTime(new Date());
 
 
         ThrowUtils.throwIf(!this.updateById(picture), ErrorCode.SYSTEM_ERROR, "图片审核失败");
+        if (oldPicture.getSpaceId() == null) {
+            pictureCountManager.updatePublicCount(oldPicture.getReviewStatus(), reviewStatus, 1);
+        }
+        notifyPictureChanged(oldPicture.getSpaceId(), Collections.singletonList(id));
     }
 
     /**
@@ -439,62 +1233,66 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
      * @return 上传成功数量
      */
     @Override
-    public Integer uploadPictureByBach(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
+    public String uploadPictureByBach(PictureUploadByBatchRequest pictureUploadByBatchRequest, User loginUser) {
         String searchText = pictureUploadByBatchRequest.getSearchText();
+        ThrowUtils.throwIf(StrUtil.isBlank(searchText), ErrorCode.PARAMS_ERROR, "搜索词不能为空");
         // 格式化数量
         Integer count = pictureUploadByBatchRequest.getCount();
-        ThrowUtils.throwIf(count > 30, ErrorCode.PARAMS_ERROR, "最多 30 条");
+        int maxCount = pictureCrawlConfig.getMaxCount();
+        ThrowUtils.throwIf(count == null || count <= 0 || count > maxCount, ErrorCode.PARAMS_ERROR,
+                String.format("最多 %s 条", maxCount));
         //设置默认名称为搜索的关键词
         String namePrefix = pictureUploadByBatchRequest.getNamePrefix();
-        if (StrUtil.isNotBlank(namePrefix)) {
+        if (StrUtil.isBlank(namePrefix)) {
             namePrefix = searchText;
         }
+        // 后台抓取：下载上传并行执行，结果按批入库，接口立即返回任务 id
+        PictureCrawlJob job = new PictureCrawlJob(searchText, namePrefix, count, loginUser.getId());
+        String uploadPathPrefix = getUploadPathPrefix(null, loginUser);
+        pictureCrawlManager.submit(job,
+                fileUrl -> urlPictureUpload.uploadPicture(fileUrl, uploadPathPrefix),
+                uploadPictureResultList -> savePictureBatch(uploadPictureResultList, job, loginUser));
+        return job.getJobId();
+    }
 
-        // 要抓取的地址
-        String fetchUrl = String.format("https://cn.bing.com/images/async?q=%s&mmasync=1", searchText);
-        Document document;
-        try {
-            document = Jsoup.connect(fetchUrl).get();
-        } catch (IOException e) {
-            log.error("获取页面失败", e);
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取页面失败");
-        }
+    @Override
+    public PictureCrawlJobVO getPictureCrawlJob(String jobId) {
+        PictureCrawlJobVO jobVO = pictureCrawlManager.getJob(jobId);
+        ThrowUtils.throwIf(jobVO == null, ErrorCode.NOT_FOUND_ERROR, "任务不存在");
+        return jobVO;
+    }
 
-        Element div = document.getElementsByClass("dgControl").first();
-        if (ObjUtil.isNull(div)) {
-            throw new BusinessException(ErrorCode.OPERATION_ERROR, "获取元素失败");
-        }
-        Elements imgElementList = div.select("img.mimg");
-        int uploadCount = 0;
-        for (Element imgElement : imgElementList) {
-            String fileUrl = imgElement.attr("src");
-            if (StrUtil.isBlank(fileUrl)) {
-                log.info("当前链接为空，已跳过: {}", fileUrl);
-                continue;
-            }
-            // 处理图片上传地址，防止出现转义问题
-            int questionMarkIndex = fileUrl.indexOf("?");
-            if (questionMarkIndex > -1) {
-                fileUrl = fileUrl.substring(0, questionMarkIndex);
-            }
+    @Override
+    public boolean cancelPictureCrawlJob(String jobId) {
+        ThrowUtils.throwIf(StrUtil.isBlank(jobId), ErrorCode.PARAMS_ERROR);
+        return pictureCrawlManager.cancel(jobId);
+    }
 
-            // 上传图片
-            PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
-            pictureUploadRequest.setPicName(namePrefix + "_" + uploadCount);
-            try {
-                PictureVO pictureVO = this.uploadPicture(fileUrl, pictureUploadRequest, loginUser);
-                log.info("图片上传成功, id = {}", pictureVO.getId());
-                uploadCount++;
-            } catch (Exception e) {
-                log.error("图片上传失败", e);
-                continue;
-            }
-            if (uploadCount >= count) {
-                break;
+    /**
+     * 批量抓取的图片整批入库（公共图库，一条 INSERT 语句）
+     *
+     * @param uploadPictureResultList 上传结果
+     * @param job                     抓取任务
+     * @param loginUser               登录用户
+     */
+    private void savePictureBatch(List<UploadPictureResult> uploadPictureResultList, PictureCrawlJob job, User loginUser) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Picture> pictureList = new ArrayList<>();
+            for (UploadPictureResult uploadPictureResult : uploadPictureResultList) {
+                UploadPictureResult fileResult = pictureFileService.acquire(uploadPictureResult);
+                PictureUploadRequest pictureUploadRequest = new PictureUploadRequest();
+                pictureUploadRequest.setPicName(job.nextPicName());
+                Picture picture = buildPicture(fileResult, pictureUploadRequest, null, loginUser);
+                picture.setId(IdWorker.getId());
+                picture.setProcessStatus(PictureProcessStatusEnum.DONE.getValue());
+                pictureList.add(picture);
             }
-        }
-        return uploadCount;
-
+            this.baseMapper.insertBatch(pictureList);
+            pictureList.stream()
+                    .collect(Collectors.groupingBy(Picture::getReviewStatus, Collectors.counting()))
+                    .forEach((reviewStatus, count) -> pictureCountManager.updatePublicCount(null, reviewStatus, count));
+            notifyPictureChanged(null, pictureList.stream().map(Picture::getId).collect(Collectors.toList()));
+        });
     }
 
     /**
@@ -502,24 +1300,23 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
      *
      * @param oldPicture 旧图片
      */
-    @Async
     @Override
     public void clearPictureFile(Picture oldPicture) {
-        // 判断该图片是否被多条记录使用
-        String pictureUrl = oldPicture.getUrl();
-        long count = this.lambdaQuery()
-                .eq(Picture::getUrl, pictureUrl)
-                .count();
-        // 有不止一条记录用到了该图片，不清理
-        if (count > 1) {
+        // 处理中、处理失败的图片指向未登记的原图（处理完成后才登记引用），不需要释放引用，直接删除
+        boolean processed = oldPicture.getProcessStatus() == null
+                || PictureProcessStatusEnum.DONE.getValue() == oldPicture.getProcessStatus();
+        // 释放文件引用，仍被其他图片引用时不清理
+        if (processed && !pictureFileService.release(oldPicture.getUrl())) {
             return;
         }
-        cosManager.deleteObject(oldPicture.getUrl());
-        // 清理缩略图
-        String thumbnailUrl = oldPicture.getThumbnailUrl();
-        if (StrUtil.isNotBlank(thumbnailUrl)) {
-            cosManager.deleteObject(thumbnailUrl);
-        }
+        // 原图、缩略图和变体图一起批量删除，在存储 I/O 线程池中执行，不等待结果（排队满时在当前线程删除，不会遗留文件）
+        List<String> keys = storageBackend.getKeysByUrl(oldPicture.getUrl(), oldPicture.getThumbnailUrl());
+        keys.addAll(pictureVariantManager.removeVariants(oldPicture.getUrl()));
+        storageBackend.deleteObjectsAsync(keys).whenComplete((result, e) -> {
+            if (e != null) {
+                log.error("删除图片文件失败, keys = {}", keys, e);
+            }
+        });
     }
 
     /**
@@ -564,8 +1361,15 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
 //        checkPictureAuth(loginUser, oldPicture);
         // 操作数据库
         transactionTemplate.execute(status -> {
-            //保存图片信息到数据库
-            ThrowUtils.throwIf(!this.removeById(pictureId), ErrorCode.OPERATION_ERROR);            //如果上传到私有空间成功，修改私有空间的容量和大小
+            //只删除读取时的版本：期间异步处理完成会改变地址、大小，此时按旧数据清理文件、修改额度都不对
+            boolean removed = this.lambdaUpdate()
+                    .eq(Picture::getId, pictureId)
+                    .eq(Picture::getUrl, oldPicture.getUrl())
+                    .eq(Picture::getProcessStatus, oldPicture.getProcessStatus())
+                    .remove();
+            ThrowUtils.throwIf(!removed, ErrorCode.OPERATION_ERROR, "图片已变更，请刷新后重试");
+            //如果上传到私有空间成功，修改私有空间的容量和大小
+            pictureTagService.removeByPictureId(pictureId);
             Long spaceId = oldPicture.getSpaceId();
             if (spaceId != null) {
                 boolean update = spaceService.lambdaUpdate()
@@ -574,13 +1378,50 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
                         .setSql("totalCount = totalCount - 1")
                         .update();
                 ThrowUtils.throwIf(!update, ErrorCode.OPERATION_ERROR, "额度更新失败");
+            } else {
+                pictureCountManager.updatePublicCount(oldPicture.getReviewStatus(), null, 1);
             }
+            notifyPictureChanged(spaceId, Collections.singletonList(pictureId));
             return true;
         });
         // 异步清理文件
         this.clearPictureFile(oldPicture);
     }
 
+    /**
+     * 更新图片（管理员），图片和标签在同一事务中修改
+     *
+     * @param pictureUpdateRequest 图片更新请求
+     * @param loginUser            登录用户
+     */
+    @Override
+    public void updatePicture(PictureUpdateRequest pictureUpdateRequest, User loginUser) {
+        // 将实体类和 DTO 进行转换
+        Picture picture = PictureConvert.INSTANCE.toEntity(pictureUpdateRequest);
+        // 注意将 list 转为 string
+        picture.setTags(JSONUtil.toJsonStr(pictureUpdateRequest.getTags()));
+        //补充审核参数
+        fillReviewParams(picture, loginUser);
+        // 数据校验
+        validPicture(picture);
+        // 判断是否存在
+        long id = pictureUpdateRequest.getId();
+        Picture oldPicture = getById(id);
+        ThrowUtils.throwIf(oldPicture == null, ErrorCode.NOT_FOUND_ERROR);
+        // 操作数据库
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean result = updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            if (pictureUpdateRequest.getTags() != null) {
+                pictureTagService.replaceTags(Collections.singletonList(id), oldPicture.getSpaceId(), pictureUpdateRequest.getTags());
+            }
+            if (oldPicture.getSpaceId() == null) {
+                pictureCountManager.updatePublicCount(oldPicture.getReviewStatus(), picture.getReviewStatus(), 1);
+            }
+        });
+        notifyPictureChanged(oldPicture.getSpaceId(), Collections.singletonList(id));
+    }
+
     /**
      * 编辑图片
      *
@@ -590,8 +1431,7 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
     @Override
     public void editPicture(PictureEditRequest pictureEditRequest, HttpServletRequest request) {
         // 在此处将实体类和 DTO 进行转换
-        Picture picture = new Picture();
-        BeanUtils.copyProperties(pictureEditRequest, picture);
+        Picture picture = PictureConvert.INSTANCE.toEntity(pictureEditRequest);
         // 注意将 list 转为 string
         picture.setTags(JSONUtil.toJsonStr(pictureEditRequest.getTags()));
         // 设置编辑时间
@@ -608,8 +1448,17 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 校验权限  上传到不同空间权限不一样    重构为使用Sa-token注解鉴权
 //        checkPictureAuth(loginUser, oldPicture);
         // 操作数据库
-        boolean result = updateById(picture);
-        ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean result = updateById(picture);
+            ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+            if (pictureEditRequest.getTags() != null) {
+                pictureTagService.replaceTags(Collections.singletonList(id), oldPicture.getSpaceId(), pictureEditRequest.getTags());
+            }
+            if (oldPicture.getSpaceId() == null) {
+                pictureCountManager.updatePublicCount(oldPicture.getReviewStatus(), picture.getReviewStatus(), 1);
+            }
+        });
+        notifyPictureChanged(oldPicture.getSpaceId(), Collections.singletonList(id));
     }
 
     @Override
@@ -693,6 +1542,10 @@ public class PictureServiceImpl extends ServiceImpl<PictureMapper, Picture>
         // 5. 批量更新
         boolean result = this.updateBatchById(pictureList);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        if (CollUtil.isNotEmpty(tags)) {
+            pictureTagService.replaceTags(pictureList.stream().map(Picture::getId).collect(Collectors.toList()), spaceId, tags);
+        }
+        notifyPictureChanged(spaceId, pictureList.stream().map(Picture::getId).collect(Collectors.toList()));
     }
 
     /**
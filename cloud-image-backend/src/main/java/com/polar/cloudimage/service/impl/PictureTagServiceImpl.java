@@ -0,0 +1,92 @@
+package com.polar.cloudimage.service.impl;
+
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.polar.cloudimage.mapper.PictureTagMapper;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.entity.PictureTag;
+import com.polar.cloudimage.service.PictureTagService;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * @author polar
+ * @description 针对表【picture_tag(图片标签)】的数据库操作Service实现
+ */
+@Service
+public class PictureTagServiceImpl extends ServiceImpl<PictureTagMapper, PictureTag>
+        implements PictureTagService {
+
+    @Override
+    public void replaceTags(Collection<Long> pictureIds, Long spaceId, List<String> tags) {
+        if (CollUtil.isEmpty(pictureIds)) {
+            return;
+        }
+        this.lambdaUpdate().in(PictureTag::getPictureId, pictureIds).remove();
+        Set<String> tagSet = normalizeTags(tags);
+        if (tagSet.isEmpty()) {
+            return;
+        }
+        List<PictureTag> pictureTagList = new ArrayList<>(pictureIds.size() * tagSet.size());
+        for (Long pictureId : pictureIds) {
+            for (String tag : tagSet) {
+                PictureTag pictureTag = new PictureTag();
+                pictureTag.setPictureId(pictureId);
+                pictureTag.setSpaceId(spaceId);
+                pictureTag.setTag(tag);
+                pictureTagList.add(pictureTag);
+            }
+        }
+        this.baseMapper.insertBatch(pictureTagList);
+    }
+
+    @Override
+    public void removeByPictureId(Long pictureId) {
+        this.lambdaUpdate().eq(PictureTag::getPictureId, pictureId).remove();
+    }
+
+    /**
+     * 走 idx_spaceId_tag 覆盖索引，每个图片的同一标签只有一行，命中数等于标签数即包含全部标签
+     * 标签作为参数绑定，不拼接到 SQL 中
+     */
+    @Override
+    public void applyTagFilter(QueryWrapper<Picture> queryWrapper, Long spaceId, boolean nullSpaceId, List<String> tags) {
+        Set<String> tagSet = normalizeTags(tags);
+        if (tagSet.isEmpty()) {
+            queryWrapper.apply("1 = 0");
+            return;
+        }
+        List<Object> params = new ArrayList<>(tagSet);
+        StringBuilder sql = new StringBuilder("id in (select pictureId from picture_tag where tag in (");
+        for (int i = 0; i < tagSet.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append('{').append(i).append('}');
+        }
+        sql.append(')');
+        if (spaceId != null) {
+            sql.append(" and spaceId = {").append(params.size()).append('}');
+            params.add(spaceId);
+        } else if (nullSpaceId) {
+            sql.append(" and spaceId is null");
+        }
+        sql.append(" group by pictureId having count(*) = ").append(tagSet.size()).append(')');
+        queryWrapper.apply(sql.toString(), params.toArray());
+    }
+
+    /**
+     * 去掉空白标签并去重
+     */
+    private Set<String> normalizeTags(List<String> tags) {
+        Set<String> tagSet = new LinkedHashSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                if (StrUtil.isNotBlank(tag)) {
+                    tagSet.add(tag.trim());
+                }
+            }
+        }
+        return tagSet;
+    }
+}
@@ -6,10 +6,12 @@ import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.polar.cloudimage.manager.cache.UserVOCacheManager;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
 import com.polar.cloudimage.manager.sharding.DynamicShardingManager;
+import com.polar.cloudimage.model.convert.SpaceConvert;
 import com.polar.cloudimage.model.dto.space.SpaceAddRequest;
 import com.polar.cloudimage.model.dto.space.SpaceQueryRequest;
 import com.polar.cloudimage.model.entity.Space;
@@ -22,7 +24,6 @@ import com.polar.cloudimage.model.vo.SpaceVO;
 import com.polar.cloudimage.model.vo.UserVO;
 import com.polar.cloudimage.service.SpaceService;
 import com.polar.cloudimage.mapper.SpaceMapper;
-import org.springframework.beans.BeanUtils;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.support.TransactionTemplate;
@@ -46,6 +47,10 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
 
     @Resource
     private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
+
     @Resource
     private SpaceUserServiceImpl spaceUserServiceImpl;
     //由于使用分库分表功能跟业务规模不太匹配，而且使用分库分表对代码侵入性强大，所有暂时不使用
@@ -62,8 +67,7 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
      */
     public long addSpace(SpaceAddRequest spaceAddRequest, User loginUser) {
         // 在此处将实体类和 DTO 进行转换
-        Space space = new Space();
-        BeanUtils.copyProperties(spaceAddRequest, space);
+        Space space = SpaceConvert.INSTANCE.toEntity(spaceAddRequest);
         // 默认值
         if (StrUtil.isBlank(spaceAddRequest.getSpaceName())) {
             space.setSpaceName("默认空间");
@@ -156,12 +160,7 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         // 对象转封装类
         SpaceVO spaceVO = SpaceVO.objToVo(space);
         // 关联查询用户信息
-        Long userId = space.getUserId();
-        if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVo(user);
-            spaceVO.setUser(userVO);
-        }
+        spaceVO.setUser(userVOCacheManager.get(space.getUserId()));
         return spaceVO;
     }
 
@@ -183,17 +182,9 @@ public class SpaceServiceImpl extends ServiceImpl<SpaceMapper, Space>
         List<SpaceVO> spaceVOList = spaceList.stream().map(SpaceVO::objToVo).collect(Collectors.toList());
         // 1. 关联查询用户信息
         Set<Long> userIdSet = spaceList.stream().map(Space::getUserId).collect(Collectors.toSet());
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Map<Long, UserVO> userVOMap = userVOCacheManager.getAll(userIdSet);
         // 2. 填充信息
-        spaceVOList.forEach(spaceVO -> {
-            Long userId = spaceVO.getUserId();
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
-            }
-            spaceVO.setUser(userService.getUserVo(user));
-        });
+        spaceVOList.forEach(spaceVO -> spaceVO.setUser(userVOMap.get(spaceVO.getUserId())));
         spaceVOPage.setRecords(spaceVOList);
         return spaceVOPage;
     }
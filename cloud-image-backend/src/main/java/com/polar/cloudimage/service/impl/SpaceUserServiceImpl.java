@@ -5,9 +5,12 @@ import cn.hutool.core.util.ObjUtil;
 import cn.hutool.core.util.ObjectUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.polar.cloudimage.manager.cache.SpaceUserRoleCacheManager;
+import com.polar.cloudimage.manager.cache.UserVOCacheManager;
 import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
+import com.polar.cloudimage.model.convert.SpaceUserConvert;
 import com.polar.cloudimage.model.dto.spaceuser.SpaceUserAddRequest;
 import com.polar.cloudimage.model.dto.spaceuser.SpaceUserQueryRequest;
 import com.polar.cloudimage.model.entity.Space;
@@ -21,7 +24,6 @@ import com.polar.cloudimage.service.SpaceService;
 import com.polar.cloudimage.service.SpaceUserService;
 import com.polar.cloudimage.mapper.SpaceUserMapper;
 import com.polar.cloudimage.service.UserService;
-import org.springframework.beans.BeanUtils;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
@@ -45,6 +47,12 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
     @Resource
     private UserService userService;
 
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
+
+    @Resource
+    private SpaceUserRoleCacheManager spaceUserRoleCacheManager;
+
     @Resource
     @Lazy
     private SpaceService spaceService;
@@ -53,12 +61,13 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
     public long addSpaceUser(SpaceUserAddRequest spaceUserAddRequest) {
         // 参数校验
         ThrowUtils.throwIf(spaceUserAddRequest == null, ErrorCode.PARAMS_ERROR);
-        SpaceUser spaceUser = new SpaceUser();
-        BeanUtils.copyProperties(spaceUserAddRequest, spaceUser);
+        SpaceUser spaceUser = SpaceUserConvert.INSTANCE.toEntity(spaceUserAddRequest);
         validSpaceUser(spaceUser, true);
         // 数据库操作
         boolean result = this.save(spaceUser);
         ThrowUtils.throwIf(!result, ErrorCode.OPERATION_ERROR);
+        // 之前作为非成员缓存过
+        spaceUserRoleCacheManager.invalidate(spaceUser.getSpaceId(), spaceUser.getUserId());
         return spaceUser.getId();
     }
 
@@ -89,11 +98,7 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
         SpaceUserVO spaceUserVO = SpaceUserVO.objToVo(spaceUser);
         // 关联查询用户信息
         Long userId = spaceUser.getUserId();
-        if (userId != null && userId > 0) {
-            User user = userService.getById(userId);
-            UserVO userVO = userService.getUserVo(user);
-            spaceUserVO.setUser(userVO);
-        }
+        spaceUserVO.setUser(userVOCacheManager.get(userId));
         // 关联查询空间信息
         Long spaceId = spaceUser.getSpaceId();
         if (spaceId != null && spaceId > 0) {
@@ -116,8 +121,7 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
         Set<Long> userIdSet = spaceUserList.stream().map(SpaceUser::getUserId).collect(Collectors.toSet());
         Set<Long> spaceIdSet = spaceUserList.stream().map(SpaceUser::getSpaceId).collect(Collectors.toSet());
         // 2. 批量查询用户和空间
-        Map<Long, List<User>> userIdUserListMap = userService.listByIds(userIdSet).stream()
-                .collect(Collectors.groupingBy(User::getId));
+        Map<Long, UserVO> userVOMap = userVOCacheManager.getAll(userIdSet);
         Map<Long, List<Space>> spaceIdSpaceListMap = spaceService.listByIds(spaceIdSet).stream()
                 .collect(Collectors.groupingBy(Space::getId));
         // 3. 填充 SpaceUserVO 的用户和空间信息
@@ -125,11 +129,7 @@ public class SpaceUserServiceImpl extends ServiceImpl<SpaceUserMapper, SpaceUser
             Long userId = spaceUserVO.getUserId();
             Long spaceId = spaceUserVO.getSpaceId();
             // 填充用户信息
-            User user = null;
-            if (userIdUserListMap.containsKey(userId)) {
-                user = userIdUserListMap.get(userId).get(0);
-            }
-            spaceUserVO.setUser(userService.getUserVo(user));
+            spaceUserVO.setUser(userVOMap.get(userId));
             // 填充空间信息
             Space space = null;
             if (spaceIdSpaceListMap.containsKey(spaceId)) {
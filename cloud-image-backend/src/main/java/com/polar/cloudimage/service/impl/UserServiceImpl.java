@@ -8,6 +8,8 @@ import com.polar.cloudimage.exception.BusinessException;
 import com.polar.cloudimage.exception.ErrorCode;
 import com.polar.cloudimage.exception.ThrowUtils;
 import com.polar.cloudimage.manager.auth.StpKit;
+import com.polar.cloudimage.manager.cache.UserVOCacheManager;
+import com.polar.cloudimage.model.convert.UserConvert;
 import com.polar.cloudimage.model.dto.user.UserLoginRequest;
 import com.polar.cloudimage.model.dto.user.UserQueryRequest;
 import com.polar.cloudimage.model.dto.user.UserRegisterRequest;
@@ -17,12 +19,16 @@ import com.polar.cloudimage.model.vo.LoginUserVO;
 import com.polar.cloudimage.model.vo.UserVO;
 import com.polar.cloudimage.service.UserService;
 import com.polar.cloudimage.mapper.UserMapper;
+import com.polar.cloudimage.util.TransactionUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
+import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -37,6 +43,34 @@ import java.util.stream.Collectors;
 public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         implements UserService {
 
+    /**
+     * 请求中缓存的当前登录用户（同一请求多次获取只解析一次）
+     */
+    private static final String LOGIN_USER_REQUEST_ATTRIBUTE = "cloudimage.loginUser";
+
+    /**
+     * 会话中登录用户对应的用户版本号
+     */
+    private static final String LOGIN_USER_VERSION = "user_login_version";
+
+    /**
+     * 会话中登录用户上次从数据库读取的时间
+     */
+    private static final String LOGIN_USER_LOAD_TIME = "user_login_load_time";
+
+    private static final String USER_VERSION_KEY_PREFIX = "cloudimage:userVersion:";
+
+    /**
+     * 会话中的登录用户最多使用的时间，超过后重新查询数据库（兜底版本号递增失败的情况）
+     */
+    private static final long LOGIN_USER_EXPIRE_MILLIS = 60_000L;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private UserVOCacheManager userVOCacheManager;
+
     /**
      * 用户注册
      *
@@ -112,10 +146,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "用户不存在或密码错误");
         }
         // 保存用户登录状态
-        request.getSession().setAttribute(UserConstant.USER_LOGIN_STATE, user);
-        // 将用户登录态保存到 sa token中
+        saveLoginUser(request.getSession(), user, getUserVersion(user.getId()));
+        // 将用户登录态保存到 sa token中（权限校验时通过 getLoginUser 获取最新用户，不在 Sa-Token 会话中保存用户快照）
         StpKit.SPACE.login(user.getId());
-        StpKit.SPACE.getSession().set(UserConstant.USER_LOGIN_STATE, user);
         return this.getLoginUserVo(user);
 
 
@@ -129,21 +162,80 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
      */
     @Override
     public User getLoginUser(HttpServletRequest request) {
-        Object attribute = request.getSession().getAttribute(UserConstant.USER_LOGIN_STATE);
-        User currentUser = (User) attribute;
+        // 同一请求内已经获取过
+        Object memo = request.getAttribute(LOGIN_USER_REQUEST_ATTRIBUTE);
+        if (memo instanceof User) {
+            return (User) memo;
+        }
+        HttpSession session = request.getSession();
+        User currentUser = (User) session.getAttribute(UserConstant.USER_LOGIN_STATE);
         // 校验用户是否登录
         if (currentUser == null || currentUser.getId() == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
-        // 从数据库查询用户最新信息
         Long userId = currentUser.getId();
-        currentUser = this.getById(userId);
-        if (currentUser == null) {
-            throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
+        // 先读版本号再查数据库，查询之后的修改会让下次请求重新查询
+        String version = getUserVersion(userId);
+        Object loadTime = session.getAttribute(LOGIN_USER_LOAD_TIME);
+        boolean expired = !(loadTime instanceof Long)
+                || System.currentTimeMillis() - (Long) loadTime > LOGIN_USER_EXPIRE_MILLIS;
+        if (version == null || expired || !version.equals(session.getAttribute(LOGIN_USER_VERSION))) {
+            // 从数据库查询用户最新信息
+            currentUser = this.getById(userId);
+            if (currentUser == null) {
+                throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
+            }
+            saveLoginUser(session, currentUser, version);
         }
+        request.setAttribute(LOGIN_USER_REQUEST_ATTRIBUTE, currentUser);
         return currentUser;
     }
 
+    /**
+     * 用户修改、删除后调用：递增用户版本号（会话中缓存的登录用户失效），删除用户视图缓存
+     * 在事务中调用时，事务提交后才生效
+     *
+     * @param userId 用户 id
+     */
+    @Override
+    public void notifyUserChanged(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            try {
+                stringRedisTemplate.opsForValue().increment(USER_VERSION_KEY_PREFIX + userId);
+            } catch (Exception e) {
+                // 递增失败时会话中的用户最多在过期后更新
+                log.error("用户版本号递增失败, userId = {}", userId, e);
+            }
+        });
+        userVOCacheManager.invalidate(userId);
+    }
+
+    /**
+     * 保存登录用户到会话
+     */
+    private void saveLoginUser(HttpSession session, User user, String version) {
+        session.setAttribute(UserConstant.USER_LOGIN_STATE, user);
+        session.setAttribute(LOGIN_USER_VERSION, version);
+        session.setAttribute(LOGIN_USER_LOAD_TIME, System.currentTimeMillis());
+    }
+
+    /**
+     * 获取用户版本号，Redis 不可用时返回 null（每次都查询数据库）
+     */
+    @Override
+    public String getUserVersion(Long userId) {
+        try {
+            String version = stringRedisTemplate.opsForValue().get(USER_VERSION_KEY_PREFIX + userId);
+            return version == null ? "0" : version;
+        } catch (Exception e) {
+            log.error("用户版本号获取失败, userId = {}", userId, e);
+            return null;
+        }
+    }
+
 
     /**
      * 获取加密后的密码
@@ -169,9 +261,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (user == null) {
             return null;
         }
-        LoginUserVO loginUserVO = new LoginUserVO();
-        BeanUtils.copyProperties(user, loginUserVO);
-        return loginUserVO;
+        return UserConvert.INSTANCE.toLoginUserVo(user);
     }
 
     /**
@@ -185,9 +275,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         if (user == null) {
             return null;
         }
-        UserVO userVO = new UserVO();
-        BeanUtils.copyProperties(user, userVO);
-        return userVO;
+        return UserConvert.INSTANCE.toVo(user);
     }
 
     /**
@@ -230,7 +318,11 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
         //删除登录信息
-        request.getSession().removeAttribute(UserConstant.USER_LOGIN_STATE);
+        HttpSession session = request.getSession();
+        session.removeAttribute(UserConstant.USER_LOGIN_STATE);
+        session.removeAttribute(LOGIN_USER_VERSION);
+        session.removeAttribute(LOGIN_USER_LOAD_TIME);
+        request.removeAttribute(LOGIN_USER_REQUEST_ATTRIBUTE);
         //从 sa token中注销
         StpKit.SPACE.logout();
         return true;
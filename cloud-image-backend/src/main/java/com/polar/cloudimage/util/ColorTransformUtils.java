@@ -61,4 +61,25 @@ public class ColorTransformUtils {
 
         return "0x" + expanded.toString();
     }
+
+    /**
+     * 将 RGB 转为数据万象格式的色值（与 expandHexColor 互逆）
+     * 高位为 0 的分量记为单个 0，例如 (0x08, 0x00, 0xe0) => 0x00e0
+     *
+     * @param red   红
+     * @param green 绿
+     * @param blue  蓝
+     * @return 色值
+     */
+    public static String compressHexColor(int red, int green, int blue) {
+        StringBuilder compressed = new StringBuilder("0x");
+        for (int component : new int[]{red, green, blue}) {
+            if (component < 0x10) {
+                compressed.append('0');
+            } else {
+                compressed.append(String.format("%02x", component));
+            }
+        }
+        return compressed.toString();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.polar.cloudimage.util;
+
+import cn.hutool.json.JSONUtil;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HTTP 条件请求（ETag / Last-Modified / 304）工具类
+ * 接口查询出实体后、组装视图前调用，客户端缓存仍然有效时直接返回 304，不再组装和序列化响应
+ */
+public class HttpCacheUtils {
+
+    /**
+     * 与登录用户相关的数据：只能由浏览器缓存，每次使用前都要向服务端确认
+     */
+    public static final String PRIVATE_NO_CACHE = "private, no-cache";
+
+    /**
+     * 所有用户相同、很少变化的数据：公共缓存 1 小时
+     */
+    public static final String PUBLIC_ONE_HOUR = "public, max-age=3600";
+
+    private HttpCacheUtils() {
+        // 工具类不需要实例化
+    }
+
+    /**
+     * 设置缓存头并校验客户端的缓存是否仍然有效
+     * 有效时响应状态已设置为 304，接口应直接返回 null
+     *
+     * @param request       请求
+     * @param response      响应
+     * @param cacheControl  Cache-Control
+     * @param lastModified  最后修改时间（毫秒），未知时传 -1
+     * @param versionParts  决定响应内容的数据（实体、版本号、权限等），序列化后计算 ETag，不要传入含敏感字段的对象（如完整的用户）
+     * @return 客户端缓存是否仍然有效
+     */
+    public static boolean checkNotModified(HttpServletRequest request, HttpServletResponse response, String cacheControl,
+                                           long lastModified, Object... versionParts) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        String json = JSONUtil.toJsonStr(Arrays.asList(versionParts));
+        String etag = DigestUtils.md5DigestAsHex(json.getBytes(StandardCharsets.UTF_8));
+        return new ServletWebRequest(request, response).checkNotModified(etag, lastModified);
+    }
+}
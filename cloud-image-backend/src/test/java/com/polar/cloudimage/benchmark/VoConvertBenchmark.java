@@ -0,0 +1,112 @@
+package com.polar.cloudimage.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.polar.cloudimage.model.convert.PictureConvert;
+import com.polar.cloudimage.model.convert.UserConvert;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.entity.User;
+import com.polar.cloudimage.model.vo.PictureVO;
+import com.polar.cloudimage.model.vo.UserVO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对象转换基准测试：BeanUtils.copyProperties（反射）与 MapStruct 生成的转换器
+ * 模拟一页 20 张图片的视图组装（图片视图 + 作者视图）
+ * 运行：执行 main 方法（mvn test-compile 后在 IDE 中运行）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoConvertBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private List<Picture> pictureList;
+
+    private List<User> userList;
+
+    @Setup
+    public void setup() {
+        pictureList = new ArrayList<>(PAGE_SIZE);
+        userList = new ArrayList<>(PAGE_SIZE);
+        for (long i = 1; i <= PAGE_SIZE; i++) {
+            Picture picture = new Picture();
+            picture.setId(i);
+            picture.setUrl("https://example.com/public/" + i + ".webp");
+            picture.setThumbnailUrl("https://example.com/public/" + i + "_thumbnail.webp");
+            picture.setName("图片" + i);
+            picture.setIntroduction("图片简介" + i);
+            picture.setCategory("素材");
+            picture.setTags(JSONUtil.toJsonStr(Arrays.asList("热门", "高清")));
+            picture.setPicSize(1024L * 1024);
+            picture.setPicWidth(1920);
+            picture.setPicHeight(1080);
+            picture.setPicScale(1.78);
+            picture.setPicFormat("webp");
+            picture.setPicColor("0xffffff");
+            picture.setUserId(i);
+            picture.setCreateTime(new Date());
+            picture.setEditTime(new Date());
+            picture.setUpdateTime(new Date());
+            picture.setProcessStatus(1);
+            pictureList.add(picture);
+            User user = new User();
+            user.setId(i);
+            user.setUserAccount("user" + i);
+            user.setUserName("用户" + i);
+            user.setUserAvatar("https://example.com/avatar/" + i + ".png");
+            user.setUserRole("user");
+            user.setCreateTime(new Date());
+            userList.add(user);
+        }
+    }
+
+    @Benchmark
+    public List<PictureVO> beanUtils() {
+        List<PictureVO> pictureVOList = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Picture picture = pictureList.get(i);
+            PictureVO pictureVO = new PictureVO();
+            BeanUtils.copyProperties(picture, pictureVO);
+            pictureVO.setTags(JSONUtil.toList(picture.getTags(), String.class));
+            UserVO userVO = new UserVO();
+            BeanUtils.copyProperties(userList.get(i), userVO);
+            pictureVO.setUser(userVO);
+            pictureVOList.add(pictureVO);
+        }
+        return pictureVOList;
+    }
+
+    @Benchmark
+    public List<PictureVO> mapStruct() {
+        List<PictureVO> pictureVOList = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            PictureVO pictureVO = PictureConvert.INSTANCE.toVo(pictureList.get(i));
+            pictureVO.setUser(UserConvert.INSTANCE.toVo(userList.get(i)));
+            pictureVOList.add(pictureVO);
+        }
+        return pictureVOList;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(VoConvertBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,60 @@
+package com.polar.cloudimage.manager.auth;
+
+import com.polar.cloudimage.manager.auth.module.SpaceUserPermissionConstant;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 空间成员权限位掩码测试（权限和角色来自 biz/spaceUserAuthConfig.json）
+ */
+public class SpaceUserAuthManagerTest {
+
+    private final SpaceUserAuthManager spaceUserAuthManager = new SpaceUserAuthManager();
+
+    @Test
+    public void compileRoleMasks() {
+        long viewerMask = spaceUserAuthManager.getMaskByRole("viewer");
+        long editorMask = spaceUserAuthManager.getMaskByRole("editor");
+        // 每个权限占一位，按配置顺序
+        assertEquals(0b00010, viewerMask);
+        assertEquals(0b11110, editorMask);
+        assertEquals(0b11111, SpaceUserAuthManager.ADMIN_MASK);
+        assertEquals(SpaceUserAuthManager.ADMIN_MASK, spaceUserAuthManager.getMaskByRole("admin"));
+    }
+
+    @Test
+    public void unknownRoleHasNoPermission() {
+        assertEquals(0, spaceUserAuthManager.getMaskByRole(null));
+        assertEquals(0, spaceUserAuthManager.getMaskByRole(""));
+        assertEquals(0, spaceUserAuthManager.getMaskByRole("owner"));
+        assertTrue(spaceUserAuthManager.getPermissionsByRole("owner").isEmpty());
+    }
+
+    @Test
+    public void hasPermission() {
+        long editorMask = spaceUserAuthManager.getMaskByRole("editor");
+        assertTrue(SpaceUserAuthManager.hasPermission(editorMask, SpaceUserPermissionConstant.PICTURE_EDIT));
+        assertFalse(SpaceUserAuthManager.hasPermission(editorMask, SpaceUserPermissionConstant.SPACE_USER_MANAGE));
+        assertFalse(SpaceUserAuthManager.hasPermission(0, SpaceUserPermissionConstant.PICTURE_VIEW));
+        // 未定义的权限
+        assertFalse(SpaceUserAuthManager.hasPermission(-1L, "picture:unknown"));
+    }
+
+    @Test
+    public void toPermissionList() {
+        assertEquals(Collections.singletonList(SpaceUserPermissionConstant.PICTURE_VIEW),
+                spaceUserAuthManager.getPermissionsByRole("viewer"));
+        List<String> adminPermissions = spaceUserAuthManager.toPermissionList(SpaceUserAuthManager.ADMIN_MASK);
+        assertEquals(Arrays.asList(SpaceUserPermissionConstant.SPACE_USER_MANAGE, SpaceUserPermissionConstant.PICTURE_VIEW,
+                SpaceUserPermissionConstant.PICTURE_UPLOAD, SpaceUserPermissionConstant.PICTURE_EDIT,
+                SpaceUserPermissionConstant.PICTURE_DELETE), adminPermissions);
+        // 同一掩码复用同一只读列表
+        assertSame(adminPermissions, spaceUserAuthManager.toPermissionList(SpaceUserAuthManager.ADMIN_MASK));
+        assertThrows(UnsupportedOperationException.class, () -> adminPermissions.add("x"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.polar.cloudimage.manager.cache;
+
+import com.polar.cloudimage.common.ApproximatePage;
+import com.polar.cloudimage.mapper.PictureMapper;
+import com.polar.cloudimage.model.dto.picture.PictureQueryRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片分页总数测试
+ */
+public class PictureCountManagerTest {
+
+    private static final String PUBLIC_COUNT_KEY = "cloudimage:pictureCount:public";
+
+    private PictureMapper pictureMapper;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private ValueOperations<String, String> valueOperations;
+
+    private PictureCountManager pictureCountManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        pictureMapper = Mockito.mock(PictureMapper.class);
+        stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+        hashOperations = Mockito.mock(HashOperations.class);
+        valueOperations = Mockito.mock(ValueOperations.class);
+        Mockito.when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        Mockito.when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        pictureCountManager = new PictureCountManager();
+        ReflectionTestUtils.setField(pictureCountManager, "pictureMapper", pictureMapper);
+        ReflectionTestUtils.setField(pictureCountManager, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(pictureCountManager, "reconcileSeconds", 600L);
+    }
+
+    @Test
+    public void useMaintainedPublicCount() {
+        Mockito.when(hashOperations.get(PUBLIC_COUNT_KEY, "1")).thenReturn("5");
+        Mockito.when(valueOperations.setIfAbsent(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyLong(), ArgumentMatchers.any(TimeUnit.class))).thenReturn(false);
+        assertEquals(5, fillPublicTotal(1));
+        Mockito.verify(pictureMapper, Mockito.never()).selectMaps(ArgumentMatchers.any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void reconcileMissingPublicCountWithRename() {
+        Mockito.when(stringRedisTemplate.hasKey(PUBLIC_COUNT_KEY)).thenReturn(false);
+        Map<String, Object> pass = new HashMap<>();
+        pass.put("reviewStatus", 1);
+        pass.put("total", 3L);
+        Map<String, Object> reviewing = new HashMap<>();
+        reviewing.put("reviewStatus", 0);
+        reviewing.put("total", 2L);
+        Mockito.when(pictureMapper.selectMaps(ArgumentMatchers.any())).thenReturn(Arrays.asList(pass, reviewing));
+        assertEquals(3, fillPublicTotal(1));
+
+        ArgumentCaptor<String> tempKey = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Map<String, String>> countMap = ArgumentCaptor.forClass(Map.class);
+        Mockito.verify(hashOperations).putAll(tempKey.capture(), countMap.capture());
+        assertEquals("5", countMap.getValue().get("all"));
+        Mockito.verify(stringRedisTemplate).rename(tempKey.getValue(), PUBLIC_COUNT_KEY);
+        Mockito.verify(stringRedisTemplate, Mockito.never()).delete(PUBLIC_COUNT_KEY);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void incrementPublicCountOnReview() {
+        pictureCountManager.updatePublicCount(0, 1, 1);
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(stringRedisTemplate).execute(ArgumentMatchers.any(RedisScript.class),
+                ArgumentMatchers.eq(Collections.singletonList(PUBLIC_COUNT_KEY)), args.capture());
+        assertEquals(Arrays.asList("0", "-1", "1", "1"), args.getAllValues());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void incrementAllCountOnDelete() {
+        pictureCountManager.updatePublicCount(1, null, 1);
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(stringRedisTemplate).execute(ArgumentMatchers.any(RedisScript.class),
+                ArgumentMatchers.eq(Collections.singletonList(PUBLIC_COUNT_KEY)), args.capture());
+        assertEquals(Arrays.asList("1", "-1", "all", "-1"), args.getAllValues());
+    }
+
+    private long fillPublicTotal(Integer reviewStatus) {
+        PictureQueryRequest pictureQueryRequest = new PictureQueryRequest();
+        pictureQueryRequest.setNullSpaceId(true);
+        pictureQueryRequest.setReviewStatus(reviewStatus);
+        ApproximatePage<Object> page = new ApproximatePage<>(1, 10);
+        pictureCountManager.fillTotal(page, pictureQueryRequest, () -> {
+            throw new AssertionError("不应执行 COUNT 查询");
+        });
+        return page.getTotal();
+    }
+}
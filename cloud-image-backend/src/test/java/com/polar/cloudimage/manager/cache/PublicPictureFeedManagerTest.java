@@ -0,0 +1,224 @@
+package com.polar.cloudimage.manager.cache;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.mapper.PictureMapper;
+import com.polar.cloudimage.model.dto.picture.PictureQueryRequest;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.enums.PictureReviewStatusEnum;
+import com.polar.cloudimage.model.vo.PictureVO;
+import com.polar.cloudimage.model.vo.UserVO;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisSetCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 公共图库 feed 测试
+ */
+public class PublicPictureFeedManagerTest {
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private ZSetOperations<String, String> zSetOperations;
+
+    private PictureMapper pictureMapper;
+
+    private PublicPictureFeedManager publicPictureFeedManager;
+
+    @BeforeAll
+    public static void initTableInfo() {
+        // LambdaQueryWrapper 需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Picture.class);
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+        zSetOperations = Mockito.mock(ZSetOperations.class);
+        Mockito.when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        pictureMapper = Mockito.mock(PictureMapper.class);
+        publicPictureFeedManager = new PublicPictureFeedManager();
+        ReflectionTestUtils.setField(publicPictureFeedManager, "pictureMapper", pictureMapper);
+        ReflectionTestUtils.setField(publicPictureFeedManager, "stringRedisTemplate", stringRedisTemplate);
+    }
+
+    @Test
+    public void onlyExplicitCreateTimeSortUsesFeed() {
+        PictureQueryRequest pictureQueryRequest = new PictureQueryRequest();
+        pictureQueryRequest.setNullSpaceId(true);
+        pictureQueryRequest.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+        assertFalse(publicPictureFeedManager.isFeedQuery(pictureQueryRequest));
+        pictureQueryRequest.setSortField("createTime");
+        pictureQueryRequest.setSortOrder("descend");
+        assertTrue(publicPictureFeedManager.isFeedQuery(pictureQueryRequest));
+    }
+
+    @Test
+    public void refreshInTwoPipelinesAndRecordChangesDuringRebuild() {
+        RedisConnection connection = mockConnection();
+        Mockito.when(stringRedisTemplate.executePipelined(Mockito.any(RedisCallback.class)))
+                .thenAnswer(runPipeline(connection, Arrays.asList(Collections.singleton("风景"), true)))
+                .thenAnswer(runPipeline(connection, Collections.emptyList()));
+        Mockito.when(pictureMapper.selectList(ArgumentMatchers.any()))
+                .thenReturn(Collections.singletonList(picture(1L, "人物")));
+        publicPictureFeedManager.refresh(Arrays.asList(1L, 2L));
+
+        Mockito.verify(stringRedisTemplate, Mockito.times(2)).executePipelined(Mockito.any(RedisCallback.class));
+        Mockito.verifyNoInteractions(zSetOperations);
+        RedisZSetCommands zSetCommands = connection.zSetCommands();
+        Mockito.verify(zSetCommands).zRem(bytes("cloudimage:publicFeed:category:风景"), bytes("2"));
+        Mockito.verify(zSetCommands).zAdd(bytes("cloudimage:publicFeed:category:人物"), 1000D, bytes("1"));
+        Mockito.verify(zSetCommands, Mockito.never()).zAdd(ArgumentMatchers.any(), ArgumentMatchers.anyDouble(),
+                ArgumentMatchers.eq(bytes("2")));
+        Mockito.verify(connection.setCommands()).sAdd(bytes("cloudimage:publicFeed:rebuildChanged"), bytes("1"), bytes("2"));
+        Mockito.verify(connection.keyCommands()).del(bytes("cloudimage:publicFeed:vo:2"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rebuildIntoTempKeysAndReapplyChanges() {
+        ValueOperations<String, String> valueOperations = Mockito.mock(ValueOperations.class);
+        SetOperations<String, String> setOperations = Mockito.mock(SetOperations.class);
+        Mockito.when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        Mockito.when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+        Mockito.when(valueOperations.setIfAbsent(ArgumentMatchers.anyString(), ArgumentMatchers.anyString(),
+                ArgumentMatchers.anyLong(), ArgumentMatchers.any())).thenReturn(true);
+        // 构建期间图片 2 被删除
+        Mockito.when(setOperations.size("cloudimage:publicFeed:rebuildChanged")).thenReturn(1L, 0L);
+        Mockito.when(setOperations.pop("cloudimage:publicFeed:rebuildChanged", 1L))
+                .thenReturn(Collections.singletonList("2"));
+        Mockito.when(setOperations.members("cloudimage:publicFeed:categories"))
+                .thenReturn(new HashSet<>(Arrays.asList("风景", "旧分类")));
+        Mockito.when(pictureMapper.selectList(ArgumentMatchers.any()))
+                .thenReturn(Arrays.asList(picture(1L, "风景"), picture(2L, "风景")))
+                .thenReturn(Collections.emptyList());
+        RedisConnection connection = mockConnection();
+        Mockito.when(stringRedisTemplate.executePipelined(Mockito.any(RedisCallback.class)))
+                .thenAnswer(runPipeline(connection, Collections.emptyList()));
+        Mockito.when(stringRedisTemplate.hasKey("cloudimage:publicFeed:all:rebuilding")).thenReturn(true);
+        Mockito.when(stringRedisTemplate.hasKey("cloudimage:publicFeed:category:风景:rebuilding")).thenReturn(true);
+        ReflectionTestUtils.invokeMethod(publicPictureFeedManager, "rebuild");
+
+        RedisZSetCommands zSetCommands = connection.zSetCommands();
+        Mockito.verify(zSetCommands).zAdd(bytes("cloudimage:publicFeed:all:rebuilding"), 1000D, bytes("2"));
+        Mockito.verify(zSetCommands).zRem(bytes("cloudimage:publicFeed:all:rebuilding"), bytes("2"));
+        Mockito.verify(zSetCommands).zRem(bytes("cloudimage:publicFeed:category:风景:rebuilding"), bytes("2"));
+        Mockito.verify(stringRedisTemplate).rename("cloudimage:publicFeed:all:rebuilding", "cloudimage:publicFeed:all");
+        Mockito.verify(stringRedisTemplate).rename("cloudimage:publicFeed:category:风景:rebuilding",
+                "cloudimage:publicFeed:category:风景");
+        Mockito.verify(stringRedisTemplate).delete("cloudimage:publicFeed:category:旧分类");
+        Mockito.verify(valueOperations).set("cloudimage:publicFeed:ready", "1");
+    }
+
+    @Test
+    public void listIdsByPage() {
+        Mockito.when(zSetOperations.reverseRange("cloudimage:publicFeed:all", 10, 19))
+                .thenReturn(new LinkedHashSet<>(Arrays.asList("30", "20")));
+        assertEquals(Arrays.asList(30L, 20L), publicPictureFeedManager.listIds(null, 2, 10));
+    }
+
+    @Test
+    public void listIdsByCategory() {
+        Mockito.when(zSetOperations.reverseRange("cloudimage:publicFeed:category:风景", 0, 4))
+                .thenReturn(new LinkedHashSet<>(Collections.singletonList("7")));
+        assertEquals(Collections.singletonList(7L), publicPictureFeedManager.listIds("风景", 1, 5));
+    }
+
+    @Test
+    public void rejectInvalidPageBeforeQueryingRedis() {
+        assertInvalidPage(1, 0);
+        assertInvalidPage(1, -1);
+        assertInvalidPage(0, 10);
+        Mockito.verifyNoInteractions(zSetOperations);
+    }
+
+    @Test
+    public void cachePictureVOsWithoutUser() {
+        RedisConnection connection = Mockito.mock(RedisConnection.class);
+        RedisStringCommands stringCommands = Mockito.mock(RedisStringCommands.class);
+        Mockito.when(connection.stringCommands()).thenReturn(stringCommands);
+        Mockito.when(stringRedisTemplate.executePipelined(Mockito.any(RedisCallback.class))).thenAnswer(invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return Collections.emptyList();
+        });
+        PictureVO pictureVO = new PictureVO();
+        pictureVO.setId(1L);
+        pictureVO.setName("cat");
+        pictureVO.setUserId(2L);
+        UserVO userVO = new UserVO();
+        userVO.setId(2L);
+        userVO.setUserName("polar");
+        pictureVO.setUser(userVO);
+        publicPictureFeedManager.cachePictureVOs(Collections.singletonList(pictureVO));
+
+        ArgumentCaptor<byte[]> value = ArgumentCaptor.forClass(byte[].class);
+        Mockito.verify(stringCommands).setEx(Mockito.eq("cloudimage:publicFeed:vo:1".getBytes(StandardCharsets.UTF_8)),
+                Mockito.anyLong(), value.capture());
+        String json = new String(value.getValue(), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"name\":\"cat\""));
+        assertTrue(json.contains("\"userId\":2"));
+        assertFalse(json.contains("polar"));
+        // 调用方的对象不受影响
+        assertNotNull(pictureVO.getUser());
+    }
+
+    private static RedisConnection mockConnection() {
+        RedisConnection connection = Mockito.mock(RedisConnection.class);
+        RedisZSetCommands zSetCommands = Mockito.mock(RedisZSetCommands.class);
+        RedisSetCommands setCommands = Mockito.mock(RedisSetCommands.class);
+        RedisKeyCommands keyCommands = Mockito.mock(RedisKeyCommands.class);
+        Mockito.when(connection.zSetCommands()).thenReturn(zSetCommands);
+        Mockito.when(connection.setCommands()).thenReturn(setCommands);
+        Mockito.when(connection.keyCommands()).thenReturn(keyCommands);
+        return connection;
+    }
+
+    private static Answer<List<Object>> runPipeline(RedisConnection connection, List<Object> results) {
+        return invocation -> {
+            invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection);
+            return results;
+        };
+    }
+
+    private static Picture picture(Long id, String category) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setCategory(category);
+        picture.setReviewStatus(PictureReviewStatusEnum.PASS.getValue());
+        picture.setCreateTime(new Date(1000));
+        return picture;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void assertInvalidPage(long current, long size) {
+        BusinessException e = assertThrows(BusinessException.class, () -> publicPictureFeedManager.listIds(null, current, size));
+        assertEquals(ErrorCode.PARAMS_ERROR.getCode(), e.getCode());
+    }
+}
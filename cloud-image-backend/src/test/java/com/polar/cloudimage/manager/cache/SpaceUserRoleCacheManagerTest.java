@@ -0,0 +1,94 @@
+package com.polar.cloudimage.manager.cache;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.polar.cloudimage.mapper.SpaceUserMapper;
+import com.polar.cloudimage.model.entity.SpaceUser;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 团队空间成员角色缓存测试
+ */
+public class SpaceUserRoleCacheManagerTest {
+
+    private SpaceUserMapper spaceUserMapper;
+
+    private SpaceUserRoleCacheManager spaceUserRoleCacheManager;
+
+    @BeforeAll
+    public static void initTableInfo() {
+        // LambdaQueryWrapper 需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), SpaceUser.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        spaceUserMapper = Mockito.mock(SpaceUserMapper.class);
+        spaceUserRoleCacheManager = new SpaceUserRoleCacheManager();
+        ReflectionTestUtils.setField(spaceUserRoleCacheManager, "spaceUserMapper", spaceUserMapper);
+        ReflectionTestUtils.setField(spaceUserRoleCacheManager, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+    }
+
+    @Test
+    public void cacheRoleAndNonMember() {
+        Mockito.when(spaceUserMapper.selectList(ArgumentMatchers.any()))
+                .thenReturn(Collections.singletonList(spaceUser(1L, "editor")));
+        Map<Long, String> roleMap = spaceUserRoleCacheManager.getRoles(Arrays.asList(1L, 2L), 10L);
+        assertEquals(Collections.singletonMap(1L, "editor"), roleMap);
+        // 成员和非成员都已缓存
+        assertEquals("editor", spaceUserRoleCacheManager.getRole(1L, 10L));
+        assertNull(spaceUserRoleCacheManager.getRole(2L, 10L));
+        Mockito.verify(spaceUserMapper, Mockito.times(1)).selectList(ArgumentMatchers.any());
+    }
+
+    @Test
+    public void reloadAfterInvalidate() {
+        Mockito.when(spaceUserMapper.selectList(ArgumentMatchers.any()))
+                .thenReturn(Collections.singletonList(spaceUser(1L, "viewer")))
+                .thenReturn(Collections.singletonList(spaceUser(1L, "admin")));
+        assertEquals("viewer", spaceUserRoleCacheManager.getRole(1L, 10L));
+        // 不在事务中，立即失效
+        spaceUserRoleCacheManager.invalidate(1L, 10L);
+        assertEquals("admin", spaceUserRoleCacheManager.getRole(1L, 10L));
+    }
+
+    @Test
+    public void skipCacheWhenInvalidatedDuringLoad() {
+        Mockito.when(spaceUserMapper.selectList(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            // 查询期间其他节点修改了角色
+            spaceUserRoleCacheManager.onMessage(new DefaultMessage(new byte[0], "1:10".getBytes(StandardCharsets.UTF_8)), null);
+            return Collections.singletonList(spaceUser(1L, "viewer"));
+        });
+        assertEquals("viewer", spaceUserRoleCacheManager.getRole(1L, 10L));
+
+        Mockito.reset(spaceUserMapper);
+        Mockito.when(spaceUserMapper.selectList(ArgumentMatchers.any()))
+                .thenReturn(Collections.singletonList(spaceUser(1L, "admin")));
+        assertEquals("admin", spaceUserRoleCacheManager.getRole(1L, 10L));
+        // 这次查询期间没有失效，写回缓存
+        assertEquals("admin", spaceUserRoleCacheManager.getRole(1L, 10L));
+        Mockito.verify(spaceUserMapper, Mockito.times(1)).selectList(ArgumentMatchers.any());
+    }
+
+    private static SpaceUser spaceUser(Long spaceId, String spaceRole) {
+        SpaceUser spaceUser = new SpaceUser();
+        spaceUser.setSpaceId(spaceId);
+        spaceUser.setSpaceRole(spaceRole);
+        return spaceUser;
+    }
+}
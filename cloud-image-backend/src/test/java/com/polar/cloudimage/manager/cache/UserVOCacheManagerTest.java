@@ -0,0 +1,99 @@
+package com.polar.cloudimage.manager.cache;
+
+import com.polar.cloudimage.mapper.UserMapper;
+import com.polar.cloudimage.model.entity.User;
+import com.polar.cloudimage.model.vo.UserVO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 用户视图缓存测试
+ */
+public class UserVOCacheManagerTest {
+
+    private UserMapper userMapper;
+
+    private StringRedisTemplate stringRedisTemplate;
+
+    private ValueOperations<String, String> valueOperations;
+
+    private UserVOCacheManager userVOCacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        userMapper = Mockito.mock(UserMapper.class);
+        stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+        valueOperations = Mockito.mock(ValueOperations.class);
+        Mockito.when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        Mockito.when(valueOperations.multiGet(ArgumentMatchers.anyCollection()))
+                .thenReturn(Collections.singletonList(null));
+        userVOCacheManager = new UserVOCacheManager();
+        ReflectionTestUtils.setField(userVOCacheManager, "userMapper", userMapper);
+        ReflectionTestUtils.setField(userVOCacheManager, "stringRedisTemplate", stringRedisTemplate);
+    }
+
+    @Test
+    public void cacheLoadedUser() {
+        Mockito.when(userMapper.selectBatchIds(Collections.singletonList(1L)))
+                .thenReturn(Collections.singletonList(user(1L, "a")));
+        assertEquals("a", userVOCacheManager.get(1L).getUserName());
+        assertEquals("a", userVOCacheManager.get(1L).getUserName());
+        Mockito.verify(userMapper, Mockito.times(1)).selectBatchIds(ArgumentMatchers.anyCollection());
+        Mockito.verify(stringRedisTemplate).executePipelined(ArgumentMatchers.any(RedisCallback.class));
+    }
+
+    @Test
+    public void cacheMissingUser() {
+        Mockito.when(userMapper.selectBatchIds(ArgumentMatchers.anyCollection())).thenReturn(Collections.emptyList());
+        assertNull(userVOCacheManager.get(1L));
+        assertNull(userVOCacheManager.get(1L));
+        Mockito.verify(userMapper, Mockito.times(1)).selectBatchIds(ArgumentMatchers.anyCollection());
+        Mockito.verify(stringRedisTemplate).executePipelined(ArgumentMatchers.any(RedisCallback.class));
+    }
+
+    @Test
+    public void missingMarkerInRedisSkipsDatabase() {
+        Mockito.when(valueOperations.multiGet(ArgumentMatchers.anyCollection()))
+                .thenReturn(Collections.singletonList(""));
+        Map<Long, UserVO> userVOMap = userVOCacheManager.getAll(Collections.singletonList(1L));
+        assertTrue(userVOMap.isEmpty());
+        Mockito.verify(userMapper, Mockito.never()).selectBatchIds(ArgumentMatchers.anyCollection());
+    }
+
+    @Test
+    public void skipCacheWhenInvalidatedDuringLoad() {
+        Mockito.when(userMapper.selectBatchIds(ArgumentMatchers.anyCollection())).thenAnswer(invocation -> {
+            // 查询期间用户被修改
+            userVOCacheManager.onMessage(new DefaultMessage(new byte[0], "1".getBytes(StandardCharsets.UTF_8)), null);
+            return Collections.singletonList(user(1L, "old"));
+        });
+        assertEquals("old", userVOCacheManager.get(1L).getUserName());
+        Mockito.verify(stringRedisTemplate, Mockito.never()).executePipelined(ArgumentMatchers.any(RedisCallback.class));
+
+        Mockito.reset(userMapper);
+        Mockito.when(userMapper.selectBatchIds(ArgumentMatchers.anyCollection()))
+                .thenReturn(Collections.singletonList(user(1L, "new")));
+        assertEquals("new", userVOCacheManager.get(1L).getUserName());
+    }
+
+    private static User user(Long id, String userName) {
+        User user = new User();
+        user.setId(id);
+        user.setUserName(userName);
+        return user;
+    }
+}
@@ -0,0 +1,216 @@
+package com.polar.cloudimage.manager.crawl;
+
+import com.polar.cloudimage.config.PictureCrawlConfig;
+import com.polar.cloudimage.model.enums.PictureCrawlJobStatusEnum;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 批量抓取流水线测试
+ * 使用本地 HttpServer 模拟搜索页和图片服务器，上传和入库用内存实现代替
+ */
+public class PictureCrawlPipelineTest {
+
+    /**
+     * 模拟搜索源共有的图片数
+     */
+    private static final int TOTAL_IMAGES = 50;
+
+    private static final int PAGE_SIZE = 10;
+
+    private static final byte[] IMAGE_BYTES = {(byte) 0x89, 'P', 'N', 'G', 0x0d, 0x0a, 0x1a, 0x0a};
+
+    private HttpServer server;
+
+    private CloseableHttpClient httpClient;
+
+    private ExecutorService uploadExecutor;
+
+    private PictureCrawlConfig crawlConfig;
+
+    private String baseUrl;
+
+    /**
+     * 图片接口同时处理的请求数
+     */
+    private final AtomicInteger concurrentImageRequests = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrentImageRequests = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/images/async", this::handleSearchPage);
+        server.createContext("/img/", this::handleImage);
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        crawlConfig = new PictureCrawlConfig();
+        crawlConfig.setSourceUrl(baseUrl + "/images/async?q=%s&first=%d");
+        crawlConfig.setPageSize(PAGE_SIZE);
+        crawlConfig.setParallelism(6);
+        crawlConfig.setMaxPerHost(3);
+        crawlConfig.setBatchSize(4);
+        httpClient = HttpClients.custom().setMaxConnPerRoute(20).setMaxConnTotal(20).build();
+        uploadExecutor = Executors.newFixedThreadPool(crawlConfig.getParallelism());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        uploadExecutor.shutdownNow();
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void crawlInBatchesWithinHostLimit() {
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        PictureCrawlJob job = new PictureCrawlJob("cat", "cat", 18, 1L);
+
+        newPipeline().run(job, this::download, batches::add, progressJob -> {
+        });
+
+        assertEquals(PictureCrawlJobStatusEnum.SUCCEED, job.getStatus());
+        assertEquals(18, job.getUploadedCount().get());
+        assertEquals(18, job.getSavedCount().get());
+        // 攒满 4 张入库一次，剩余的 2 张在结束时入库
+        assertEquals(5, batches.size());
+        for (List<String> batch : batches) {
+            assertTrue(batch.size() <= crawlConfig.getBatchSize());
+        }
+        assertTrue(maxConcurrentImageRequests.get() <= crawlConfig.getMaxPerHost());
+        // 查询参数被去掉，且没有重复
+        assertEquals(18, batches.stream().flatMap(List::stream).distinct().count());
+        assertTrue(batches.get(0).get(0).startsWith(baseUrl + "/img/"));
+    }
+
+    @Test
+    public void stopWhenSourceExhausted() {
+        AtomicInteger savedCount = new AtomicInteger();
+        PictureCrawlJob job = new PictureCrawlJob("cat", "cat", 200, 1L);
+
+        newPipeline().run(job, this::download, batch -> savedCount.addAndGet(batch.size()), progressJob -> {
+        });
+
+        assertEquals(PictureCrawlJobStatusEnum.SUCCEED, job.getStatus());
+        assertEquals(TOTAL_IMAGES, job.getDiscoveredCount().get());
+        assertEquals(TOTAL_IMAGES, savedCount.get());
+    }
+
+    @Test
+    public void skipFailedImages() {
+        PictureCrawlJob job = new PictureCrawlJob("cat", "cat", 20, 1L);
+        // 序号为 3 的倍数的图片上传失败，由后面的图片补足数量
+        Function<String, String> uploader = url -> {
+            int index = Integer.parseInt(url.substring(url.lastIndexOf('/') + 1, url.lastIndexOf('.')));
+            if (index % 3 == 0) {
+                throw new IllegalStateException("upload failed");
+            }
+            return download(url);
+        };
+
+        newPipeline().run(job, uploader, batch -> {
+        }, progressJob -> {
+        });
+
+        assertEquals(PictureCrawlJobStatusEnum.SUCCEED, job.getStatus());
+        assertEquals(20, job.getSavedCount().get());
+        assertTrue(job.getFailedCount().get() >= 10);
+    }
+
+    @Test
+    public void cancelKeepsUploadedPictures() {
+        AtomicInteger savedCount = new AtomicInteger();
+        PictureCrawlJob job = new PictureCrawlJob("cat", "cat", 40, 1L);
+        // 第一批入库后取消
+        newPipeline().run(job, this::download, batch -> {
+            savedCount.addAndGet(batch.size());
+            job.cancel();
+        }, progressJob -> {
+        });
+
+        assertEquals(PictureCrawlJobStatusEnum.CANCELLED, job.getStatus());
+        assertTrue(job.getUploadedCount().get() < 40);
+        // 取消前已上传的图片全部入库
+        assertEquals(job.getUploadedCount().get(), savedCount.get());
+        assertNotNull(job.getFinishTime());
+    }
+
+    private PictureCrawlPipeline<String> newPipeline() {
+        return new PictureCrawlPipeline<>(httpClient, crawlConfig, uploadExecutor);
+    }
+
+    /**
+     * 下载图片代替上传，返回图片地址
+     */
+    private String download(String url) {
+        try (CloseableHttpResponse httpResponse = httpClient.execute(new HttpGet(url))) {
+            byte[] bytes = EntityUtils.toByteArray(httpResponse.getEntity());
+            assertArrayEquals(IMAGE_BYTES, bytes);
+            return url;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void handleSearchPage(HttpExchange exchange) throws IOException {
+        String query = exchange.getRequestURI().getQuery();
+        int first = Integer.parseInt(query.substring(query.indexOf("first=") + "first=".length()));
+        StringBuilder html = new StringBuilder("<html><body><div class=\"dgControl\">");
+        for (int i = first; i < Math.min(first + PAGE_SIZE, TOTAL_IMAGES); i++) {
+            // 偶数序号直接加载，奇数序号懒加载
+            if (i % 2 == 0) {
+                html.append(String.format("<img class=\"mimg\" src=\"%s/img/%d.png?w=200\">", baseUrl, i));
+            } else {
+                html.append(String.format("<img class=\"mimg\" src=\"data:image/gif;base64,R0lGOD\" data-src=\"/img/%d.png?w=200\">", i));
+            }
+        }
+        html.append("</div></body></html>");
+        respond(exchange, "text/html", html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void handleImage(HttpExchange exchange) throws IOException {
+        int concurrent = concurrentImageRequests.incrementAndGet();
+        maxConcurrentImageRequests.accumulateAndGet(concurrent, Math::max);
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // 先减计数再响应，客户端收到响应后才会发起下一个请求
+            concurrentImageRequests.decrementAndGet();
+        }
+        respond(exchange, "image/png", IMAGE_BYTES);
+    }
+
+    private void respond(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
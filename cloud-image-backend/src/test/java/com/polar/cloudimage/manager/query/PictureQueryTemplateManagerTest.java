@@ -0,0 +1,134 @@
+package com.polar.cloudimage.manager.query;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.manager.query.PictureQueryTemplateManager.PictureQueryTemplate;
+import com.polar.cloudimage.model.dto.picture.PictureQueryRequest;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.enums.PictureProjectionEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片查询模板测试
+ */
+public class PictureQueryTemplateManagerTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private PictureQueryTemplateManager pictureQueryTemplateManager;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        pictureQueryTemplateManager = new PictureQueryTemplateManager();
+        ReflectionTestUtils.setField(pictureQueryTemplateManager, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(pictureQueryTemplateManager, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void templateAndQueryWrapperShareConditions() {
+        PictureQueryRequest pictureQueryRequest = new PictureQueryRequest();
+        pictureQueryRequest.setSearchText("cat");
+        pictureQueryRequest.setNullSpaceId(true);
+        pictureQueryRequest.setReviewStatus(1);
+        pictureQueryRequest.setCategory("动物");
+        pictureQueryRequest.setPicWidth(800);
+        pictureQueryRequest.setStartEditTime(new Date(1000));
+        pictureQueryRequest.setSortField("createTime");
+        pictureQueryRequest.setSortOrder("descend");
+        PictureQueryTemplate template = pictureQueryTemplateManager.getTemplate(pictureQueryRequest, PictureProjectionEnum.GRID);
+        assertEquals("searchText+nullSpaceId+category+picWidth+reviewStatus+startEditTime|createTime desc|grid", template.getShape());
+
+        pictureQueryTemplateManager.list(template, pictureQueryRequest, 20, 10);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object> params = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(jdbcTemplate).query(sql.capture(), Mockito.any(RowMapper.class), params.capture());
+
+        // QueryWrapper 的条件（占位符换成 ?）与模板的 where 条件一致，参数顺序一致
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        PictureFilter.applyAll(queryWrapper, pictureQueryRequest, true);
+        String wrapperSql = queryWrapper.getSqlSegment().replaceAll("#\\{ew\\.paramNameValuePairs\\.MPGENVAL\\d+}", "?");
+        String where = sql.getValue().substring(sql.getValue().indexOf(" where isDelete = 0 and ") + " where isDelete = 0 and ".length(),
+                sql.getValue().indexOf(" order by "));
+        assertEquals("(" + where.replace(" and ", " AND ") + ")", wrapperSql);
+        List<Object> wrapperParams = queryWrapper.getParamNameValuePairs().entrySet().stream()
+                .sorted(Comparator.comparingInt(entry -> Integer.parseInt(entry.getKey().substring("MPGENVAL".length()))))
+                .map(Map.Entry::getValue)
+                .collect(Collectors.toList());
+        wrapperParams.add(20L);
+        wrapperParams.add(10L);
+        assertEquals(wrapperParams, params.getAllValues());
+        assertTrue(sql.getValue().startsWith("select " + String.join(", ", PictureProjectionEnum.GRID.getColumns()) + " from picture"));
+        assertTrue(sql.getValue().endsWith(" order by createTime desc limit ?, ?"));
+    }
+
+    @Test
+    public void unsupportedShapes() {
+        PictureQueryRequest tagRequest = new PictureQueryRequest();
+        tagRequest.setTags(Collections.singletonList("风景"));
+        assertNull(pictureQueryTemplateManager.getTemplate(tagRequest, PictureProjectionEnum.DETAIL));
+        PictureQueryRequest sortRequest = new PictureQueryRequest();
+        sortRequest.setSortField("id; drop table picture");
+        assertNull(pictureQueryTemplateManager.getTemplate(sortRequest, PictureProjectionEnum.DETAIL));
+    }
+
+    @Test
+    public void rejectInvalidPage() {
+        PictureQueryRequest pictureQueryRequest = new PictureQueryRequest();
+        PictureQueryTemplate template = pictureQueryTemplateManager.getTemplate(pictureQueryRequest, PictureProjectionEnum.DETAIL);
+        for (long[] page : new long[][]{{0, 0}, {0, -1}, {-10, 10}}) {
+            BusinessException e = assertThrows(BusinessException.class,
+                    () -> pictureQueryTemplateManager.list(template, pictureQueryRequest, page[0], page[1]));
+            assertEquals(ErrorCode.PARAMS_ERROR.getCode(), e.getCode());
+        }
+        Mockito.verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void mapProjectionColumnsByIndex() throws Exception {
+        ResultSet rs = Mockito.mock(ResultSet.class);
+        // GRID：id, url, thumbnailUrl, name, category, tags, picWidth, picHeight, userId, spaceId, createTime, processStatus
+        Mockito.when(rs.getLong(1)).thenReturn(7L);
+        Mockito.when(rs.getString(2)).thenReturn("https://cos/a.webp");
+        Mockito.when(rs.getString(4)).thenReturn("cat");
+        Mockito.when(rs.getInt(7)).thenReturn(800);
+        Mockito.when(rs.getInt(8)).thenReturn(0);
+        Mockito.when(rs.getLong(9)).thenReturn(2L);
+        Mockito.when(rs.getLong(10)).thenReturn(0L);
+        Mockito.when(rs.getTimestamp(11)).thenReturn(new Timestamp(1000));
+        Mockito.when(rs.getInt(12)).thenReturn(2);
+        // spaceId（第 10 列）为 NULL
+        // 依次对应 getLong(1), getInt(7), getInt(8), getLong(9), getLong(10), getInt(12)
+        Mockito.when(rs.wasNull()).thenReturn(false, false, false, false, true, false);
+        Picture picture = new PictureQueryTemplateManager.PictureRowMapper(PictureProjectionEnum.GRID.getColumns()).mapRow(rs, 0);
+        assertEquals(7L, picture.getId());
+        assertEquals("https://cos/a.webp", picture.getUrl());
+        assertEquals("cat", picture.getName());
+        assertEquals(800, picture.getPicWidth());
+        assertEquals(0, picture.getPicHeight());
+        assertEquals(2L, picture.getUserId());
+        assertNull(picture.getSpaceId());
+        assertEquals(new Date(1000), picture.getCreateTime());
+        assertEquals(Date.class, picture.getCreateTime().getClass());
+        assertEquals(2, picture.getProcessStatus());
+        // 未投影的列不读取
+        assertNull(picture.getIntroduction());
+        assertNull(picture.getPicSize());
+    }
+}
@@ -0,0 +1,141 @@
+package com.polar.cloudimage.manager.search;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.polar.cloudimage.mapper.PictureMapper;
+import com.polar.cloudimage.model.entity.Picture;
+import com.polar.cloudimage.model.enums.PictureReviewStatusEnum;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片全文索引测试
+ * 数据库用 Mockito 模拟，全量构建和重新加载按调用顺序返回图片
+ */
+public class PictureSearchIndexTest {
+
+    private static final int PASS = PictureReviewStatusEnum.PASS.getValue();
+
+    private static final int REVIEWING = PictureReviewStatusEnum.REVIEWING.getValue();
+
+    private PictureMapper pictureMapper;
+
+    private PictureSearchIndex pictureSearchIndex;
+
+    @BeforeAll
+    public static void initTableInfo() {
+        // LambdaQueryWrapper 需要实体的表信息
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Picture.class);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        pictureMapper = Mockito.mock(PictureMapper.class);
+        pictureSearchIndex = new PictureSearchIndex();
+        ReflectionTestUtils.setField(pictureSearchIndex, "pictureMapper", pictureMapper);
+        ReflectionTestUtils.setField(pictureSearchIndex, "stringRedisTemplate", Mockito.mock(StringRedisTemplate.class));
+    }
+
+    @Test
+    public void rankByFieldWeight() {
+        build(picture(1L, "flower", "a cat in the garden", null, PASS),
+                picture(2L, "cat", null, null, PASS),
+                picture(3L, "dog", null, "[\"cat\"]", PASS));
+        // 名称权重最高，其次是标签，最后是简介
+        assertEquals(Arrays.asList(2L, 3L, 1L), search("cat"));
+    }
+
+    @Test
+    public void requireAllTokens() {
+        build(picture(1L, "cat", null, null, PASS),
+                picture(2L, "cat dog", null, null, PASS));
+        assertEquals(Collections.singletonList(2L), search("dog cat"));
+        assertTrue(search("cat bird").isEmpty());
+    }
+
+    @Test
+    public void matchWordPrefixNotSubstring() {
+        build(picture(1L, "wildcat", null, null, PASS),
+                picture(2L, "catalog", null, null, PASS),
+                picture(3L, "蓝天白云", null, null, PASS));
+        assertEquals(Collections.singletonList(2L), search("cat"));
+        assertEquals(Collections.singletonList(3L), search("天白"));
+        assertTrue(search("蓝云").isEmpty());
+    }
+
+    @Test
+    public void filterInsideIndex() {
+        Picture spacePicture = picture(3L, "cat", null, null, PASS);
+        spacePicture.setSpaceId(100L);
+        Picture otherCategory = picture(4L, "cat", null, null, PASS);
+        otherCategory.setCategory("动物");
+        build(picture(1L, "cat", null, null, PASS),
+                picture(2L, "cat", null, null, REVIEWING),
+                spacePicture,
+                otherCategory);
+        assertEquals(Arrays.asList(4L, 2L, 1L), pictureSearchIndex.search("cat", null, true, null, null));
+        assertEquals(Arrays.asList(4L, 1L), pictureSearchIndex.search("cat", null, true, PASS, null));
+        assertEquals(Collections.singletonList(4L), pictureSearchIndex.search("cat", null, true, PASS, "动物"));
+        assertEquals(Collections.singletonList(3L), pictureSearchIndex.search("cat", 100L, false, PASS, null));
+    }
+
+    @Test
+    public void returnAllMatchesWithoutTruncation() {
+        List<Picture> firstBatch = new ArrayList<>();
+        List<Picture> secondBatch = new ArrayList<>();
+        for (long id = 1; id <= 1500; id++) {
+            (id <= 1000 ? firstBatch : secondBatch).add(picture(id, "cat", null, null, PASS));
+        }
+        Mockito.when(pictureMapper.selectList(Mockito.any())).thenReturn(firstBatch, secondBatch);
+        ReflectionTestUtils.invokeMethod(pictureSearchIndex, "rebuild");
+        List<Long> result = pictureSearchIndex.search("cat", null, true, PASS, null);
+        assertEquals(1500, result.size());
+        // 相关度相同时按 id 倒序
+        assertEquals(1500L, result.get(0));
+        assertEquals(1L, result.get(1499));
+    }
+
+    @Test
+    public void reloadChangedPictures() {
+        build(picture(1L, "cat", null, null, PASS),
+                picture(2L, "cat", null, null, PASS));
+        // 图片 1 改名，图片 2 被删除
+        Mockito.when(pictureMapper.selectList(Mockito.any()))
+                .thenReturn(Collections.singletonList(picture(1L, "dog", null, null, PASS)));
+        pictureSearchIndex.notifyChanged(Arrays.asList(1L, 2L));
+        assertTrue(search("cat").isEmpty());
+        assertEquals(Collections.singletonList(1L), search("dog"));
+    }
+
+    private void build(Picture... pictures) {
+        Mockito.when(pictureMapper.selectList(Mockito.any())).thenReturn(Arrays.asList(pictures));
+        ReflectionTestUtils.invokeMethod(pictureSearchIndex, "rebuild");
+        assertTrue(pictureSearchIndex.isReady());
+    }
+
+    private List<Long> search(String searchText) {
+        return pictureSearchIndex.search(searchText, null, true, PASS, null);
+    }
+
+    private Picture picture(Long id, String name, String introduction, String tags, int reviewStatus) {
+        Picture picture = new Picture();
+        picture.setId(id);
+        picture.setName(name);
+        picture.setIntroduction(introduction);
+        picture.setTags(tags);
+        picture.setReviewStatus(reviewStatus);
+        return picture;
+    }
+}
@@ -0,0 +1,65 @@
+package com.polar.cloudimage.manager.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片搜索分词器测试
+ */
+public class PictureTokenizerTest {
+
+    @Test
+    public void indexWordsWithAllPrefixes() {
+        Map<String, Integer> tokens = PictureTokenizer.tokenizeForIndex("Wild Cat");
+        assertEquals(new LinkedHashSet<>(Arrays.asList("w", "wi", "wil", "wild", "c", "ca", "cat")), tokens.keySet());
+        // 只记录前缀，不记录后缀：cat 不会命中 wildcat
+        assertFalse(PictureTokenizer.tokenizeForIndex("wildcat").containsKey("cat"));
+    }
+
+    @Test
+    public void indexLongWordKeepsBoundedPrefixesAndWholeWord() {
+        String word = "abcdefghijklmnopqrst";
+        Map<String, Integer> tokens = PictureTokenizer.tokenizeForIndex(word);
+        assertTrue(tokens.containsKey("abcdefghijklmnop"));
+        assertFalse(tokens.containsKey("abcdefghijklmnopq"));
+        assertTrue(tokens.containsKey(word));
+        assertEquals(17, tokens.size());
+    }
+
+    @Test
+    public void indexCjkAsUnigramsAndBigrams() {
+        Map<String, Integer> tokens = PictureTokenizer.tokenizeForIndex("蓝天白云");
+        assertEquals(new LinkedHashSet<>(Arrays.asList("蓝", "天", "白", "云", "蓝天", "天白", "白云")), tokens.keySet());
+    }
+
+    @Test
+    public void indexCountsRepeatedTokens() {
+        Map<String, Integer> tokens = PictureTokenizer.tokenizeForIndex("cat cat dog");
+        assertEquals(2, tokens.get("cat"));
+        assertEquals(1, tokens.get("dog"));
+    }
+
+    @Test
+    public void querySplitsMixedScriptsAndLowercases() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("4k", "壁纸", "cat")),
+                PictureTokenizer.tokenizeForQuery("4K壁纸, CAT!"));
+    }
+
+    @Test
+    public void queryUsesBigramsForMultiCharCjkAndUnigramForSingleChar() {
+        assertEquals(new LinkedHashSet<>(Arrays.asList("蓝天", "天白", "白云")), PictureTokenizer.tokenizeForQuery("蓝天白云"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList("猫", "cute")), PictureTokenizer.tokenizeForQuery("猫 cute"));
+    }
+
+    @Test
+    public void blankTextHasNoTokens() {
+        assertTrue(PictureTokenizer.tokenizeForQuery(null).isEmpty());
+        assertTrue(PictureTokenizer.tokenizeForQuery(" ,.!").isEmpty());
+        assertTrue(PictureTokenizer.tokenizeForIndex("").isEmpty());
+    }
+}
@@ -0,0 +1,120 @@
+package com.polar.cloudimage.manager.upload;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.manager.CosManager;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.manager.upload.processor.ImageProcessor;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.service.PictureFileService;
+import com.qcloud.cos.model.PartETag;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分块上传测试
+ */
+public class MultipartPictureUploadTest {
+
+    private static final byte[] CONTENT = "picture".getBytes(StandardCharsets.UTF_8);
+
+    private CosManager cosManager;
+
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private StorageBackend storageBackend;
+
+    private PictureFileService pictureFileService;
+
+    private ImageProcessor imageProcessor;
+
+    private MultipartPictureUpload multipartPictureUpload;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        cosManager = Mockito.mock(CosManager.class);
+        StringRedisTemplate stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+        hashOperations = Mockito.mock(HashOperations.class);
+        Mockito.when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        storageBackend = Mockito.mock(StorageBackend.class);
+        pictureFileService = Mockito.mock(PictureFileService.class);
+        imageProcessor = Mockito.mock(ImageProcessor.class);
+        multipartPictureUpload = new MultipartPictureUpload();
+        ReflectionTestUtils.setField(multipartPictureUpload, "cosManager", cosManager);
+        ReflectionTestUtils.setField(multipartPictureUpload, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(multipartPictureUpload, "storageBackend", storageBackend);
+        ReflectionTestUtils.setField(multipartPictureUpload, "pictureFileService", pictureFileService);
+        ReflectionTestUtils.setField(multipartPictureUpload, "imageProcessor", imageProcessor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        multipartPictureUpload.destroy();
+    }
+
+    @Test
+    public void uploadPart() {
+        Mockito.when(cosManager.uploadPart(ArgumentMatchers.eq("/space/1/a.png"), ArgumentMatchers.eq("u1"),
+                        ArgumentMatchers.eq(1), ArgumentMatchers.any(), ArgumentMatchers.eq((long) CONTENT.length)))
+                .thenReturn(new PartETag(1, "etag"));
+        assertTrue(multipartPictureUpload.uploadPart(session(), 1, new ByteArrayInputStream(CONTENT), CONTENT.length).join());
+        Mockito.verify(hashOperations).put("cloudimage:multipartUpload:u1:parts", "1", "etag");
+    }
+
+    @Test
+    public void rejectIncompletePartOnRequestThread() {
+        BusinessException e = assertThrows(BusinessException.class, () -> multipartPictureUpload.uploadPart(session(), 1,
+                new ByteArrayInputStream(CONTENT, 0, CONTENT.length - 1), CONTENT.length));
+        assertEquals(ErrorCode.PARAMS_ERROR.getCode(), e.getCode());
+        Mockito.verifyNoInteractions(cosManager);
+    }
+
+    @Test
+    public void completeReusesUploadedContent() {
+        Mockito.when(hashOperations.entries("cloudimage:multipartUpload:u1:parts"))
+                .thenReturn(Collections.singletonMap("1", "etag"));
+        Mockito.when(storageBackend.getObject("/space/1/a.png")).thenReturn(new ByteArrayInputStream(CONTENT));
+        UploadPictureResult uploadedResult = new UploadPictureResult();
+        uploadedResult.setReused(true);
+        Mockito.when(pictureFileService.getUploadedResult(DigestUtil.sha256Hex(CONTENT), "/space/1/a.png", "a.png")).thenReturn(uploadedResult);
+
+        assertSame(uploadedResult, multipartPictureUpload.complete(session()));
+        Mockito.verify(storageBackend).deleteObject("/space/1/a.png");
+        Mockito.verifyNoInteractions(imageProcessor);
+    }
+
+    @Test
+    public void completeRecordsContentHash() {
+        Mockito.when(hashOperations.entries("cloudimage:multipartUpload:u1:parts"))
+                .thenReturn(Collections.singletonMap("1", "etag"));
+        Mockito.when(storageBackend.getObject("/space/1/a.png")).thenReturn(new ByteArrayInputStream(CONTENT));
+        Mockito.when(imageProcessor.process("/space/1/a.png", "a.png", CONTENT.length)).thenReturn(new UploadPictureResult());
+
+        assertEquals(DigestUtil.sha256Hex(CONTENT), multipartPictureUpload.complete(session()).getContentHash());
+    }
+
+    private static MultipartUploadSession session() {
+        MultipartUploadSession session = new MultipartUploadSession();
+        session.setUploadId("u1");
+        session.setKey("/space/1/a.png");
+        session.setFileName("a.png");
+        session.setFileSize((long) CONTENT.length);
+        session.setPartSize(MultipartPictureUpload.PART_SIZE);
+        session.setPartCount(1);
+        return session;
+    }
+}
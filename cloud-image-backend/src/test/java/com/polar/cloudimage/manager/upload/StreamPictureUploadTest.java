@@ -0,0 +1,37 @@
+package com.polar.cloudimage.manager.upload;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 请求体流式上传测试
+ */
+public class StreamPictureUploadTest {
+
+    private final StreamPictureUpload streamPictureUpload = new StreamPictureUpload();
+
+    @Test
+    public void suffixFollowsContentType() {
+        // 客户端传入的后缀不生效
+        assertEquals("x.png", streamPictureUpload.getOriginFilename(request("image/png", "x.html")));
+        assertEquals("cat.jpg", streamPictureUpload.getOriginFilename(request("image/jpeg; charset=binary", "cat.png")));
+        assertEquals("a.webp", streamPictureUpload.getOriginFilename(request("image/webp", "../../a.webp")));
+    }
+
+    @Test
+    public void defaultFileName() {
+        assertEquals("picture.png", streamPictureUpload.getOriginFilename(request("image/png", null)));
+        assertEquals("picture.jpg", streamPictureUpload.getOriginFilename(request("image/jpg", " ")));
+    }
+
+    private static MockHttpServletRequest request(String contentType, String fileName) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/picture/upload/stream");
+        request.setContentType(contentType);
+        if (fileName != null) {
+            request.setParameter("fileName", fileName);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,36 @@
+package com.polar.cloudimage.model.dto.picture;
+
+import cn.hutool.core.codec.Base64;
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片分页游标编码测试
+ */
+public class PictureCursorTest {
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        PictureCursor cursor = new PictureCursor("createTime", 1729000000123L, 1850000000000000001L);
+        String encoded = cursor.encode();
+        // URL 安全，可以直接放在查询参数中
+        assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="));
+        assertEquals(cursor, PictureCursor.decode(encoded));
+    }
+
+    @Test
+    public void decodeRejectsMalformedCursor() {
+        assertInvalid("not a cursor");
+        assertInvalid(new PictureCursor("id", 1, 1).encode() + "AAAA");
+        assertInvalid(Base64.encodeUrlSafe("id:abc:1"));
+        assertInvalid(Base64.encodeUrlSafe("id:1"));
+    }
+
+    private void assertInvalid(String cursor) {
+        BusinessException e = assertThrows(BusinessException.class, () -> PictureCursor.decode(cursor));
+        assertEquals(ErrorCode.PARAMS_ERROR.getCode(), e.getCode());
+    }
+}
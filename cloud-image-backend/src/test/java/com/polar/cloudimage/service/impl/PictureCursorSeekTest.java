@@ -0,0 +1,60 @@
+package com.polar.cloudimage.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.polar.cloudimage.model.dto.picture.PictureCursor;
+import com.polar.cloudimage.model.entity.Picture;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 游标定位条件测试
+ */
+public class PictureCursorSeekTest {
+
+    @Test
+    public void seekByIdAscending() {
+        QueryWrapper<Picture> queryWrapper = seek(new PictureCursor("id", 5, 5), true);
+        assertEquals("(id > 5)", render(queryWrapper));
+    }
+
+    @Test
+    public void seekByIdDescending() {
+        QueryWrapper<Picture> queryWrapper = seek(new PictureCursor("id", 5, 5), false);
+        assertEquals("(id < 5)", render(queryWrapper));
+    }
+
+    @Test
+    public void seekByTimeDescendingBreaksTiesById() {
+        QueryWrapper<Picture> queryWrapper = seek(new PictureCursor("createTime", 1000, 5), false);
+        assertEquals("((createTime < 1000 OR (createTime = 1000 AND id < 5)))", render(queryWrapper));
+    }
+
+    @Test
+    public void seekByTimeAscendingBreaksTiesById() {
+        QueryWrapper<Picture> queryWrapper = seek(new PictureCursor("editTime", 1000, 5), true);
+        assertEquals("((editTime > 1000 OR (editTime = 1000 AND id > 5)))", render(queryWrapper));
+    }
+
+    private QueryWrapper<Picture> seek(PictureCursor cursor, boolean isAsc) {
+        QueryWrapper<Picture> queryWrapper = new QueryWrapper<>();
+        PictureServiceImpl.applyCursorSeek(queryWrapper, cursor, isAsc);
+        return queryWrapper;
+    }
+
+    /**
+     * 把参数占位符替换为参数值（时间参数用毫秒时间戳表示）
+     */
+    private String render(QueryWrapper<Picture> queryWrapper) {
+        String sql = queryWrapper.getSqlSegment();
+        for (Map.Entry<String, Object> entry : queryWrapper.getParamNameValuePairs().entrySet()) {
+            Object value = entry.getValue();
+            String text = value instanceof Date ? String.valueOf(((Date) value).getTime()) : String.valueOf(value);
+            sql = sql.replace("#{ew.paramNameValuePairs." + entry.getKey() + "}", text);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,174 @@
+package com.polar.cloudimage.service.impl;
+
+import com.polar.cloudimage.exception.BusinessException;
+import com.polar.cloudimage.exception.ErrorCode;
+import com.polar.cloudimage.manager.storage.StorageBackend;
+import com.polar.cloudimage.mapper.PictureFileMapper;
+import com.polar.cloudimage.model.dto.file.UploadPictureResult;
+import com.polar.cloudimage.model.entity.PictureFile;
+import com.polar.cloudimage.service.PictureFileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图片文件引用计数测试
+ * 用内存中的 picture_file 表代替数据库，按顺序模拟并发上传和删除的交错
+ */
+public class PictureFileServiceImplTest {
+
+    private static final String URL = "https://cos/public/1/a.webp";
+
+    /**
+     * url => 图片文件
+     */
+    private final Map<String, PictureFile> table = new HashMap<>();
+
+    private PictureFileMapper pictureFileMapper;
+
+    private PictureFileServiceImpl pictureFileService;
+
+    @BeforeEach
+    public void setUp() {
+        pictureFileMapper = Mockito.mock(PictureFileMapper.class);
+        Mockito.when(pictureFileMapper.selectByUrlForUpdate(Mockito.anyString()))
+                .thenAnswer(invocation -> copy(table.get(invocation.<String>getArgument(0))));
+        Mockito.when(pictureFileMapper.incrRefCountByUrl(Mockito.anyString())).thenAnswer(invocation -> {
+            PictureFile pictureFile = table.get(invocation.<String>getArgument(0));
+            if (pictureFile == null || pictureFile.getRefCount() <= 0) {
+                return 0;
+            }
+            pictureFile.setRefCount(pictureFile.getRefCount() + 1);
+            return 1;
+        });
+        Mockito.when(pictureFileMapper.decrRefCount(Mockito.anyLong())).thenAnswer(invocation -> {
+            PictureFile pictureFile = findById(invocation.getArgument(0));
+            pictureFile.setRefCount(pictureFile.getRefCount() - 1);
+            return 1;
+        });
+        Mockito.when(pictureFileMapper.deleteById(Mockito.any(Serializable.class))).thenAnswer(invocation -> {
+            PictureFile pictureFile = findById(invocation.getArgument(0));
+            table.remove(pictureFile.getUrl());
+            return 1;
+        });
+        Mockito.when(pictureFileMapper.insertOrIncrRefCount(Mockito.any())).thenAnswer(invocation -> {
+            PictureFile pictureFile = invocation.getArgument(0);
+            PictureFile exist = table.get(pictureFile.getUrl());
+            if (exist != null) {
+                exist.setRefCount(exist.getRefCount() + 1);
+            } else {
+                pictureFile.setId((long) table.size() + 1);
+                pictureFile.setRefCount(1);
+                table.put(pictureFile.getUrl(), pictureFile);
+            }
+            return 1;
+        });
+        StorageBackend storageBackend = Mockito.mock(StorageBackend.class, Mockito.CALLS_REAL_METHODS);
+        Mockito.doReturn("https://cos").when(storageBackend).getHost();
+        pictureFileService = new PictureFileServiceImpl();
+        ReflectionTestUtils.setField(pictureFileService, "baseMapper", pictureFileMapper);
+        ReflectionTestUtils.setField(pictureFileService, "storageBackend", storageBackend);
+    }
+
+    @Test
+    public void releaseDeletesOnlyLastReference() {
+        putFile(2);
+        assertFalse(pictureFileService.release(URL));
+        assertEquals(1, table.get(URL).getRefCount());
+        assertTrue(pictureFileService.release(URL));
+        assertFalse(table.containsKey(URL));
+    }
+
+    @Test
+    public void releaseUnregisteredFile() {
+        assertTrue(pictureFileService.release(URL));
+    }
+
+    @Test
+    public void reuseBeforeReleaseKeepsFile() {
+        putFile(1);
+        UploadPictureResult reused = reusedResult();
+        pictureFileService.acquire(reused);
+        assertEquals(2, table.get(URL).getRefCount());
+        // 旧图片删除时文件仍被新图片引用，不能删除对象
+        assertFalse(pictureFileService.release(URL));
+        assertEquals(1, table.get(URL).getRefCount());
+    }
+
+    @Test
+    public void reuseAfterReleaseDoesNotResurrectDeletedFile() {
+        putFile(1);
+        // 1. 上传命中去重（此时记录还在）
+        UploadPictureResult reused = reusedResult();
+        // 2. 唯一引用的图片被删除，记录删除，对象随后会被删除
+        assertTrue(pictureFileService.release(URL));
+        // 3. 上传继续登记引用，不能重新插入指向已删除对象的记录
+        BusinessException e = assertThrows(BusinessException.class, () -> pictureFileService.acquire(reused));
+        assertEquals(ErrorCode.OPERATION_ERROR.getCode(), e.getCode());
+        assertFalse(table.containsKey(URL));
+        Mockito.verify(pictureFileMapper, Mockito.never()).insertOrIncrRefCount(Mockito.any());
+    }
+
+    @Test
+    public void acquireNewFileInsertsRecord() {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl(URL);
+        pictureFileService.acquire(uploadPictureResult);
+        assertEquals(1, table.get(URL).getRefCount());
+    }
+
+    @Test
+    public void storageScope() {
+        assertEquals("public", PictureFileService.getStorageScope("/public/1/a.png"));
+        assertEquals("space/5", PictureFileService.getStorageScope("/space/5/a.png"));
+        assertEquals("space/5", PictureFileService.getStorageScope("space/5/a_thumbnail.png"));
+    }
+
+    @Test
+    public void acquireNewFileRecordsStorageScope() {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl("https://cos//space/5/a.png");
+        pictureFileService.acquire(uploadPictureResult);
+        assertEquals("space/5", table.get("https://cos//space/5/a.png").getStorageScope());
+    }
+
+    private void putFile(int refCount) {
+        PictureFile pictureFile = new PictureFile();
+        pictureFile.setId(100L);
+        pictureFile.setUrl(URL);
+        pictureFile.setContentHash("hash");
+        pictureFile.setRefCount(refCount);
+        table.put(URL, pictureFile);
+    }
+
+    private UploadPictureResult reusedResult() {
+        UploadPictureResult uploadPictureResult = new UploadPictureResult();
+        uploadPictureResult.setUrl(URL);
+        uploadPictureResult.setContentHash("hash");
+        uploadPictureResult.setProcessed(true);
+        uploadPictureResult.setReused(true);
+        return uploadPictureResult;
+    }
+
+    private PictureFile findById(Object id) {
+        return table.values().stream().filter(pictureFile -> pictureFile.getId().equals(id)).findFirst().orElse(null);
+    }
+
+    private PictureFile copy(PictureFile pictureFile) {
+        if (pictureFile == null) {
+            return null;
+        }
+        PictureFile copy = new PictureFile();
+        copy.setId(pictureFile.getId());
+        copy.setUrl(pictureFile.getUrl());
+        copy.setRefCount(pictureFile.getRefCount());
+        return copy;
+    }
+}
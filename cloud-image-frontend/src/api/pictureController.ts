@@ -77,6 +77,23 @@ export async function getPictureVoByIdUsingGet(
   })
 }
 
+/** listPictureVOByIds GET /api/picture/get/vo/batch */
+export async function listPictureVoByIdsUsingGet(
+  // 叠加生成的Param类型 (非body参数swagger默认没有生成对象)
+  params: API.listPictureVOByIdsUsingGETParams,
+  options?: { [key: string]: any }
+) {
+  return request<API.BaseResponseListPictureVO_>('/api/picture/get/vo/batch', {
+    method: 'GET',
+    params: {
+      ...params,
+      // 逗号分隔传给后端
+      ids: params.ids?.join(','),
+    },
+    ...(options || {}),
+  })
+}
+
 /** listPictureByPage POST /api/picture/list/page */
 export async function listPictureByPageUsingPost(
   body: API.PictureQueryRequest,
@@ -92,6 +109,21 @@ export async function listPictureByPageUsingPost(
   })
 }
 
+/** listPictureVOByCursor POST /api/picture/list/cursor/vo */
+export async function listPictureVoByCursorUsingPost(
+  body: API.PictureQueryRequest,
+  options?: { [key: string]: any }
+) {
+  return request<API.BaseResponsePictureCursorPageVO_>('/api/picture/list/cursor/vo', {
+    method: 'POST',
+    headers: {
+      'Content-Type': 'application/json',
+    },
+    data: body,
+    ...(options || {}),
+  })
+}
+
 /** listPictureVOByPage POST /api/picture/list/page/vo */
 export async function listPictureVoByPageUsingPost(
   body: API.PictureQueryRequest,
@@ -272,7 +304,7 @@ export async function uploadPictureByBatchUsingPost(
   body: API.PictureUploadByBatchRequest,
   options?: { [key: string]: any }
 ) {
-  return request<API.BaseResponseInt_>('/api/picture/upload/batch', {
+  return request<API.BaseResponseString_>('/api/picture/upload/batch', {
     method: 'POST',
     headers: {
       'Content-Type': 'application/json',
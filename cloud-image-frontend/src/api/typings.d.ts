@@ -101,6 +101,12 @@ declare namespace API {
     message?: string
   }
 
+  type BaseResponsePictureCursorPageVO_ = {
+    code?: number
+    data?: PictureCursorPageVO
+    message?: string
+  }
+
   type BaseResponsePageSpace_ = {
     code?: number
     data?: PageSpace_
@@ -215,6 +221,11 @@ declare namespace API {
     id?: number
   }
 
+  type listPictureVOByIdsUsingGETParams = {
+    /** ids */
+    ids: number[]
+  }
+
   type getSpaceByIdUsingGETParams = {
     /** id */
     id?: number
@@ -270,6 +281,7 @@ declare namespace API {
   }
 
   type PagePicture_ = {
+    approximate?: boolean
     current?: number
     pages?: number
     records?: Picture[]
@@ -278,6 +290,7 @@ declare namespace API {
   }
 
   type PagePictureVO_ = {
+    approximate?: boolean
     current?: number
     pages?: number
     records?: PictureVO[]
@@ -368,6 +381,7 @@ declare namespace API {
   type PictureQueryRequest = {
     category?: string
     current?: number
+    cursor?: string
     endEditTime?: string
     id?: number
     introduction?: string
@@ -379,6 +393,7 @@ declare namespace API {
     picScale?: number
     picSize?: number
     picWidth?: number
+    projection?: string
     reviewMessage?: string
     reviewStatus?: number
     reviewTime?: string
@@ -398,6 +413,12 @@ declare namespace API {
     reviewStatus?: number
   }
 
+  type PictureCursorPageVO = {
+    hasMore?: boolean
+    nextCursor?: string
+    records?: PictureVO[]
+  }
+
   type PictureTagCategory = {
     categoryList?: string[]
     tagList?: string[]